@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField HEADER_FIELD_DESC = new org.apache.thrift.protocol.TField("header", org.apache.thrift.protocol.TType.STRUCT, (short)1);
   private static final org.apache.thrift.protocol.TField STORE_NAME_FIELD_DESC = new org.apache.thrift.protocol.TField("storeName", org.apache.thrift.protocol.TType.STRING, (short)2);
   private static final org.apache.thrift.protocol.TField KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("key", org.apache.thrift.protocol.TType.STRING, (short)3);
+  private static final org.apache.thrift.protocol.TField KEYS_FIELD_DESC = new org.apache.thrift.protocol.TField("keys", org.apache.thrift.protocol.TType.LIST, (short)4);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -45,13 +46,15 @@ import org.slf4j.LoggerFactory;
 
   public AsyncMessageHeader header; // required
   public String storeName; // required
-  public ByteBuffer key; // required
+  public ByteBuffer key; // optional
+  public List<ByteBuffer> keys; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     HEADER((short)1, "header"),
     STORE_NAME((short)2, "storeName"),
-    KEY((short)3, "key");
+    KEY((short)3, "key"),
+    KEYS((short)4, "keys");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -72,6 +75,8 @@ import org.slf4j.LoggerFactory;
           return STORE_NAME;
         case 3: // KEY
           return KEY;
+        case 4: // KEYS
+          return KEYS;
         default:
           return null;
       }
@@ -112,6 +117,7 @@ import org.slf4j.LoggerFactory;
   }
 
   // isset id assignments
+  private _Fields optionals[] = {_Fields.KEY,_Fields.KEYS};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -119,8 +125,11 @@ import org.slf4j.LoggerFactory;
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, AsyncMessageHeader.class)));
     tmpMap.put(_Fields.STORE_NAME, new org.apache.thrift.meta_data.FieldMetaData("storeName", org.apache.thrift.TFieldRequirementType.REQUIRED, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
-    tmpMap.put(_Fields.KEY, new org.apache.thrift.meta_data.FieldMetaData("key", org.apache.thrift.TFieldRequirementType.REQUIRED, 
+    tmpMap.put(_Fields.KEY, new org.apache.thrift.meta_data.FieldMetaData("key", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING        , true)));
+    tmpMap.put(_Fields.KEYS, new org.apache.thrift.meta_data.FieldMetaData("keys", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING            , true))));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(GetRequestMessage.class, metaDataMap);
   }
@@ -130,13 +139,11 @@ import org.slf4j.LoggerFactory;
 
   public GetRequestMessage(
     AsyncMessageHeader header,
-    String storeName,
-    ByteBuffer key)
+    String storeName)
   {
     this();
     this.header = header;
     this.storeName = storeName;
-    this.key = key;
   }
 
   /**
@@ -153,6 +160,15 @@ import org.slf4j.LoggerFactory;
       this.key = org.apache.thrift.TBaseHelper.copyBinary(other.key);
 ;
     }
+    if (other.isSetKeys()) {
+      List<ByteBuffer> __this__keys = new ArrayList<ByteBuffer>();
+      for (ByteBuffer other_element : other.keys) {
+        ByteBuffer temp_binary_element = org.apache.thrift.TBaseHelper.copyBinary(other_element);
+;
+        __this__keys.add(temp_binary_element);
+      }
+      this.keys = __this__keys;
+    }
   }
 
   public GetRequestMessage deepCopy() {
@@ -164,6 +180,7 @@ import org.slf4j.LoggerFactory;
     this.header = null;
     this.storeName = null;
     this.key = null;
+    this.keys = null;
   }
 
   public AsyncMessageHeader getHeader() {
@@ -248,6 +265,45 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  public int getKeysSize() {
+    return (this.keys == null) ? 0 : this.keys.size();
+  }
+
+  public java.util.Iterator<ByteBuffer> getKeysIterator() {
+    return (this.keys == null) ? null : this.keys.iterator();
+  }
+
+  public void addToKeys(ByteBuffer elem) {
+    if (this.keys == null) {
+      this.keys = new ArrayList<ByteBuffer>();
+    }
+    this.keys.add(elem);
+  }
+
+  public List<ByteBuffer> getKeys() {
+    return this.keys;
+  }
+
+  public GetRequestMessage setKeys(List<ByteBuffer> keys) {
+    this.keys = keys;
+    return this;
+  }
+
+  public void unsetKeys() {
+    this.keys = null;
+  }
+
+  /** Returns true if field keys is set (has been assigned a value) and false otherwise */
+  public boolean isSetKeys() {
+    return this.keys != null;
+  }
+
+  public void setKeysIsSet(boolean value) {
+    if (!value) {
+      this.keys = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case HEADER:
@@ -274,6 +330,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case KEYS:
+      if (value == null) {
+        unsetKeys();
+      } else {
+        setKeys((List<ByteBuffer>)value);
+      }
+      break;
+
     }
   }
 
@@ -288,6 +352,9 @@ import org.slf4j.LoggerFactory;
     case KEY:
       return getKey();
 
+    case KEYS:
+      return getKeys();
+
     }
     throw new IllegalStateException();
   }
@@ -305,6 +372,8 @@ import org.slf4j.LoggerFactory;
       return isSetStoreName();
     case KEY:
       return isSetKey();
+    case KEYS:
+      return isSetKeys();
     }
     throw new IllegalStateException();
   }
@@ -349,6 +418,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_keys = true && this.isSetKeys();
+    boolean that_present_keys = true && that.isSetKeys();
+    if (this_present_keys || that_present_keys) {
+      if (!(this_present_keys && that_present_keys))
+        return false;
+      if (!this.keys.equals(that.keys))
+        return false;
+    }
+
     return true;
   }
 
@@ -395,6 +473,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetKeys()).compareTo(typedOther.isSetKeys());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetKeys()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.keys, typedOther.keys);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -430,14 +518,26 @@ import org.slf4j.LoggerFactory;
       sb.append(this.storeName);
     }
     first = false;
-    if (!first) sb.append(", ");
-    sb.append("key:");
-    if (this.key == null) {
-      sb.append("null");
-    } else {
-      org.apache.thrift.TBaseHelper.toString(this.key, sb);
+    if (isSetKey()) {
+      if (!first) sb.append(", ");
+      sb.append("key:");
+      if (this.key == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.key, sb);
+      }
+      first = false;
+    }
+    if (isSetKeys()) {
+      if (!first) sb.append(", ");
+      sb.append("keys:");
+      if (this.keys == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.keys);
+      }
+      first = false;
     }
-    first = false;
     sb.append(")");
     return sb.toString();
   }
@@ -450,9 +550,6 @@ import org.slf4j.LoggerFactory;
     if (storeName == null) {
       throw new org.apache.thrift.protocol.TProtocolException("Required field 'storeName' was not present! Struct: " + toString());
     }
-    if (key == null) {
-      throw new org.apache.thrift.protocol.TProtocolException("Required field 'key' was not present! Struct: " + toString());
-    }
     // check for sub-struct validity
     if (header != null) {
       header.validate();
@@ -518,6 +615,24 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 4: // KEYS
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list0 = iprot.readListBegin();
+                struct.keys = new ArrayList<ByteBuffer>(_list0.size);
+                for (int _i1 = 0; _i1 < _list0.size; ++_i1)
+                {
+                  ByteBuffer _elem2; // required
+                  _elem2 = iprot.readBinary();
+                  struct.keys.add(_elem2);
+                }
+                iprot.readListEnd();
+              }
+              struct.setKeysIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -544,9 +659,25 @@ import org.slf4j.LoggerFactory;
         oprot.writeFieldEnd();
       }
       if (struct.key != null) {
-        oprot.writeFieldBegin(KEY_FIELD_DESC);
-        oprot.writeBinary(struct.key);
-        oprot.writeFieldEnd();
+        if (struct.isSetKey()) {
+          oprot.writeFieldBegin(KEY_FIELD_DESC);
+          oprot.writeBinary(struct.key);
+          oprot.writeFieldEnd();
+        }
+      }
+      if (struct.keys != null) {
+        if (struct.isSetKeys()) {
+          oprot.writeFieldBegin(KEYS_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, struct.keys.size()));
+            for (ByteBuffer _iter3 : struct.keys)
+            {
+              oprot.writeBinary(_iter3);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
       }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
@@ -567,7 +698,26 @@ import org.slf4j.LoggerFactory;
       TTupleProtocol oprot = (TTupleProtocol) prot;
       struct.header.write(oprot);
       oprot.writeString(struct.storeName);
-      oprot.writeBinary(struct.key);
+      BitSet optionals = new BitSet();
+      if (struct.isSetKey()) {
+        optionals.set(0);
+      }
+      if (struct.isSetKeys()) {
+        optionals.set(1);
+      }
+      oprot.writeBitSet(optionals, 2);
+      if (struct.isSetKey()) {
+        oprot.writeBinary(struct.key);
+      }
+      if (struct.isSetKeys()) {
+        {
+          oprot.writeI32(struct.keys.size());
+          for (ByteBuffer _iter4 : struct.keys)
+          {
+            oprot.writeBinary(_iter4);
+          }
+        }
+      }
     }
 
     @Override
@@ -578,8 +728,24 @@ import org.slf4j.LoggerFactory;
       struct.setHeaderIsSet(true);
       struct.storeName = iprot.readString();
       struct.setStoreNameIsSet(true);
-      struct.key = iprot.readBinary();
-      struct.setKeyIsSet(true);
+      BitSet incoming = iprot.readBitSet(2);
+      if (incoming.get(0)) {
+        struct.key = iprot.readBinary();
+        struct.setKeyIsSet(true);
+      }
+      if (incoming.get(1)) {
+        {
+          org.apache.thrift.protocol.TList _list5 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRING, iprot.readI32());
+          struct.keys = new ArrayList<ByteBuffer>(_list5.size);
+          for (int _i6 = 0; _i6 < _list5.size; ++_i6)
+          {
+            ByteBuffer _elem7; // required
+            _elem7 = iprot.readBinary();
+            struct.keys.add(_elem7);
+          }
+        }
+        struct.setKeysIsSet(true);
+      }
     }
   }
 
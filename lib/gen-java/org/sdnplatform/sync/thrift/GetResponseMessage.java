@@ -36,6 +36,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField HEADER_FIELD_DESC = new org.apache.thrift.protocol.TField("header", org.apache.thrift.protocol.TType.STRUCT, (short)1);
   private static final org.apache.thrift.protocol.TField VALUES_FIELD_DESC = new org.apache.thrift.protocol.TField("values", org.apache.thrift.protocol.TType.LIST, (short)2);
   private static final org.apache.thrift.protocol.TField ERROR_FIELD_DESC = new org.apache.thrift.protocol.TField("error", org.apache.thrift.protocol.TType.STRUCT, (short)3);
+  private static final org.apache.thrift.protocol.TField KEYED_VALUES_FIELD_DESC = new org.apache.thrift.protocol.TField("keyedValues", org.apache.thrift.protocol.TType.LIST, (short)4);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -46,12 +47,14 @@ import org.slf4j.LoggerFactory;
   public AsyncMessageHeader header; // required
   public List<VersionedValue> values; // required
   public SyncError error; // optional
+  public List<KeyedValues> keyedValues; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
     HEADER((short)1, "header"),
     VALUES((short)2, "values"),
-    ERROR((short)3, "error");
+    ERROR((short)3, "error"),
+    KEYED_VALUES((short)4, "keyedValues");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -72,6 +75,8 @@ import org.slf4j.LoggerFactory;
           return VALUES;
         case 3: // ERROR
           return ERROR;
+        case 4: // KEYED_VALUES
+          return KEYED_VALUES;
         default:
           return null;
       }
@@ -112,7 +117,7 @@ import org.slf4j.LoggerFactory;
   }
 
   // isset id assignments
-  private _Fields optionals[] = {_Fields.ERROR};
+  private _Fields optionals[] = {_Fields.ERROR,_Fields.KEYED_VALUES};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -123,6 +128,9 @@ import org.slf4j.LoggerFactory;
             new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, VersionedValue.class))));
     tmpMap.put(_Fields.ERROR, new org.apache.thrift.meta_data.FieldMetaData("error", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, SyncError.class)));
+    tmpMap.put(_Fields.KEYED_VALUES, new org.apache.thrift.meta_data.FieldMetaData("keyedValues", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, KeyedValues.class))));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(GetResponseMessage.class, metaDataMap);
   }
@@ -156,6 +164,13 @@ import org.slf4j.LoggerFactory;
     if (other.isSetError()) {
       this.error = new SyncError(other.error);
     }
+    if (other.isSetKeyedValues()) {
+      List<KeyedValues> __this__keyedValues = new ArrayList<KeyedValues>();
+      for (KeyedValues other_element : other.keyedValues) {
+        __this__keyedValues.add(new KeyedValues(other_element));
+      }
+      this.keyedValues = __this__keyedValues;
+    }
   }
 
   public GetResponseMessage deepCopy() {
@@ -167,6 +182,7 @@ import org.slf4j.LoggerFactory;
     this.header = null;
     this.values = null;
     this.error = null;
+    this.keyedValues = null;
   }
 
   public AsyncMessageHeader getHeader() {
@@ -256,6 +272,45 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  public int getKeyedValuesSize() {
+    return (this.keyedValues == null) ? 0 : this.keyedValues.size();
+  }
+
+  public java.util.Iterator<KeyedValues> getKeyedValuesIterator() {
+    return (this.keyedValues == null) ? null : this.keyedValues.iterator();
+  }
+
+  public void addToKeyedValues(KeyedValues elem) {
+    if (this.keyedValues == null) {
+      this.keyedValues = new ArrayList<KeyedValues>();
+    }
+    this.keyedValues.add(elem);
+  }
+
+  public List<KeyedValues> getKeyedValues() {
+    return this.keyedValues;
+  }
+
+  public GetResponseMessage setKeyedValues(List<KeyedValues> keyedValues) {
+    this.keyedValues = keyedValues;
+    return this;
+  }
+
+  public void unsetKeyedValues() {
+    this.keyedValues = null;
+  }
+
+  /** Returns true if field keyedValues is set (has been assigned a value) and false otherwise */
+  public boolean isSetKeyedValues() {
+    return this.keyedValues != null;
+  }
+
+  public void setKeyedValuesIsSet(boolean value) {
+    if (!value) {
+      this.keyedValues = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case HEADER:
@@ -282,6 +337,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case KEYED_VALUES:
+      if (value == null) {
+        unsetKeyedValues();
+      } else {
+        setKeyedValues((List<KeyedValues>)value);
+      }
+      break;
+
     }
   }
 
@@ -296,6 +359,9 @@ import org.slf4j.LoggerFactory;
     case ERROR:
       return getError();
 
+    case KEYED_VALUES:
+      return getKeyedValues();
+
     }
     throw new IllegalStateException();
   }
@@ -313,6 +379,8 @@ import org.slf4j.LoggerFactory;
       return isSetValues();
     case ERROR:
       return isSetError();
+    case KEYED_VALUES:
+      return isSetKeyedValues();
     }
     throw new IllegalStateException();
   }
@@ -357,6 +425,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_keyedValues = true && this.isSetKeyedValues();
+    boolean that_present_keyedValues = true && that.isSetKeyedValues();
+    if (this_present_keyedValues || that_present_keyedValues) {
+      if (!(this_present_keyedValues && that_present_keyedValues))
+        return false;
+      if (!this.keyedValues.equals(that.keyedValues))
+        return false;
+    }
+
     return true;
   }
 
@@ -403,6 +480,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetKeyedValues()).compareTo(typedOther.isSetKeyedValues());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetKeyedValues()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.keyedValues, typedOther.keyedValues);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -448,6 +535,16 @@ import org.slf4j.LoggerFactory;
       }
       first = false;
     }
+    if (isSetKeyedValues()) {
+      if (!first) sb.append(", ");
+      sb.append("keyedValues:");
+      if (this.keyedValues == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.keyedValues);
+      }
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -537,6 +634,25 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 4: // KEYED_VALUES
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list100 = iprot.readListBegin();
+                struct.keyedValues = new ArrayList<KeyedValues>(_list100.size);
+                for (int _i101 = 0; _i101 < _list100.size; ++_i101)
+                {
+                  KeyedValues _elem102; // required
+                  _elem102 = new KeyedValues();
+                  _elem102.read(iprot);
+                  struct.keyedValues.add(_elem102);
+                }
+                iprot.readListEnd();
+              }
+              struct.setKeyedValuesIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -576,6 +692,20 @@ import org.slf4j.LoggerFactory;
           oprot.writeFieldEnd();
         }
       }
+      if (struct.keyedValues != null) {
+        if (struct.isSetKeyedValues()) {
+          oprot.writeFieldBegin(KEYED_VALUES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, struct.keyedValues.size()));
+            for (KeyedValues _iter103 : struct.keyedValues)
+            {
+              _iter103.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -601,7 +731,10 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetError()) {
         optionals.set(1);
       }
-      oprot.writeBitSet(optionals, 2);
+      if (struct.isSetKeyedValues()) {
+        optionals.set(2);
+      }
+      oprot.writeBitSet(optionals, 3);
       if (struct.isSetValues()) {
         {
           oprot.writeI32(struct.values.size());
@@ -614,6 +747,15 @@ import org.slf4j.LoggerFactory;
       if (struct.isSetError()) {
         struct.error.write(oprot);
       }
+      if (struct.isSetKeyedValues()) {
+        {
+          oprot.writeI32(struct.keyedValues.size());
+          for (KeyedValues _iter104 : struct.keyedValues)
+          {
+            _iter104.write(oprot);
+          }
+        }
+      }
     }
 
     @Override
@@ -622,7 +764,7 @@ import org.slf4j.LoggerFactory;
       struct.header = new AsyncMessageHeader();
       struct.header.read(iprot);
       struct.setHeaderIsSet(true);
-      BitSet incoming = iprot.readBitSet(2);
+      BitSet incoming = iprot.readBitSet(3);
       if (incoming.get(0)) {
         {
           org.apache.thrift.protocol.TList _list29 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
@@ -642,6 +784,20 @@ import org.slf4j.LoggerFactory;
         struct.error.read(iprot);
         struct.setErrorIsSet(true);
       }
+      if (incoming.get(2)) {
+        {
+          org.apache.thrift.protocol.TList _list105 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+          struct.keyedValues = new ArrayList<KeyedValues>(_list105.size);
+          for (int _i106 = 0; _i106 < _list105.size; ++_i106)
+          {
+            KeyedValues _elem107; // required
+            _elem107 = new KeyedValues();
+            _elem107.read(iprot);
+            struct.keyedValues.add(_elem107);
+          }
+        }
+        struct.setKeyedValuesIsSet(true);
+      }
     }
   }
 
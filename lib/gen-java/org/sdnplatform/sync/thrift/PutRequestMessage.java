@@ -38,6 +38,7 @@ import org.slf4j.LoggerFactory;
   private static final org.apache.thrift.protocol.TField KEY_FIELD_DESC = new org.apache.thrift.protocol.TField("key", org.apache.thrift.protocol.TType.STRING, (short)3);
   private static final org.apache.thrift.protocol.TField VERSIONED_VALUE_FIELD_DESC = new org.apache.thrift.protocol.TField("versionedValue", org.apache.thrift.protocol.TType.STRUCT, (short)4);
   private static final org.apache.thrift.protocol.TField VALUE_FIELD_DESC = new org.apache.thrift.protocol.TField("value", org.apache.thrift.protocol.TType.STRING, (short)5);
+  private static final org.apache.thrift.protocol.TField KEYED_VALUES_FIELD_DESC = new org.apache.thrift.protocol.TField("keyedValues", org.apache.thrift.protocol.TType.LIST, (short)6);
 
   private static final Map<Class<? extends IScheme>, SchemeFactory> schemes = new HashMap<Class<? extends IScheme>, SchemeFactory>();
   static {
@@ -47,9 +48,10 @@ import org.slf4j.LoggerFactory;
 
   public AsyncMessageHeader header; // required
   public String storeName; // required
-  public ByteBuffer key; // required
+  public ByteBuffer key; // optional
   public VersionedValue versionedValue; // optional
   public ByteBuffer value; // optional
+  public List<KeyedValues> keyedValues; // optional
 
   /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
   public enum _Fields implements org.apache.thrift.TFieldIdEnum {
@@ -57,7 +59,8 @@ import org.slf4j.LoggerFactory;
     STORE_NAME((short)2, "storeName"),
     KEY((short)3, "key"),
     VERSIONED_VALUE((short)4, "versionedValue"),
-    VALUE((short)5, "value");
+    VALUE((short)5, "value"),
+    KEYED_VALUES((short)6, "keyedValues");
 
     private static final Map<String, _Fields> byName = new HashMap<String, _Fields>();
 
@@ -82,6 +85,8 @@ import org.slf4j.LoggerFactory;
           return VERSIONED_VALUE;
         case 5: // VALUE
           return VALUE;
+        case 6: // KEYED_VALUES
+          return KEYED_VALUES;
         default:
           return null;
       }
@@ -122,7 +127,7 @@ import org.slf4j.LoggerFactory;
   }
 
   // isset id assignments
-  private _Fields optionals[] = {_Fields.VERSIONED_VALUE,_Fields.VALUE};
+  private _Fields optionals[] = {_Fields.KEY,_Fields.VERSIONED_VALUE,_Fields.VALUE,_Fields.KEYED_VALUES};
   public static final Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
   static {
     Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
@@ -130,12 +135,15 @@ import org.slf4j.LoggerFactory;
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, AsyncMessageHeader.class)));
     tmpMap.put(_Fields.STORE_NAME, new org.apache.thrift.meta_data.FieldMetaData("storeName", org.apache.thrift.TFieldRequirementType.REQUIRED, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
-    tmpMap.put(_Fields.KEY, new org.apache.thrift.meta_data.FieldMetaData("key", org.apache.thrift.TFieldRequirementType.REQUIRED, 
+    tmpMap.put(_Fields.KEY, new org.apache.thrift.meta_data.FieldMetaData("key", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING        , true)));
     tmpMap.put(_Fields.VERSIONED_VALUE, new org.apache.thrift.meta_data.FieldMetaData("versionedValue", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, VersionedValue.class)));
     tmpMap.put(_Fields.VALUE, new org.apache.thrift.meta_data.FieldMetaData("value", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
         new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING        , true)));
+    tmpMap.put(_Fields.KEYED_VALUES, new org.apache.thrift.meta_data.FieldMetaData("keyedValues", org.apache.thrift.TFieldRequirementType.OPTIONAL, 
+        new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, 
+            new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, KeyedValues.class))));
     metaDataMap = Collections.unmodifiableMap(tmpMap);
     org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(PutRequestMessage.class, metaDataMap);
   }
@@ -145,13 +153,11 @@ import org.slf4j.LoggerFactory;
 
   public PutRequestMessage(
     AsyncMessageHeader header,
-    String storeName,
-    ByteBuffer key)
+    String storeName)
   {
     this();
     this.header = header;
     this.storeName = storeName;
-    this.key = key;
   }
 
   /**
@@ -175,6 +181,13 @@ import org.slf4j.LoggerFactory;
       this.value = org.apache.thrift.TBaseHelper.copyBinary(other.value);
 ;
     }
+    if (other.isSetKeyedValues()) {
+      List<KeyedValues> __this__keyedValues = new ArrayList<KeyedValues>();
+      for (KeyedValues other_element : other.keyedValues) {
+        __this__keyedValues.add(new KeyedValues(other_element));
+      }
+      this.keyedValues = __this__keyedValues;
+    }
   }
 
   public PutRequestMessage deepCopy() {
@@ -188,6 +201,7 @@ import org.slf4j.LoggerFactory;
     this.key = null;
     this.versionedValue = null;
     this.value = null;
+    this.keyedValues = null;
   }
 
   public AsyncMessageHeader getHeader() {
@@ -330,6 +344,45 @@ import org.slf4j.LoggerFactory;
     }
   }
 
+  public int getKeyedValuesSize() {
+    return (this.keyedValues == null) ? 0 : this.keyedValues.size();
+  }
+
+  public java.util.Iterator<KeyedValues> getKeyedValuesIterator() {
+    return (this.keyedValues == null) ? null : this.keyedValues.iterator();
+  }
+
+  public void addToKeyedValues(KeyedValues elem) {
+    if (this.keyedValues == null) {
+      this.keyedValues = new ArrayList<KeyedValues>();
+    }
+    this.keyedValues.add(elem);
+  }
+
+  public List<KeyedValues> getKeyedValues() {
+    return this.keyedValues;
+  }
+
+  public PutRequestMessage setKeyedValues(List<KeyedValues> keyedValues) {
+    this.keyedValues = keyedValues;
+    return this;
+  }
+
+  public void unsetKeyedValues() {
+    this.keyedValues = null;
+  }
+
+  /** Returns true if field keyedValues is set (has been assigned a value) and false otherwise */
+  public boolean isSetKeyedValues() {
+    return this.keyedValues != null;
+  }
+
+  public void setKeyedValuesIsSet(boolean value) {
+    if (!value) {
+      this.keyedValues = null;
+    }
+  }
+
   public void setFieldValue(_Fields field, Object value) {
     switch (field) {
     case HEADER:
@@ -372,6 +425,14 @@ import org.slf4j.LoggerFactory;
       }
       break;
 
+    case KEYED_VALUES:
+      if (value == null) {
+        unsetKeyedValues();
+      } else {
+        setKeyedValues((List<KeyedValues>)value);
+      }
+      break;
+
     }
   }
 
@@ -392,6 +453,9 @@ import org.slf4j.LoggerFactory;
     case VALUE:
       return getValue();
 
+    case KEYED_VALUES:
+      return getKeyedValues();
+
     }
     throw new IllegalStateException();
   }
@@ -413,6 +477,8 @@ import org.slf4j.LoggerFactory;
       return isSetVersionedValue();
     case VALUE:
       return isSetValue();
+    case KEYED_VALUES:
+      return isSetKeyedValues();
     }
     throw new IllegalStateException();
   }
@@ -475,6 +541,15 @@ import org.slf4j.LoggerFactory;
         return false;
     }
 
+    boolean this_present_keyedValues = true && this.isSetKeyedValues();
+    boolean that_present_keyedValues = true && that.isSetKeyedValues();
+    if (this_present_keyedValues || that_present_keyedValues) {
+      if (!(this_present_keyedValues && that_present_keyedValues))
+        return false;
+      if (!this.keyedValues.equals(that.keyedValues))
+        return false;
+    }
+
     return true;
   }
 
@@ -541,6 +616,16 @@ import org.slf4j.LoggerFactory;
         return lastComparison;
       }
     }
+    lastComparison = Boolean.valueOf(isSetKeyedValues()).compareTo(typedOther.isSetKeyedValues());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetKeyedValues()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.keyedValues, typedOther.keyedValues);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
     return 0;
   }
 
@@ -576,14 +661,16 @@ import org.slf4j.LoggerFactory;
       sb.append(this.storeName);
     }
     first = false;
-    if (!first) sb.append(", ");
-    sb.append("key:");
-    if (this.key == null) {
-      sb.append("null");
-    } else {
-      org.apache.thrift.TBaseHelper.toString(this.key, sb);
+    if (isSetKey()) {
+      if (!first) sb.append(", ");
+      sb.append("key:");
+      if (this.key == null) {
+        sb.append("null");
+      } else {
+        org.apache.thrift.TBaseHelper.toString(this.key, sb);
+      }
+      first = false;
     }
-    first = false;
     if (isSetVersionedValue()) {
       if (!first) sb.append(", ");
       sb.append("versionedValue:");
@@ -604,6 +691,16 @@ import org.slf4j.LoggerFactory;
       }
       first = false;
     }
+    if (isSetKeyedValues()) {
+      if (!first) sb.append(", ");
+      sb.append("keyedValues:");
+      if (this.keyedValues == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.keyedValues);
+      }
+      first = false;
+    }
     sb.append(")");
     return sb.toString();
   }
@@ -616,9 +713,6 @@ import org.slf4j.LoggerFactory;
     if (storeName == null) {
       throw new org.apache.thrift.protocol.TProtocolException("Required field 'storeName' was not present! Struct: " + toString());
     }
-    if (key == null) {
-      throw new org.apache.thrift.protocol.TProtocolException("Required field 'key' was not present! Struct: " + toString());
-    }
     // check for sub-struct validity
     if (header != null) {
       header.validate();
@@ -704,6 +798,25 @@ import org.slf4j.LoggerFactory;
               org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
             }
             break;
+          case 6: // KEYED_VALUES
+            if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+              {
+                org.apache.thrift.protocol.TList _list110 = iprot.readListBegin();
+                struct.keyedValues = new ArrayList<KeyedValues>(_list110.size);
+                for (int _i111 = 0; _i111 < _list110.size; ++_i111)
+                {
+                  KeyedValues _elem112; // required
+                  _elem112 = new KeyedValues();
+                  _elem112.read(iprot);
+                  struct.keyedValues.add(_elem112);
+                }
+                iprot.readListEnd();
+              }
+              struct.setKeyedValuesIsSet(true);
+            } else { 
+              org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+            }
+            break;
           default:
             org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
         }
@@ -730,9 +843,11 @@ import org.slf4j.LoggerFactory;
         oprot.writeFieldEnd();
       }
       if (struct.key != null) {
-        oprot.writeFieldBegin(KEY_FIELD_DESC);
-        oprot.writeBinary(struct.key);
-        oprot.writeFieldEnd();
+        if (struct.isSetKey()) {
+          oprot.writeFieldBegin(KEY_FIELD_DESC);
+          oprot.writeBinary(struct.key);
+          oprot.writeFieldEnd();
+        }
       }
       if (struct.versionedValue != null) {
         if (struct.isSetVersionedValue()) {
@@ -748,6 +863,20 @@ import org.slf4j.LoggerFactory;
           oprot.writeFieldEnd();
         }
       }
+      if (struct.keyedValues != null) {
+        if (struct.isSetKeyedValues()) {
+          oprot.writeFieldBegin(KEYED_VALUES_FIELD_DESC);
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, struct.keyedValues.size()));
+            for (KeyedValues _iter113 : struct.keyedValues)
+            {
+              _iter113.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+          oprot.writeFieldEnd();
+        }
+      }
       oprot.writeFieldStop();
       oprot.writeStructEnd();
     }
@@ -767,21 +896,38 @@ import org.slf4j.LoggerFactory;
       TTupleProtocol oprot = (TTupleProtocol) prot;
       struct.header.write(oprot);
       oprot.writeString(struct.storeName);
-      oprot.writeBinary(struct.key);
       BitSet optionals = new BitSet();
-      if (struct.isSetVersionedValue()) {
+      if (struct.isSetKey()) {
         optionals.set(0);
       }
-      if (struct.isSetValue()) {
+      if (struct.isSetVersionedValue()) {
         optionals.set(1);
       }
-      oprot.writeBitSet(optionals, 2);
+      if (struct.isSetValue()) {
+        optionals.set(2);
+      }
+      if (struct.isSetKeyedValues()) {
+        optionals.set(3);
+      }
+      oprot.writeBitSet(optionals, 4);
+      if (struct.isSetKey()) {
+        oprot.writeBinary(struct.key);
+      }
       if (struct.isSetVersionedValue()) {
         struct.versionedValue.write(oprot);
       }
       if (struct.isSetValue()) {
         oprot.writeBinary(struct.value);
       }
+      if (struct.isSetKeyedValues()) {
+        {
+          oprot.writeI32(struct.keyedValues.size());
+          for (KeyedValues _iter114 : struct.keyedValues)
+          {
+            _iter114.write(oprot);
+          }
+        }
+      }
     }
 
     @Override
@@ -792,18 +938,34 @@ import org.slf4j.LoggerFactory;
       struct.setHeaderIsSet(true);
       struct.storeName = iprot.readString();
       struct.setStoreNameIsSet(true);
-      struct.key = iprot.readBinary();
-      struct.setKeyIsSet(true);
-      BitSet incoming = iprot.readBitSet(2);
+      BitSet incoming = iprot.readBitSet(4);
       if (incoming.get(0)) {
+        struct.key = iprot.readBinary();
+        struct.setKeyIsSet(true);
+      }
+      if (incoming.get(1)) {
         struct.versionedValue = new VersionedValue();
         struct.versionedValue.read(iprot);
         struct.setVersionedValueIsSet(true);
       }
-      if (incoming.get(1)) {
+      if (incoming.get(2)) {
         struct.value = iprot.readBinary();
         struct.setValueIsSet(true);
       }
+      if (incoming.get(3)) {
+        {
+          org.apache.thrift.protocol.TList _list115 = new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, iprot.readI32());
+          struct.keyedValues = new ArrayList<KeyedValues>(_list115.size);
+          for (int _i116 = 0; _i116 < _list115.size; ++_i116)
+          {
+            KeyedValues _elem117; // required
+            _elem117 = new KeyedValues();
+            _elem117.read(iprot);
+            struct.keyedValues.add(_elem117);
+          }
+        }
+        struct.setKeyedValuesIsSet(true);
+      }
     }
   }
 
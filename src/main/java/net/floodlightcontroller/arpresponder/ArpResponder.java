@@ -0,0 +1,306 @@
+package net.floodlightcontroller.arpresponder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketOut;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.VlanVid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.module.FloodlightModuleException;
+import net.floodlightcontroller.core.module.IFloodlightModule;
+import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.debugcounter.IDebugCounter;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.devicemanager.IDevice;
+import net.floodlightcontroller.devicemanager.IDeviceService;
+import net.floodlightcontroller.packet.ARP;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.routing.IRoutingDecision;
+import net.floodlightcontroller.util.TimedCache;
+import net.floodlightcontroller.virtualnetwork.IVirtualNetworkService;
+
+/**
+ * Answers broadcast ARP requests for hosts the device manager knows, with
+ * a single PACKET_OUT on the port the request came in on, instead of
+ * letting Forwarding flood them across the broadcast tree. Requests for
+ * unknown targets are left to Forwarding, but only one of them per VLAN
+ * and target IP is flooded per flood interval; the others are dropped.
+ *
+ * A target is only answered for if exactly one device on the VLAN of the
+ * request has its address, the device has an attachment point and it
+ * was seen within the configured maximum age. When the virtual network
+ * filter is loaded, the target must also be reachable from the requester
+ * through it; otherwise the request is left to the filter.
+ *
+ * The module is not in the default module list; add it to
+ * floodlight.modules to enable it.
+ */
+public class ArpResponder implements IFloodlightModule, IPacketInInterestListener {
+    protected static Logger log = LoggerFactory.getLogger(ArpResponder.class);
+    private static final String PACKAGE = ArpResponder.class.getPackage().getName();
+
+    protected static int FLOOD_CACHE_CAPACITY = 10000;
+    public static int FLOOD_INTERVAL = 1000; // ms
+    public static int MAX_DEVICE_AGE = 300; // s
+
+    protected IFloodlightProviderService floodlightProviderService;
+    protected IDeviceService deviceService;
+    protected IDebugCounterService debugCounterService;
+    // Optional, null unless the virtual network filter is loaded
+    protected IVirtualNetworkService virtualNetworkService;
+
+    // VLANs and target IPs a request was recently flooded for, see floodKey
+    protected TimedCache<Long> floodCache;
+
+    protected IDebugCounter ctrRepliesSent;
+    protected IDebugCounter ctrFloods;
+    protected IDebugCounter ctrFloodsSuppressed;
+
+    @Override
+    public String getName() {
+        return "arpresponder";
+    }
+
+    @Override
+    public boolean isCallbackOrderingPrereq(OFType type, String name) {
+        // The device manager has learned the sender; the load balancer
+        // answers for its VIPs itself
+        return (type.equals(OFType.PACKET_IN) &&
+                (name.equals("topology") ||
+                 name.equals("devicemanager") ||
+                 name.equals("virtualizer") ||
+                 name.equals("firewall") ||
+                 name.equals("loadbalancer")));
+    }
+
+    @Override
+    public boolean isCallbackOrderingPostreq(OFType type, String name) {
+        return (type.equals(OFType.PACKET_IN) && name.equals("forwarding"));
+    }
+
+    @Override
+    public PacketInInterest getPacketInInterest() {
+        return PacketInInterest.forEthTypes(EthType.ARP);
+    }
+
+    @Override
+    public Command receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
+        switch (msg.getType()) {
+            case PACKET_IN:
+                return processPacketIn(sw, (OFPacketIn) msg, cntx);
+            default:
+                break;
+        }
+        return Command.CONTINUE;
+    }
+
+    protected Command processPacketIn(IOFSwitch sw, OFPacketIn pi, FloodlightContext cntx) {
+        Ethernet eth = IFloodlightProviderService.bcStore.get(cntx,
+                IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
+        if (!eth.isBroadcast() || !(eth.getPayload() instanceof ARP))
+            return Command.CONTINUE;
+        ARP arp = (ARP) eth.getPayload();
+        if (arp.getOpCode() != ARP.OP_REQUEST ||
+                arp.getProtocolType() != ARP.PROTO_TYPE_IP ||
+                arp.getSenderProtocolAddress().length != 4 ||
+                arp.getTargetProtocolAddress().length != 4)
+            return Command.CONTINUE;
+
+        // Leave dropping to Forwarding
+        IRoutingDecision decision =
+                IRoutingDecision.rtStore.get(cntx, IRoutingDecision.CONTEXT_DECISION);
+        if (decision != null &&
+                decision.getRoutingAction() == IRoutingDecision.RoutingAction.DROP)
+            return Command.CONTINUE;
+
+        IPv4Address senderIp = IPv4Address.of(arp.getSenderProtocolAddress());
+        IPv4Address targetIp = IPv4Address.of(arp.getTargetProtocolAddress());
+        // Probes and gratuitous ARPs announce or check the sender's own
+        // address, so everyone has to see them
+        if (senderIp.equals(IPv4Address.NONE) || senderIp.equals(targetIp))
+            return Command.CONTINUE;
+
+        VlanVid vlan = VlanVid.ofVlan(eth.getVlanID());
+        IDevice target = findTarget(targetIp, vlan);
+        if (target != null) {
+            if (target.getMACAddress().equals(eth.getSourceMACAddress()))
+                return Command.CONTINUE;
+            // The reply must not leak a host of another tenant
+            if (virtualNetworkService != null &&
+                    !virtualNetworkService.isAllowed(target.getMACAddress(),
+                                                     eth.getSourceMACAddress()))
+                return Command.CONTINUE;
+            sendReply(sw, pi, eth, arp, target.getMACAddress());
+            return Command.STOP;
+        }
+
+        if (floodCache.update(floodKey(vlan, targetIp))) {
+            ctrFloodsSuppressed.increment();
+            if (log.isTraceEnabled()) {
+                log.trace("Dropping ARP request for {} on VLAN {}, flooded " +
+                          "within the last {} ms",
+                          new Object[] { targetIp, vlan, FLOOD_INTERVAL });
+            }
+            return Command.STOP;
+        }
+        ctrFloods.increment();
+        return Command.CONTINUE;
+    }
+
+    /**
+     * The key of a flooded request, so that the same address on two VLANs
+     * is rate limited separately
+     */
+    protected static Long floodKey(VlanVid vlan, IPv4Address ip) {
+        return Long.valueOf(((vlan.getVlan() & 0xffffL) << 32) | (ip.getInt() & 0xffffffffL));
+    }
+
+    /**
+     * Find the device that owns an address
+     * @param ip the address
+     * @param vlan the VLAN of the request
+     * @return the device, or null if there is none or it is not unique,
+     * has no known location or has not been seen recently
+     */
+    protected IDevice findTarget(IPv4Address ip, VlanVid vlan) {
+        Iterator<? extends IDevice> devices =
+                deviceService.queryDevices(null, vlan, ip, null, null);
+        if (!devices.hasNext())
+            return null;
+        IDevice device = devices.next();
+        if (devices.hasNext())
+            return null;
+        if (device.getAttachmentPoints().length == 0)
+            return null;
+        long age = System.currentTimeMillis() - device.getLastSeen().getTime();
+        if (age > MAX_DEVICE_AGE * 1000L)
+            return null;
+        return device;
+    }
+
+    /**
+     * Answer an ARP request on the port it came in on
+     * @param sw the switch the request came from
+     * @param pi the PACKET_IN of the request
+     * @param eth the request
+     * @param request the ARP payload of the request
+     * @param targetMac the MAC address of the target
+     */
+    protected void sendReply(IOFSwitch sw, OFPacketIn pi, Ethernet eth,
+                             ARP request, MacAddress targetMac) {
+        Ethernet reply = (Ethernet) new Ethernet()
+            .setSourceMACAddress(targetMac)
+            .setDestinationMACAddress(eth.getSourceMACAddress())
+            .setEtherType(EthType.ARP)
+            .setVlanID(eth.getVlanID())
+            .setPriorityCode(eth.getPriorityCode())
+            .setPayload(
+                new ARP()
+                .setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) 6)
+                .setProtocolAddressLength((byte) 4)
+                .setOpCode(ARP.OP_REPLY)
+                .setSenderHardwareAddress(targetMac.getBytes())
+                .setSenderProtocolAddress(request.getTargetProtocolAddress())
+                .setTargetHardwareAddress(request.getSenderHardwareAddress())
+                .setTargetProtocolAddress(request.getSenderProtocolAddress()));
+
+        OFPort inPort = (pi.getVersion().compareTo(OFVersion.OF_12) < 0 ?
+                pi.getInPort() : pi.getMatch().get(MatchField.IN_PORT));
+        List<OFAction> actions = new ArrayList<OFAction>(1);
+        actions.add(sw.getOFFactory().actions().output(inPort, Integer.MAX_VALUE));
+        OFPacketOut po = sw.getOFFactory().buildPacketOut()
+            .setBufferId(OFBufferId.NO_BUFFER)
+            .setInPort(OFPort.ANY)
+            .setActions(actions)
+            .setData(reply.serialize())
+            .build();
+
+        if (log.isTraceEnabled()) {
+            log.trace("Answering ARP request for {} from {} on {}/{}",
+                      new Object[] { IPv4Address.of(request.getTargetProtocolAddress()),
+                                     eth.getSourceMACAddress(), sw.getId(), inPort });
+        }
+        sw.write(po);
+        ctrRepliesSent.increment();
+    }
+
+    // IFloodlightModule
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleServices() {
+        return null;
+    }
+
+    @Override
+    public Map<Class<? extends IFloodlightService>, IFloodlightService> getServiceImpls() {
+        return null;
+    }
+
+    @Override
+    public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
+        Collection<Class<? extends IFloodlightService>> l =
+                new ArrayList<Class<? extends IFloodlightService>>();
+        l.add(IFloodlightProviderService.class);
+        l.add(IDeviceService.class);
+        l.add(IDebugCounterService.class);
+        return l;
+    }
+
+    @Override
+    public void init(FloodlightModuleContext context) throws FloodlightModuleException {
+        floodlightProviderService = context.getServiceImpl(IFloodlightProviderService.class);
+        deviceService = context.getServiceImpl(IDeviceService.class);
+        debugCounterService = context.getServiceImpl(IDebugCounterService.class);
+        virtualNetworkService = context.getServiceImpl(IVirtualNetworkService.class);
+
+        Map<String, String> configParameters = context.getConfigParams(this);
+        String tmp = configParameters.get("flood-interval");
+        if (tmp != null) {
+            FLOOD_INTERVAL = Integer.parseInt(tmp);
+            log.info("ARP flood interval set to {} ms.", FLOOD_INTERVAL);
+        }
+        tmp = configParameters.get("max-device-age");
+        if (tmp != null) {
+            MAX_DEVICE_AGE = Integer.parseInt(tmp);
+            log.info("ARP responder maximum device age set to {} s.", MAX_DEVICE_AGE);
+        }
+        floodCache = new TimedCache<Long>(FLOOD_CACHE_CAPACITY, FLOOD_INTERVAL);
+
+        debugCounterService.registerModule(PACKAGE);
+        ctrRepliesSent = debugCounterService.registerCounter(PACKAGE, "replies-sent",
+                "ARP requests answered from the device manager");
+        ctrFloods = debugCounterService.registerCounter(PACKAGE, "floods",
+                "ARP requests for unknown targets left to be flooded");
+        ctrFloodsSuppressed = debugCounterService.registerCounter(PACKAGE, "floods-suppressed",
+                "ARP requests for unknown targets dropped by the flood rate limit");
+    }
+
+    @Override
+    public void startUp(FloodlightModuleContext context) {
+        floodlightProviderService.addOFMessageListener(OFType.PACKET_IN, this);
+    }
+}
@@ -58,5 +58,12 @@ public interface IOFConnection extends IOFMessageWriter {
      */
     boolean isConnected();
 
+    /**
+     * Get the estimated one-way latency between the controller and the
+     * switch on this connection, smoothed over the echo round trips seen
+     * so far.
+     * @return the latency in microseconds, or -1 if not measured yet
+     */
+    long getLatency();
 
 }
@@ -20,4 +20,10 @@ public interface IOFConnectionBackend extends IOFConnection {
 
     /** set the message/closing listener for this connection */
     void setListener(IOFConnectionListener listener);
+
+    /**
+     * Record an echo round trip on this connection
+     * @param rttNs the round trip time in nanoseconds
+     */
+    void updateLatency(long rttNs);
 }
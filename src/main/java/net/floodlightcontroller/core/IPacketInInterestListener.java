@@ -0,0 +1,17 @@
+package net.floodlightcontroller.core;
+
+/**
+ * A PACKET_IN listener that declares the traffic it handles, so the
+ * controller can skip it for all other packets instead of calling
+ * receive() and letting it re-inspect the payload. A listener must
+ * return CONTINUE, without side effects, for every packet outside its
+ * interest.
+ */
+public interface IPacketInInterestListener extends IOFMessageListener {
+    /**
+     * Called when the PACKET_IN listeners change. The interest must not
+     * change while the listener is registered.
+     * @return the PACKET_INs this listener wants to receive
+     */
+    public PacketInInterest getPacketInInterest();
+}
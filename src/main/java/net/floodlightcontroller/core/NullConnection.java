@@ -62,6 +62,16 @@ public class NullConnection implements IOFConnectionBackend, IOFMessageWriter {
         return OFFactories.getFactory(OFVersion.OF_13);
     }
 
+    @Override
+    public long getLatency() {
+        return -1;
+    }
+
+    @Override
+    public void updateLatency(long rttNs) {
+        // no op
+    }
+
     @Override
     public <REPLY extends OFStatsReply> ListenableFuture<List<REPLY>> writeStatsRequest(
             OFStatsRequest<REPLY> request) {
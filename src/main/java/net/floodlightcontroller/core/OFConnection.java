@@ -41,6 +41,8 @@ import net.floodlightcontroller.core.internal.Controller;
 import net.floodlightcontroller.core.internal.IOFConnectionListener;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
 
+import org.projectfloodlight.openflow.protocol.OFEchoReply;
+import org.projectfloodlight.openflow.protocol.OFEchoRequest;
 import org.projectfloodlight.openflow.protocol.OFErrorMsg;
 import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFMessage;
@@ -57,6 +59,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -86,8 +89,15 @@ public class OFConnection implements IOFConnection, IOFConnectionBackend{
     private static final TimeUnit DELIVERABLE_TIME_OUT_UNIT = TimeUnit.SECONDS;
 
 
+    /** Length of the timestamp carried by latency echo requests */
+    private static final int ECHO_TIMESTAMP_LENGTH = 8;
+    /** Weight of a new sample in the latency average, as a shift (1/8) */
+    private static final int LATENCY_EWMA_SHIFT = 3;
+
     private final OFConnectionCounters counters;
     private IOFConnectionListener listener;
+    /** smoothed one-way latency in us, -1 until the first echo reply */
+    private volatile long latency = -1;
 
     public OFConnection(@Nonnull DatapathId dpid,
                         @Nonnull OFFactory factory,
@@ -335,6 +345,52 @@ public class OFConnection implements IOFConnection, IOFConnectionBackend{
         return this.factory;
     }
 
+    @Override
+    public long getLatency() {
+        return latency;
+    }
+
+    /**
+     * Only called from the connection's IO thread, so the read-modify-write
+     * of the average needs no lock.
+     */
+    @Override
+    public void updateLatency(long rttNs) {
+        long sample = TimeUnit.NANOSECONDS.toMicros(rttNs) / 2;
+        long current = latency;
+        if (current < 0)
+            latency = sample;
+        else
+            latency = current + ((sample - current) >> LATENCY_EWMA_SHIFT);
+    }
+
+    /**
+     * Build an echo request that carries the current time, so the round
+     * trip can be measured when the switch echoes it back.
+     * @param factory the factory of the connection the request is sent on
+     * @param xid the transaction id
+     * @return the echo request
+     */
+    public static OFEchoRequest buildLatencyEchoRequest(OFFactory factory, long xid) {
+        return factory.buildEchoRequest()
+                .setXid(xid)
+                .setData(Longs.toByteArray(System.nanoTime()))
+                .build();
+    }
+
+    /**
+     * @param reply an echo reply
+     * @return the round trip time in nanoseconds if the reply answers a
+     * request built by {@link #buildLatencyEchoRequest}, -1 otherwise
+     */
+    public static long getEchoRoundTrip(OFEchoReply reply) {
+        byte[] data = reply.getData();
+        if (data == null || data.length != ECHO_TIMESTAMP_LENGTH)
+            return -1;
+        long rtt = System.nanoTime() - Longs.fromByteArray(data);
+        return rtt >= 0 ? rtt : -1;
+    }
+
     /**
      * Timeout class instantiated for deliverables. Will throw a timeout exception
      * if proper responses are not received in time.
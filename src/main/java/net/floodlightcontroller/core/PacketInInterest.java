@@ -0,0 +1,168 @@
+package net.floodlightcontroller.core;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+
+/**
+ * Declares which PACKET_INs an {@link IPacketInInterestListener} wants to
+ * see. The controller classifies every PACKET_IN once, by EtherType and by
+ * the class of its destination MAC, and only dispatches it to the
+ * listeners interested in that traffic class. Empty sets mean "any".
+ */
+public class PacketInInterest {
+    /**
+     * The class of a destination MAC address
+     */
+    public enum DstMacClass {
+        UNICAST,
+        BROADCAST,
+        MULTICAST,
+        /** 01:80:c2:00:00:0X, reserved by 802.1D/Q (e.g. STP, LLDP) */
+        LINK_LOCAL;
+    }
+
+    /** Interest in every PACKET_IN */
+    public static final PacketInInterest ALL =
+            new PacketInInterest(Collections.<EthType>emptySet(),
+                                 Collections.<EthType>emptySet(),
+                                 EnumSet.allOf(DstMacClass.class),
+                                 Collections.<DatapathId>emptySet());
+
+    private static final int ETHERTYPE_VLAN = 0x8100;
+
+    private final Set<EthType> ethTypes;
+    private final Set<EthType> ignoredEthTypes;
+    private final Set<DstMacClass> dstMacClasses;
+    private final Set<DatapathId> switches;
+
+    /**
+     * @param ethTypes the EtherTypes of interest, or empty for all
+     * @param ignoredEthTypes EtherTypes that are never of interest
+     * @param dstMacClasses the destination MAC classes of interest
+     * @param switches the switches of interest, or empty for all
+     */
+    public PacketInInterest(Set<EthType> ethTypes,
+                            Set<EthType> ignoredEthTypes,
+                            Set<DstMacClass> dstMacClasses,
+                            Set<DatapathId> switches) {
+        this.ethTypes = Collections.unmodifiableSet(new HashSet<EthType>(ethTypes));
+        this.ignoredEthTypes = Collections.unmodifiableSet(new HashSet<EthType>(ignoredEthTypes));
+        this.dstMacClasses = dstMacClasses.isEmpty()
+                ? Collections.unmodifiableSet(EnumSet.noneOf(DstMacClass.class))
+                : Collections.unmodifiableSet(EnumSet.copyOf(dstMacClasses));
+        this.switches = Collections.unmodifiableSet(new HashSet<DatapathId>(switches));
+    }
+
+    /**
+     * @param ethTypes the EtherTypes of interest
+     * @return an interest in all packets of the given EtherTypes
+     */
+    public static PacketInInterest forEthTypes(EthType... ethTypes) {
+        Set<EthType> types = new HashSet<EthType>();
+        Collections.addAll(types, ethTypes);
+        return new PacketInInterest(types, Collections.<EthType>emptySet(),
+                                    EnumSet.allOf(DstMacClass.class),
+                                    Collections.<DatapathId>emptySet());
+    }
+
+    /**
+     * @param ethTypes the EtherTypes to ignore
+     * @return an interest in all packets except those of the given EtherTypes
+     */
+    public static PacketInInterest ignoringEthTypes(EthType... ethTypes) {
+        Set<EthType> types = new HashSet<EthType>();
+        Collections.addAll(types, ethTypes);
+        return new PacketInInterest(Collections.<EthType>emptySet(), types,
+                                    EnumSet.allOf(DstMacClass.class),
+                                    Collections.<DatapathId>emptySet());
+    }
+
+    public Set<EthType> getEthTypes() {
+        return ethTypes;
+    }
+
+    public Set<EthType> getIgnoredEthTypes() {
+        return ignoredEthTypes;
+    }
+
+    public Set<DstMacClass> getDstMacClasses() {
+        return dstMacClasses;
+    }
+
+    public Set<DatapathId> getSwitches() {
+        return switches;
+    }
+
+    /**
+     * Checks whether a traffic class is of interest.
+     * @param ethType the EtherType, or null for an EtherType that is not
+     * named by any interest
+     * @param macClass the destination MAC class
+     * @param dpid the switch, or null for a switch that is not named by
+     * any interest
+     * @return true if packets of this class should be dispatched
+     */
+    public boolean matches(EthType ethType, DstMacClass macClass, DatapathId dpid) {
+        if (!dstMacClasses.contains(macClass))
+            return false;
+        if (ethType == null) {
+            if (!ethTypes.isEmpty())
+                return false;
+        } else if (ignoredEthTypes.contains(ethType)
+                || (!ethTypes.isEmpty() && !ethTypes.contains(ethType))) {
+            return false;
+        }
+        return switches.isEmpty() || (dpid != null && switches.contains(dpid));
+    }
+
+    /**
+     * Reads the EtherType of a raw Ethernet frame, looking past a single
+     * 802.1Q tag the way {@link net.floodlightcontroller.packet.Ethernet}
+     * does.
+     * @param data the frame
+     * @return the EtherType, or -1 if the frame is too short
+     */
+    public static int getEthType(byte[] data) {
+        if (data.length < 14)
+            return -1;
+        int ethType = ((data[12] & 0xff) << 8) | (data[13] & 0xff);
+        if (ethType == ETHERTYPE_VLAN) {
+            if (data.length < 18)
+                return -1;
+            ethType = ((data[16] & 0xff) << 8) | (data[17] & 0xff);
+        }
+        return ethType;
+    }
+
+    /**
+     * Classifies the destination MAC of a raw Ethernet frame
+     * @param data the frame, at least 6 bytes long
+     * @return the class of the destination MAC
+     */
+    public static DstMacClass getDstMacClass(byte[] data) {
+        if ((data[0] & 0x01) == 0)
+            return DstMacClass.UNICAST;
+        if (data[0] == (byte) 0x01 && data[1] == (byte) 0x80
+                && data[2] == (byte) 0xc2 && data[3] == 0
+                && data[4] == 0 && (data[5] & 0xf0) == 0)
+            return DstMacClass.LINK_LOCAL;
+        for (int i = 0; i < 6; i++) {
+            if (data[i] != (byte) 0xff)
+                return DstMacClass.MULTICAST;
+        }
+        return DstMacClass.BROADCAST;
+    }
+
+    @Override
+    public String toString() {
+        return "PacketInInterest [ethTypes=" + ethTypes
+                + ", ignoredEthTypes=" + ignoredEthTypes
+                + ", dstMacClasses=" + dstMacClasses
+                + ", switches=" + switches + "]";
+    }
+}
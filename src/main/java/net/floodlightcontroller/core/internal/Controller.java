@@ -32,6 +32,7 @@ import java.util.Stack;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.jboss.netty.util.HashedWheelTimer;
@@ -110,7 +111,7 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
     protected HashMap<String, String> controllerNodeIPsCache;
 
     protected ListenerDispatcher<HAListenerTypeMarker,IHAListener> haListeners;
-    protected Map<String, List<IInfoProvider>> providerMap;
+    protected ConcurrentMap<String, List<IInfoProvider>> providerMap;
     protected BlockingQueue<IUpdate> updates;
     protected ControllerCounters counters;
     protected Timer timer;
@@ -128,6 +129,9 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
     protected IDebugEventService debugEventService;
     private IRestApiService restApiService;
     private IPktInProcessingTimeService pktinProcTimeService;
+
+    // PACKET_IN listeners per traffic class, rebuilt when the listeners change
+    private volatile PacketInDispatchTable packetInDispatchTable;
     private IThreadPoolService threadPoolService;
     private ISyncService syncService;
     private IShutdownService shutdownService;
@@ -438,6 +442,7 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
     public void handleMessage(IOFSwitch sw, OFMessage m,
                                  FloodlightContext bContext) {
         Ethernet eth = null;
+        byte[] packetInData = null;
         log.trace("Dispatching OFMessage to listeners.");
         if (this.notifiedRole == HARole.STANDBY) {
             counters.dispatchMessageWhileStandby.increment();
@@ -456,9 +461,10 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
                     return;
                 }
 
+                packetInData = pi.getData();
                 if (Controller.ALWAYS_DECODE_ETH) {
                     eth = new Ethernet();
-                    eth.deserialize(pi.getData(), 0, pi.getData().length);
+                    eth.deserialize(packetInData, 0, packetInData.length);
                 }
                 // fall through to default case...
 
@@ -467,6 +473,10 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
                 List<IOFMessageListener> listeners = null;
                 if (messageListeners.containsKey(m.getType())) {
                     listeners = messageListeners.get(m.getType()).getOrderedListeners();
+                    if (packetInData != null) {
+                        listeners = getPacketInDispatchTable(listeners)
+                                .getListeners(sw.getId(), packetInData);
+                    }
                 }
 
                 FloodlightContext bc = null;
@@ -512,6 +522,20 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
         }
     }
     
+    /**
+     * @param listeners the current ordered PACKET_IN listeners
+     * @return the dispatch table for those listeners
+     */
+    private PacketInDispatchTable getPacketInDispatchTable(List<IOFMessageListener> listeners) {
+        PacketInDispatchTable table = packetInDispatchTable;
+        // The listener dispatcher replaces its list on every change
+        if (table == null || !table.isBuiltFrom(listeners)) {
+            table = new PacketInDispatchTable(listeners);
+            packetInDispatchTable = table;
+        }
+        return table;
+    }
+
     // ***************
     // IFloodlightProvider
     // ***************
@@ -748,7 +772,7 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
         this.haListeners = new ListenerDispatcher<HAListenerTypeMarker, IHAListener>();
         this.controllerNodeIPsCache = new HashMap<String, String>();
         this.updates = new LinkedBlockingQueue<IUpdate>();
-        this.providerMap = new HashMap<String, List<IInfoProvider>>();
+        this.providerMap = new ConcurrentHashMap<String, List<IInfoProvider>>();
        
         setConfigParams(configParams);
 
@@ -849,27 +873,33 @@ public class Controller implements IFloodlightProviderService, IStorageSourceLis
 
     @Override
     public void addInfoProvider(String type, IInfoProvider provider) {
-        if (!providerMap.containsKey(type)) {
-            providerMap.put(type, new ArrayList<IInfoProvider>());
+        // Modules may register concurrently from their startUp methods
+        List<IInfoProvider> providers = providerMap.get(type);
+        if (providers == null) {
+            providers = new CopyOnWriteArrayList<IInfoProvider>();
+            List<IInfoProvider> existing = providerMap.putIfAbsent(type, providers);
+            if (existing != null) providers = existing;
         }
-        providerMap.get(type).add(provider);
+        providers.add(provider);
     }
 
     @Override
     public void removeInfoProvider(String type, IInfoProvider provider) {
-        if (!providerMap.containsKey(type)) {
+        List<IInfoProvider> providers = providerMap.get(type);
+        if (providers == null) {
             log.debug("Provider type {} doesn't exist.", type);
             return;
         }
-        providerMap.get(type).remove(provider);
+        providers.remove(provider);
     }
 
     @Override
     public Map<String, Object> getControllerInfo(String type) {
-        if (!providerMap.containsKey(type)) return null;
+        List<IInfoProvider> providers = providerMap.get(type);
+        if (providers == null) return null;
 
         Map<String, Object> result = new LinkedHashMap<String, Object>();
-        for (IInfoProvider provider : providerMap.get(type)) {
+        for (IInfoProvider provider : providers) {
             result.putAll(provider.getInfo(type));
         }
         return result;
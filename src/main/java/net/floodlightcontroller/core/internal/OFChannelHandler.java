@@ -95,7 +95,11 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
 
 		void processOFEchoReply(OFEchoReply m)
 				throws IOException {
-			// do nothing
+			// Replies to our own requests carry their send time
+			long rtt = OFConnection.getEchoRoundTrip(m);
+			if (rtt >= 0 && connection != null) {
+				connection.updateLatency(rtt);
+			}
 		}
 
 		void processOFError(OFErrorMsg m) {
@@ -743,9 +747,8 @@ class OFChannelHandler extends IdleStateAwareChannelHandler {
 	}
 
 	private void sendEchoRequest() {
-		OFEchoRequest request = factory.buildEchoRequest()
-				.setXid(handshakeTransactionIds--)
-				.build();
+		OFEchoRequest request = OFConnection.buildLatencyEchoRequest(factory,
+				handshakeTransactionIds--);
 		channel.write(Collections.singletonList(request));
 	}
 
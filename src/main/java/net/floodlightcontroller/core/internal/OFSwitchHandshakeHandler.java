@@ -102,6 +102,11 @@ public class OFSwitchHandshakeHandler implements IOFConnectionListener {
 
 	private final ArrayList<OFPortStatus> pendingPortStatusMsg;
 
+	/* Handshake phase timing, reported through the switch manager counters */
+	private final long handshakeStartNs = System.nanoTime();
+	private long stateEnteredNs = handshakeStartNs;
+	private boolean handshakeComplete = false;
+
 	/** transaction Ids to use during handshake. Since only one thread
 	 * calls into the OFChannelHandler we don't need atomic.
 	 * We will count down
@@ -1460,11 +1465,34 @@ public class OFSwitchHandshakeHandler implements IOFConnectionListener {
 	 * @param state
 	 */
 	private void setState(OFSwitchHandshakeState state) {
+		recordHandshakePhase(state);
 		this.state = state;
 		state.logState();
 		state.enterState();
 	}
 
+	/**
+	 * Records the time spent in the handshake state we are leaving. Once the
+	 * switch reaches MASTER or SLAVE the total handshake time is recorded
+	 * and later role changes are no longer timed.
+	 * @param nextState the state we are about to enter
+	 */
+	private void recordHandshakePhase(OFSwitchHandshakeState nextState) {
+		if (handshakeComplete) {
+			return;
+		}
+		long now = System.nanoTime();
+		if (this.state != null) {
+			switchManagerCounters.recordHandshakePhase(
+					this.state.getClass().getSimpleName(), now - stateEnteredNs);
+		}
+		stateEnteredNs = now;
+		if (nextState instanceof MasterState || nextState instanceof SlaveState) {
+			switchManagerCounters.recordHandshakePhase("Total", now - handshakeStartNs);
+			handshakeComplete = true;
+		}
+	}
+
 	public void processOFMessage(OFMessage m) {
 		state.processOFMessage(m);
 	}
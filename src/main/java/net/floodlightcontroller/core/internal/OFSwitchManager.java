@@ -3,6 +3,7 @@ package net.floodlightcontroller.core.internal;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -13,11 +14,15 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.local.DefaultLocalServerChannelFactory;
+import org.jboss.netty.channel.local.LocalAddress;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 
 import net.floodlightcontroller.core.FloodlightContext;
@@ -98,6 +103,28 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	private ConcurrentHashMap<DatapathId, IOFSwitchBackend> switches;
 	private ConcurrentHashMap<DatapathId, IOFSwitch> syncedSwitches;
 
+	/*
+	 * Switch state changes are serialized per DPID rather than on the
+	 * manager, so handshakes of different switches never wait on each
+	 * other. The stripe count must be a power of two.
+	 */
+	private static final int SWITCH_LOCK_STRIPES = 64;
+	private final Object[] switchLocks = new Object[SWITCH_LOCK_STRIPES];
+	{
+		for (int i = 0; i < SWITCH_LOCK_STRIPES; i++) {
+			switchLocks[i] = new Object();
+		}
+	}
+
+	/*
+	 * Readers get immutable views of the switch map without locking. Every
+	 * change to the set of switches or to a switch's status bumps the
+	 * version and the views are rebuilt by the next reader that sees it.
+	 */
+	private final AtomicLong switchesVersion = new AtomicLong();
+	private final Object snapshotLock = new Object();
+	private volatile SwitchSnapshot snapshot = new SwitchSnapshot(-1,
+			Collections.<DatapathId, IOFSwitchBackend>emptyMap());
 
 	private ISwitchDriverRegistry driverRegistry;
 
@@ -137,9 +164,16 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	}
 
 	@Override
-	public synchronized void switchAdded(IOFSwitchBackend sw) {
+	public void switchAdded(IOFSwitchBackend sw) {
 		DatapathId dpid = sw.getId();
+		synchronized (getSwitchLock(dpid)) {
+			switchAddedLocked(dpid, sw);
+		}
+	}
+
+	private void switchAddedLocked(DatapathId dpid, IOFSwitchBackend sw) {
 		IOFSwitchBackend oldSw = this.switches.put(dpid, sw);
+		switchesVersion.incrementAndGet();
 		// Update event history
 		evSwitch.newEventWithFlush(new SwitchEvent(dpid, "connected"));
 
@@ -188,8 +222,15 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 						)
 	})
 	@Override
-	public synchronized void switchStatusChanged(IOFSwitchBackend sw, SwitchStatus oldStatus, SwitchStatus newStatus) {
+	public void switchStatusChanged(IOFSwitchBackend sw, SwitchStatus oldStatus, SwitchStatus newStatus) {
 		DatapathId dpid = sw.getId();
+		synchronized (getSwitchLock(dpid)) {
+			switchStatusChangedLocked(dpid, sw, oldStatus, newStatus);
+		}
+	}
+
+	private void switchStatusChangedLocked(DatapathId dpid, IOFSwitchBackend sw,
+			SwitchStatus oldStatus, SwitchStatus newStatus) {
 		IOFSwitchBackend presentSw = this.switches.get(dpid);
 
 		if (presentSw != sw)  {
@@ -199,6 +240,8 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 			log.debug("Switch {} status change but not present in sync manager", sw);
 			return;
 		}
+		// The visible and active views filter on the status
+		switchesVersion.incrementAndGet();
 		evSwitch.newEventWithFlush(new SwitchEvent(dpid,
 				String.format("%s -> %s",
 						oldStatus,
@@ -231,19 +274,80 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	}
 
 	@Override
-	public synchronized void switchDisconnected(IOFSwitchBackend sw) {
+	public void switchDisconnected(IOFSwitchBackend sw) {
 		DatapathId dpid = sw.getId();
-		IOFSwitchBackend presentSw = this.switches.get(dpid);
+		synchronized (getSwitchLock(dpid)) {
+			// Only remove the switch if it has not been replaced meanwhile
+			if (!this.switches.remove(dpid, sw)) {
+				// Note object equality, not .equals for value
+				counters.errorActivatedSwitchNotPresent.increment();
+				log.warn("Switch {} disconnect but not present in sync manager", sw);
+				return;
+			}
+			switchesVersion.incrementAndGet();
+		}
+		counters.switchDisconnected.increment();
+	}
 
-		if (presentSw != sw)  {
-			// Note == for object equality, not .equals for value
-			counters.errorActivatedSwitchNotPresent.increment();
-			log.warn("Switch {} disconnect but not present in sync manager", sw);
-			return;
+	/**
+	 * @param dpid the DPID of a switch
+	 * @return the monitor serializing state changes of that switch
+	 */
+	private Object getSwitchLock(DatapathId dpid) {
+		int h = dpid.hashCode();
+		h ^= (h >>> 16);
+		return switchLocks[h & (SWITCH_LOCK_STRIPES - 1)];
+	}
+
+	/**
+	 * @return the immutable switch views, rebuilt if the switches changed
+	 * since they were last built
+	 */
+	private SwitchSnapshot getSnapshot() {
+		SwitchSnapshot current = snapshot;
+		if (current.version == switchesVersion.get()) {
+			return current;
+		}
+		synchronized (snapshotLock) {
+			current = snapshot;
+			// Read the version before the map so that a concurrent change
+			// always leaves the new snapshot looking stale
+			long version = switchesVersion.get();
+			if (current.version != version) {
+				current = new SwitchSnapshot(version, switches);
+				snapshot = current;
+			}
+			return current;
 		}
+	}
 
-		counters.switchDisconnected.increment();
-		this.switches.remove(dpid);
+	/**
+	 * Immutable views of the switch map at a given version
+	 */
+	private static class SwitchSnapshot {
+		final long version;
+		final ImmutableMap<DatapathId, IOFSwitch> allSwitches;
+		final ImmutableMap<DatapathId, IOFSwitch> visibleSwitches;
+		final ImmutableList<IOFSwitch> activeSwitches;
+
+		SwitchSnapshot(long version, Map<DatapathId, IOFSwitchBackend> switches) {
+			ImmutableMap.Builder<DatapathId, IOFSwitch> all = ImmutableMap.builder();
+			ImmutableMap.Builder<DatapathId, IOFSwitch> visible = ImmutableMap.builder();
+			ImmutableList.Builder<IOFSwitch> active = ImmutableList.builder();
+			for (Map.Entry<DatapathId, IOFSwitchBackend> entry : switches.entrySet()) {
+				IOFSwitchBackend sw = entry.getValue();
+				all.put(entry.getKey(), sw);
+				SwitchStatus status = sw.getStatus();
+				if (status.isVisible())
+					visible.put(entry.getKey(), sw);
+				if (status.isControllable())
+					active.add(sw);
+			}
+			this.version = version;
+			this.allSwitches = all.build();
+			this.visibleSwitches = visible.build();
+			this.activeSwitches = active.build();
+		}
 	}
 
 	@Override public void handshakeDisconnected(DatapathId dpid) {
@@ -251,25 +355,12 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	}
 
 	public Iterable<IOFSwitch> getActiveSwitches() {
-		ImmutableList.Builder<IOFSwitch> builder = ImmutableList.builder();
-		for(IOFSwitch sw: switches.values()) {
-			if(sw.getStatus().isControllable())
-				builder.add(sw);
-		}
-		return builder.build();
+		return getSnapshot().activeSwitches;
 	}
 
 	public Map<DatapathId, IOFSwitch> getAllSwitchMap(boolean showInvisible) {
-		if(showInvisible) {
-			return ImmutableMap.<DatapathId, IOFSwitch>copyOf(switches);
-		} else {
-			ImmutableMap.Builder<DatapathId, IOFSwitch> builder = ImmutableMap.builder();
-			for(IOFSwitch sw: switches.values()) {
-				if(sw.getStatus().isVisible())
-					builder.put(sw.getId(), sw);
-			}
-			return builder.build();
-		}
+		SwitchSnapshot current = getSnapshot();
+		return showInvisible ? current.allSwitches : current.visibleSwitches;
 	}
 
 	@Override
@@ -443,13 +534,21 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	}
 
 	@Override
-	public synchronized void notifyPortChanged(IOFSwitchBackend sw,
+	public void notifyPortChanged(IOFSwitchBackend sw,
 			OFPortDesc port,
 			PortChangeType changeType) {
 		Preconditions.checkNotNull(sw, "switch must not be null");
 		Preconditions.checkNotNull(port, "port must not be null");
 		Preconditions.checkNotNull(changeType, "changeType must not be null");
 
+		synchronized (getSwitchLock(sw.getId())) {
+			notifyPortChangedLocked(sw, port, changeType);
+		}
+	}
+
+	private void notifyPortChangedLocked(IOFSwitchBackend sw,
+			OFPortDesc port,
+			PortChangeType changeType) {
 		if (role != OFControllerRole.ROLE_MASTER) {
 			counters.invalidPortsChanged.increment();
 			return;
@@ -734,6 +833,23 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 		}
 	}
 
+	/**
+	 * Accept switch connections on an in-memory address as well, so that
+	 * switches emulated in this JVM can connect without sockets.  These
+	 * connections do not use SSL.
+	 * @param address the address to listen on
+	 * @return the server channel; close it to stop listening
+	 */
+	public Channel bindLocal(LocalAddress address) {
+		ServerBootstrap bootstrap =
+				new ServerBootstrap(new DefaultLocalServerChannelFactory());
+		bootstrap.setPipelineFactory(new OpenflowPipelineFactory(this,
+				floodlightProvider.getTimer(), this, debugCounterService));
+		Channel channel = bootstrap.bind(address);
+		log.info("Listening for switch connections on {}", address);
+		return channel;
+	}
+
 	/**
 	 * Helper that bootstrapNetty.
 	 * @return
@@ -845,17 +961,19 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	 * has been removed from the sync store
 	 * @param dpid
 	 */
-	private synchronized void switchRemovedFromStore(DatapathId dpid) {
+	private void switchRemovedFromStore(DatapathId dpid) {
 		if (floodlightProvider.getRole() != HARole.STANDBY) {
 			return; // only read from store if slave
 		}
-		IOFSwitch oldSw = syncedSwitches.remove(dpid);
-		if (oldSw != null) {
-			addUpdateToQueue(new SwitchUpdate(dpid, SwitchUpdateType.REMOVED));
-		} else {
-			// TODO: the switch was deleted (tombstone) before we ever
-			// knew about it (or was deleted repeatedly). Can this
-			// happen? When/how?
+		synchronized (getSwitchLock(dpid)) {
+			IOFSwitch oldSw = syncedSwitches.remove(dpid);
+			if (oldSw != null) {
+				addUpdateToQueue(new SwitchUpdate(dpid, SwitchUpdateType.REMOVED));
+			} else {
+				// TODO: the switch was deleted (tombstone) before we ever
+				// knew about it (or was deleted repeatedly). Can this
+				// happen? When/how?
+			}
 		}
 	}
 
@@ -864,19 +982,21 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	 * switch.
 	 * @param sw
 	 */
-	private synchronized void switchAddedToStore(IOFSwitch sw) {
+	private void switchAddedToStore(IOFSwitch sw) {
 		if (floodlightProvider.getRole() != HARole.STANDBY) {
 			return; // only read from store if slave
 		}
 		DatapathId dpid = sw.getId();
 
-		IOFSwitch oldSw = syncedSwitches.put(dpid, sw);
-		if (oldSw == null)  {
-			addUpdateToQueue(new SwitchUpdate(dpid, SwitchUpdateType.ADDED));
-		} else {
-			// The switch already exists in storage, see if anything
-			// has changed
-			sendNotificationsIfSwitchDiffers(oldSw, sw);
+		synchronized (getSwitchLock(dpid)) {
+			IOFSwitch oldSw = syncedSwitches.put(dpid, sw);
+			if (oldSw == null)  {
+				addUpdateToQueue(new SwitchUpdate(dpid, SwitchUpdateType.ADDED));
+			} else {
+				// The switch already exists in storage, see if anything
+				// has changed
+				sendNotificationsIfSwitchDiffers(oldSw, sw);
+			}
 		}
 	}
 
@@ -886,7 +1006,7 @@ public class OFSwitchManager implements IOFSwitchManager, INewOFConnectionListen
 	 * @param oldSw
 	 * @param newSw
 	 */
-	private synchronized void sendNotificationsIfSwitchDiffers(IOFSwitch oldSw, IOFSwitch newSw) {
+	private void sendNotificationsIfSwitchDiffers(IOFSwitch oldSw, IOFSwitch newSw) {
 		/*TODO @Ryan Collection<PortChangeEvent> portDiffs = oldSw.comparePorts(newSw.getPorts());
         for (PortChangeEvent ev: portDiffs) {
             SwitchUpdate update = new SwitchUpdate(newSw.getId(),
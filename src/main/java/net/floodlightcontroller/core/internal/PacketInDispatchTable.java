@@ -0,0 +1,134 @@
+package net.floodlightcontroller.core.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
+import net.floodlightcontroller.core.PacketInInterest.DstMacClass;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+
+/**
+ * Precomputed PACKET_IN listener lists, one per traffic class. A traffic
+ * class is the combination of an EtherType named by some listener's
+ * {@link PacketInInterest} (or "any other EtherType") and a destination
+ * MAC class. Switches named by an interest get their own set of lists.
+ *
+ * A table is immutable and built from one version of the ordered listener
+ * list. Each list keeps the order of the listeners it was built from.
+ */
+public class PacketInDispatchTable {
+    private static final int MAC_CLASSES = DstMacClass.values().length;
+
+    private final List<IOFMessageListener> orderedListeners;
+    /** EtherTypes with their own traffic class, class index i + 1 */
+    private final int[] ethTypes;
+    private final List<List<IOFMessageListener>> defaultLists;
+    private final Map<DatapathId, List<List<IOFMessageListener>>> switchLists;
+
+    public PacketInDispatchTable(List<IOFMessageListener> orderedListeners) {
+        this.orderedListeners = orderedListeners;
+
+        Map<IOFMessageListener, PacketInInterest> interests =
+                new HashMap<IOFMessageListener, PacketInInterest>();
+        Set<EthType> namedEthTypes = new HashSet<EthType>();
+        Set<DatapathId> namedSwitches = new HashSet<DatapathId>();
+        for (IOFMessageListener listener : orderedListeners) {
+            if (listener instanceof IPacketInInterestListener) {
+                PacketInInterest interest =
+                        ((IPacketInInterestListener) listener).getPacketInInterest();
+                if (interest == null)
+                    continue;
+                interests.put(listener, interest);
+                namedEthTypes.addAll(interest.getEthTypes());
+                namedEthTypes.addAll(interest.getIgnoredEthTypes());
+                namedSwitches.addAll(interest.getSwitches());
+            }
+        }
+
+        List<EthType> classEthTypes = new ArrayList<EthType>();
+        classEthTypes.add(null);
+        classEthTypes.addAll(namedEthTypes);
+        this.ethTypes = new int[namedEthTypes.size()];
+        for (int i = 0; i < ethTypes.length; i++) {
+            ethTypes[i] = classEthTypes.get(i + 1).getValue();
+        }
+
+        this.defaultLists = buildLists(orderedListeners, interests, classEthTypes, null);
+        if (namedSwitches.isEmpty()) {
+            this.switchLists = Collections.emptyMap();
+        } else {
+            this.switchLists = new HashMap<DatapathId, List<List<IOFMessageListener>>>();
+            for (DatapathId dpid : namedSwitches) {
+                switchLists.put(dpid,
+                        buildLists(orderedListeners, interests, classEthTypes, dpid));
+            }
+        }
+    }
+
+    private static List<List<IOFMessageListener>>
+            buildLists(List<IOFMessageListener> orderedListeners,
+                       Map<IOFMessageListener, PacketInInterest> interests,
+                       List<EthType> classEthTypes,
+                       DatapathId dpid) {
+        List<List<IOFMessageListener>> lists =
+                new ArrayList<List<IOFMessageListener>>(classEthTypes.size() * MAC_CLASSES);
+        for (EthType ethType : classEthTypes) {
+            for (DstMacClass macClass : DstMacClass.values()) {
+                List<IOFMessageListener> list = new ArrayList<IOFMessageListener>();
+                for (IOFMessageListener listener : orderedListeners) {
+                    PacketInInterest interest = interests.get(listener);
+                    if (interest == null || interest.matches(ethType, macClass, dpid))
+                        list.add(listener);
+                }
+                lists.add(Collections.unmodifiableList(list));
+            }
+        }
+        return lists;
+    }
+
+    /**
+     * @param listeners an ordered listener list
+     * @return true if this table was built from exactly that list
+     */
+    public boolean isBuiltFrom(List<IOFMessageListener> listeners) {
+        return orderedListeners == listeners;
+    }
+
+    /**
+     * Looks up the listeners for a PACKET_IN
+     * @param dpid the switch the packet came from
+     * @param data the packet data
+     * @return the ordered listeners interested in the packet
+     */
+    public List<IOFMessageListener> getListeners(DatapathId dpid, byte[] data) {
+        int ethType = PacketInInterest.getEthType(data);
+        if (ethType < 0) {
+            // Too short to classify, let every listener decide
+            return orderedListeners;
+        }
+        int ethTypeClass = 0;
+        for (int i = 0; i < ethTypes.length; i++) {
+            if (ethTypes[i] == ethType) {
+                ethTypeClass = i + 1;
+                break;
+            }
+        }
+
+        List<List<IOFMessageListener>> lists = null;
+        if (!switchLists.isEmpty())
+            lists = switchLists.get(dpid);
+        if (lists == null)
+            lists = defaultLists;
+        return lists.get(ethTypeClass * MAC_CLASSES
+                + PacketInInterest.getDstMacClass(data).ordinal());
+    }
+}
@@ -1,5 +1,9 @@
 package net.floodlightcontroller.core.internal;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
 import net.floodlightcontroller.debugcounter.IDebugCounter;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
 import net.floodlightcontroller.debugcounter.IDebugCounterService.MetaData;
@@ -32,8 +36,16 @@ public class SwitchManagerCounters {
     public final IDebugCounter roleReplyReceived;
     public final IDebugCounter roleReplyErrorUnsupported;
     public final IDebugCounter switchSslConfigurationError;
+    public final IDebugCounter handshakePhase;
+
+    private static final String HANDSHAKE_PHASE = "handshake-phase";
+    private final IDebugCounterService debugCounters;
+    /** Phase name -> {phase count, cumulative phase time in microseconds} */
+    private final ConcurrentMap<String, IDebugCounter[]> handshakePhaseCounters =
+            new ConcurrentHashMap<String, IDebugCounter[]>();
 
     public SwitchManagerCounters(IDebugCounterService debugCounters) {
+        this.debugCounters = debugCounters;
         debugCounters.registerModule(prefix);
         invalidPortsChanged =
                 debugCounters.registerCounter(
@@ -209,6 +221,49 @@ public class SwitchManagerCounters {
                                         "IllegalArgumentException, which is likely " +
                                         "due to the switch trying to speak SSL whereas " +
                                         "the controller wants to use vanilla TCP.");
+
+                    handshakePhase =
+                            debugCounters.registerCounter(
+                                        prefix, HANDSHAKE_PHASE,
+                                        "Number of switch handshake phases completed. " +
+                                        "Per-phase counts and cumulative times in " +
+                                        "microseconds are registered below this counter " +
+                                        "as the phases are first seen.");
+    }
+
+    /**
+     * Records the time a switch handshake spent in a phase. Each phase gets
+     * a counter of completions and a counter of the cumulative time spent
+     * in it, so the average latency of a phase is time-us / count.
+     * @param phase the name of the handshake phase
+     * @param elapsedNs the time spent in the phase, in nanoseconds
+     */
+    public void recordHandshakePhase(String phase, long elapsedNs) {
+        IDebugCounter[] phaseCounters = handshakePhaseCounters.get(phase);
+        if (phaseCounters == null) {
+            phaseCounters = registerHandshakePhase(phase);
+        }
+        handshakePhase.increment();
+        phaseCounters[0].increment();
+        phaseCounters[1].add(TimeUnit.NANOSECONDS.toMicros(elapsedNs));
+    }
+
+    private synchronized IDebugCounter[] registerHandshakePhase(String phase) {
+        // Registering a counter twice resets it, so check again under the lock
+        IDebugCounter[] phaseCounters = handshakePhaseCounters.get(phase);
+        if (phaseCounters == null) {
+            String hierarchy = HANDSHAKE_PHASE + "/" + phase;
+            phaseCounters = new IDebugCounter[] {
+                    debugCounters.registerCounter(prefix, hierarchy,
+                            "Number of switch handshakes that completed " +
+                            "the " + phase + " phase"),
+                    debugCounters.registerCounter(prefix, hierarchy + "/time-us",
+                            "Cumulative time in microseconds switch " +
+                            "handshakes spent in the " + phase + " phase")
+            };
+            handshakePhaseCounters.put(phase, phaseCounters);
+        }
+        return phaseCounters;
     }
 
     public String getPrefix(){
@@ -73,7 +73,7 @@ public class FloodlightModuleContext implements IFloodlightModuleContext {
     }
 
     @Override
-    public Map<String, String> getConfigParams(Class<? extends IFloodlightModule> clazz) {
+    public synchronized Map<String, String> getConfigParams(Class<? extends IFloodlightModule> clazz) {
         Map<String, String> retMap = configParams.get(clazz);
         if (retMap == null) {
             // Return an empty map if none exists so the module does not
@@ -107,7 +107,7 @@ public class FloodlightModuleContext implements IFloodlightModuleContext {
      * @param key The configuration parameter key
      * @param value The configuration parameter value
      */
-    public void addConfigParam(IFloodlightModule mod, String key, String value) {
+    public synchronized void addConfigParam(IFloodlightModule mod, String key, String value) {
         Map<String, String> moduleParams = configParams.get(mod.getClass());
         if (moduleParams == null) {
             moduleParams = new HashMap<String, String>();
@@ -39,6 +39,14 @@ import java.util.Properties;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import net.floodlightcontroller.core.annotations.LogMessageDoc;
 import net.floodlightcontroller.core.annotations.LogMessageDocs;
@@ -70,12 +78,25 @@ public class FloodlightModuleLoader {
 
     protected boolean startupModules;
 
+    /**
+     * Number of threads that init and start up modules. Modules whose
+     * dependencies are done run concurrently if more than one.
+     */
+    protected int startupThreads = DEFAULT_STARTUP_THREADS;
+
+    /** Time spent in init and startUp per module name, in nanoseconds */
+    private final Map<String, Long> initTimes = new ConcurrentHashMap<>();
+    private final Map<String, Long> startupTimes = new ConcurrentHashMap<>();
+
     private static URI configFile;
 
     public static final String COMPILED_CONF_FILE =
             "floodlightdefault.properties";
     public static final String FLOODLIGHT_MODULES_KEY =
             "floodlight.modules";
+    public static final String FLOODLIGHT_STARTUP_THREADS_KEY =
+            "floodlight.startup.threads";
+    public static final int DEFAULT_STARTUP_THREADS = 1;
 
     public FloodlightModuleLoader() {
         loadedModuleList = Collections.emptyList();
@@ -106,6 +127,30 @@ public class FloodlightModuleLoader {
             return Collections.unmodifiableList(loadedModuleList);
     }
 
+    /**
+     * Gets the time each loaded module spent in its init method
+     * @return An UNMODIFIABLE map of module names to milliseconds
+     */
+    public Map<String, Long> getModuleInitTimes() {
+        return toMillis(initTimes);
+    }
+
+    /**
+     * Gets the time each loaded module spent in its startUp method
+     * @return An UNMODIFIABLE map of module names to milliseconds
+     */
+    public Map<String, Long> getModuleStartupTimes() {
+        return toMillis(startupTimes);
+    }
+
+    private static Map<String, Long> toMillis(Map<String, Long> timesNs) {
+        Map<String, Long> m = new HashMap<>();
+        for (Entry<String, Long> e : timesNs.entrySet()) {
+            m.put(e.getKey(), TimeUnit.NANOSECONDS.toMillis(e.getValue()));
+        }
+        return Collections.unmodifiableMap(m);
+    }
+
     /**
      * Return the location of the config file that was used to initialize
      * floodlight. If no config file was specified (i.e. floodlight was
@@ -280,6 +325,11 @@ public class FloodlightModuleLoader {
             }
             fprop.remove(FLOODLIGHT_MODULES_KEY);
 
+            String threads = fprop.getProperty(FLOODLIGHT_STARTUP_THREADS_KEY);
+            if (threads != null)
+                setStartupThreads(threads);
+            fprop.remove(FLOODLIGHT_STARTUP_THREADS_KEY);
+
             prop.putAll(fprop);
         } catch (IOException e) {
             throw new FloodlightModuleException(e);
@@ -313,6 +363,9 @@ public class FloodlightModuleLoader {
         }
 
         parseConfigParameters(prop);
+        String threads = System.getProperty(FLOODLIGHT_STARTUP_THREADS_KEY);
+        if (threads != null)
+            setStartupThreads(threads);
 
         loadedModuleList = moduleList;
 
@@ -475,14 +528,7 @@ public class FloodlightModuleLoader {
             }
         }
 
-        for (IFloodlightModule module : moduleSet) {
-            // init the module
-            if (logger.isDebugEnabled()) {
-                logger.debug("Initializing " +
-                             module.getClass().getCanonicalName());
-            }
-            module.init(floodlightModuleContext);
-        }
+        runPhase(moduleSet, true);
     }
 
     /**
@@ -492,12 +538,188 @@ public class FloodlightModuleLoader {
      */
     protected void startupModules(Collection<IFloodlightModule> moduleSet)
             throws FloodlightModuleException {
+        runPhase(moduleSet, false);
+    }
+
+    /**
+     * Call init or startUp on every module, a module only after the
+     * modules providing its dependencies. With more than one startup
+     * thread, modules whose dependencies are done run concurrently, so
+     * only the order between a module and its dependencies is kept; the
+     * services modules register with from startUp must be thread-safe.
+     * @param moduleSet the modules, dependencies first
+     * @param init whether to call init rather than startUp
+     * @throws FloodlightModuleException if a module fails
+     */
+    protected void runPhase(Collection<IFloodlightModule> moduleSet,
+                            boolean init)
+            throws FloodlightModuleException {
+        long start = System.nanoTime();
+        if (startupThreads <= 1 || moduleSet.size() <= 1) {
+            for (IFloodlightModule m : moduleSet) {
+                runModule(m, init);
+            }
+        } else {
+            runParallel(new ArrayList<IFloodlightModule>(moduleSet), init);
+        }
+        logTimes(moduleSet, init ? initTimes : startupTimes,
+                 init ? "Initialized" : "Started",
+                 System.nanoTime() - start);
+    }
+
+    private void runModule(IFloodlightModule m, boolean init)
+            throws FloodlightModuleException {
+        String name = m.getClass().getCanonicalName();
+        if (logger.isDebugEnabled()) {
+            logger.debug((init ? "Initializing " : "Starting ") + name);
+        }
+        long start = System.nanoTime();
+        if (init)
+            m.init(floodlightModuleContext);
+        else
+            m.startUp(floodlightModuleContext);
+        (init ? initTimes : startupTimes).put(name, System.nanoTime() - start);
+    }
+
+    private void runParallel(List<IFloodlightModule> modules,
+                             final boolean init)
+            throws FloodlightModuleException {
+        // The modules of the set that provide each service
+        Map<Class<? extends IFloodlightService>, IFloodlightModule> providers =
+                new HashMap<>();
+        for (IFloodlightModule m : modules) {
+            Collection<Class<? extends IFloodlightService>> servs =
+                    m.getModuleServices();
+            if (servs != null) {
+                for (Class<? extends IFloodlightService> c : servs)
+                    providers.put(c, m);
+            }
+        }
+
+        // Count the unfinished dependencies of each module, and which
+        // modules wait for it
+        Map<IFloodlightModule, Integer> waitingFor = new HashMap<>();
+        Map<IFloodlightModule, List<IFloodlightModule>> dependents =
+                new HashMap<>();
+        for (IFloodlightModule m : modules) {
+            Set<IFloodlightModule> deps = new HashSet<>();
+            Collection<Class<? extends IFloodlightService>> depServs =
+                    m.getModuleDependencies();
+            if (depServs != null) {
+                for (Class<? extends IFloodlightService> c : depServs) {
+                    IFloodlightModule dep = providers.get(c);
+                    if (dep != null && dep != m)
+                        deps.add(dep);
+                }
+            }
+            waitingFor.put(m, deps.size());
+            for (IFloodlightModule dep : deps) {
+                List<IFloodlightModule> l = dependents.get(dep);
+                if (l == null) {
+                    l = new ArrayList<>();
+                    dependents.put(dep, l);
+                }
+                l.add(m);
+            }
+        }
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.min(startupThreads,
+                                                      modules.size()));
+        CompletionService<IFloodlightModule> completion =
+                new ExecutorCompletionService<>(executor);
+        List<IFloodlightModule> pending = new ArrayList<>(modules);
+        int running = 0;
+        try {
+            while (!pending.isEmpty() || running > 0) {
+                boolean submitted = false;
+                for (Iterator<IFloodlightModule> it = pending.iterator();
+                        it.hasNext();) {
+                    final IFloodlightModule m = it.next();
+                    if (waitingFor.get(m) > 0)
+                        continue;
+                    it.remove();
+                    completion.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                runModule(m, init);
+                            } catch (FloodlightModuleException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }, m);
+                    running++;
+                    submitted = true;
+                }
+                if (running == 0 && !submitted) {
+                    // Circular dependencies; run the rest in order
+                    for (IFloodlightModule m : pending)
+                        runModule(m, init);
+                    pending.clear();
+                    break;
+                }
+
+                Future<IFloodlightModule> done = completion.take();
+                running--;
+                IFloodlightModule m = getResult(done);
+                List<IFloodlightModule> l = dependents.get(m);
+                if (l != null) {
+                    for (IFloodlightModule d : l)
+                        waitingFor.put(d, waitingFor.get(d) - 1);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FloodlightModuleException("Interrupted while " +
+                    (init ? "initializing" : "starting") + " modules", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static IFloodlightModule getResult(Future<IFloodlightModule> f)
+            throws FloodlightModuleException, InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalStateException &&
+                cause.getCause() instanceof FloodlightModuleException)
+                throw (FloodlightModuleException) cause.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new FloodlightModuleException(cause);
+        }
+    }
+
+    private void logTimes(Collection<IFloodlightModule> moduleSet,
+                          Map<String, Long> times, String what,
+                          long totalNs) {
+        String slowest = null;
+        long slowestNs = -1;
         for (IFloodlightModule m : moduleSet) {
+            String name = m.getClass().getCanonicalName();
+            Long ns = times.get(name);
+            if (ns == null)
+                continue;
             if (logger.isDebugEnabled()) {
-                logger.debug("Starting " + m.getClass().getCanonicalName());
+                logger.debug("{} {} in {} ms", new Object[] {
+                        what, name, TimeUnit.NANOSECONDS.toMillis(ns) });
+            }
+            if (ns > slowestNs) {
+                slowest = name;
+                slowestNs = ns;
             }
-            m.startUp(floodlightModuleContext);
         }
+        logger.info("{} {} modules in {} ms using {} thread(s), slowest {} " +
+                    "in {} ms", new Object[] {
+                    what, moduleSet.size(),
+                    TimeUnit.NANOSECONDS.toMillis(totalNs),
+                    Math.max(1, Math.min(startupThreads, moduleSet.size())),
+                    slowest, TimeUnit.NANOSECONDS.toMillis(slowestNs) });
     }
 
     /** Tuple of floodlight module and run method */
@@ -602,4 +824,21 @@ public class FloodlightModuleLoader {
     public void setStartupModules(boolean startupModules) {
         this.startupModules = startupModules;
     }
+
+    public int getStartupThreads() {
+        return startupThreads;
+    }
+
+    public void setStartupThreads(int startupThreads) {
+        this.startupThreads = Math.max(1, startupThreads);
+    }
+
+    private void setStartupThreads(String threads) {
+        try {
+            setStartupThreads(Integer.parseInt(threads.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} {}, using {}", new Object[] {
+                    FLOODLIGHT_STARTUP_THREADS_KEY, threads, startupThreads });
+        }
+    }
 }
@@ -56,6 +56,10 @@ public class ModuleLoaderResource extends ServerResource {
                 (FloodlightModuleLoader) getContext().getAttributes().
                 get(FloodlightModuleLoader.class.getCanonicalName());
 
+        Map<String, Long> initTimes = floodlightModuleLoader.getModuleInitTimes();
+        Map<String, Long> startupTimes =
+                floodlightModuleLoader.getModuleStartupTimes();
+
         Set<String> loadedModules = new HashSet<String>();
         for (Object val : getContext().getAttributes().values()) {
         	if ((val instanceof IFloodlightModule) || (val instanceof IFloodlightService)) {
@@ -112,6 +116,11 @@ public class ModuleLoaderResource extends ServerResource {
         		}
         	}
 
+        	if (initTimes.containsKey(moduleName))
+        		moduleInfo.put("initTimeMs", initTimes.get(moduleName));
+        	if (startupTimes.containsKey(moduleName))
+        		moduleInfo.put("startupTimeMs", startupTimes.get(moduleName));
+
         	if ((Boolean)moduleInfo.get("loaded")|| !loadedOnly )
         		model.put(moduleName, moduleInfo);
         }            
@@ -97,6 +97,15 @@ public class AppCookie {
         return (int)((cookie.getValue() >>> APP_ID_SHIFT) & APP_ID_MASK);
     }
 
+    /**
+     * The mask of the application id in a flow cookie, to select the
+     * flows of an application with OFFlowMod.setCookieMask()
+     * @return the mask
+     */
+    static public U64 getAppFieldMask() {
+        return U64.of(APP_ID_MASK << APP_ID_SHIFT);
+    }
+
     static public int extractUser(U64 cookie) {
         return (int)(cookie.getValue() & USER_MASK);
     }
@@ -68,7 +68,7 @@ public class ListenerDispatcher<U, T extends IListener<U>> {
                    recommendation="Install a different set of listeners " +
                            "or install all dependencies.  This is a defect in " +
                            "the controller installation.")
-    public void addListener(U type, T listener) {
+    public synchronized void addListener(U type, T listener) {
         List<T> newlisteners = new ArrayList<T>();
         if (listeners != null)
             newlisteners.addAll(listeners);
@@ -110,7 +110,7 @@ public class ListenerDispatcher<U, T extends IListener<U>> {
      * Remove the given listener
      * @param listener the listener to remove
      */
-    public void removeListener(T listener) {
+    public synchronized void removeListener(T listener) {
         if (listeners != null) {
             List<T> newlisteners = new ArrayList<T>();
             newlisteners.addAll(listeners);
@@ -122,7 +122,7 @@ public class ListenerDispatcher<U, T extends IListener<U>> {
     /**
      * Clear all listeners
      */
-    public void clearListeners() {
+    public synchronized void clearListeners() {
         listeners = new ArrayList<T>();
     }
 
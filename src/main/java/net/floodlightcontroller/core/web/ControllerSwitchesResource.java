@@ -17,20 +17,27 @@
 
 package net.floodlightcontroller.core.web;
 
-import java.util.Set;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
 
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.restserver.JsonStreamRepresentation;
+import net.floodlightcontroller.restserver.PageRequest;
 
 import org.projectfloodlight.openflow.types.DatapathId;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 import org.restlet.resource.ServerResource;
 import net.floodlightcontroller.core.web.serializers.DPIDSerializer;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 /**
- * Get a list of switches connected to the controller
+ * Get a list of switches connected to the controller, ordered by DPID.
+ * The list can be paged and projected with the query parameters of
+ * {@link PageRequest}.
  * @author readams
  */
 public class ControllerSwitchesResource extends ServerResource {
@@ -62,15 +69,21 @@ public class ControllerSwitchesResource extends ServerResource {
     }
 
     @Get("json")
-    public Set<DatapathIDJsonSerializerWrapper> retrieve(){
+    public Representation retrieve(){
         IOFSwitchService switchService = 
             (IOFSwitchService) getContext().getAttributes().
                 get(IOFSwitchService.class.getCanonicalName());
-        Set<DatapathIDJsonSerializerWrapper> dpidSets = new HashSet<DatapathIDJsonSerializerWrapper>();
-        for(IOFSwitch sw: switchService.getAllSwitchMap().values()) {
-            dpidSets.add(new DatapathIDJsonSerializerWrapper(sw.getId(), sw.getInetAddress().toString(),  sw.getConnectedSince().getTime()));
-
+        PageRequest page;
+        try {
+            page = PageRequest.fromQuery(getQuery());
+        } catch (IllegalArgumentException e) {
+            setStatus(Status.CLIENT_ERROR_BAD_REQUEST, e.getMessage());
+            return null;
+        }
+        List<DatapathIDJsonSerializerWrapper> dpidList = new ArrayList<DatapathIDJsonSerializerWrapper>();
+        for(IOFSwitch sw: new TreeMap<DatapathId, IOFSwitch>(switchService.getAllSwitchMap()).values()) {
+            dpidList.add(new DatapathIDJsonSerializerWrapper(sw.getId(), sw.getInetAddress().toString(),  sw.getConnectedSince().getTime()));
         }
-        return dpidSets;
+        return new JsonStreamRepresentation(dpidList.iterator(), page);
     }
 }
@@ -35,6 +35,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -44,8 +45,9 @@ import net.floodlightcontroller.core.HAListenerTypeMarker;
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IHAListener;
 import net.floodlightcontroller.core.IInfoProvider;
-import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
 import net.floodlightcontroller.core.HARole;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
@@ -83,6 +85,7 @@ import net.floodlightcontroller.storage.IStorageSourceService;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyListener;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.TopologySnapshot;
 import net.floodlightcontroller.util.MultiIterator;
 import static net.floodlightcontroller.devicemanager.internal.
 DeviceManagerImpl.DeviceUpdate.Change.*;
@@ -113,7 +116,7 @@ import org.slf4j.LoggerFactory;
  * within the network.
  * @author readams
  */
-public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, ITopologyListener, IFloodlightModule, IEntityClassListener, IInfoProvider {
+public class DeviceManagerImpl implements IDeviceService, IPacketInInterestListener, ITopologyListener, IFloodlightModule, IEntityClassListener, IInfoProvider {
 	protected static Logger logger = LoggerFactory.getLogger(DeviceManagerImpl.class);
 	protected IFloodlightProviderService floodlightProvider;
 	protected ITopologyService topology;
@@ -152,6 +155,9 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 	public IDebugCounter cntDeviceReclassifyDelete;
 	public IDebugCounter cntDeviceStrored;
 	public IDebugCounter cntDeviceStoreThrottled;
+	public IDebugCounter cntDeviceStoreCoalesced;
+	public IDebugCounter cntDeviceStoreUnchanged;
+	public IDebugCounter cntDeviceStoreFlushLimited;
 	public IDebugCounter cntDeviceRemovedFromStore;
 	public IDebugCounter cntSyncException;
 	public IDebugCounter cntDevicesFromStore;
@@ -177,6 +183,22 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 	static final int DEFAULT_SYNC_STORE_WRITE_INTERVAL_MS = 5*60*1000; // 5 min
 	private int syncStoreWriteIntervalMs = DEFAULT_SYNC_STORE_WRITE_INTERVAL_MS;
 
+	/**
+	 * Time interval between writes of the changed devices to the sync
+	 * store. Changes to a device within an interval are coalesced into a
+	 * single write.
+	 */
+	static final int DEFAULT_SYNC_STORE_FLUSH_INTERVAL_MS = 100;
+	private int syncStoreFlushIntervalMs = DEFAULT_SYNC_STORE_FLUSH_INTERVAL_MS;
+
+	/**
+	 * Maximum number of devices written to the sync store per second.
+	 * Devices over the limit stay pending until the next flush.
+	 */
+	static final int DEFAULT_SYNC_STORE_MAX_WRITES_PER_SECOND = 2000;
+	private int syncStoreMaxWritesPerSecond =
+			DEFAULT_SYNC_STORE_MAX_WRITES_PER_SECOND;
+
 	/**
 	 * Time after SLAVE->MASTER until we run the consolidate store
 	 * code.
@@ -424,6 +446,11 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 	 */
 	private SingletonTask storeConsolidateTask;
 
+	/**
+	 * Periodic task to write the changed devices to the sync store
+	 */
+	private SingletonTask storeFlushTask;
+
 	/**
 	 * Listens for HA notifications
 	 */
@@ -752,6 +779,14 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 		return false;
 	}
 
+	@Override
+	public PacketInInterest getPacketInInterest() {
+		// Devices are learned from the source of every packet, and the
+		// source and destination devices are looked up for all listeners
+		// that follow, so every packet is of interest
+		return PacketInInterest.ALL;
+	}
+
 	@Override
 	public Command receive(IOFSwitch sw, OFMessage msg,
 			FloodlightContext cntx) {
@@ -826,12 +861,35 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 		this.debugEventService = fmc.getServiceImpl(IDebugEventService.class);
 		this.syncService = fmc.getServiceImpl(ISyncService.class);
 		this.deviceSyncManager = new DeviceSyncManager();
+
+		Map<String, String> configOptions = fmc.getConfigParams(this);
+		syncStoreFlushIntervalMs = getPositiveIntConfig(configOptions,
+				"syncStoreFlushIntervalMs", syncStoreFlushIntervalMs);
+		syncStoreMaxWritesPerSecond = getPositiveIntConfig(configOptions,
+				"syncStoreMaxWritesPerSecond", syncStoreMaxWritesPerSecond);
 		this.haListenerDelegate = new HAListenerDelegate();
 		registerDeviceManagerDebugCounters();
 		registerDeviceManagerDebugEvents();
 		this.addListener(new DeviceDebugEventLogger());
 	}
 
+	private static int getPositiveIntConfig(Map<String, String> configOptions,
+			String name, int defaultValue) {
+		String value = configOptions.get(name);
+		if (value == null)
+			return defaultValue;
+		try {
+			int i = Integer.parseInt(value.trim());
+			if (i > 0)
+				return i;
+		} catch (NumberFormatException e) {
+			// fall through
+		}
+		logger.warn("Invalid value {} for {}, using {}",
+				new Object[] { value, name, defaultValue });
+		return defaultValue;
+	}
+
 	private void registerDeviceManagerDebugEvents() throws FloodlightModuleException {
 		if (debugEventService == null) {
 			logger.error("debugEventService should not be null");
@@ -890,6 +948,23 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			storeConsolidateTask.reschedule(syncStoreConsolidateIntervalMs,
 					TimeUnit.MILLISECONDS);
 
+		Runnable storeFlushRunner = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					deviceSyncManager.flush(getSyncStoreWritesPerFlush());
+				} catch (Exception e) {
+					logger.error("Exception in sync store flush task", e);
+				} finally {
+					storeFlushTask.reschedule(syncStoreFlushIntervalMs,
+							TimeUnit.MILLISECONDS);
+				}
+			}
+		};
+		storeFlushTask = new SingletonTask(ses, storeFlushRunner);
+		storeFlushTask.reschedule(syncStoreFlushIntervalMs,
+				TimeUnit.MILLISECONDS);
+
 
 		if (restApi != null) {
 			restApi.addRestletRoutable(new DeviceRoutable());
@@ -992,6 +1067,18 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 				"Number of times a device update to the sync store was " +
 						"requested but not performed because the same device entities " +
 				"have recently been updated already");
+		cntDeviceStoreCoalesced = debugCounters.registerCounter(PACKAGE,
+				"device-store-coalesced",
+				"Number of device updates to the sync store that were merged " +
+				"with a pending update of the same device");
+		cntDeviceStoreUnchanged = debugCounters.registerCounter(PACKAGE,
+				"device-store-unchanged",
+				"Number of pending device updates that were not written to " +
+				"the sync store because the device was stored as is already");
+		cntDeviceStoreFlushLimited = debugCounters.registerCounter(PACKAGE,
+				"device-store-flush-limited",
+				"Number of times the write rate limit left device updates " +
+				"pending for the next flush of the sync store");
 		cntDeviceRemovedFromStore = debugCounters.registerCounter(PACKAGE,
 				"device-removed-from-store",
 				"Number of devices that were removed from the sync store " +
@@ -1079,6 +1166,8 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			cntInvalidSource.increment();
 			return Command.STOP;
 		}
+		// The attachment point checks for this packet use one topology
+		TopologySnapshot topo = topology.getSnapshot();
 
 		// Learn from ARP packet for special VRRP settings.
 		// In VRRP settings, the source MAC address and sender MAC
@@ -1086,10 +1175,10 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 		// the IP to MAC mapping of the VRRP IP address.  The source
 		// entity will not have that information.  Hence, a separate call
 		// to learn devices in such cases.
-		learnDeviceFromArpResponseData(eth, sw.getId(), inPort);
+		learnDeviceFromArpResponseData(eth, sw.getId(), inPort, topo);
 
 		// Learn/lookup device information
-		Device srcDevice = learnDeviceByEntity(srcEntity);
+		Device srcDevice = learnDeviceByEntity(srcEntity, topo);
 		if (srcDevice == null) {
 			cntNoSource.increment();
 			return Command.STOP;
@@ -1224,7 +1313,8 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 	 */
 	protected void learnDeviceFromArpResponseData(Ethernet eth,
 			DatapathId swdpid,
-			OFPort port) {
+			OFPort port,
+			TopologySnapshot topo) {
 
 		if (!(eth.getPayload() instanceof ARP)) return;
 		ARP arp = (ARP) eth.getPayload();
@@ -1252,7 +1342,7 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 				port,
 				new Date());
 
-		learnDeviceByEntity(e);
+		learnDeviceByEntity(e, topo);
 	}
 
 	/**
@@ -1378,6 +1468,18 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 	 * @return The {@link Device} object if found
 	 */
 	protected Device learnDeviceByEntity(Entity entity) {
+		return learnDeviceByEntity(entity, topology.getSnapshot());
+	}
+
+	/**
+	 * Like {@link #learnDeviceByEntity(Entity)}, with the attachment point
+	 * checks answered by the given topology snapshot.
+	 *
+	 * @param entity the {@link Entity}
+	 * @param topo the topology snapshot for the packet being processed
+	 * @return The {@link Device} object if found
+	 */
+	protected Device learnDeviceByEntity(Entity entity, TopologySnapshot topo) {
 		ArrayList<Long> deleteQueue = null;
 		LinkedList<DeviceUpdate> deviceUpdates = null;
 		Device device = null;
@@ -1432,7 +1534,7 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 				// create a new Device object containing the entity, and
 				// generate a new device ID if the the entity is on an
 				// attachment point port. Otherwise ignore.
-				if (entity.hasSwitchPort() && !topology.isAttachmentPointPort(entity.getSwitchDPID(), entity.getSwitchPort())) {
+				if (entity.hasSwitchPort() && !topo.isAttachmentPointPort(entity.getSwitchDPID(), entity.getSwitchPort())) {
 					cntDeviceOnInternalPortNotLearned.increment();
 					if (logger.isDebugEnabled()) {
 						logger.debug("Not learning new device on internal"
@@ -1493,7 +1595,7 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			// If this is not an attachment point port we don't learn the new entity
 			// and don't update indexes. But we do allow the device to continue up
 			// the chain.
-			if (entity.hasSwitchPort() && !topology.isAttachmentPointPort(entity.getSwitchDPID(), entity.getSwitchPort())) {
+			if (entity.hasSwitchPort() && !topo.isAttachmentPointPort(entity.getSwitchDPID(), entity.getSwitchPort())) {
 				cntPacketOnInternalPortForKnownDevice.increment();
 				break;
 			}
@@ -2155,13 +2257,39 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 		 this.storeConsolidateTask.reschedule(0, TimeUnit.MILLISECONDS);
 	 }
 
+	 /**
+	  * For testing: write all pending device updates to the sync store NOW
+	  */
+	 void flushSyncStore() {
+		 this.deviceSyncManager.flush(Integer.MAX_VALUE);
+	 }
+
+	 /**
+	  * @return the number of devices to write to the sync store per flush
+	  */
+	 private int getSyncStoreWritesPerFlush() {
+		 long writes = (long) syncStoreMaxWritesPerSecond *
+				 syncStoreFlushIntervalMs / 1000;
+		 return (int) Math.max(1, Math.min(writes, Integer.MAX_VALUE));
+	 }
+
 	 private class DeviceSyncManager  {
 		 // maps (opaque) deviceKey to the time in System.nanoTime() when we
 		 // last wrote the device to the sync store
 		 private final ConcurrentMap<Long, Long> lastWriteTimes = new ConcurrentHashMap<Long, Long>();
+		 // the deviceKeys of the devices waiting to be written to the sync
+		 // store, in the order they were first changed
+		 private final Queue<Long> pendingKeys = new ConcurrentLinkedQueue<Long>();
+		 // maps the deviceKeys in pendingKeys to the latest version of the
+		 // device
+		 private final ConcurrentMap<Long, Device> pendingDevices = new ConcurrentHashMap<Long, Device>();
+		 // maps deviceKey to a hash of the representation we last wrote
+		 // for the device
+		 private final ConcurrentMap<Long, Long> lastWrittenHashes = new ConcurrentHashMap<Long, Long>();
 
 		 /**
-		  * Write the given device to storage if we are MASTER.
+		  * Write the given device to storage with the next flush if we are
+		  * MASTER.
 		  * Use this method if the device has significantly changed (e.g.,
 		  * new AP, new IP, entities removed).
 		  * @param d the device to store
@@ -2172,14 +2300,14 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			 if (d == null)
 				 return;
 			 long now = System.nanoTime();
-			 writeUpdatedDeviceToStorage(d);
+			 markPending(d);
 			 lastWriteTimes.put(d.getDeviceKey(), now);
 		 }
 
 		 /**
-		  * Write the given device to storage if we are MASTER and if the
-		  * last write for the device was more than this.syncStoreIntervalNs
-		  * time ago.
+		  * Write the given device to storage with the next flush if we are
+		  * MASTER and if the last write for the device was more than
+		  * this.syncStoreIntervalNs time ago.
 		  * Use this method to updated last active times in the store.
 		  * @param d the device to store
 		  */
@@ -2192,7 +2320,7 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			 long now = System.nanoTime();
 			 Long last = lastWriteTimes.get(d.getDeviceKey());
 			 if (last == null || (now - last) > intervalNs) {
-				 writeUpdatedDeviceToStorage(d);
+				 markPending(d);
 				 lastWriteTimes.put(d.getDeviceKey(), now);
 			 } else {
 				 cntDeviceStoreThrottled.increment();
@@ -2212,6 +2340,8 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 			 // hashMap? I.e., we write a stale entry to the map after the
 			 // delete and now are left with an entry we'll never clean up
 			 lastWriteTimes.remove(d.getDeviceKey());
+			 lastWrittenHashes.remove(d.getDeviceKey());
+			 pendingDevices.remove(d.getDeviceKey());
 			 try {
 				 // TODO: should probably do versioned delete. OTOH, even
 				 // if we accidentally delete, we'll write it again after
@@ -2255,6 +2385,8 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 				 logger.debug("Transitioning to MASTER role");
 			 }
 			 cntTransitionToMaster.increment();
+			 // Another controller may have written the devices since
+			 lastWrittenHashes.clear();
 			 IClosableIterator<Map.Entry<String,Versioned<DeviceSyncRepresentation>>>
 			 iter = null;
 			 try {
@@ -2285,27 +2417,103 @@ public class DeviceManagerImpl implements IDeviceService, IOFMessageListener, IT
 					 TimeUnit.MILLISECONDS);
 		 }
 
+		 /**
+		  * Queue the given device for the next flush, replacing the
+		  * pending version of the device if there is one
+		  * @param d the device to store
+		  */
+		 private void markPending(Device d) {
+			 if (pendingDevices.put(d.getDeviceKey(), d) == null) {
+				 pendingKeys.add(d.getDeviceKey());
+			 } else {
+				 cntDeviceStoreCoalesced.increment();
+			 }
+		 }
+
+		 /**
+		  * Write the pending devices to the store, oldest change first.
+		  * Devices whose representation did not change since we last wrote
+		  * them are skipped. Drops the pending devices if we are not MASTER.
+		  * @param maxWrites the maximum number of devices to write
+		  */
+		 public void flush(int maxWrites) {
+			 if (!isMaster) {
+				 pendingKeys.clear();
+				 pendingDevices.clear();
+				 return;
+			 }
+			 int written = 0;
+			 while (written < maxWrites) {
+				 Long deviceKey = pendingKeys.poll();
+				 if (deviceKey == null)
+					 return;
+				 Device d = pendingDevices.remove(deviceKey);
+				 if (d == null)
+					 continue; // removed meanwhile
+				 DeviceSyncRepresentation storeDevice =
+						 new DeviceSyncRepresentation(d);
+				 long hash = hashRepresentation(storeDevice);
+				 Long lastHash = lastWrittenHashes.get(deviceKey);
+				 if (lastHash != null && lastHash == hash) {
+					 cntDeviceStoreUnchanged.increment();
+					 continue;
+				 }
+				 if (writeUpdatedDeviceToStorage(storeDevice))
+					 lastWrittenHashes.put(deviceKey, hash);
+				 written++;
+			 }
+			 if (!pendingKeys.isEmpty())
+				 cntDeviceStoreFlushLimited.increment();
+		 }
+
+		 /**
+		  * Hash everything we store for a device, so writes that would not
+		  * change the stored device can be skipped
+		  */
+		 private long hashRepresentation(DeviceSyncRepresentation dsr) {
+			 long h = dsr.getKey().hashCode();
+			 for (SyncEntity se : dsr.getEntities()) {
+				 h = mixHash(h, se.macAddress);
+				 h = mixHash(h, se.ipv4Address);
+				 h = mixHash(h, se.vlan);
+				 h = mixHash(h, se.switchDPID);
+				 h = mixHash(h, se.switchPort);
+				 h = mixHash(h, (se.lastSeenTimestamp == null) ?
+						 -1 : se.lastSeenTimestamp.getTime());
+				 h = mixHash(h, (se.activeSince == null) ?
+						 -1 : se.activeSince.getTime());
+			 }
+			 return h;
+		 }
+
+		 private long mixHash(long h, long value) {
+			 // FNV-1a, a long at a time
+			 return (h ^ value) * 0x100000001b3L;
+		 }
+
 		 /**
 		  * Actually perform the write of the device to the store
 		  * FIXME: concurrent modification behavior
-		  * @param device The device to write
+		  * @param storeDevice The device to write
+		  * @return true if the device was written
 		  */
-		 private void writeUpdatedDeviceToStorage(Device device) {
+		 private boolean writeUpdatedDeviceToStorage(DeviceSyncRepresentation storeDevice) {
 			 try {
 				 cntDeviceStrored.increment();
 				 // FIXME: use a versioned put
-				 DeviceSyncRepresentation storeDevice = new DeviceSyncRepresentation(device);
 				 storeClient.put(storeDevice.getKey(), storeDevice);
+				 return true;
 			 } catch (ObsoleteVersionException e) {
 				 // FIXME: what's the right behavior here. Can the store client
 				 // even throw this error?
 			 } catch (SyncException e) {
 				 cntSyncException.increment();
-				 logger.error("Could not write device " + device +
+				 logger.error("Could not write device " + storeDevice +
 						 " to sync store:", e);
 			 } catch (Exception e) {
 				 logger.error("Count not write device to sync storage " + e.getMessage());
 			 }
+			 return false;
 		 }
 
 		 /**
@@ -23,6 +23,7 @@ import net.floodlightcontroller.devicemanager.IDevice;
 import net.floodlightcontroller.devicemanager.IDeviceService;
 import net.floodlightcontroller.devicemanager.SwitchPort;
 import net.floodlightcontroller.devicemanager.internal.Device;
+import net.floodlightcontroller.restserver.PageRequest;
 import net.floodlightcontroller.util.FilterIterator;
 
 import org.projectfloodlight.openflow.types.DatapathId;
@@ -52,6 +53,19 @@ public abstract class AbstractDeviceResource extends ServerResource {
     public static final String PORT_ERROR = 
             "Invalid Port: must be a positive integer";
     
+    /**
+     * Get the page of devices the client asked for
+     * @return the page request, or null if the query is not valid
+     */
+    protected PageRequest getPageRequest() {
+        try {
+            return PageRequest.fromQuery(getQuery());
+        } catch (IllegalArgumentException e) {
+            setStatus(Status.CLIENT_ERROR_BAD_REQUEST, e.getMessage());
+            return null;
+        }
+    }
+
     public Iterator<? extends IDevice> getDevices() {
         IDeviceService deviceManager = 
                 (IDeviceService)getContext().getAttributes().
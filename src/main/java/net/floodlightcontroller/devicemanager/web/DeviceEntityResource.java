@@ -22,7 +22,10 @@ import java.util.Iterator;
 import net.floodlightcontroller.devicemanager.IDevice;
 import net.floodlightcontroller.devicemanager.internal.Device;
 import net.floodlightcontroller.devicemanager.internal.Entity;
+import net.floodlightcontroller.restserver.JsonStreamRepresentation;
+import net.floodlightcontroller.restserver.PageRequest;
 
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
 /**
@@ -31,9 +34,12 @@ import org.restlet.resource.Get;
  */
 public class DeviceEntityResource extends AbstractDeviceResource {
     @Get("json")
-    public Iterator<Entity[]> getDeviceEntities() {
+    public Representation getDeviceEntities() {
+        PageRequest page = getPageRequest();
+        if (page == null) return null;
         final Iterator<? extends IDevice> devices = super.getDevices();
-        return new Iterator<Entity[]>() {
+        if (devices == null) return null;
+        return new JsonStreamRepresentation(new Iterator<Entity[]>() {
 
             @Override
             public boolean hasNext() {
@@ -50,6 +56,6 @@ public class DeviceEntityResource extends AbstractDeviceResource {
             public void remove() {
                 throw new UnsupportedOperationException();
             }
-        };
+        }, page);
     }
 }
@@ -20,14 +20,24 @@ package net.floodlightcontroller.devicemanager.web;
 import java.util.Iterator;
 
 import net.floodlightcontroller.devicemanager.IDevice;
+import net.floodlightcontroller.restserver.JsonStreamRepresentation;
+import net.floodlightcontroller.restserver.PageRequest;
+
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 
 /**
- * Resource for querying and displaying devices that exist in the system
+ * Resource for querying and displaying devices that exist in the system.
+ * The devices are streamed to the client, and can be paged and projected
+ * with the query parameters of {@link PageRequest}.
  */
 public class DeviceResource extends AbstractDeviceResource {
     @Get("json")
-    public Iterator<? extends IDevice> getDevices() {
-        return super.getDevices();
+    public Representation retrieve() {
+        PageRequest page = getPageRequest();
+        if (page == null) return null;
+        Iterator<? extends IDevice> devices = getDevices();
+        if (devices == null) return null;
+        return new JsonStreamRepresentation(devices, page);
     }
 }
@@ -1,6 +1,12 @@
 package net.floodlightcontroller.dhcpserver;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
@@ -12,18 +18,57 @@ import net.floodlightcontroller.dhcpserver.DHCPBinding;
  * The class representing a DHCP Pool.
  * This class is essentially a list of DHCPBinding objects containing IP, MAC, and lease status information.
  *
+ * Each binding occupies a slot in the pool. Two bitmaps over the slots track the
+ * inactive dynamic bindings that have never been assigned a MAC and those that have
+ * been used before, and hash indexes map IP and MAC addresses to their bindings, so
+ * that lookups and lease allocation do not scan the pool. Removing an address moves
+ * the binding in the last slot into the freed one, so the slots stay dense. Active
+ * leases are also kept in a set ordered by expiration time that holds one entry per
+ * lease, which lets {@link #cleanExpiredLeases()} only visit the leases that are
+ * actually due.
+ *
+ * Each DHCPPool is independent of any other pool and has its own lock. Lookups share
+ * a read lock; changes take the write lock. {@link #offerLease} and {@link #requestLease}
+ * carry out a whole DISCOVER or REQUEST as one atomic operation, so callers do not need
+ * to lock the pool themselves.
+ *
  * @author Ryan Izard (rizard@g.clemson.edu)
  */
 public class DHCPPool {
 	protected Logger log;
-	private volatile static ArrayList<DHCPBinding> DHCP_POOL = new ArrayList<DHCPBinding>();
-	private volatile int POOL_SIZE;
-	private volatile int POOL_AVAILABILITY;
-	private volatile boolean POOL_FULL;
-	private volatile IPv4Address STARTING_ADDRESS;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ArrayList<DHCPBinding> DHCP_POOL = new ArrayList<DHCPBinding>();
+	private final Map<IPv4Address, Integer> IP_INDEX = new HashMap<IPv4Address, Integer>();
+	private final Map<MacAddress, DHCPBinding> MAC_INDEX = new HashMap<MacAddress, DHCPBinding>();
+	// Inactive, dynamic bindings that have never been assigned to a MAC
+	private final BitSet UNASSIGNED_SLOTS = new BitSet();
+	// Inactive, dynamic bindings that still remember the MAC of a previous lease
+	private final BitSet REUSABLE_SLOTS = new BitSet();
+	private final TreeSet<LeaseExpiration> LEASE_EXPIRATIONS = new TreeSet<LeaseExpiration>();
+	// The entry in LEASE_EXPIRATIONS of each active lease
+	private final Map<IPv4Address, LeaseExpiration> SCHEDULED_EXPIRATIONS = new HashMap<IPv4Address, LeaseExpiration>();
+	private int POOL_AVAILABILITY;
 	private final MacAddress UNASSIGNED_MAC = MacAddress.NONE;
 
-	// Need to write this to handle subnets later...
+	/**
+	 * An entry in the lease expiration set, ordered by expiration time and then by IP.
+	 */
+	static class LeaseExpiration implements Comparable<LeaseExpiration> {
+		private final long expirationTimeSeconds;
+		private final DHCPBinding binding;
+
+		private LeaseExpiration(long expirationTimeSeconds, DHCPBinding binding) {
+			this.expirationTimeSeconds = expirationTimeSeconds;
+			this.binding = binding;
+		}
+
+		@Override
+		public int compareTo(LeaseExpiration other) {
+			int c = Long.compare(expirationTimeSeconds, other.expirationTimeSeconds);
+			return c != 0 ? c : binding.getIPv4Address().compareTo(other.binding.getIPv4Address());
+		}
+	}
+
 	// This assumes startingIPv4Address can handle size addresses
 	/**
 	 * Constructor for a DHCPPool of DHCPBinding's. Each DHCPBinding object is initialized with a
@@ -35,37 +80,107 @@ public class DHCPPool {
 	public DHCPPool(IPv4Address startingIPv4Address, int size, Logger log) {
 		this.log = log;
 		int IPv4AsInt = startingIPv4Address.getInt();
-		this.setPoolSize(size);
-		this.setPoolAvailability(size);
-		STARTING_ADDRESS = startingIPv4Address;
-		for (int i = 0; i < size; i++) { 
-			DHCP_POOL.add(new DHCPBinding(IPv4Address.of(IPv4AsInt + i), UNASSIGNED_MAC));
+		DHCP_POOL.ensureCapacity(size);
+		for (int i = 0; i < size; i++) {
+			addBinding(new DHCPBinding(IPv4Address.of(IPv4AsInt + i), UNASSIGNED_MAC));
 		}
+	}
 
+	private void addBinding(DHCPBinding binding) {
+		int slot = DHCP_POOL.size();
+		DHCP_POOL.add(binding);
+		IP_INDEX.put(binding.getIPv4Address(), slot);
+		POOL_AVAILABILITY++;
+		updateSlot(slot, binding);
 	}
 
-	private void setPoolFull(boolean full) {
-		POOL_FULL = full;
+	private static boolean isUnassignedMAC(MacAddress mac) {
+		return mac == null || mac.equals(MacAddress.NONE);
 	}
 
-	private boolean isPoolFull() {
-		return POOL_FULL;
+	/**
+	 * Recomputes the free-list bits of a slot from the current state of its binding.
+	 */
+	private void updateSlot(int slot, DHCPBinding binding) {
+		boolean free = binding != null && !binding.isActiveLease() && !binding.isStaticIPLease();
+		boolean unassigned = free && isUnassignedMAC(binding.getMACAddress());
+		UNASSIGNED_SLOTS.set(slot, unassigned);
+		REUSABLE_SLOTS.set(slot, free && !unassigned);
+	}
+
+	private void updateSlot(DHCPBinding binding) {
+		Integer slot = IP_INDEX.get(binding.getIPv4Address());
+		if (slot != null) {
+			updateSlot(slot, binding);
+		}
 	}
 
-	private void setPoolSize(int size) {
-		POOL_SIZE = size;
+	/**
+	 * Points the MAC index at the binding for its current MAC address. A fixed/static
+	 * binding is never displaced from the index by a dynamic one.
+	 */
+	private void indexMAC(DHCPBinding binding) {
+		MacAddress mac = binding.getMACAddress();
+		if (isUnassignedMAC(mac)) return;
+		DHCPBinding current = MAC_INDEX.get(mac);
+		if (current == null || current == binding || !current.isStaticIPLease() || binding.isStaticIPLease()) {
+			MAC_INDEX.put(mac, binding);
+		}
+	}
+
+	private void unindexMAC(DHCPBinding binding) {
+		MacAddress mac = binding.getMACAddress();
+		if (!isUnassignedMAC(mac) && MAC_INDEX.get(mac) == binding) {
+			MAC_INDEX.remove(mac);
+		}
+	}
+
+	private void setLeaseStatus(DHCPBinding binding, boolean active) {
+		if (binding.isActiveLease() != active) {
+			POOL_AVAILABILITY += active ? -1 : 1;
+		}
+		binding.setLeaseStatus(active);
+	}
+
+	private void scheduleExpiration(DHCPBinding binding, long time) {
+		unscheduleExpiration(binding);
+		LeaseExpiration expiration = new LeaseExpiration(System.currentTimeMillis() / 1000 + time, binding);
+		LEASE_EXPIRATIONS.add(expiration);
+		SCHEDULED_EXPIRATIONS.put(binding.getIPv4Address(), expiration);
+	}
+
+	private void unscheduleExpiration(DHCPBinding binding) {
+		LeaseExpiration expiration = SCHEDULED_EXPIRATIONS.remove(binding.getIPv4Address());
+		if (expiration != null) {
+			LEASE_EXPIRATIONS.remove(expiration);
+		}
+	}
+
+	/**
+	 * @return the number of leases waiting to expire
+	 */
+	int getScheduledExpirationCount() {
+		lock.readLock().lock();
+		try {
+			return LEASE_EXPIRATIONS.size();
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
-	private int getPoolSize() {
-		return POOL_SIZE;
+	private boolean isPoolFull() {
+		return POOL_AVAILABILITY <= 0;
 	}
 
-	private int getPoolAvailability() {
-		return POOL_AVAILABILITY;
+	private DHCPBinding bindingFromIPv4(IPv4Address ip) {
+		if (ip == null) return null;
+		Integer slot = IP_INDEX.get(ip);
+		return slot == null ? null : DHCP_POOL.get(slot);
 	}
 
-	private void setPoolAvailability(int size) {
-		POOL_AVAILABILITY = size;
+	private DHCPBinding bindingFromMAC(MacAddress mac) {
+		if (mac == null) return null;
+		return MAC_INDEX.get(mac);
 	}
 
 	/**
@@ -74,13 +189,12 @@ public class DHCPPool {
 	 * @return {@code DHCPBinding}: The matching DHCPBinding object or null if ip is not found
 	 */
 	public DHCPBinding getDHCPbindingFromIPv4(IPv4Address ip) {
-		if (ip == null) return null;
-		for (DHCPBinding binding : DHCP_POOL) {
-			if (binding.getIPv4Address().equals(ip)) {
-				return binding;
-			}
+		lock.readLock().lock();
+		try {
+			return bindingFromIPv4(ip);
+		} finally {
+			lock.readLock().unlock();
 		}
-		return null;
 	}
 	/**
 	 * Gets the DHCPBinding object from the DHCPPool containing {@code byte[]} mac
@@ -88,23 +202,37 @@ public class DHCPPool {
 	 * @return {@code DHCPBinding}: The matching DHCPBinding object or null if mac is not found
 	 */
 	public DHCPBinding getDHCPbindingFromMAC(MacAddress mac) {
-		if (mac == null) return null;
-		for (DHCPBinding binding : DHCP_POOL) {
-			if (binding.getMACAddress().equals(mac)) {
-				return binding;
-			}
+		lock.readLock().lock();
+		try {
+			return bindingFromMAC(mac);
+		} finally {
+			lock.readLock().unlock();
 		}
-		return null;
 	}
 	/**
 	 * Gets the lease status of a particular IPv4 address, {@code byte[]} ip
-	 * @param {@code byte[]} ip: The IPv4 address of which to check the lease status 
+	 * @param {@code byte[]} ip: The IPv4 address of which to check the lease status
 	 * @return {@code boolean}: true if lease is active, false if lease is inactive/expired
 	 */
 	public boolean isIPv4Leased(IPv4Address ip) {
-		DHCPBinding binding = this.getDHCPbindingFromIPv4(ip);
-		if (binding != null) return binding.isActiveLease();
-		else return false;
+		lock.readLock().lock();
+		try {
+			DHCPBinding binding = bindingFromIPv4(ip);
+			return binding != null && binding.isActiveLease();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void bind(DHCPBinding binding, MacAddress mac, int time) {
+		unindexMAC(binding);
+		binding.setMACAddress(mac);
+		indexMAC(binding);
+		setLeaseStatus(binding, true);
+		binding.setLeaseStartTimeSeconds();
+		binding.setLeaseDurationSeconds(time);
+		scheduleExpiration(binding, time);
+		updateSlot(binding);
 	}
 	/**
 	 * Assigns a MAC address to the IP address of the DHCPBinding object in the DHCPPool object.
@@ -115,14 +243,12 @@ public class DHCPPool {
 	 * @return none
 	 */
 	public void setDHCPbinding(DHCPBinding binding, MacAddress mac, int time) {
-		int index = DHCP_POOL.indexOf(binding);
-		binding.setMACAddress(mac);
-		binding.setLeaseStatus(true);
-		this.setPoolAvailability(this.getPoolAvailability() - 1);
-		DHCP_POOL.set(index, binding);
-		if (this.getPoolAvailability() == 0) setPoolFull(true);
-		binding.setLeaseStartTimeSeconds();
-		binding.setLeaseDurationSeconds(time);
+		lock.writeLock().lock();
+		try {
+			bind(binding, mac, time);
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 	/**
 	 * Completely removes the DHCPBinding object with IP address {@code byte[]} ip from the DHCPPool
@@ -131,26 +257,27 @@ public class DHCPPool {
 	 * @return none
 	 */
 	public void removeIPv4FromDHCPPool(IPv4Address ip) {
-		if (ip == null || getDHCPbindingFromIPv4(ip) == null) return;
-		if (ip.equals(STARTING_ADDRESS)) {
-			DHCPBinding lowest = null;
-			// Locate the lowest address (other than ip), which will be the new starting address
-			for (DHCPBinding binding : DHCP_POOL) {
-				if (lowest == null) {
-					lowest = binding;
-				} else if (binding.getIPv4Address().getInt() < lowest.getIPv4Address().getInt()
-						&& !binding.getIPv4Address().equals(ip))
-				{
-					lowest = binding;
-				}
+		if (ip == null) return;
+		lock.writeLock().lock();
+		try {
+			Integer slot = IP_INDEX.remove(ip);
+			if (slot == null) return;
+			DHCPBinding binding = DHCP_POOL.get(slot);
+			// Fill the hole with the last binding so the slots stay dense
+			int last = DHCP_POOL.size() - 1;
+			DHCPBinding moved = DHCP_POOL.remove(last);
+			updateSlot(last, null);
+			if (slot != last) {
+				DHCP_POOL.set(slot, moved);
+				IP_INDEX.put(moved.getIPv4Address(), slot);
+				updateSlot(slot, moved);
 			}
-			// lowest is new starting address
-			STARTING_ADDRESS = lowest.getIPv4Address();
+			unindexMAC(binding);
+			unscheduleExpiration(binding);
+			if (!binding.isActiveLease()) POOL_AVAILABILITY--;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		DHCP_POOL.remove(this.getDHCPbindingFromIPv4(ip));
-		this.setPoolSize(this.getPoolSize() - 1);
-		this.setPoolAvailability(this.getPoolAvailability() - 1);
-		if (this.getPoolAvailability() == 0) this.setPoolFull(true);
 	}
 	/**
 	 * Adds an IP address to the DHCPPool if the address is not already present. If present, nothing is added to the DHCPPool.
@@ -158,74 +285,69 @@ public class DHCPPool {
 	 * @return {@code DHCPBinding}: Reference to the DHCPBinding object if successful, null if unsuccessful
 	 */
 	public DHCPBinding addIPv4ToDHCPPool(IPv4Address ip) {
-		DHCPBinding binding = null;
-		if (this.getDHCPbindingFromIPv4(ip) == null) {
-			if (ip.getInt() < STARTING_ADDRESS.getInt()) {
-				STARTING_ADDRESS = ip;
+		lock.writeLock().lock();
+		try {
+			DHCPBinding binding = null;
+			if (bindingFromIPv4(ip) == null) {
+				binding = new DHCPBinding(ip, UNASSIGNED_MAC);
+				addBinding(binding);
 			}
-			binding = new DHCPBinding(ip, null);
-			DHCP_POOL.add(binding);
-			this.setPoolSize(this.getPoolSize() + 1);
-			this.setPoolFull(false);
+			return binding;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		return binding;
 	}
 	/**
 	 * Determines if there are available leases in this DHCPPool.
 	 * @return {@code boolean}: true if there are addresses available, false if the DHCPPool is full
 	 */
 	public boolean hasAvailableAddresses() {
-		if (isPoolFull() || getPoolAvailability() == 0) return false;
-		else return true;
+		lock.readLock().lock();
+		try {
+			return !isPoolFull();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private DHCPBinding anyAvailableLease(MacAddress mac) {
+		if (isPoolFull()) return null;
+		DHCPBinding usedBinding = bindingFromMAC(mac);
+		if (usedBinding != null) return usedBinding;
+
+		int slot = UNASSIGNED_SLOTS.nextSetBit(0);
+		if (slot < 0) {
+			slot = REUSABLE_SLOTS.nextSetBit(0);
+		}
+		return slot < 0 ? null : DHCP_POOL.get(slot);
 	}
 	/**
 	 * Returns an available address (DHCPBinding) for lease.
 	 * If this MAC is configured for a static/fixed IP, that DHCPBinding will be returned.
 	 * If this MAC has had a lease before and that same lease is available, that DHCPBinding will be returned.
 	 * If not, then an attempt to return an address that has not been active before will be made.
-	 * If there are no addresses that have not been used, then the lowest currently inactive address will be returned.
+	 * If there are no addresses that have not been used, then a currently inactive address will be returned.
 	 * If all addresses are being used, then null will be returned.
 	 * @param {@code byte[]): MAC address of the device requesting the lease
 	 * @return {@code DHCPBinding}: Reference to the DHCPBinding object if successful, null if unsuccessful
 	 */
 	public DHCPBinding getAnyAvailableLease(MacAddress mac) {
-		if (isPoolFull()) return null;
-		DHCPBinding usedBinding = null;
-		usedBinding = this.getDHCPbindingFromMAC(mac);
-		if (usedBinding != null) return usedBinding;
-
-		for (DHCPBinding binding : DHCP_POOL) {
-			if (!binding.isActiveLease() 
-					&& binding.getMACAddress().equals(UNASSIGNED_MAC))
-			{
-				return binding;
-			} else if (!binding.isActiveLease() && usedBinding == null && !binding.isStaticIPLease()) {
-				usedBinding = binding;
-			}
+		lock.readLock().lock();
+		try {
+			return anyAvailableLease(mac);
+		} finally {
+			lock.readLock().unlock();
 		}
-		return usedBinding;
 	}
-	/**
-	 * Returns a specific available IP address binding for lease. The MAC and IP will be queried
-	 * against the DHCP pool. (1) If the MAC is found in an available, fixed binding, and that binding
-	 * is not for the provided IP, the fixed binding associated with the MAC will be returned. (2) If the
-	 * IP is found in an available, fixed binding, and that binding also contains the MAC address provided, 
-	 * then the binding will be returned -- this is true only if the IP and MAC result in the same available, 
-	 * fixed binding. (3) If the IP is found in the pool and it is available and not fixed, then its
-	 * binding will be returned. (4) If the IP provided does not match any available entries or is invalid, 
-	 * null will be returned. If this is the case, run getAnyAvailableLease(mac) to resolve.
-	 * @param {@code byte[]}: The IP address on which to try and obtain a lease
-	 * @param {@code byte[]}: The MAC address on which to try and obtain a lease.
-	 * @return {@code DHCPBinding}: Reference to the DHCPBinding object if successful, null if unsuccessful.
-	 */
-	public DHCPBinding getSpecificAvailableLease(IPv4Address ip, MacAddress mac) {
+
+	private DHCPBinding specificAvailableLease(IPv4Address ip, MacAddress mac) {
 		if (ip == null || mac == null || isPoolFull()) return null;
 
-		DHCPBinding binding = this.getDHCPbindingFromIPv4(ip);
-		DHCPBinding binding2 = this.getDHCPbindingFromMAC(mac);
+		DHCPBinding binding = bindingFromIPv4(ip);
+		DHCPBinding binding2 = bindingFromMAC(mac);
 
 		// For all of the following, the binding is also determined to be inactive:
-		
+
 		// If configured, we must return a fixed binding for a MAC address even if it's requesting another IP
 		if (binding2 != null && !binding2.isActiveLease() && binding2.isStaticIPLease() && binding != binding2) {
 			if (log != null) log.info("Fixed DHCP entry for MAC trumps requested IP. Returning binding for MAC");
@@ -244,6 +366,94 @@ public class DHCPPool {
 			return null;
 		}
 	}
+	/**
+	 * Returns a specific available IP address binding for lease. The MAC and IP will be queried
+	 * against the DHCP pool. (1) If the MAC is found in an available, fixed binding, and that binding
+	 * is not for the provided IP, the fixed binding associated with the MAC will be returned. (2) If the
+	 * IP is found in an available, fixed binding, and that binding also contains the MAC address provided,
+	 * then the binding will be returned -- this is true only if the IP and MAC result in the same available,
+	 * fixed binding. (3) If the IP is found in the pool and it is available and not fixed, then its
+	 * binding will be returned. (4) If the IP provided does not match any available entries or is invalid,
+	 * null will be returned. If this is the case, run getAnyAvailableLease(mac) to resolve.
+	 * @param {@code byte[]}: The IP address on which to try and obtain a lease
+	 * @param {@code byte[]}: The MAC address on which to try and obtain a lease.
+	 * @return {@code DHCPBinding}: Reference to the DHCPBinding object if successful, null if unsuccessful.
+	 */
+	public DHCPBinding getSpecificAvailableLease(IPv4Address ip, MacAddress mac) {
+		lock.readLock().lock();
+		try {
+			return specificAvailableLease(ip, mac);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+	/**
+	 * Picks and holds a lease for a DISCOVER in one atomic step: the requested address if
+	 * it is available to the MAC, otherwise any available address.
+	 * @param {@code IPv4Address}: The IP address the client asked for, or null
+	 * @param {@code MacAddress}: The MAC address of the client
+	 * @param {@code int}: The time in seconds for which the lease will be held
+	 * @return {@code DHCPBinding}: The binding now leased to the MAC, or null if the pool is full
+	 */
+	public DHCPBinding offerLease(IPv4Address ip, MacAddress mac, int time) {
+		lock.writeLock().lock();
+		try {
+			DHCPBinding lease = specificAvailableLease(ip, mac);
+			if (lease == null) {
+				lease = anyAvailableLease(mac);
+			}
+			if (lease != null) {
+				bind(lease, mac, time);
+			}
+			return lease;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+	/**
+	 * Grants or renews a lease for a REQUEST in one atomic step. A lease is granted if the
+	 * requested address (or, without one, any available address) is inactive or already
+	 * leased to the same MAC.
+	 * @param {@code IPv4Address}: The IP address the client asked for, or null
+	 * @param {@code MacAddress}: The MAC address of the client
+	 * @param {@code int}: The time in seconds for which the lease will be valid
+	 * @return {@code DHCPBinding}: The binding now leased to the MAC, or null if the request
+	 * must be refused
+	 */
+	public DHCPBinding requestLease(IPv4Address ip, MacAddress mac, int time) {
+		lock.writeLock().lock();
+		try {
+			DHCPBinding lease = ip != null ? bindingFromIPv4(ip) : anyAvailableLease(mac);
+			if (lease == null) {
+				// Not in our allocation range, or nothing left
+				return null;
+			}
+			if (lease.isActiveLease()) {
+				if (!lease.getMACAddress().equals(mac)) {
+					if (log != null) log.debug("Tried to REQUEST an IP that is currently assigned to another MAC");
+					return null;
+				}
+				renew(lease, time);
+			} else {
+				if (lease.isStaticIPLease() && !lease.getMACAddress().equals(mac)) {
+					if (log != null) log.debug("Tried to REQUEST an IP that is reserved for another MAC");
+					return null;
+				}
+				bind(lease, mac, time);
+			}
+			return lease;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void renew(DHCPBinding binding, int time) {
+		binding.setLeaseStartTimeSeconds();
+		binding.setLeaseDurationSeconds(time);
+		setLeaseStatus(binding, true);
+		scheduleExpiration(binding, time);
+		updateSlot(binding);
+	}
 	/**
 	 * Tries to renew an IP lease.
 	 * @param {@code byte[]}: The IP address on which to try and renew a lease
@@ -251,14 +461,17 @@ public class DHCPPool {
 	 * @return {@code DHCPBinding}: True on success, false if unknown IP address
 	 */
 	public boolean renewLease(IPv4Address ip, int time) {
-		DHCPBinding binding = this.getDHCPbindingFromIPv4(ip);
-		if (binding != null) {
-			binding.setLeaseStartTimeSeconds();
-			binding.setLeaseDurationSeconds(time);
-			binding.setLeaseStatus(true);
-			return true;
+		lock.writeLock().lock();
+		try {
+			DHCPBinding binding = bindingFromIPv4(ip);
+			if (binding != null) {
+				renew(binding, time);
+				return true;
+			}
+			return false;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		return false;
 	}
 	/**
 	 * Cancel an IP lease.
@@ -266,15 +479,17 @@ public class DHCPPool {
 	 * @return {@code boolean}: True on success, false if unknown IP address
 	 */
 	public boolean cancelLeaseOfIPv4(IPv4Address ip) {
-		DHCPBinding binding = this.getDHCPbindingFromIPv4(ip);
-		if (binding != null) {
-			binding.clearLeaseTimes();
-			binding.setLeaseStatus(false);
-			this.setPoolAvailability(this.getPoolAvailability() + 1);
-			this.setPoolFull(false);
-			return true;
+		lock.writeLock().lock();
+		try {
+			DHCPBinding binding = bindingFromIPv4(ip);
+			if (binding != null) {
+				cancelLease(binding);
+				return true;
+			}
+			return false;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		return false;
 	}
 	/**
 	 * Cancel an IP lease.
@@ -282,30 +497,42 @@ public class DHCPPool {
 	 * @return {@code boolean}: True on success, false if unknown IP address
 	 */
 	public boolean cancelLeaseOfMAC(MacAddress mac) {
-		DHCPBinding binding = getDHCPbindingFromMAC(mac);
-		if (binding != null) {
-			binding.clearLeaseTimes();
-			binding.setLeaseStatus(false);
-			this.setPoolAvailability(this.getPoolAvailability() + 1);
-			this.setPoolFull(false);
-			return true;
+		lock.writeLock().lock();
+		try {
+			DHCPBinding binding = bindingFromMAC(mac);
+			if (binding != null) {
+				cancelLease(binding);
+				return true;
+			}
+			return false;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		return false;
+	}
+
+	private void cancelLease(DHCPBinding binding) {
+		binding.clearLeaseTimes();
+		setLeaseStatus(binding, false);
+		unscheduleExpiration(binding);
+		updateSlot(binding);
 	}
 	/**
 	 * Make the addresses of expired leases available and reset the lease times.
+	 * Only the leases at the head of the expiration set are examined.
 	 * @return {@code ArrayList<DHCPBinding>}: A list of the bindings that are now available
 	 */
 	public ArrayList<DHCPBinding> cleanExpiredLeases() {
 		ArrayList<DHCPBinding> newAvailableLeases = new ArrayList<DHCPBinding>();
-		for (DHCPBinding binding : DHCP_POOL) {
-			// isLeaseExpired() automatically excludes configured static leases
-			if (binding.isLeaseExpired() && binding.isActiveLease()) {
-				this.cancelLeaseOfIPv4(binding.getIPv4Address());
-				this.setPoolAvailability(this.getPoolAvailability() + 1);
-				this.setPoolFull(false);
+		long now = System.currentTimeMillis() / 1000;
+		lock.writeLock().lock();
+		try {
+			while (!LEASE_EXPIRATIONS.isEmpty() && LEASE_EXPIRATIONS.first().expirationTimeSeconds <= now) {
+				DHCPBinding binding = LEASE_EXPIRATIONS.first().binding;
+				cancelLease(binding);
 				newAvailableLeases.add(binding);
 			}
+		} finally {
+			lock.writeLock().unlock();
 		}
 		return newAvailableLeases;
 	}
@@ -321,15 +548,61 @@ public class DHCPPool {
 	 * @return {@code boolean}: True upon success; false upon failure (e.g. no IP found)
 	 */
 	public boolean configureFixedIPLease(IPv4Address ip, MacAddress mac) {
-		DHCPBinding binding = this.getDHCPbindingFromIPv4(ip);
-		if (binding != null) {
-			binding.setMACAddress(mac);
-			binding.setStaticIPLease(true);
-			binding.setLeaseStatus(false);
-			return true;
-		} else {
-			return false;
+		lock.writeLock().lock();
+		try {
+			DHCPBinding binding = bindingFromIPv4(ip);
+			if (binding != null) {
+				unindexMAC(binding);
+				binding.setMACAddress(mac);
+				binding.setStaticIPLease(true);
+				setLeaseStatus(binding, false);
+				unscheduleExpiration(binding);
+				indexMAC(binding);
+				updateSlot(binding);
+				return true;
+			} else {
+				return false;
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return {@code int}: The number of addresses in this DHCPPool
+	 */
+	public int getPoolSize() {
+		lock.readLock().lock();
+		try {
+			return DHCP_POOL.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return {@code int}: The number of addresses in this DHCPPool without an active lease
+	 */
+	public int getPoolAvailability() {
+		lock.readLock().lock();
+		try {
+			return POOL_AVAILABILITY;
+		} finally {
+			lock.readLock().unlock();
 		}
 	}
 
-}
\ No newline at end of file
+	/**
+	 * Determines if an IP address belongs to this DHCPPool.
+	 * @param {@code IPv4Address}: The IP address to look up
+	 * @return {@code boolean}: true if the address is part of this pool
+	 */
+	public boolean containsIPv4(IPv4Address ip) {
+		lock.readLock().lock();
+		try {
+			return ip != null && IP_INDEX.containsKey(ip);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
@@ -3,6 +3,7 @@ package net.floodlightcontroller.dhcpserver;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
@@ -26,8 +27,9 @@ import org.slf4j.LoggerFactory;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
-import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
@@ -73,9 +75,11 @@ import net.floodlightcontroller.packet.DHCPOption;
  * to be intercepted on that same port and sent to the DHCP server running
  * on the Floodlight controller.
  * 
- * Currently, this DHCP server only supports a single subnet; however,
- * work is ongoing to use connected OF switches and ports to allow
- * the user to configure multiple subnets. On a traditional DHCP server,
+ * Besides its primary subnet, this DHCP server can lease addresses on
+ * further subnets to clients behind DHCP relay agents, configured with
+ * additional-subnets. Each subnet has its own address pool, and the pool
+ * of a relayed request is picked by the relay agent's gateway address
+ * (giaddr). Serving several subnets directly is still open: on a traditional DHCP server,
  * the machine is configured with different NICs, each with their own
  * statically-assigned IP address/subnet/mask. The DHCP server matches
  * the network information of each NIC with the DHCP server's configured
@@ -89,7 +93,7 @@ import net.floodlightcontroller.packet.DHCPOption;
  * 
  * 
  */
-public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
+public class DHCPServer implements IPacketInInterestListener, IFloodlightModule  {
 	protected static Logger log;
 	protected static IFloodlightProviderService floodlightProvider;
 	protected static IOFSwitchService switchService;
@@ -100,9 +104,11 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 	//private static ScheduledFuture<?> leasePoliceOfficer;
 	private static Runnable leasePolicePatrol;
 
-	// Contains the pool of IP addresses their bindings to MAC addresses
-	// Tracks the lease status and duration of DHCP bindings
-	private static volatile DHCPPool theDHCPPool;
+	// The subnets we lease from, each with its own pool of IP addresses and their
+	// bindings to MAC addresses. The first is the primary subnet of the controller's
+	// own broadcast domain; the others are only served through relay agents.
+	// Each pool tracks the lease status and duration of its DHCP bindings.
+	private volatile List<DHCPSubnet> subnets = Collections.emptyList();
 
 	/** START CONFIG FILE VARIABLES **/
 
@@ -114,12 +120,6 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 	private static IPv4Address CONTROLLER_IP;
 
 	private static IPv4Address DHCP_SERVER_DHCP_SERVER_IP; // Same as CONTROLLER_IP but in byte[] form
-	private static IPv4Address DHCP_SERVER_SUBNET_MASK;
-	private static IPv4Address DHCP_SERVER_BROADCAST_IP;
-	private static IPv4Address DHCP_SERVER_IP_START;
-	private static IPv4Address DHCP_SERVER_IP_STOP;
-	private static int DHCP_SERVER_ADDRESS_SPACE_SIZE; // Computed in startUp()
-	private static IPv4Address DHCP_SERVER_ROUTER_IP = null;
 	private static byte[] DHCP_SERVER_NTP_IP_LIST = null;
 	private static byte[] DHCP_SERVER_DNS_IP_LIST = null;
 	private static byte[] DHCP_SERVER_DN = null;
@@ -237,13 +237,29 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 
 		// Read our config options for the DHCP DHCPServer
 		Map<String, String> configOptions = context.getConfigParams(this);
+		List<DHCPSubnet> configuredSubnets = new ArrayList<DHCPSubnet>();
 		try {
-			DHCP_SERVER_SUBNET_MASK = IPv4Address.of(configOptions.get("subnet-mask"));
-			DHCP_SERVER_IP_START = IPv4Address.of(configOptions.get("lower-ip-range"));
-			DHCP_SERVER_IP_STOP = IPv4Address.of(configOptions.get("upper-ip-range"));
-			DHCP_SERVER_ADDRESS_SPACE_SIZE = DHCP_SERVER_IP_STOP.getInt() - DHCP_SERVER_IP_START.getInt() + 1;
-			DHCP_SERVER_BROADCAST_IP = IPv4Address.of(configOptions.get("broadcast-address"));
-			DHCP_SERVER_ROUTER_IP = IPv4Address.of(configOptions.get("router"));
+			// Create the DHCPPool of our primary subnet with the specific address size
+			configuredSubnets.add(new DHCPSubnet(IPv4Address.of(configOptions.get("lower-ip-range")),
+					IPv4Address.of(configOptions.get("upper-ip-range")),
+					IPv4Address.of(configOptions.get("subnet-mask")),
+					IPv4Address.of(configOptions.get("router")),
+					IPv4Address.of(configOptions.get("broadcast-address")), log));
+
+			// Subnets behind relay agents, each as "lower-ip, upper-ip, subnet-mask[, router]",
+			// separated by semicolons. Without a router, the relay agent's address is used.
+			String additionalSubnets = configOptions.get("additional-subnets");
+			if (additionalSubnets != null && !additionalSubnets.trim().isEmpty()) {
+				for (String subnet : additionalSubnets.trim().split("\\s*;\\s*")) {
+					String[] subnetSplit = subnet.split("\\s*,\\s*");
+					if (subnetSplit.length < 3 || subnetSplit.length > 4) {
+						throw new IllegalArgumentException("Invalid DHCP subnet " + subnet);
+					}
+					configuredSubnets.add(new DHCPSubnet(IPv4Address.of(subnetSplit[0]),
+							IPv4Address.of(subnetSplit[1]), IPv4Address.of(subnetSplit[2]),
+							subnetSplit.length > 3 ? IPv4Address.of(subnetSplit[3]) : null, null, log));
+				}
+			}
 			DHCP_SERVER_DN = configOptions.get("domain-name").getBytes();
 			DHCP_SERVER_DEFAULT_LEASE_TIME_SECONDS = Integer.parseInt(configOptions.get("default-lease-time"));
 			DHCP_SERVER_HOLD_LEASE_TIME_SECONDS = Integer.parseInt(configOptions.get("hold-lease-time"));
@@ -264,8 +280,7 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 			log.error("Incorrect DHCP Server configuration options", ex);
 			throw ex;
 		}
-		// Create our new DHCPPool object with the specific address size
-		theDHCPPool = new DHCPPool(DHCP_SERVER_IP_START, DHCP_SERVER_ADDRESS_SPACE_SIZE, log);
+		subnets = Collections.unmodifiableList(configuredSubnets);
 
 		// Any addresses that need to be set as static/fixed can be permanently added to the pool with a set MAC
 		String staticAddresses = configOptions.get("reserved-static-addresses");
@@ -285,9 +300,10 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 					macPos = 1;
 					ipPos = 0;
 				}
-				if (theDHCPPool.configureFixedIPLease(IPv4Address.of(macIpSplit[ipPos]), MacAddress.of(macIpSplit[macPos]))) {
-					String ip = theDHCPPool.getDHCPbindingFromIPv4(IPv4Address.of(macIpSplit[ipPos])).getIPv4Address().toString();
-					String mac = theDHCPPool.getDHCPbindingFromIPv4(IPv4Address.of(macIpSplit[ipPos])).getMACAddress().toString();
+				DHCPPool pool = getPoolOf(IPv4Address.of(macIpSplit[ipPos]));
+				if (pool != null && pool.configureFixedIPLease(IPv4Address.of(macIpSplit[ipPos]), MacAddress.of(macIpSplit[macPos]))) {
+					String ip = pool.getDHCPbindingFromIPv4(IPv4Address.of(macIpSplit[ipPos])).getIPv4Address().toString();
+					String mac = pool.getDHCPbindingFromIPv4(IPv4Address.of(macIpSplit[ipPos])).getMACAddress().toString();
 					log.info("Configured fixed address of " + ip + " for device " + mac);
 				} else {
 					log.error("Could not configure fixed address " + macIpSplit[ipPos] + " for device " + macIpSplit[macPos]);
@@ -364,8 +380,35 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 		return bytes;
 	}
 
+	/**
+	 * Finds the subnet a request should be served from. Requests without a relay agent
+	 * are served from the primary subnet; relayed ones from the subnet of the agent.
+	 * @param {@code IPv4Address} giaddr: The gateway IP address of the request
+	 * @return {@code DHCPSubnet}: The subnet, or null if we do not serve the relay agent's subnet
+	 */
+	private DHCPSubnet getSubnet(IPv4Address giaddr) {
+		List<DHCPSubnet> subnets = this.subnets;
+		if (subnets.isEmpty()) return null;
+		if (giaddr == null || giaddr.equals(IPv4Address.NONE)) return subnets.get(0);
+		for (int i = 1; i < subnets.size(); i++) {
+			if (subnets.get(i).contains(giaddr)) {
+				return subnets.get(i);
+			}
+		}
+		return null;
+	}
+
+	private DHCPPool getPoolOf(IPv4Address ip) {
+		for (DHCPSubnet subnet : subnets) {
+			if (subnet.getPool().containsIPv4(ip)) {
+				return subnet.getPool();
+			}
+		}
+		return null;
+	}
+
 	public void sendDHCPOffer(IOFSwitch sw, OFPort inPort, MacAddress chaddr, IPv4Address dstIPAddr, 
-			IPv4Address yiaddr, IPv4Address giaddr, int xid, ArrayList<Byte> requestOrder) {
+			IPv4Address yiaddr, IPv4Address giaddr, int xid, ArrayList<Byte> requestOrder, DHCPSubnet subnet) {
 		// Compose DHCP OFFER
 		/** (2) DHCP Offer
 		 * -- UDP src port = 67
@@ -436,13 +479,13 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 			if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_SN) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_SN);
-				newOption.setData(DHCP_SERVER_SUBNET_MASK.getBytes());
+				newOption.setData(subnet.getSubnetMask().getBytes());
 				newOption.setLength((byte) 4);
 				dhcpOfferOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_ROUTER) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_ROUTER);
-				newOption.setData(DHCP_SERVER_ROUTER_IP.getBytes());
+				newOption.setData((subnet.getRouterIP() != null ? subnet.getRouterIP() : giaddr).getBytes());
 				newOption.setLength((byte) 4);
 				dhcpOfferOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_DN) {
@@ -460,7 +503,7 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_BROADCAST_IP) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_BROADCAST_IP);
-				newOption.setData(DHCP_SERVER_BROADCAST_IP.getBytes());
+				newOption.setData(subnet.getBroadcastIP().getBytes());
 				newOption.setLength((byte) 4);
 				dhcpOfferOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_DHCP_SERVER) {
@@ -526,7 +569,7 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 	}
 
 	public void sendDHCPAck(IOFSwitch sw, OFPort inPort, MacAddress chaddr, IPv4Address dstIPAddr, 
-			IPv4Address yiaddr, IPv4Address giaddr, int xid, ArrayList<Byte> requestOrder) {
+			IPv4Address yiaddr, IPv4Address giaddr, int xid, ArrayList<Byte> requestOrder, DHCPSubnet subnet) {
 		/** (4) DHCP ACK
 		 * -- UDP src port = 67
 		 * -- UDP dst port = 68
@@ -596,13 +639,13 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 			if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_SN) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_SN);
-				newOption.setData(DHCP_SERVER_SUBNET_MASK.getBytes());
+				newOption.setData(subnet.getSubnetMask().getBytes());
 				newOption.setLength((byte) 4);
 				dhcpAckOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_ROUTER) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_ROUTER);
-				newOption.setData(DHCP_SERVER_ROUTER_IP.getBytes());
+				newOption.setData((subnet.getRouterIP() != null ? subnet.getRouterIP() : giaddr).getBytes());
 				newOption.setLength((byte) 4);
 				dhcpAckOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_DN) {
@@ -620,7 +663,7 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_BROADCAST_IP) {
 				newOption = new DHCPOption();
 				newOption.setCode(DHCP_REQ_PARAM_OPTION_CODE_BROADCAST_IP);
-				newOption.setData(DHCP_SERVER_BROADCAST_IP.getBytes());
+				newOption.setData(subnet.getBroadcastIP().getBytes());
 				newOption.setLength((byte) 4);
 				dhcpAckOptions.add(newOption);
 			} else if (specificRequest.byteValue() == DHCP_REQ_PARAM_OPTION_CODE_DHCP_SERVER) {
@@ -810,16 +853,17 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 		return requestOrder;
 	}
 
+	@Override
+	public PacketInInterest getPacketInInterest() {
+		// Only DHCP over IPv4 is handled, everything else gets CONTINUE
+		return PacketInInterest.forEthTypes(EthType.IPv4);
+	}
+
 	@Override
 	public net.floodlightcontroller.core.IListener.Command receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
 
 		OFPacketIn pi = (OFPacketIn) msg;
 
-		if (!theDHCPPool.hasAvailableAddresses()) {
-			log.info("DHCP Pool is full! Consider increasing the pool size.");
-			return Command.CONTINUE;
-		}
-
 		Ethernet eth = IFloodlightProviderService.bcStore.get(cntx,
 				IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
 
@@ -842,6 +886,14 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 					DHCP DHCPPayload = (DHCP) UDPPayload.getPayload();
 					OFPort inPort = (pi.getVersion().compareTo(OFVersion.OF_12) < 0 ? pi.getInPort() : pi.getMatch().get(MatchField.IN_PORT));
 
+					// Relay agents fill in giaddr, which tells us the client's subnet
+					DHCPSubnet subnet = getSubnet(DHCPPayload.getGatewayIPAddress());
+					if (subnet == null) {
+						log.debug("Got DHCP packet relayed from " + DHCPPayload.getGatewayIPAddress().toString() + ", which is not on a subnet we serve");
+						return Command.CONTINUE;
+					}
+					DHCPPool pool = subnet.getPool();
+
 					/* DHCP/IPv4 Header Information */
 					int xid = 0;
 					IPv4Address yiaddr = IPv4Address.NONE;
@@ -893,29 +945,16 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 							// Process DISCOVER message and prepare an OFFER with minimum-hold lease
 							// A HOLD lease should be a small amount of time sufficient for the client to respond
 							// with a REQUEST, at which point the ACK will set the least time to the DEFAULT
-							synchronized (theDHCPPool) {
-								if (!theDHCPPool.hasAvailableAddresses()) {
-									log.info("DHCP Pool is full! Consider increasing the pool size.");
-									log.info("Device with MAC " + chaddr.toString() + " was not granted an IP lease");
-									return Command.CONTINUE;
-								}
-								DHCPBinding lease = theDHCPPool.getSpecificAvailableLease(desiredIPAddr, chaddr);
-
-								if (lease != null) {
-									log.debug("Checking new lease with specific IP");
-									theDHCPPool.setDHCPbinding(lease, chaddr, DHCP_SERVER_HOLD_LEASE_TIME_SECONDS);
-									yiaddr = lease.getIPv4Address();
-									log.debug("Got new lease for " + yiaddr.toString());
-								} else {
-									log.debug("Checking new lease for any IP");
-									lease = theDHCPPool.getAnyAvailableLease(chaddr);
-									theDHCPPool.setDHCPbinding(lease, chaddr, DHCP_SERVER_HOLD_LEASE_TIME_SECONDS);
-									yiaddr = lease.getIPv4Address();
-									log.debug("Got new lease for " + yiaddr.toString());
-								}
+							DHCPBinding lease = pool.offerLease(desiredIPAddr, chaddr, DHCP_SERVER_HOLD_LEASE_TIME_SECONDS);
+							if (lease == null) {
+								log.info("DHCP Pool of subnet " + subnet.toString() + " is full! Consider increasing the pool size.");
+								log.info("Device with MAC " + chaddr.toString() + " was not granted an IP lease");
+								return Command.CONTINUE;
 							}
+							yiaddr = lease.getIPv4Address();
+							log.debug("Got new lease for " + yiaddr.toString());
 
-							sendDHCPOffer(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder);
+							sendDHCPOffer(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder, subnet);
 						} // END IF DISCOVER
 
 						/** (3) DHCP Request
@@ -947,15 +986,16 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 							for (DHCPOption option : options) {
 								if (option.getCode() == DHCP_REQ_PARAM_OPTION_CODE_REQUESTED_IP) {
 									desiredIPAddr = IPv4Address.of(option.getData());
-									if (!desiredIPAddr.equals(theDHCPPool.getDHCPbindingFromMAC(chaddr).getIPv4Address())) {
-										// This client wants a different IP than what we have on file, so cancel its HOLD lease now (if we have one)
-										theDHCPPool.cancelLeaseOfMAC(chaddr);
+									DHCPBinding binding = pool.getDHCPbindingFromMAC(chaddr);
+									if (binding != null && !desiredIPAddr.equals(binding.getIPv4Address())) {
+										// This client wants a different IP than what we have on file, so cancel its HOLD lease now
+										pool.cancelLeaseOfMAC(chaddr);
 										return Command.CONTINUE;
 									}
 								} else if (option.getCode() == DHCP_REQ_PARAM_OPTION_CODE_DHCP_SERVER) {
 									if (!IPv4Address.of(option.getData()).equals(DHCP_SERVER_DHCP_SERVER_IP)) {
 										// We're not the DHCPServer the client wants to use, so cancel its HOLD lease now and ignore the client
-										theDHCPPool.cancelLeaseOfMAC(chaddr);
+										pool.cancelLeaseOfMAC(chaddr);
 										return Command.CONTINUE;
 									}
 								} else if (option.getCode() == DHCP_REQ_PARAM_OPTION_CODE_REQUESTED_PARAMTERS) {
@@ -964,51 +1004,16 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 							}
 							// Process REQUEST message and prepare an ACK with default lease time
 							// This extends the hold lease time to that of a normal lease
-							boolean sendACK = true;
-							synchronized (theDHCPPool) {
-								if (!theDHCPPool.hasAvailableAddresses()) {
-									log.info("DHCP Pool is full! Consider increasing the pool size.");
-									log.info("Device with MAC " + chaddr.toString() + " was not granted an IP lease");
-									return Command.CONTINUE;
-								}
-								DHCPBinding lease;
-								// Get any binding, in use now or not
-								if (desiredIPAddr != null) {
-									lease = theDHCPPool.getDHCPbindingFromIPv4(desiredIPAddr);
-								} else {
-									lease = theDHCPPool.getAnyAvailableLease(chaddr);
-								}
-								// This IP is not in our allocation range
-								if (lease == null) {
-									log.info("The IP " + desiredIPAddr.toString() + " is not in the range " 
-											+ DHCP_SERVER_IP_START.toString() + " to " + DHCP_SERVER_IP_STOP.toString());
-									log.info("Device with MAC " + chaddr.toString() + " was not granted an IP lease");
-									sendACK = false;
-									// Determine if the IP in the binding we just retrieved is okay to allocate to the MAC requesting it
-								} else if (!lease.getMACAddress().equals(chaddr) && lease.isActiveLease()) {
-									log.debug("Tried to REQUEST an IP that is currently assigned to another MAC");
-									log.debug("Device with MAC " + chaddr.toString() + " was not granted an IP lease");
-									sendACK = false;
-									// Check if we want to renew the MAC's current lease
-								} else if (lease.getMACAddress().equals(chaddr) && lease.isActiveLease()) {
-									log.debug("Renewing lease for MAC " + chaddr.toString());
-									theDHCPPool.renewLease(lease.getIPv4Address(), DHCP_SERVER_DEFAULT_LEASE_TIME_SECONDS);
-									yiaddr = lease.getIPv4Address();
-									log.debug("Finalized renewed lease for " + yiaddr.toString());
-									// Check if we want to create a new lease for the MAC
-								} else if (!lease.isActiveLease()){
-									log.debug("Assigning new lease for MAC " + chaddr.toString());
-									theDHCPPool.setDHCPbinding(lease, chaddr, DHCP_SERVER_DEFAULT_LEASE_TIME_SECONDS);
-									yiaddr = lease.getIPv4Address();
-									log.debug("Finalized new lease for " + yiaddr.toString());
-								} else {
-									log.debug("Don't know how we got here");
-									return Command.CONTINUE;
-								}
-							}
-							if (sendACK) {
-								sendDHCPAck(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder);							
+							// Renewing the MAC's current lease, or creating a new one, is a single pool operation
+							DHCPBinding lease = pool.requestLease(desiredIPAddr, chaddr, DHCP_SERVER_DEFAULT_LEASE_TIME_SECONDS);
+							if (lease != null) {
+								yiaddr = lease.getIPv4Address();
+								log.debug("Finalized lease for " + yiaddr.toString());
+								sendDHCPAck(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder, subnet);
 							} else {
+								log.info("Device with MAC " + chaddr.toString() + " was not granted an IP lease"
+										+ (desiredIPAddr != null ? " for " + desiredIPAddr.toString() : "")
+										+ " in subnet " + subnet.toString());
 								sendDHCPNack(sw, inPort, chaddr, giaddr, xid);
 							}
 						} // END IF REQUEST
@@ -1019,29 +1024,25 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 								// Execution jumps to return Command.CONTINUE at end of receive()
 							} else {
 								log.debug("Got DHCP RELEASE. Cancelling remaining time on DHCP lease");
-								synchronized(theDHCPPool) {
-									if (theDHCPPool.cancelLeaseOfMAC(DHCPPayload.getClientHardwareAddress())) {
-										log.info("Cancelled DHCP lease of " + DHCPPayload.getClientHardwareAddress().toString());
-										log.info("IP " + theDHCPPool.getDHCPbindingFromMAC(DHCPPayload.getClientHardwareAddress()).getIPv4Address().toString()
-												+ " is now available in the DHCP address pool");
-									} else {
-										log.debug("Lease of " + DHCPPayload.getClientHardwareAddress().toString()
-												+ " was already inactive");
-									}
+								if (pool.cancelLeaseOfMAC(DHCPPayload.getClientHardwareAddress())) {
+									log.info("Cancelled DHCP lease of " + DHCPPayload.getClientHardwareAddress().toString());
+									log.info("IP " + pool.getDHCPbindingFromMAC(DHCPPayload.getClientHardwareAddress()).getIPv4Address().toString()
+											+ " is now available in the DHCP address pool");
+								} else {
+									log.debug("Lease of " + DHCPPayload.getClientHardwareAddress().toString()
+											+ " was already inactive");
 								}
 							}
 						} // END IF RELEASE
 						else if (Arrays.equals(DHCPPayload.getOption(DHCP.DHCPOptionCode.OptionCode_MessageType).getData(), DHCP_MSG_TYPE_DECLINE)) {
 							log.debug("Got DHCP DECLINE. Cancelling HOLD time on DHCP lease");
-							synchronized(theDHCPPool) {
-								if (theDHCPPool.cancelLeaseOfMAC(DHCPPayload.getClientHardwareAddress())) {
-									log.info("Cancelled DHCP lease of " + DHCPPayload.getClientHardwareAddress().toString());
-									log.info("IP " + theDHCPPool.getDHCPbindingFromMAC(DHCPPayload.getClientHardwareAddress()).getIPv4Address().toString()
-											+ " is now available in the DHCP address pool");
-								} else {
-									log.info("HOLD Lease of " + DHCPPayload.getClientHardwareAddress().toString()
-											+ " has already expired");
-								}
+							if (pool.cancelLeaseOfMAC(DHCPPayload.getClientHardwareAddress())) {
+								log.info("Cancelled DHCP lease of " + DHCPPayload.getClientHardwareAddress().toString());
+								log.info("IP " + pool.getDHCPbindingFromMAC(DHCPPayload.getClientHardwareAddress()).getIPv4Address().toString()
+										+ " is now available in the DHCP address pool");
+							} else {
+								log.info("HOLD Lease of " + DHCPPayload.getClientHardwareAddress().toString()
+										+ " has already expired");
 							}
 						} // END IF DECLINE
 						else if (Arrays.equals(DHCPPayload.getOption(DHCP.DHCPOptionCode.OptionCode_MessageType).getData(), DHCP_MSG_TYPE_INFORM)) {
@@ -1056,7 +1057,7 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 							requestOrder = getRequestedParameters(DHCPPayload, true);
 							
 							// Process INFORM message and send an ACK with requested information
-							sendDHCPAck(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder);							
+							sendDHCPAck(sw, inPort, chaddr, IPv4SrcAddr, yiaddr, giaddr, xid, requestOrder, subnet);							
 						} // END IF INFORM
 					} // END IF DHCP OPCODE REQUEST 
 					else if (DHCPPayload.getOpCode() == DHCP_OPCODE_REPLY) {
@@ -1094,15 +1095,13 @@ public class DHCPServer implements IOFMessageListener, IFloodlightModule  {
 		@Override
 		public void run() {
 			log.info("Cleaning any expired DHCP leases...");
-			ArrayList<DHCPBinding> newAvailableBindings;
-			synchronized(theDHCPPool) {
-				// Loop through lease pool and check all leases to see if they are expired
-				// If a lease is expired, then clean it up and make the binding available
-				newAvailableBindings = theDHCPPool.cleanExpiredLeases();
-			}
-			for (DHCPBinding binding : newAvailableBindings) {
-				log.info("MAC " + binding.getMACAddress().toString() + " has expired");
-				log.info("Lease now available for IP " + binding.getIPv4Address().toString());
+			for (DHCPSubnet subnet : subnets) {
+				// Each pool hands back the leases that have expired since the last patrol
+				// and makes their bindings available again
+				for (DHCPBinding binding : subnet.getPool().cleanExpiredLeases()) {
+					log.info("MAC " + binding.getMACAddress().toString() + " has expired");
+					log.info("Lease now available for IP " + binding.getIPv4Address().toString());
+				}
 			}
 		}
 	} // END DHCPLeasePolice Class
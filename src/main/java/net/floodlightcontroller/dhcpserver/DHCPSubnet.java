@@ -0,0 +1,82 @@
+package net.floodlightcontroller.dhcpserver;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.slf4j.Logger;
+
+/**
+ * A subnet served by the DHCP server: the range of addresses leased from it,
+ * held in its own {@code DHCPPool}, and the network parameters handed out
+ * with those leases. The primary subnet serves clients on the controller's
+ * own broadcast domain; any others serve clients behind a relay agent whose
+ * gateway address (giaddr) falls inside them.
+ *
+ * @author Ryan Izard (rizard@g.clemson.edu)
+ */
+public class DHCPSubnet {
+	private final IPv4Address startIP;
+	private final IPv4Address stopIP;
+	private final IPv4Address subnetMask;
+	private final IPv4Address routerIP;
+	private final IPv4Address broadcastIP;
+	private final DHCPPool pool;
+
+	/**
+	 * @param {@code IPv4Address} startIP: The lowest IP address to lease
+	 * @param {@code IPv4Address} stopIP: The highest IP address to lease
+	 * @param {@code IPv4Address} subnetMask: The mask of the subnet
+	 * @param {@code IPv4Address} routerIP: The default gateway of the subnet
+	 * @param {@code IPv4Address} broadcastIP: The broadcast address of the subnet, or
+	 * null to derive it from the mask
+	 */
+	public DHCPSubnet(IPv4Address startIP, IPv4Address stopIP, IPv4Address subnetMask,
+			IPv4Address routerIP, IPv4Address broadcastIP, Logger log) {
+		if (stopIP.getInt() - startIP.getInt() < 0) {
+			throw new IllegalArgumentException("Invalid DHCP address range " + startIP + " to " + stopIP);
+		}
+		this.startIP = startIP;
+		this.stopIP = stopIP;
+		this.subnetMask = subnetMask;
+		this.routerIP = routerIP;
+		this.broadcastIP = broadcastIP != null ? broadcastIP
+				: IPv4Address.of(startIP.getInt() & subnetMask.getInt() | ~subnetMask.getInt());
+		this.pool = new DHCPPool(startIP, stopIP.getInt() - startIP.getInt() + 1, log);
+	}
+
+	/**
+	 * Determines if an address, such as the giaddr of a relayed request, is on this subnet.
+	 * @param {@code IPv4Address} ip: The address to check
+	 * @return {@code boolean}: true if ip is inside this subnet
+	 */
+	public boolean contains(IPv4Address ip) {
+		return (ip.getInt() & subnetMask.getInt()) == (startIP.getInt() & subnetMask.getInt());
+	}
+
+	public IPv4Address getStartIP() {
+		return startIP;
+	}
+
+	public IPv4Address getStopIP() {
+		return stopIP;
+	}
+
+	public IPv4Address getSubnetMask() {
+		return subnetMask;
+	}
+
+	public IPv4Address getRouterIP() {
+		return routerIP;
+	}
+
+	public IPv4Address getBroadcastIP() {
+		return broadcastIP;
+	}
+
+	public DHCPPool getPool() {
+		return pool;
+	}
+
+	@Override
+	public String toString() {
+		return startIP + "-" + stopIP + "/" + subnetMask;
+	}
+}
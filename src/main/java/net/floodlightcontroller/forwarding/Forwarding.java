@@ -21,13 +21,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
 import net.floodlightcontroller.devicemanager.IDevice;
+import net.floodlightcontroller.devicemanager.IDeviceListener;
 import net.floodlightcontroller.devicemanager.IDeviceService;
 import net.floodlightcontroller.devicemanager.SwitchPort;
 import net.floodlightcontroller.core.annotations.LogMessageCategory;
@@ -39,7 +45,9 @@ import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
 import net.floodlightcontroller.core.module.IFloodlightService;
 import net.floodlightcontroller.core.util.AppCookie;
+import net.floodlightcontroller.debugcounter.IDebugCounter;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.forwarding.InFlightFlowTable.FlowSetup;
 import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.IPv4;
 import net.floodlightcontroller.packet.TCP;
@@ -49,17 +57,23 @@ import net.floodlightcontroller.routing.IRoutingDecision;
 import net.floodlightcontroller.routing.IRoutingService;
 import net.floodlightcontroller.routing.Route;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.NodePortTuple;
+import net.floodlightcontroller.topology.TopologySnapshot;
 
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.protocol.match.Match;
 import org.projectfloodlight.openflow.protocol.match.MatchField;
 import org.projectfloodlight.openflow.protocol.OFFlowModCommand;
+import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 import org.projectfloodlight.openflow.types.IpProtocol;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFBufferId;
@@ -71,9 +85,80 @@ import org.projectfloodlight.openflow.protocol.action.OFAction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+
 @LogMessageCategory("Flow Programming")
-public class Forwarding extends ForwardingBase implements IFloodlightModule {
+public class Forwarding extends ForwardingBase implements IPacketInInterestListener, IFloodlightModule {
 	protected static Logger log = LoggerFactory.getLogger(Forwarding.class);
+	private static final String PACKAGE = Forwarding.class.getPackage().getName();
+
+	protected static int FLOW_SETUP_CAPACITY = 10000;
+	protected static int FLOW_SETUP_MAX_PARKED = 64;
+	public static int FLOW_SETUP_TIMEOUT = 1000; // ms
+
+	// Flows being installed, behind which PACKET_INs for them are parked
+	protected InFlightFlowTable inFlightFlows;
+
+	protected IDebugCounter ctrFlowSetupSuppressed;
+	protected IDebugCounter ctrFlowSetupReleased;
+	protected IDebugCounter ctrFlowSetupExpired;
+
+	/**
+	 * How specific the matches of the flows pushed are. The destination
+	 * based modes leave IN_PORT and the source out of the match, so every
+	 * source sending to a destination shares one flow per switch.
+	 */
+	public enum MatchMode {
+		/** ETH_DST and VLAN: one flow per destination host */
+		DST_MAC("dst-mac"),
+		/** IN_PORT, ETH_SRC, ETH_DST and VLAN: one flow per pair of hosts */
+		HOST_PAIR("host-pair"),
+		/**
+		 * IPV4_DST masked to the configured prefix length, or ETH_DST and
+		 * ETH_TYPE for other packets: one flow per destination subnet. The
+		 * hosts of a subnet must share an attachment point, e.g. a gateway.
+		 * With a prefix length below 32, a host that moves or goes away
+		 * takes the flows to its whole subnet off every switch.
+		 */
+		SUBNET("subnet"),
+		/** IN_PORT, MACs, VLAN, IPv4 addresses and L4 ports: one flow per connection */
+		FIVE_TUPLE("5-tuple");
+
+		private final String name;
+
+		private MatchMode(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+		/**
+		 * @param name the configured name of a mode
+		 * @return the mode, or null if there is no mode of that name
+		 */
+		public static MatchMode fromString(String name) {
+			for (MatchMode mode : values()) {
+				if (mode.name.equalsIgnoreCase(name.trim())) {
+					return mode;
+				}
+			}
+			return null;
+		}
+	}
+
+	protected MatchMode matchMode = MatchMode.FIVE_TUPLE;
+	protected int matchSubnetPrefixLength = 32;
+
+	@Override
+	public PacketInInterest getPacketInInterest() {
+		// Whatever the listeners before us let through is forwarded or
+		// flooded, including foreign LLDPs that link discovery continues
+		return PacketInInterest.ALL;
+	}
 
 	@Override
 	@LogMessageDoc(level="ERROR",
@@ -157,12 +242,24 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 
 	protected void doForwardFlow(IOFSwitch sw, OFPacketIn pi, FloodlightContext cntx, boolean requestFlowRemovedNotifn) {
 		OFPort inPort = (pi.getVersion().compareTo(OFVersion.OF_12) < 0 ? pi.getInPort() : pi.getMatch().get(MatchField.IN_PORT));
+		Match m = createMatchFromPacket(sw, inPort, cntx);
+
+		// If the flow is already being installed, the packet is sent on
+		// once it is, rather than routed again
+		if (inFlightFlows.park(sw.getId(), m, pi)) {
+			ctrFlowSetupSuppressed.increment();
+			return;
+		}
+
+		// All topology queries for this packet are answered by one topology
+		TopologySnapshot topology = topologyService.getSnapshot();
+
 		// Check if we have the location of the destination
 		IDevice dstDevice = IDeviceService.fcStore.get(cntx, IDeviceService.CONTEXT_DST_DEVICE);
 
 		if (dstDevice != null) {
 			IDevice srcDevice = IDeviceService.fcStore.get(cntx, IDeviceService.CONTEXT_SRC_DEVICE);
-			DatapathId srcIsland = topologyService.getL2DomainId(sw.getId());
+			DatapathId srcIsland = topology.getL2DomainId(sw.getId());
 
 			if (srcDevice == null) {
 				log.debug("No device entry found for source device");
@@ -180,7 +277,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 			boolean on_same_if = false;
 			for (SwitchPort dstDap : dstDevice.getAttachmentPoints()) {
 				DatapathId dstSwDpid = dstDap.getSwitchDPID();
-				DatapathId dstIsland = topologyService.getL2DomainId(dstSwDpid);
+				DatapathId dstIsland = topology.getL2DomainId(dstSwDpid);
 				if ((dstIsland != null) && dstIsland.equals(srcIsland)) {
 					on_same_island = true;
 					if (sw.getId().equals(dstSwDpid) && inPort.equals(dstDap.getPort())) {
@@ -196,7 +293,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 					log.trace("No first hop island found for destination " +
 							"device {}, Action = flooding", dstDevice);
 				}
-				doFlood(sw, pi, cntx);
+				doFlood(sw, pi, cntx, topology);
 				return;
 			}
 
@@ -212,12 +309,18 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 			// Install all the routes where both src and dst have attachment
 			// points.  Since the lists are stored in sorted order we can
 			// traverse the attachment points in O(m+n) time
+			Comparator<SwitchPort> clusterIdComparator = getClusterIdComparator(topology);
 			SwitchPort[] srcDaps = srcDevice.getAttachmentPoints();
 			Arrays.sort(srcDaps, clusterIdComparator);
 			SwitchPort[] dstDaps = dstDevice.getAttachmentPoints();
 			Arrays.sort(dstDaps, clusterIdComparator);
 
 			int iSrcDaps = 0, iDstDaps = 0;
+			FlowSetup setup = null;
+			Set<DatapathId> routeSwitches = new HashSet<DatapathId>();
+			// Spreads flows over the equal-cost routes
+			U64 flowHash = getFlowHash(IFloodlightProviderService.bcStore.get(cntx,
+					IFloodlightProviderService.CONTEXT_PI_PAYLOAD), m);
 
 			while ((iSrcDaps < srcDaps.length) && (iDstDaps < dstDaps.length)) {
 				SwitchPort srcDap = srcDaps[iSrcDaps];
@@ -225,8 +328,8 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 
 				// srcCluster and dstCluster here cannot be null as
 				// every switch will be at least in its own L2 domain.
-				DatapathId srcCluster = topologyService.getL2DomainId(srcDap.getSwitchDPID());
-				DatapathId dstCluster = topologyService.getL2DomainId(dstDap.getSwitchDPID());
+				DatapathId srcCluster = topology.getL2DomainId(srcDap.getSwitchDPID());
+				DatapathId dstCluster = topology.getL2DomainId(dstDap.getSwitchDPID());
 
 				int srcVsDest = srcCluster.compareTo(dstCluster);
 				if (srcVsDest == 0) {
@@ -235,7 +338,7 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 								routingEngineService.getRoute(srcDap.getSwitchDPID(), 
 										srcDap.getPort(),
 										dstDap.getSwitchDPID(),
-										dstDap.getPort(), U64.of(0)); //cookie = 0, i.e., default route
+										dstDap.getPort(), flowHash);
 						if (route != null) {
 							if (log.isTraceEnabled()) {
 								log.trace("pushRoute inPort={} route={} " +
@@ -247,11 +350,18 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 
 							U64 cookie = AppCookie.makeCookie(FORWARDING_APP_ID, 0);
 
-							Match m = createMatchFromPacket(sw, inPort, cntx);
+							// Parked packets are released to OFPP_TABLE
+							if (setup == null && routeSwitches.isEmpty() &&
+									sw.hasAttribute(IOFSwitch.PROP_SUPPORTS_OFPP_TABLE)) {
+								setup = inFlightFlows.begin(sw.getId(), m);
+							}
 
 							pushRoute(route, m, pi, sw.getId(), cookie,
 									cntx, requestFlowRemovedNotifn, false,
 									OFFlowModCommand.ADD);
+							for (NodePortTuple npt : route.getPath()) {
+								routeSwitches.add(npt.getNodeId());
+							}
 						}
 					}
 					iSrcDaps++;
@@ -262,17 +372,164 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 					iDstDaps++;
 				}
 			}
+			if (setup != null) {
+				confirmFlowSetup(setup, routeSwitches);
+			}
 		} else {
 			// Flood since we don't know the dst device
-			doFlood(sw, pi, cntx);
+			doFlood(sw, pi, cntx, topology);
+		}
+	}
+
+	/**
+	 * Send a barrier to each switch of the routes just pushed, and finish
+	 * the setup once all of them have replied, or any has failed. The
+	 * barrier also flushes the flow-mods written to the switch.
+	 *
+	 * @param setup the setup of the flow
+	 * @param switches the switches the flow-mods were written to
+	 */
+	protected void confirmFlowSetup(final FlowSetup setup, Set<DatapathId> switches) {
+		List<IOFSwitch> barrierSwitches = new ArrayList<IOFSwitch>(switches.size());
+		for (DatapathId dpid : switches) {
+			IOFSwitch rsw = switchService.getSwitch(dpid);
+			if (rsw != null) {
+				barrierSwitches.add(rsw);
+			}
+		}
+		if (barrierSwitches.isEmpty()) {
+			inFlightFlows.finish(setup);
+			return;
+		}
+
+		setup.setPendingBarriers(barrierSwitches.size());
+		FutureCallback<OFBarrierReply> callback = new FutureCallback<OFBarrierReply>() {
+			@Override
+			public void onSuccess(OFBarrierReply reply) {
+				if (setup.barrierReplied()) {
+					inFlightFlows.finish(setup);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				log.debug("Barrier for flow setup {} failed: {}", setup.getMatch(), t.getMessage());
+				inFlightFlows.finish(setup);
+			}
+		};
+		for (IOFSwitch rsw : barrierSwitches) {
+			Futures.addCallback(rsw.writeRequest(rsw.getOFFactory().buildBarrierRequest().build()),
+					callback);
+		}
+	}
+
+	/**
+	 * Sends the packets parked behind a flow setup back through the flow
+	 * table of the switch they came from, all in one write.
+	 */
+	protected class FlowSetupReleaseHandler implements InFlightFlowTable.IReleaseHandler {
+		@Override
+		public void release(DatapathId dpid, List<OFPacketIn> packets, boolean expired) {
+			if (expired) {
+				ctrFlowSetupExpired.increment();
+			}
+			if (packets.isEmpty()) {
+				return;
+			}
+			IOFSwitch sw = switchService.getSwitch(dpid);
+			if (sw == null) {
+				return;
+			}
+
+			List<OFAction> actions = new ArrayList<OFAction>(1);
+			actions.add(sw.getOFFactory().actions().output(OFPort.TABLE, Integer.MAX_VALUE));
+			List<OFMessage> packetOuts = new ArrayList<OFMessage>(packets.size());
+			for (OFPacketIn pi : packets) {
+				packetOuts.add(sw.getOFFactory().buildPacketOut()
+						.setActions(actions)
+						.setBufferId(OFBufferId.NO_BUFFER)
+						.setInPort((pi.getVersion().compareTo(OFVersion.OF_12) < 0 ? pi.getInPort() : pi.getMatch().get(MatchField.IN_PORT)))
+						.setData(pi.getData())
+						.build());
+			}
+			if (log.isTraceEnabled()) {
+				log.trace("Releasing {} packets parked behind flow setup on switch {}",
+						packetOuts.size(), dpid);
+			}
+			sw.write(packetOuts);
+			ctrFlowSetupReleased.add(packetOuts.size());
 		}
 	}
 
+	/**
+	 * Hash the fields a flow is matched on (see createMatchFromPacket), to
+	 * choose among equal-cost routes. All packets of a flow hash alike, so
+	 * a flow stays on one route and is not reordered.
+	 *
+	 * @param eth the packet
+	 * @return the flow hash
+	 */
+	protected static U64 getFlowHash(Ethernet eth) {
+		long h = eth.getSourceMACAddress().getLong() * 31
+				+ eth.getDestinationMACAddress().getLong();
+		if (eth.getEtherType() == EthType.IPv4) {
+			IPv4 ip = (IPv4) eth.getPayload();
+			h = h * 31 + ip.getSourceAddress().getInt();
+			h = h * 31 + ip.getDestinationAddress().getInt();
+			h = h * 31 + ip.getProtocol().getIpProtocolNumber();
+			if (ip.getProtocol().equals(IpProtocol.TCP)) {
+				TCP tcp = (TCP) ip.getPayload();
+				h = h * 31 + tcp.getSourcePort().getPort();
+				h = h * 31 + tcp.getDestinationPort().getPort();
+			} else if (ip.getProtocol().equals(IpProtocol.UDP)) {
+				UDP udp = (UDP) ip.getPayload();
+				h = h * 31 + udp.getSourcePort().getPort();
+				h = h * 31 + udp.getDestinationPort().getPort();
+			}
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Hash the flow the packet is matched on, to choose among equal-cost
+	 * routes. With the destination based match modes all sources of a
+	 * destination hash alike, so the flows they share along the way agree.
+	 *
+	 * @param eth the packet
+	 * @param m the match built from the packet
+	 * @return the flow hash
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected U64 getFlowHash(Ethernet eth, Match m) {
+		if (matchMode == MatchMode.FIVE_TUPLE) {
+			return getFlowHash(eth);
+		}
+		long h = 0;
+		for (MatchField mf : m.getMatchFields()) {
+			if (mf.equals(MatchField.IN_PORT)) {
+				continue;
+			}
+			h = h * 31 + (m.isExact(mf) ? m.get(mf).hashCode() : m.getMasked(mf).hashCode());
+		}
+		return mix(h);
+	}
+
+	// MurmurHash3 finalizer, so that every bit depends on every field
+	private static U64 mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return U64.of(h);
+	}
+
 	/**
 	 * Instead of using the Firewall's routing decision Match, which might be as general
 	 * as "in_port" and inadvertently Match packets erroneously, construct a more
 	 * specific Match based on the deserialized OFPacketIn's payload, which has been 
-	 * placed in the FloodlightContext already by the Controller.
+	 * placed in the FloodlightContext already by the Controller. How specific
+	 * depends on the match mode.
 	 * 
 	 * @param sw, the switch on which the packet was received
 	 * @param inPort, the ingress switch port on which the packet was received
@@ -291,6 +548,48 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 		// With a normal builder, all parent MatchFields will be lost if any MatchFields are added, mod, del
 		// TODO (This is a bug in Loxigen and the retentive builder is a workaround.)
 		Match.Builder mb = sw.getOFFactory().buildMatch();
+
+		switch (matchMode) {
+		case DST_MAC:
+			// Shared by all sources, so no IN_PORT (see pushRoute)
+			mb.setExact(MatchField.ETH_DST, dstMac);
+			if (!vlan.equals(VlanVid.ZERO)) {
+				mb.setExact(MatchField.VLAN_VID, OFVlanVidMatch.ofVlanVid(vlan));
+			}
+			return mb.build();
+		case HOST_PAIR:
+			mb.setExact(MatchField.IN_PORT, inPort)
+			.setExact(MatchField.ETH_SRC, srcMac)
+			.setExact(MatchField.ETH_DST, dstMac);
+			if (!vlan.equals(VlanVid.ZERO)) {
+				mb.setExact(MatchField.VLAN_VID, OFVlanVidMatch.ofVlanVid(vlan));
+			}
+			return mb.build();
+		case SUBNET:
+			if (!vlan.equals(VlanVid.ZERO)) {
+				mb.setExact(MatchField.VLAN_VID, OFVlanVidMatch.ofVlanVid(vlan));
+			}
+			if (eth.getEtherType() == EthType.IPv4) {
+				IPv4Address dstIp = ((IPv4) eth.getPayload()).getDestinationAddress();
+				mb.setExact(MatchField.ETH_TYPE, EthType.IPv4);
+				if (matchSubnetPrefixLength >= 32) {
+					mb.setExact(MatchField.IPV4_DST, dstIp);
+				} else {
+					IPv4Address mask = IPv4Address.ofCidrMaskLength(matchSubnetPrefixLength);
+					mb.setMasked(MatchField.IPV4_DST, IPv4AddressWithMask.of(
+							IPv4Address.of(dstIp.getInt() & mask.getInt()), mask));
+				}
+			} else {
+				// ETH_TYPE keeps these apart from the IPv4 flows of the host
+				mb.setExact(MatchField.ETH_DST, dstMac)
+				.setExact(MatchField.ETH_TYPE, eth.getEtherType());
+			}
+			return mb.build();
+		case FIVE_TUPLE:
+		default:
+			break;
+		}
+
 		mb.setExact(MatchField.IN_PORT, inPort)
 		.setExact(MatchField.ETH_SRC, srcMac)
 		.setExact(MatchField.ETH_DST, dstMac);
@@ -300,7 +599,6 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 		}
 
 		// TODO Detect switch type and match to create hardware-implemented flow
-		// TODO Set option in config file to support specific or MAC-only matches
 		if (eth.getEtherType() == EthType.IPv4) { /* shallow check for equality is okay for EthType */
 			IPv4 ip = (IPv4) eth.getPayload();
 			IPv4Address srcIp = ip.getSourceAddress();
@@ -333,6 +631,15 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 	 * @param pi The OFPacketIn that came to the switch
 	 * @param cntx The FloodlightContext associated with this OFPacketIn
 	 */
+	protected void doFlood(IOFSwitch sw, OFPacketIn pi, FloodlightContext cntx) {
+		doFlood(sw, pi, cntx, topologyService.getSnapshot());
+	}
+
+	/**
+	 * Like {@link #doFlood(IOFSwitch, OFPacketIn, FloodlightContext)}, with
+	 * the port checks answered by the snapshot already taken for this packet.
+	 * @param topology The topology snapshot for this OFPacketIn
+	 */
 	@LogMessageDoc(level="ERROR",
 			message="Failure writing PacketOut " +
 					"switch={switch} packet-in={packet-in} " +
@@ -340,9 +647,9 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 					explanation="An I/O error occured while writing a packet " +
 							"out message to the switch",
 							recommendation=LogMessageDoc.CHECK_SWITCH)
-	protected void doFlood(IOFSwitch sw, OFPacketIn pi, FloodlightContext cntx) {
+	protected void doFlood(IOFSwitch sw, OFPacketIn pi, FloodlightContext cntx, TopologySnapshot topology) {
 		OFPort inPort = (pi.getVersion().compareTo(OFVersion.OF_12) < 0 ? pi.getInPort() : pi.getMatch().get(MatchField.IN_PORT));
-		if (topologyService.isIncomingBroadcastAllowed(sw.getId(), inPort) == false) {
+		if (topology.isIncomingBroadcastAllowed(sw.getId(), inPort) == false) {
 			if (log.isTraceEnabled()) {
 				log.trace("doFlood, drop broadcast packet, pi={}, " +
 						"from a blocked port, srcSwitch=[{},{}], linkInfo={}",
@@ -455,10 +762,198 @@ public class Forwarding extends ForwardingBase implements IFloodlightModule {
 		} else {
 			log.info("Default priority not configured. Using {}.", FLOWMOD_DEFAULT_PRIORITY);
 		}
+		tmp = configParameters.get("flow-setup-timeout");
+		if (tmp != null) {
+			FLOW_SETUP_TIMEOUT = Integer.parseInt(tmp);
+			log.info("Flow setup timeout set to {} ms.", FLOW_SETUP_TIMEOUT);
+		}
+		tmp = configParameters.get("match-mode");
+		if (tmp != null) {
+			MatchMode mode = MatchMode.fromString(tmp);
+			if (mode != null) {
+				matchMode = mode;
+			} else {
+				log.warn("Unknown match mode {}. Using {}.", tmp, matchMode);
+			}
+		}
+		tmp = configParameters.get("match-subnet-prefix-length");
+		if (tmp != null) {
+			int prefixLength = Integer.parseInt(tmp);
+			if (prefixLength >= 0 && prefixLength <= 32) {
+				matchSubnetPrefixLength = prefixLength;
+			} else {
+				log.warn("Invalid subnet prefix length {}. Using {}.", tmp, matchSubnetPrefixLength);
+			}
+		}
+		if (matchMode == MatchMode.SUBNET) {
+			log.info("Match mode set to {}/{}.", matchMode, matchSubnetPrefixLength);
+		} else {
+			log.info("Match mode set to {}.", matchMode);
+		}
+		inFlightFlows = new InFlightFlowTable(FLOW_SETUP_CAPACITY, FLOW_SETUP_MAX_PARKED,
+				FLOW_SETUP_TIMEOUT, new FlowSetupReleaseHandler());
+		registerForwardingDebugCounters();
+	}
+
+	private void registerForwardingDebugCounters() {
+		debugCounterService.registerModule(PACKAGE);
+		ctrFlowSetupSuppressed = debugCounterService.registerCounter(PACKAGE, "flow-setup-suppressed",
+				"Packet-ins parked behind the setup of their flow instead of being routed again");
+		ctrFlowSetupReleased = debugCounterService.registerCounter(PACKAGE, "flow-setup-released",
+				"Parked packet-ins sent back to the switch flow table");
+		ctrFlowSetupExpired = debugCounterService.registerCounter(PACKAGE, "flow-setup-expired",
+				"Flow setups not confirmed by a barrier within the timeout",
+				IDebugCounterService.MetaData.WARN);
 	}
 
 	@Override
 	public void startUp(FloodlightModuleContext context) {
 		super.startUp();
+		if (isDestinationMatch()) {
+			deviceManagerService.addListener(new DeviceListenerImpl());
+		}
+	}
+
+	/**
+	 * @return true if the match mode leaves IN_PORT and the source out of the
+	 * match, so that the flows to a destination are shared by all sources
+	 */
+	protected boolean isDestinationMatch() {
+		return matchMode == MatchMode.DST_MAC || matchMode == MatchMode.SUBNET;
+	}
+
+	/**
+	 * Delete the flows forwarding to a device from every switch, when the
+	 * device moves or goes away. With the destination based match modes
+	 * these flows are shared by all sources, whose traffic would otherwise
+	 * keep them from idling out. The flows of the other modes are left alone.
+	 *
+	 * OF1.0 has no cookie mask to tell our flows from those of other
+	 * applications, so there only the flows we install are deleted, with
+	 * strict deletes at our priority. The non-IPv4 flows of the SUBNET mode
+	 * other than ARP are left to idle out.
+	 *
+	 * @param device the device
+	 */
+	protected void deleteFlowsToDevice(IDevice device) {
+		if (!isDestinationMatch()) {
+			return;
+		}
+		for (IOFSwitch sw : switchService.getAllSwitchMap().values()) {
+			OFFactory factory = sw.getOFFactory();
+			List<OFMessage> deletes = new ArrayList<OFMessage>();
+			if (factory.getVersion().compareTo(OFVersion.OF_10) > 0) {
+				// Only our own flows, on any VLAN
+				for (Match match : getMatchesToDevice(factory, device, VlanVid.ZERO)) {
+					deletes.add(factory.buildFlowDelete()
+							.setMatch(match)
+							.setBufferId(OFBufferId.NO_BUFFER)
+							.setOutPort(OFPort.ANY)
+							.setCookie(appCookie)
+							.setCookieMask(AppCookie.getAppFieldMask())
+							.build());
+				}
+			} else {
+				for (VlanVid vlan : device.getVlanId()) {
+					for (Match match : getMatchesToDevice(factory, device, vlan)) {
+						deletes.add(factory.buildFlowDeleteStrict()
+								.setMatch(match)
+								.setPriority(FLOWMOD_DEFAULT_PRIORITY)
+								.setBufferId(OFBufferId.NO_BUFFER)
+								.setOutPort(OFPort.ANY)
+								.build());
+					}
+				}
+			}
+			if (!deletes.isEmpty()) {
+				sw.write(deletes);
+			}
+		}
+	}
+
+	/**
+	 * Build the matches of the flows createMatchFromPacket installs towards
+	 * a device in the current match mode.
+	 *
+	 * @param factory the factory of the switch
+	 * @param device the device
+	 * @param vlan the VLAN of the flows, or an untagged VLAN to leave it out
+	 * @return the matches
+	 */
+	private List<Match> getMatchesToDevice(OFFactory factory, IDevice device, VlanVid vlan) {
+		List<Match> matches = new ArrayList<Match>();
+		boolean tagged = vlan.getVlan() > 0;
+		if (matchMode == MatchMode.SUBNET) {
+			for (IPv4Address ip : device.getIPv4Addresses()) {
+				Match.Builder mb = factory.buildMatch();
+				if (tagged) {
+					mb.setExact(MatchField.VLAN_VID, OFVlanVidMatch.ofVlanVid(vlan));
+				}
+				mb.setExact(MatchField.ETH_TYPE, EthType.IPv4);
+				if (matchSubnetPrefixLength >= 32) {
+					mb.setExact(MatchField.IPV4_DST, ip);
+				} else {
+					// Also deletes the flows to the other hosts of the subnet
+					IPv4Address mask = IPv4Address.ofCidrMaskLength(matchSubnetPrefixLength);
+					mb.setMasked(MatchField.IPV4_DST, IPv4AddressWithMask.of(
+							IPv4Address.of(ip.getInt() & mask.getInt()), mask));
+				}
+				matches.add(mb.build());
+			}
+		}
+		Match.Builder mb = factory.buildMatch()
+				.setExact(MatchField.ETH_DST, device.getMACAddress());
+		if (tagged) {
+			mb.setExact(MatchField.VLAN_VID, OFVlanVidMatch.ofVlanVid(vlan));
+		}
+		if (matchMode == MatchMode.SUBNET && factory.getVersion() == OFVersion.OF_10) {
+			// A strict delete only hits the flows of one type
+			mb.setExact(MatchField.ETH_TYPE, EthType.ARP);
+		}
+		matches.add(mb.build());
+		return matches;
+	}
+
+	// IDeviceListener
+	protected class DeviceListenerImpl implements IDeviceListener {
+		@Override
+		public void deviceAdded(IDevice device) {
+			// ignore
+		}
+
+		@Override
+		public void deviceRemoved(IDevice device) {
+			deleteFlowsToDevice(device);
+		}
+
+		@Override
+		public void deviceMoved(IDevice device) {
+			deleteFlowsToDevice(device);
+		}
+
+		@Override
+		public void deviceIPV4AddrChanged(IDevice device) {
+			// ignore
+		}
+
+		@Override
+		public void deviceVlanChanged(IDevice device) {
+			// ignore
+		}
+
+		@Override
+		public String getName() {
+			return Forwarding.this.getName();
+		}
+
+		@Override
+		public boolean isCallbackOrderingPrereq(String type, String name) {
+			return false;
+		}
+
+		@Override
+		public boolean isCallbackOrderingPostreq(String type, String name) {
+			return false;
+		}
 	}
 }
\ No newline at end of file
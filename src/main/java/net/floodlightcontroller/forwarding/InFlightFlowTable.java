@@ -0,0 +1,213 @@
+package net.floodlightcontroller.forwarding;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.types.DatapathId;
+
+/**
+ * Flows whose routes are being installed, keyed by the switch that sent
+ * the PACKET_IN and the match built from it. While a flow is in flight,
+ * further PACKET_INs for it are parked here instead of being routed again.
+ * They are handed to the {@link IReleaseHandler} when the setup finishes,
+ * or when it has not finished within the timeout.
+ *
+ * Expired setups are removed lazily, when a packet for them arrives or
+ * when the table is full.
+ */
+public class InFlightFlowTable {
+
+	/**
+	 * Receives the packets parked behind a setup once it ends
+	 */
+	public interface IReleaseHandler {
+		/**
+		 * @param dpid the switch the packets were received on
+		 * @param packets the parked packets, in arrival order
+		 * @param expired true if the setup timed out rather than finished
+		 */
+		void release(DatapathId dpid, List<OFPacketIn> packets,
+				boolean expired);
+	}
+
+	/**
+	 * A flow being installed
+	 */
+	public static class FlowSetup {
+		private final DatapathId dpid;
+		private final Match match;
+		private final long deadline;
+		private final List<OFPacketIn> parked = new ArrayList<OFPacketIn>();
+		private int pendingBarriers;
+		private boolean done;
+
+		private FlowSetup(DatapathId dpid, Match match, long deadline) {
+			this.dpid = dpid;
+			this.match = match;
+			this.deadline = deadline;
+		}
+
+		public DatapathId getDpid() {
+			return dpid;
+		}
+
+		public Match getMatch() {
+			return match;
+		}
+
+		/**
+		 * Set the number of barrier replies that confirm the setup
+		 * @param count the number of barriers sent
+		 */
+		public synchronized void setPendingBarriers(int count) {
+			pendingBarriers = count;
+		}
+
+		/**
+		 * Record a barrier reply
+		 * @return true if it was the last one outstanding
+		 */
+		public synchronized boolean barrierReplied() {
+			return --pendingBarriers == 0;
+		}
+
+		private boolean isExpired(long now) {
+			return now - deadline > 0;
+		}
+	}
+
+	private static class FlowKey {
+		private final DatapathId dpid;
+		private final Match match;
+
+		private FlowKey(DatapathId dpid, Match match) {
+			this.dpid = dpid;
+			this.match = match;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * dpid.hashCode() + match.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof FlowKey)) return false;
+			FlowKey other = (FlowKey) obj;
+			return dpid.equals(other.dpid) && match.equals(other.match);
+		}
+	}
+
+	private final ConcurrentHashMap<FlowKey, FlowSetup> setups =
+			new ConcurrentHashMap<FlowKey, FlowSetup>();
+	private final int capacity;
+	private final int maxParked;
+	private final long timeoutNs;
+	private final IReleaseHandler releaseHandler;
+
+	/**
+	 * @param capacity the maximum number of setups in flight
+	 * @param maxParked the maximum number of packets parked per setup
+	 * @param timeoutMs how long a setup may stay in flight, in ms
+	 * @param releaseHandler receives the parked packets
+	 */
+	public InFlightFlowTable(int capacity, int maxParked, long timeoutMs,
+			IReleaseHandler releaseHandler) {
+		this.capacity = capacity;
+		this.maxParked = maxParked;
+		this.timeoutNs = timeoutMs * 1000000;
+		this.releaseHandler = releaseHandler;
+	}
+
+	/**
+	 * Park a packet behind the setup of its flow, if one is in flight
+	 * @param dpid the switch the packet was received on
+	 * @param match the match built from the packet
+	 * @param pi the packet
+	 * @return true if the packet was parked. False if there is no setup
+	 * in flight, or it expired or has too many packets parked, in which
+	 * case the caller must handle the packet.
+	 */
+	public boolean park(DatapathId dpid, Match match, OFPacketIn pi) {
+		FlowKey key = new FlowKey(dpid, match);
+		FlowSetup setup = setups.get(key);
+		if (setup == null)
+			return false;
+		if (setup.isExpired(System.nanoTime())) {
+			if (setups.remove(key, setup))
+				release(setup, true);
+			return false;
+		}
+		synchronized (setup) {
+			if (setup.done || setup.parked.size() >= maxParked)
+				return false;
+			setup.parked.add(pi);
+		}
+		return true;
+	}
+
+	/**
+	 * Start a setup for a flow
+	 * @param dpid the switch the packet was received on
+	 * @param match the match built from the packet
+	 * @return the setup, which must be passed to {@link #finish(FlowSetup)}.
+	 * Null if a setup of the flow is already in flight or the table is full,
+	 * in which case packets for the flow are not parked.
+	 */
+	public FlowSetup begin(DatapathId dpid, Match match) {
+		long now = System.nanoTime();
+		if (setups.size() >= capacity) {
+			sweep(now);
+			if (setups.size() >= capacity)
+				return null;
+		}
+		FlowKey key = new FlowKey(dpid, match);
+		FlowSetup setup = new FlowSetup(dpid, match, now + timeoutNs);
+		FlowSetup old = setups.putIfAbsent(key, setup);
+		return old == null ? setup : null;
+	}
+
+	/**
+	 * End a setup and release the packets parked behind it. Does nothing
+	 * if the setup already ended.
+	 * @param setup the setup returned by {@link #begin(DatapathId, Match)}
+	 */
+	public void finish(FlowSetup setup) {
+		FlowKey key = new FlowKey(setup.dpid, setup.match);
+		setups.remove(key, setup);
+		release(setup, false);
+	}
+
+	/**
+	 * @return the number of setups in flight
+	 */
+	public int size() {
+		return setups.size();
+	}
+
+	private void sweep(long now) {
+		for (Map.Entry<FlowKey, FlowSetup> e : setups.entrySet()) {
+			FlowSetup setup = e.getValue();
+			if (setup.isExpired(now) && setups.remove(e.getKey(), setup))
+				release(setup, true);
+		}
+	}
+
+	private void release(FlowSetup setup, boolean expired) {
+		List<OFPacketIn> packets;
+		synchronized (setup) {
+			if (setup.done)
+				return;
+			setup.done = true;
+			packets = setup.parked.isEmpty() ?
+					Collections.<OFPacketIn>emptyList() : setup.parked;
+		}
+		releaseHandler.release(setup.dpid, packets, expired);
+	}
+}
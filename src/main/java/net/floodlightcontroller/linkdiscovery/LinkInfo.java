@@ -46,11 +46,13 @@ public class LinkInfo {
         this.firstSeenTime = fromLinkInfo.getFirstSeenTime();
         this.lastLldpReceivedTime = fromLinkInfo.getUnicastValidTime();
         this.lastBddpReceivedTime = fromLinkInfo.getMulticastValidTime();
+        this.latency = fromLinkInfo.getLatency();
     }
 
     protected Date firstSeenTime;
     protected Date lastLldpReceivedTime; /* Standard LLLDP received time */
     protected Date lastBddpReceivedTime; /* Modified LLDP received time  */
+    protected long latency = -1; /* Smoothed one-way latency in us, -1 if unknown */
 
     /** The port states stored here are topology's last knowledge of
      * the state of the port. This mostly mirrors the state
@@ -86,6 +88,20 @@ public class LinkInfo {
         this.lastBddpReceivedTime = multicastValidTime;
     }
 
+    /**
+     * The latency is measured from timestamped LLDPs and is not part of
+     * the link's identity, so it is left out of equals() and hashCode().
+     * @return the one-way latency of the link in microseconds, or -1 if
+     * it has not been measured
+     */
+    public long getLatency() {
+        return latency;
+    }
+
+    public void setLatency(long latency) {
+        this.latency = latency;
+    }
+
     @JsonIgnore
     public LinkType getLinkType() {
         if (lastLldpReceivedTime != null) {
@@ -151,6 +167,7 @@ public class LinkInfo {
     public String toString() {
         return "LinkInfo [unicastValidTime=" + ((lastLldpReceivedTime == null) ? "null" : lastLldpReceivedTime.getTime())
                 + ", multicastValidTime=" + ((lastBddpReceivedTime == null) ? "null" : lastBddpReceivedTime.getTime())
+                + ", latency=" + latency
                 + "]";
     }
 }
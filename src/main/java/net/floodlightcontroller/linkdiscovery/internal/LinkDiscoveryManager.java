@@ -32,9 +32,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -48,9 +50,12 @@ import net.floodlightcontroller.core.IShutdownService;
 import net.floodlightcontroller.core.PortChangeType;
 import net.floodlightcontroller.core.IHAListener;
 import net.floodlightcontroller.core.IInfoProvider;
-import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IOFConnection;
+import net.floodlightcontroller.core.IPacketInInterestListener;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.IOFSwitchListener;
+import net.floodlightcontroller.core.OFConnection;
+import net.floodlightcontroller.core.PacketInInterest;
 import net.floodlightcontroller.core.annotations.LogMessageCategory;
 import net.floodlightcontroller.core.annotations.LogMessageDoc;
 import net.floodlightcontroller.core.annotations.LogMessageDocs;
@@ -101,6 +106,7 @@ import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFAuxId;
 import org.projectfloodlight.openflow.types.OFBufferId;
 import org.projectfloodlight.openflow.types.OFPort;
 import org.projectfloodlight.openflow.util.HexString;
@@ -128,7 +134,7 @@ import org.slf4j.LoggerFactory;
  * @edited Ryan Izard, rizard@g.clemson.edu, ryan.izard@bigswitch.com
  */
 @LogMessageCategory("Network Topology")
-public class LinkDiscoveryManager implements IOFMessageListener,
+public class LinkDiscoveryManager implements IPacketInInterestListener,
 IOFSwitchListener, IStorageSourceListener, ILinkDiscoveryService,
 IFloodlightModule, IInfoProvider {
 	protected static final Logger log = LoggerFactory.getLogger(LinkDiscoveryManager.class);
@@ -193,12 +199,44 @@ IFloodlightModule, IInfoProvider {
 			.setLength(TLV_DIRECTION_LENGTH)
 			.setValue(TLV_DIRECTION_VALUE_REVERSE);
 
+	// Offsets used to patch the LLDP templates: the source MAC in the
+	// Ethernet header, and the port number in the port ID TLV, which
+	// follows the Ethernet header, the chassis ID TLV (9 bytes), the port
+	// ID TLV header (2 bytes) and its subtype (1 byte). BDDPs carry a BSN
+	// header (magic, type, version) in front of the LLDP.
+	private static final int ETH_SRC_MAC_OFFSET = 6;
+	private static final int LLDP_PORT_ID_OFFSET = 14 + 9 + 2 + 1;
+	private static final int BSN_HEADER_LENGTH = 8;
+
+	// The optional timestamp TLV (OpenFlow OUI, subtype 1) carries the
+	// System.nanoTime() an LLDP was sent at. It follows the port number
+	// (2 bytes), the TTL TLV (4 bytes) and the DPID TLV (14 bytes); its
+	// value follows its header (2 bytes), the OUI and the subtype (4 bytes).
+	private static final int LLDP_TIMESTAMP_OFFSET = LLDP_PORT_ID_OFFSET + 2 + 4 + 14 + 2 + 4;
+	private static final byte TLV_TIMESTAMP_SUBTYPE = 0x01;
+	// Weight of a new sample in the link latency average, as a shift (1/8)
+	private static final int LATENCY_EWMA_SHIFT = 3;
+
+	/**
+	 * Flag to indicate if link latencies are measured, by timestamping the
+	 * LLDPs. Initialized in the init method.
+	 */
+	protected boolean latencyMeasurement = false;
+
+	/**
+	 * Serialized LLDP/BDDP frames per switch, indexed by
+	 * (isStandard ? 0 : 2) + (isReverse ? 1 : 0)
+	 */
+	protected final ConcurrentHashMap<DatapathId, byte[][]> lldpTemplates =
+			new ConcurrentHashMap<DatapathId, byte[][]>();
+
 	// Link discovery task details.
 	protected SingletonTask discoveryTask;
 	protected final int DISCOVERY_TASK_INTERVAL = 1;
 	protected final int LINK_TIMEOUT = 35; // timeout as part of LLDP process.
 	protected final int LLDP_TO_ALL_INTERVAL = 15; // 15 seconds.
 	protected long lldpClock = 0;
+	protected final long lldpSlotSalt = new Random().nextLong();
 	// This value is intentionally kept higher than LLDP_TO_ALL_INTERVAL.
 	// If we want to identify link failures faster, we could decrease this
 	// value to a small number, say 1 or 2 sec.
@@ -237,7 +275,7 @@ IFloodlightModule, IInfoProvider {
 	 * topology aware components are called in the order they were added to the
 	 * the array
 	 */
-	protected ArrayList<ILinkDiscoveryListener> linkDiscoveryAware;
+	protected List<ILinkDiscoveryListener> linkDiscoveryAware;
 	protected BlockingQueue<LDUpdate> updates;
 	protected Thread updatesThread;
 
@@ -299,6 +337,83 @@ IFloodlightModule, IInfoProvider {
 					sw.toString(), port);
 		}
 
+		// wrap in a packet out
+		OFPacketOut.Builder pob = iofSwitch.getOFFactory().buildPacketOut();
+		pob.setBufferId(OFBufferId.NO_BUFFER);
+		pob.setInPort(OFPort.ANY);
+
+		// set data and data length
+		pob.setData(getLLDPFrame(sw, ofpPort, isStandard, isReverse));
+
+		return pob.build();
+	}
+
+	/**
+	 * Get the serialized LLDP or BDDP frame for a switch port. The frame is
+	 * copied from a per-switch template, with only the source MAC and the
+	 * port ID TLV patched in.
+	 * @param sw
+	 * @param ofpPort the port the frame is sent out of
+	 * @param isStandard
+	 *            indicates standard or modified LLDP
+	 * @param isReverse
+	 *            indicates whether the LLDP is sent as a response
+	 * @return the frame
+	 */
+	protected byte[] getLLDPFrame(DatapathId sw, OFPortDesc ofpPort,
+			boolean isStandard, boolean isReverse) {
+		byte[][] templates = lldpTemplates.get(sw);
+		if (templates == null) {
+			templates = new byte[4][];
+			byte[][] existing = lldpTemplates.putIfAbsent(sw, templates);
+			if (existing != null) templates = existing;
+		}
+		int templateIndex = (isStandard ? 0 : 2) + (isReverse ? 1 : 0);
+		byte[] template = templates[templateIndex];
+		if (template == null) {
+			// Racing threads build identical templates
+			template = buildLLDPFrame(sw, OFPort.of(0), MacAddress.NONE,
+					isStandard, isReverse);
+			templates[templateIndex] = template;
+		}
+
+		byte[] srcMac = ofpPort.getHwAddr().getBytes();
+		if (Arrays.equals(srcMac, MacAddress.NONE.getBytes())) {
+			log.warn("Port {}/{} has zero hareware address, "
+					+ "overwrite with lower 6 bytes of dpid",
+					sw.toString(), ofpPort.getPortNo().getPortNumber());
+			srcMac = new byte[6];
+			System.arraycopy(ByteBuffer.allocate(8).putLong(0, sw.getLong()).array(),
+					2, srcMac, 0, 6);
+		}
+		short portNumber = ofpPort.getPortNo().getShortPortNumber();
+		int portIdOffset = LLDP_PORT_ID_OFFSET + (isStandard ? 0 : BSN_HEADER_LENGTH);
+
+		byte[] data = template.clone();
+		System.arraycopy(srcMac, 0, data, ETH_SRC_MAC_OFFSET, srcMac.length);
+		data[portIdOffset] = (byte) (portNumber >> 8);
+		data[portIdOffset + 1] = (byte) portNumber;
+		if (latencyMeasurement) {
+			int timestampOffset = LLDP_TIMESTAMP_OFFSET + (isStandard ? 0 : BSN_HEADER_LENGTH);
+			ByteBuffer.wrap(data).putLong(timestampOffset, System.nanoTime());
+		}
+		return data;
+	}
+
+	/**
+	 * Build and serialize a complete LLDP or BDDP frame. This is used to
+	 * build the per-switch templates.
+	 * @param sw
+	 * @param port
+	 * @param srcMac
+	 * @param isStandard
+	 *            indicates standard or modified LLDP
+	 * @param isReverse
+	 *            indicates whether the LLDP is sent as a response
+	 * @return the frame
+	 */
+	protected byte[] buildLLDPFrame(DatapathId sw, OFPort port, MacAddress srcMac,
+			boolean isStandard, boolean isReverse) {
 		// using "nearest customer bridge" MAC address for broadest possible
 		// propagation
 		// through provider and TPMR bridges (see IEEE 802.1AB-2009 and
@@ -327,25 +442,8 @@ IFloodlightModule, IInfoProvider {
 		// set the optional tlv to the full dpid
 		System.arraycopy(dpidArray, 0, dpidTLVValue, 4, 8);
 
-		// TODO: Consider remove this block of code.
-		// It's evil to overwrite port object. The the old code always
-		// overwrote mac address, we now only overwrite zero macs and
-		// log a warning, mostly for paranoia.
-		byte[] srcMac = ofpPort.getHwAddr().getBytes();
-		byte[] zeroMac = { 0, 0, 0, 0, 0, 0 };
-		if (Arrays.equals(srcMac, zeroMac)) {
-			log.warn("Port {}/{} has zero hareware address"
-					+ "overwrite with lower 6 bytes of dpid",
-					dpid.toString(), ofpPort.getPortNo().getPortNumber());
-			System.arraycopy(dpidArray, 2, srcMac, 0, 6);
-		}
-
 		// set the portId to the outgoing port
 		portBB.putShort(port.getShortPortNumber());
-		if (log.isTraceEnabled()) {
-			log.trace("Sending LLDP out of interface: {}/{}",
-					sw.toString(), port);
-		}
 
 		LLDP lldp = new LLDP();
 		lldp.setChassisId(new LLDPTLV().setType((byte) 1)
@@ -359,6 +457,15 @@ IFloodlightModule, IInfoProvider {
 				.setValue(ttlValue));
 		lldp.getOptionalTLVList().add(dpidTLV);
 
+		if (latencyMeasurement) {
+			// The send time is filled in by getLLDPFrame()
+			byte[] timestampTLVValue = new byte[] { 0x0, 0x26, (byte) 0xe1,
+					TLV_TIMESTAMP_SUBTYPE, 0, 0, 0, 0, 0, 0, 0, 0 };
+			lldp.getOptionalTLVList().add(new LLDPTLV().setType((byte) 127)
+					.setLength((short) timestampTLVValue.length)
+					.setValue(timestampTLVValue));
+		}
+
 		// Add the controller identifier to the TLV value.
 		lldp.getOptionalTLVList().add(controllerTLV);
 		if (isReverse) {
@@ -369,7 +476,7 @@ IFloodlightModule, IInfoProvider {
 
 		Ethernet ethernet;
 		if (isStandard) {
-			ethernet = new Ethernet().setSourceMACAddress(ofpPort.getHwAddr())
+			ethernet = new Ethernet().setSourceMACAddress(srcMac)
 					.setDestinationMACAddress(LLDP_STANDARD_DST_MAC_STRING)
 					.setEtherType(EthType.LLDP);
 			ethernet.setPayload(lldp);
@@ -377,22 +484,13 @@ IFloodlightModule, IInfoProvider {
 			BSN bsn = new BSN(BSN.BSN_TYPE_BDDP);
 			bsn.setPayload(lldp);
 
-			ethernet = new Ethernet().setSourceMACAddress(ofpPort.getHwAddr())
+			ethernet = new Ethernet().setSourceMACAddress(srcMac)
 					.setDestinationMACAddress(LLDP_BSN_DST_MAC_STRING)
 					.setEtherType(EthType.of(Ethernet.TYPE_BSN & 0xffff)); /* treat as unsigned */
 			ethernet.setPayload(bsn);
 		}
 
-		// serialize and wrap in a packet out
-		byte[] data = ethernet.serialize();
-		OFPacketOut.Builder pob = switchService.getSwitch(sw).getOFFactory().buildPacketOut();
-		pob.setBufferId(OFBufferId.NO_BUFFER);
-		pob.setInPort(OFPort.ANY);
-
-		// set data and data length
-		pob.setData(data);
-
-		return pob.build();
+		return ethernet.serialize();
 	}
 
 	/**
@@ -553,6 +651,13 @@ IFloodlightModule, IInfoProvider {
 		return Command.CONTINUE;
 	}
 
+	@Override
+	public PacketInInterest getPacketInInterest() {
+		// Besides LLDP/BDDP, every packet is checked against the ignored
+		// source MACs and the quarantined ports, so nothing can be skipped
+		return PacketInInterest.ALL;
+	}
+
 	@Override
 	public boolean isCallbackOrderingPrereq(OFType type, String name) {
 		return false;
@@ -630,6 +735,7 @@ IFloodlightModule, IInfoProvider {
 
 	private Command handleLldp(LLDP lldp, DatapathId sw, OFPort inPort,
 			boolean isStandard, FloodlightContext cntx) {
+		long receivedNs = System.nanoTime();
 		// If LLDP is suppressed on this port, ignore received packet as well
 		IOFSwitch iofSwitch = switchService.getSwitch(sw);
 
@@ -651,6 +757,8 @@ IFloodlightModule, IInfoProvider {
 
 		OFPort remotePort = OFPort.of(portBB.getShort());
 		IOFSwitch remoteSwitch = null;
+		long sentNs = 0;
+		boolean timestamped = false;
 
 		// Verify this LLDP packet matches what we're looking for
 		for (LLDPTLV lldptlv : lldp.getOptionalTLVList()) {
@@ -661,6 +769,13 @@ IFloodlightModule, IInfoProvider {
 					&& lldptlv.getValue()[3] == 0x0) {
 				ByteBuffer dpidBB = ByteBuffer.wrap(lldptlv.getValue());
 				remoteSwitch = switchService.getSwitch(DatapathId.of(dpidBB.getLong(4)));
+			} else if (lldptlv.getType() == 127 && lldptlv.getLength() == 12
+					&& lldptlv.getValue()[0] == 0x0
+					&& lldptlv.getValue()[1] == 0x26
+					&& lldptlv.getValue()[2] == (byte) 0xe1
+					&& lldptlv.getValue()[3] == TLV_TIMESTAMP_SUBTYPE) {
+				sentNs = ByteBuffer.wrap(lldptlv.getValue()).getLong(4);
+				timestamped = true;
 			} else if (lldptlv.getType() == 12 && lldptlv.getLength() == 8) {
 				otherId = ByteBuffer.wrap(lldptlv.getValue()).getLong();
 				if (myId == otherId) myLLDP = true;
@@ -756,6 +871,11 @@ IFloodlightModule, IInfoProvider {
 
 		LinkInfo newLinkInfo = new LinkInfo(firstSeenTime, lastLldpTime,
 				lastBddpTime);
+		// Only our own LLDPs get here, so the timestamp is from our clock
+		if (timestamped) {
+			newLinkInfo.setLatency(getLinkLatencySample(remoteSwitch, iofSwitch,
+					receivedNs - sentNs));
+		}
 
 		addOrUpdateLink(lt, newLinkInfo);
 
@@ -891,11 +1011,9 @@ IFloodlightModule, IInfoProvider {
 		// increment LLDP clock
 		lldpClock = (lldpClock + 1) % LLDP_TO_ALL_INTERVAL;
 
-		if (lldpClock == 0) {
-			if (log.isTraceEnabled())
-				log.trace("Sending LLDP out on all ports.");
-			discoverOnAllPorts();
-		}
+		// Every tick covers the switches of one slot, so each switch
+		// still sends LLDPs once per LLDP_TO_ALL_INTERVAL.
+		discoverOnPortsInSlot((int) lldpClock);
 	}
 
 	/**
@@ -1155,9 +1273,34 @@ IFloodlightModule, IInfoProvider {
 	protected void sendDiscoveryMessage(DatapathId sw, OFPort port,
 			boolean isStandard, boolean isReverse) {
 
+		OFPacketOut po = buildDiscoveryMessage(sw, port, isStandard, isReverse);
+		if (po == null)
+			return;
+
+		// send
+		// no more try-catch. switch will silently fail
+		IOFSwitch iofSwitch = switchService.getSwitch(sw);
+		iofSwitch.write(po);
+		iofSwitch.flush();
+	}
+
+	/**
+	 * Build the packet-out that sends a discovery message out of a given
+	 * switch port, including the port's discovery actions.
+	 * @param sw
+	 * @param port
+	 * @param isStandard
+	 *            indicates standard or modified LLDP
+	 * @param isReverse
+	 *            indicates whether the LLDP was sent as a response
+	 * @return the packet-out, or null if discovery is not allowed on the port
+	 */
+	protected OFPacketOut buildDiscoveryMessage(DatapathId sw, OFPort port,
+			boolean isStandard, boolean isReverse) {
+
 		// Takes care of all checks including null pointer checks.
 		if (!isOutgoingDiscoveryAllowed(sw, port, isStandard, isReverse))
-			return;
+			return null;
 
 		IOFSwitch iofSwitch = switchService.getSwitch(sw);
 		OFPortDesc ofpPort = iofSwitch.getPort(port);
@@ -1166,19 +1309,13 @@ IFloodlightModule, IInfoProvider {
 			log.trace("Sending LLDP packet out of swich: {}, port: {}",
 					sw.toString(), port.getPortNumber());
 		}
-		OFPacketOut po = generateLLDPMessage(sw, port, isStandard, isReverse);
-		OFPacketOut.Builder pob = po.createBuilder();
-
-		// Add actions
-		List<OFAction> actions = getDiscoveryActions(iofSwitch, ofpPort.getPortNo());
-		pob.setActions(actions);
-		
-		// no need to set length anymore
 
-		// send
-		// no more try-catch. switch will silently fail
-		iofSwitch.write(pob.build());
-		iofSwitch.flush();
+		return iofSwitch.getOFFactory().buildPacketOut()
+				.setBufferId(OFBufferId.NO_BUFFER)
+				.setInPort(OFPort.ANY)
+				.setActions(getDiscoveryActions(iofSwitch, ofpPort.getPortNo()))
+				.setData(getLLDPFrame(sw, ofpPort, isStandard, isReverse))
+				.build();
 	}
 
 	/**
@@ -1186,27 +1323,123 @@ IFloodlightModule, IInfoProvider {
 	 */
 	protected void discoverOnAllPorts() {
 		log.info("Sending LLDP packets out of all the enabled ports");
-		// Send standard LLDPs
 		for (DatapathId sw : switchService.getAllSwitchDpids()) {
-			IOFSwitch iofSwitch = switchService.getSwitch(sw);
-			if (iofSwitch == null) continue;
-			if (iofSwitch.getEnabledPorts() != null) {
-				for (OFPortDesc ofp : iofSwitch.getEnabledPorts()) {
-					if (isLinkDiscoverySuppressed(sw, ofp.getPortNo())) {
-						continue;
-					}
+			discoverOnSwitch(sw);
+		}
+	}
 
-					sendDiscoveryMessage(sw, ofp.getPortNo(), true, false);
+	/**
+	 * Send LLDPs to the ports of the switches whose LLDP slot is the
+	 * given one. Every switch is assigned one of the LLDP_TO_ALL_INTERVAL
+	 * slots, so that the LLDPs of a full round are spread evenly over
+	 * the interval instead of going out in a single burst.
+	 * @param slot
+	 */
+	protected void discoverOnPortsInSlot(int slot) {
+		if (log.isTraceEnabled())
+			log.trace("Sending LLDP packets for slot {}", slot);
+		for (DatapathId sw : switchService.getAllSwitchDpids()) {
+			if (getLLDPSlot(sw) == slot)
+				discoverOnSwitch(sw);
+		}
+	}
 
-					// If the switch port is not already in the maintenance
-					// queue, add it.
-					NodePortTuple npt = new NodePortTuple(sw, ofp.getPortNo());
-					addToMaintenanceQueue(npt);
-				}
+	/**
+	 * @param sw
+	 * @return the slot in [0, LLDP_TO_ALL_INTERVAL) the switch sends its
+	 * LLDPs in
+	 */
+	protected int getLLDPSlot(DatapathId sw) {
+		// The salt varies the assignment between controller instances
+		long h = (sw.getLong() ^ lldpSlotSalt) * 0x9E3779B97F4A7C15L;
+		return (int) ((h >>> 32) % LLDP_TO_ALL_INTERVAL);
+	}
+
+	/**
+	 * Send standard LLDPs out of all enabled ports of a switch, with a
+	 * single write and flush.
+	 * @param sw
+	 */
+	protected void discoverOnSwitch(DatapathId sw) {
+		IOFSwitch iofSwitch = switchService.getSwitch(sw);
+		if (iofSwitch == null || iofSwitch.getEnabledPorts() == null)
+			return;
+
+		List<OFMessage> msgs = new ArrayList<OFMessage>();
+		if (latencyMeasurement) {
+			// Keep the control channel latency fresh even when the
+			// connection is too busy to ever go idle and send echoes
+			msgs.add(OFConnection.buildLatencyEchoRequest(iofSwitch.getOFFactory(), 0));
+		}
+		for (OFPortDesc ofp : iofSwitch.getEnabledPorts()) {
+			if (isLinkDiscoverySuppressed(sw, ofp.getPortNo())) {
+				continue;
 			}
+
+			OFPacketOut po = buildDiscoveryMessage(sw, ofp.getPortNo(), true, false);
+			if (po != null)
+				msgs.add(po);
+
+			// If the switch port is not already in the maintenance
+			// queue, add it.
+			NodePortTuple npt = new NodePortTuple(sw, ofp.getPortNo());
+			addToMaintenanceQueue(npt);
+		}
+
+		if (!msgs.isEmpty()) {
+			iofSwitch.write(msgs);
+			iofSwitch.flush();
 		}
 	}
 
+	/**
+	 * @param sw
+	 * @return the latency between the controller and the switch, measured
+	 * on its main connection, in microseconds, or -1 if unknown
+	 */
+	protected long getControlLatency(IOFSwitch sw) {
+		List<IOFConnection> connections = sw.getConnections();
+		if (connections == null)
+			return -1;
+		for (IOFConnection connection : connections) {
+			if (OFAuxId.MAIN.equals(connection.getAuxId()))
+				return connection.getLatency();
+		}
+		return -1;
+	}
+
+	/**
+	 * Estimate the latency of a link from the time one of its timestamped
+	 * LLDPs took from being sent to being received, less the time spent
+	 * on the control channels of both switches.
+	 * @param src the switch that sent the LLDP
+	 * @param dst the switch that received the LLDP
+	 * @param elapsedNs the time between sending and receiving the LLDP
+	 * @return the one-way link latency in microseconds, or -1 if the
+	 * control channel latency of either switch is unknown
+	 */
+	protected long getLinkLatencySample(IOFSwitch src, IOFSwitch dst, long elapsedNs) {
+		long srcLatency = getControlLatency(src);
+		long dstLatency = getControlLatency(dst);
+		if (elapsedNs < 0 || srcLatency < 0 || dstLatency < 0)
+			return -1;
+		long latency = TimeUnit.NANOSECONDS.toMicros(elapsedNs) - srcLatency - dstLatency;
+		return Math.max(latency, 0);
+	}
+
+	/**
+	 * @param latency the current link latency, or -1
+	 * @param sample a new latency sample, or -1
+	 * @return the exponentially weighted moving average of the two
+	 */
+	protected static long smoothLatency(long latency, long sample) {
+		if (sample < 0)
+			return latency;
+		if (latency < 0)
+			return sample;
+		return latency + ((sample - latency) >> LATENCY_EWMA_SHIFT);
+	}
+
 	protected UpdateOperation getUpdateOperation(OFPortState srcPortState, OFPortState dstPortState) {
 		boolean added = ((srcPortState != OFPortState.STP_BLOCK) && (dstPortState != OFPortState.STP_BLOCK));
 
@@ -1322,6 +1555,8 @@ IFloodlightModule, IInfoProvider {
 			if (oldInfo != null
 					&& oldInfo.getFirstSeenTime().getTime() < newInfo.getFirstSeenTime().getTime())
 				newInfo.setFirstSeenTime(oldInfo.getFirstSeenTime());
+			if (oldInfo != null)
+				newInfo.setLatency(smoothLatency(oldInfo.getLatency(), newInfo.getLatency()));
 
 			if (log.isTraceEnabled()) {
 				log.trace("addOrUpdateLink: {} {}",
@@ -1607,6 +1842,8 @@ IFloodlightModule, IInfoProvider {
 		this.controllerTLV = new LLDPTLV().setType((byte) 0x0c)
 				.setLength((short) controllerTLVValue.length)
 				.setValue(controllerTLVValue);
+		// The templates embed the controller TLV
+		lldpTemplates.clear();
 	}
 
 	//******************
@@ -1654,6 +1891,7 @@ IFloodlightModule, IInfoProvider {
 
 	@Override
 	public void switchRemoved(DatapathId sw) {
+		lldpTemplates.remove(sw);
         List<Link> eraseList = new ArrayList<Link>();
         lock.writeLock().lock();
         try {
@@ -1919,11 +2157,19 @@ IFloodlightModule, IInfoProvider {
 		}
 		log.debug("Event history size set to {}", EVENT_HISTORY_SIZE);
 
+		String latency = configOptions.get("measureLinkLatency");
+		if (latency != null && (latency.trim().equalsIgnoreCase("yes")
+				|| latency.trim().equalsIgnoreCase("true"))) {
+			latencyMeasurement = true;
+		}
+		log.debug("Link latency measurement {}", latencyMeasurement ? "enabled" : "disabled");
+
 		// Set the autoportfast feature to false.
 		this.autoPortFastFeature = AUTOPORTFAST_DEFAULT;
 
 		// We create this here because there is no ordering guarantee
-		this.linkDiscoveryAware = new ArrayList<ILinkDiscoveryListener>();
+		// Listeners may be added concurrently from other modules' startUp
+		this.linkDiscoveryAware = new CopyOnWriteArrayList<ILinkDiscoveryListener>();
 		this.lock = new ReentrantReadWriteLock();
 		this.updates = new LinkedBlockingQueue<LDUpdate>();
 		this.links = new HashMap<Link, LinkInfo>();
@@ -46,7 +46,8 @@ public class DirectedLinksResource extends ServerResource {
                 LinkType type = ld.getLinkType(link, info);
                 if (type == LinkType.DIRECT_LINK || type == LinkType.TUNNEL) {
                     LinkWithType lwt = new LinkWithType(link,
-                            type,LinkDirection.UNIDIRECTIONAL);
+                            type,LinkDirection.UNIDIRECTIONAL,
+                            info.getLatency());
                     returnLinkSet.add(lwt);
                 }
             }
@@ -44,6 +44,7 @@ public class LinkWithType extends JsonSerializer<LinkWithType> {
     public OFPort dstPort;
     public LinkType type;
     public LinkDirection direction;
+    public long latency = -1;
 
     // Do NOT delete this, it's required for the serializer
     public LinkWithType() {}
@@ -59,6 +60,17 @@ public class LinkWithType extends JsonSerializer<LinkWithType> {
         this.direction = direction;
     }
 
+    /**
+     * @param latency the link latency in microseconds, or -1 if unknown
+     */
+    public LinkWithType(Link link,
+            LinkType type,
+            LinkDirection direction,
+            long latency) {
+        this(link, type, direction);
+        this.latency = latency;
+    }
+
     @Override
     public void serialize(LinkWithType lwt, JsonGenerator jgen, SerializerProvider arg2)
             throws IOException, JsonProcessingException {
@@ -70,6 +82,7 @@ public class LinkWithType extends JsonSerializer<LinkWithType> {
         jgen.writeNumberField("dst-port", lwt.dstPort.getPortNumber());
         jgen.writeStringField("type", lwt.type.toString());
         jgen.writeStringField("direction", lwt.direction.toString());
+        jgen.writeNumberField("latency", lwt.latency);
         jgen.writeEndObject();
     }
 
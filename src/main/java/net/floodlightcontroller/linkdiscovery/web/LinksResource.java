@@ -16,30 +16,60 @@
 
 package net.floodlightcontroller.linkdiscovery.web;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import net.floodlightcontroller.linkdiscovery.ILinkDiscovery.LinkDirection;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscovery.LinkType;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
 import net.floodlightcontroller.linkdiscovery.LinkInfo;
+import net.floodlightcontroller.restserver.JsonStreamRepresentation;
+import net.floodlightcontroller.restserver.PageRequest;
 import net.floodlightcontroller.routing.Link;
 
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
 import org.restlet.resource.Get;
 import org.restlet.resource.ServerResource;
 
 public class LinksResource extends ServerResource {
+    /**
+     * Orders links by source switch and port, then destination switch and
+     * port, so that pages of the list do not overlap or miss links
+     */
+    static final Comparator<LinkWithType> LINK_ORDER =
+            new Comparator<LinkWithType>() {
+        @Override
+        public int compare(LinkWithType a, LinkWithType b) {
+            int c = a.srcSwDpid.compareTo(b.srcSwDpid);
+            if (c != 0) return c;
+            c = a.srcPort.compareTo(b.srcPort);
+            if (c != 0) return c;
+            c = a.dstSwDpid.compareTo(b.dstSwDpid);
+            if (c != 0) return c;
+            return a.dstPort.compareTo(b.dstPort);
+        }
+    };
 
     @Get("json")
-    public Set<LinkWithType> retrieve() {
+    public Representation retrieve() {
         ILinkDiscoveryService ld = (ILinkDiscoveryService)getContext().getAttributes().
                 get(ILinkDiscoveryService.class.getCanonicalName());
+        PageRequest page;
+        try {
+            page = PageRequest.fromQuery(getQuery());
+        } catch (IllegalArgumentException e) {
+            setStatus(Status.CLIENT_ERROR_BAD_REQUEST, e.getMessage());
+            return null;
+        }
         Map<Link, LinkInfo> links = new HashMap<Link, LinkInfo>();
-        Set<LinkWithType> returnLinkSet = new HashSet<LinkWithType>();
+        List<LinkWithType> returnLinks = new ArrayList<LinkWithType>();
 
         if (ld != null) {
             links.putAll(ld.getLinks());
@@ -66,20 +96,23 @@ public class LinksResource extends ServerResource {
                         		&& srcPort.getPortNumber() < dstPort.getPortNumber())) {
                             lwt = new LinkWithType(link,
                                     type,
-                                    LinkDirection.BIDIRECTIONAL);
-                            returnLinkSet.add(lwt);
+                                    LinkDirection.BIDIRECTIONAL,
+                                    info.getLatency());
+                            returnLinks.add(lwt);
                         }
                     } else {
                         // This is a unidirectional link.
                         lwt = new LinkWithType(link,
                                 type,
-                                LinkDirection.UNIDIRECTIONAL);
-                        returnLinkSet.add(lwt);
+                                LinkDirection.UNIDIRECTIONAL,
+                                info.getLatency());
+                        returnLinks.add(lwt);
 
                     }
                 }
             }
         }
-        return returnLinkSet;
+        Collections.sort(returnLinks, LINK_ORDER);
+        return new JsonStreamRepresentation(returnLinks.iterator(), page);
     }
 }
@@ -49,8 +49,9 @@ import org.slf4j.LoggerFactory;
 
 import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
-import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
@@ -92,7 +93,7 @@ import net.floodlightcontroller.util.FlowModUtils;
  * @edited Ryan Izard, rizard@g.clemson.edu, ryan.izard@bigswitch.com
  */
 public class LoadBalancer implements IFloodlightModule,
-    ILoadBalancerService, IOFMessageListener {
+    ILoadBalancerService, IPacketInInterestListener {
 
     protected static Logger log = LoggerFactory.getLogger(LoadBalancer.class);
 
@@ -166,6 +167,12 @@ public class LoadBalancer implements IFloodlightModule,
         return (type.equals(OFType.PACKET_IN) && name.equals("forwarding"));
    }
 
+    @Override
+    public PacketInInterest getPacketInInterest() {
+        // Only ARP for VIPs and IPv4 to VIPs are handled
+        return PacketInInterest.forEthTypes(EthType.ARP, EthType.IPv4);
+    }
+
     @Override
     public net.floodlightcontroller.core.IListener.Command
             receive(IOFSwitch sw, OFMessage msg, FloodlightContext cntx) {
@@ -70,21 +70,24 @@ public class BPDU extends BasePacket {
     }
     
     @Override
-    public byte[] serialize() {
-        byte[] data;
+    public int getSerializedLength() {
         // TODO check these
-        if (type == 0x0) { 
+        if (type == 0x0) {
             // config
-            data = new byte[38];
+            return 38;
         } else {
             // topology change
-            data = new byte[7]; // LLC + TC notification
+            return 7; // LLC + TC notification
         }
-        
-        ByteBuffer bb = ByteBuffer.wrap(data);
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        int length = getSerializedLength();
         // Serialize the LLC header
-        byte[] llc = llcHeader.serialize();
-        bb.put(llc, 0, llc.length);
+        int llcLength = llcHeader.serialize(data, offset);
+        ByteBuffer bb = ByteBuffer.wrap(data, offset + llcLength,
+                                        length - llcLength);
         bb.putShort(protocolId);
         bb.put(version);
         bb.put(type);
@@ -101,7 +104,7 @@ public class BPDU extends BasePacket {
             bb.putShort(forwardDelay);
         }
         
-        return data;
+        return length;
     }
 
     @Override
@@ -20,8 +20,6 @@
 package net.floodlightcontroller.packet;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.projectfloodlight.openflow.types.EthType;
 
@@ -34,12 +32,25 @@ public class BSN extends BasePacket {
     public static final short BSN_VERSION_CURRENT = 0x0;
     public static final short BSN_TYPE_PROBE = 0x1;
     public static final short BSN_TYPE_BDDP  = 0x2;
-    public static Map<Short, Class<? extends IPacket>> typeClassMap;
+    /**
+     * The packets that parse the payload of each BSN type
+     */
+    public static final PacketFactoryTable typeFactories =
+            new PacketFactoryTable(0x10000);
 
     static {
-        typeClassMap = new HashMap<Short, Class<? extends IPacket>>();
-        typeClassMap.put(BSN_TYPE_PROBE, BSNPROBE.class);
-        typeClassMap.put(BSN_TYPE_BDDP, LLDP.class);
+        typeFactories.register(BSN_TYPE_PROBE, new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new BSNPROBE();
+            }
+        });
+        typeFactories.register(BSN_TYPE_BDDP, new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new LLDP();
+            }
+        });
     }
 
     protected short type;
@@ -73,28 +84,24 @@ public class BSN extends BasePacket {
     }
 
     @Override
-    public byte[] serialize() {
-        short length = 4 /* magic */ + 2 /* type */ + 2 /* version */;
-
-        byte[] payloadData = null;
-        if (this.payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-            length += payloadData.length;
-        }
+    public int getSerializedLength() {
+        return 4 /* magic */ + 2 /* type */ + 2 /* version */ + getPayloadLength();
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        // the payload sets our type, so write it first
+        int length = 8 + serializePayload(data, offset + 8);
 
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, 8);
         bb.putInt(BSN_MAGIC);
         bb.putShort(this.type);
         bb.putShort(this.version);
-        if (payloadData != null)
-            bb.put(payloadData);
 
         if (this.parent != null && this.parent instanceof Ethernet)
             ((Ethernet)this.parent).setEtherType(EthType.of(Ethernet.TYPE_BSN & 0xffff)); /* treat as unsigned */
 
-        return data;
+        return length;
     }
 
     @Override
@@ -115,15 +122,8 @@ public class BSN extends BasePacket {
                     + BSN_VERSION_CURRENT);
         }
 
-        IPacket payload;
-        if (typeClassMap.containsKey(this.type)) {
-            Class<? extends IPacket> clazz = typeClassMap.get(this.type);
-            try {
-                payload = clazz.newInstance();
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing payload for BSN packet" + e);
-            }
-        } else {
+        IPacket payload = typeFactories.newPacket(this.type & 0xffff);
+        if (payload == null) {
             payload = new Data();
         }
 
@@ -164,8 +164,9 @@ public class BSN extends BasePacket {
     public String toString() {
         StringBuffer sb = new StringBuffer("\n");
         sb.append("BSN packet");
-        if (typeClassMap.containsKey(this.type))
-            sb.append(" type: " + typeClassMap.get(this.type).getCanonicalName());
+        IPacket typePacket = typeFactories.newPacket(this.type & 0xffff);
+        if (typePacket != null)
+            sb.append(" type: " + typePacket.getClass().getCanonicalName());
         else
             sb.append(" type: " + this.type);
 
@@ -96,32 +96,27 @@ public class BSNPROBE extends BasePacket {
 	}
 
     @Override
-    public byte[] serialize() {
-    	short length = 8 /* controllerId */ + 4 /* seqId */
-    			+ 12 /* srcMac dstMac */ + 8 /* srcSwDpid */ + 4 /* srcPortNo */;
-    	
-    	byte[] payloadData = null;
-    	if (this.payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-            length += payloadData.length;
-        }
-    
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+    public int getSerializedLength() {
+    	return 8 /* controllerId */ + 4 /* seqId */
+    			+ 12 /* srcMac dstMac */ + 8 /* srcSwDpid */ + 4 /* srcPortNo */
+    			+ getPayloadLength();
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, 36);
         bb.putLong(this.controllerId);
         bb.putInt(this.sequenceId);
         bb.put(this.srcMac);
         bb.put(this.dstMac);
         bb.putLong(this.srcSwDpid);
         bb.putInt(this.srcPortNo);
-        if (payloadData != null)
-        	bb.put(payloadData);
+        int length = 36 + serializePayload(data, offset + 36);
 
         if (this.parent != null && this.parent instanceof BSN)
             ((BSN)this.parent).setType(BSN.BSN_TYPE_PROBE);
 
-        return data;
+        return length;
     }
 
     @Override
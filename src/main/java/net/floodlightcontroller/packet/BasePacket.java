@@ -64,6 +64,36 @@ public abstract class BasePacket implements IPacket {
         return this;
     }
     
+    /**
+     * Serializes this packet and all payloads into a new array of exactly
+     * the serialized length
+     */
+    @Override
+    public byte[] serialize() {
+        byte[] data = new byte[getSerializedLength()];
+        serialize(data, 0);
+        return data;
+    }
+
+    /**
+     * Serializes the payload, if any, at the given offset after setting
+     * its parent to this packet
+     * @return the number of bytes written
+     */
+    protected int serializePayload(byte[] data, int offset) {
+        if (payload == null)
+            return 0;
+        payload.setParent(this);
+        return payload.serialize(data, offset);
+    }
+
+    /**
+     * @return the serialized length of the payload, or 0 if none
+     */
+    protected int getPayloadLength() {
+        return (payload == null) ? 0 : payload.getSerializedLength();
+    }
+
     @Override
     public void resetChecksum() {
         if (this.parent != null)
@@ -114,7 +144,7 @@ public abstract class BasePacket implements IPacket {
         // if we hit performance problems.
         byte[] data = this.serialize();
         try {
-            pkt.deserialize(this.serialize(), 0, data.length);
+            pkt.deserialize(data, 0, data.length);
         } catch (PacketParsingException e) {
             // This shouldn't happen here, since we already deserialized it once
             return new Data(data);
@@ -20,6 +20,7 @@ package net.floodlightcontroller.packet;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.ListIterator;
 
@@ -358,10 +359,7 @@ public class DHCP extends BasePacket {
     }
 
     @Override
-    public byte[] serialize() {
-        // not guaranteed to retain length/exact format
-        resetChecksum();
-
+    public int getSerializedLength() {
         // minimum size 240 including magic cookie, options generally padded to 300
         int optionsLength = 0;
         for (DHCPOption option : this.options) {
@@ -371,12 +369,16 @@ public class DHCP extends BasePacket {
                 optionsLength += 2 + (0xff & option.getLength());
             }
         }
-        int optionsPadLength = 0;
-        if (optionsLength < 60)
-            optionsPadLength = 60 - optionsLength;
+        return 240 + Math.max(optionsLength, 60);
+    }
 
-        byte[] data = new byte[240+optionsLength+optionsPadLength];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+    @Override
+    public int serialize(byte[] data, int offset) {
+        // not guaranteed to retain length/exact format
+        resetChecksum();
+
+        int length = getSerializedLength();
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, length);
         bb.put(this.opCode);
         bb.put(this.hardwareType);
         bb.put(this.hardwareAddressLength);
@@ -409,8 +411,9 @@ public class DHCP extends BasePacket {
                 bb.put(option.getData());
             }
         }
-        // assume the rest is padded out with zeroes
-        return data;
+        // the rest is padded out with zeroes
+        Arrays.fill(data, bb.position(), offset + length, (byte) 0);
+        return length;
     }
 
     protected void writeString(String string, ByteBuffer bb, int maxLength) {
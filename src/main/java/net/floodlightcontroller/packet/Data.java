@@ -58,6 +58,19 @@ public class Data extends BasePacket {
         return this.data;
     }
 
+    @Override
+    public int getSerializedLength() {
+        return (this.data == null) ? 0 : this.data.length;
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        if (this.data == null)
+            return 0;
+        System.arraycopy(this.data, 0, data, offset, this.data.length);
+        return this.data.length;
+    }
+
     @Override
     public IPacket deserialize(byte[] data, int offset, int length) {
         this.data = Arrays.copyOfRange(data, offset, offset + length);
@@ -19,8 +19,6 @@ package net.floodlightcontroller.packet;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.MacAddress;
@@ -39,15 +37,41 @@ public class Ethernet extends BasePacket {
     public static final short TYPE_BSN = (short) 0x8942;
     public static final short VLAN_UNTAGGED = VlanVid.ZERO.getVlan(); // untagged vlan must be 0x0000 for loxi. We can use the convenient ZERO field
     public static final short DATALAYER_ADDRESS_LENGTH = 6; // bytes
-    public static Map<Short, Class<? extends IPacket>> etherTypeClassMap;
+
+    /**
+     * The packets that parse the payload of each EtherType. Modules may
+     * register their own at init time.
+     */
+    public static final PacketFactoryTable etherTypeFactories =
+            new PacketFactoryTable(0x10000);
 
     static {
-        etherTypeClassMap = new HashMap<Short, Class<? extends IPacket>>();
-        etherTypeClassMap.put(TYPE_ARP, ARP.class);
-        etherTypeClassMap.put(TYPE_RARP, ARP.class);
-        etherTypeClassMap.put(TYPE_IPv4, IPv4.class);
-        etherTypeClassMap.put(TYPE_LLDP, LLDP.class);
-        etherTypeClassMap.put(TYPE_BSN, BSN.class);
+        IPacketFactory arp = new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new ARP();
+            }
+        };
+        etherTypeFactories.register(TYPE_ARP & 0xffff, arp);
+        etherTypeFactories.register(TYPE_RARP & 0xffff, arp);
+        etherTypeFactories.register(TYPE_IPv4 & 0xffff, new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new IPv4();
+            }
+        });
+        etherTypeFactories.register(TYPE_LLDP & 0xffff, new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new LLDP();
+            }
+        });
+        etherTypeFactories.register(TYPE_BSN & 0xffff, new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new BSN();
+            }
+        });
     }
 
     protected MacAddress destinationMACAddress;
@@ -203,19 +227,23 @@ public class Ethernet extends BasePacket {
         return this;
     }
 
-    public byte[] serialize() {
-        byte[] payloadData = null;
-        if (payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-        }
+    @Override
+    public int getSerializedLength() {
         int length = 14 + ((vlanID == VLAN_UNTAGGED) ? 0 : 4) +
-                          ((payloadData == null) ? 0 : payloadData.length);
+                getPayloadLength();
         if (pad && length < 60) {
             length = 60;
         }
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+        return length;
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        int headerLength = 14 + ((vlanID == VLAN_UNTAGGED) ? 0 : 4);
+        // the payload may set our ethertype, so write it first
+        int length = headerLength +
+                serializePayload(data, offset + headerLength);
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, headerLength);
         bb.put(destinationMACAddress.getBytes());
         bb.put(sourceMACAddress.getBytes());
         if (vlanID != VLAN_UNTAGGED) {
@@ -223,12 +251,11 @@ public class Ethernet extends BasePacket {
             bb.putShort((short) ((priorityCode << 13) | (vlanID & 0x0fff)));
         }
         bb.putShort((short) etherType.getValue());
-        if (payloadData != null)
-            bb.put(payloadData);
-        if (pad) {
-            Arrays.fill(data, bb.position(), data.length, (byte)0x0);
+        if (pad && length < 60) {
+            Arrays.fill(data, offset + length, offset + 60, (byte)0x0);
+            length = 60;
         }
-        return data;
+        return length;
     }
 
     @Override
@@ -270,11 +297,9 @@ public class Ethernet extends BasePacket {
         }
         this.etherType = etherType;
         
-        IPacket payload;
-        if (Ethernet.etherTypeClassMap.containsKey((short) this.etherType.getValue())) {
-            Class<? extends IPacket> clazz = Ethernet.etherTypeClassMap.get((short) this.etherType.getValue());
+        IPacket payload = etherTypeFactories.newPacket(this.etherType.getValue());
+        if (payload != null) {
             try {
-                payload = clazz.newInstance();
                 this.payload = payload.deserialize(data, bb.position(), bb.limit() - bb.position());
             } catch (PacketParsingException e) {
                 if (log.isTraceEnabled()) {
@@ -282,22 +307,10 @@ public class Ethernet extends BasePacket {
                             " payload as {}, treat as plain ethernet packet",
                             new Object[] {this.sourceMACAddress,
                                           this.destinationMACAddress,
-                                          clazz.getClass().getName()});
+                                          payload.getClass().getName()});
                     log.trace("Exception from parsing {}", e);
                 }
                 this.payload = new Data(data);
-            } catch (InstantiationException e) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Fail to instantiate class {}, {}",
-                              clazz.getClass().getName(), e);
-                }
-                this.payload = new Data(data);
-            } catch (IllegalAccessException e) {
-                if (log.isTraceEnabled()) {
-                    log.trace("Fail to access class for instantiation {}, {}",
-                              clazz.getClass().getName(), e);
-                }
-                this.payload = new Data(data);
             } catch (RuntimeException e) {
                 if (log.isTraceEnabled()) {
                     log.trace("Runtime exception during packet parsing {}", e);
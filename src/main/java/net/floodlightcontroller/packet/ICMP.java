@@ -102,53 +102,38 @@ public class ICMP extends BasePacket {
      *      -length : 0
      */
     @Override
-    public byte[] serialize() {
+    public int getSerializedLength() {
+        return 4 + getPadding() + getPayloadLength();
+    }
+
+    private short getPadding() {
         short padding = 0;
         if (paddingMap.containsKey(this.icmpType))
             padding = paddingMap.get(this.icmpType);
+        return padding;
+    }
 
-        int length = 4 + padding;
-        byte[] payloadData = null;
-        if (payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-            length += payloadData.length;
-        }
-
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+    @Override
+    public int serialize(byte[] data, int offset) {
+        short padding = getPadding();
+        int length = 4 + padding + serializePayload(data, offset + 4 + padding);
 
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, 4 + padding);
         bb.put(this.icmpType);
         bb.put(this.icmpCode);
         bb.putShort(this.checksum);
         for (int i = 0; i < padding; i++)
             bb.put((byte) 0);
 
-        if (payloadData != null)
-            bb.put(payloadData);
-
         if (this.parent != null && this.parent instanceof IPv4)
             ((IPv4)this.parent).setProtocol(IpProtocol.ICMP);
 
         // compute checksum if needed
         if (this.checksum == 0) {
-            bb.rewind();
-            int accumulation = 0;
-
-            for (int i = 0; i < length / 2; ++i) {
-                accumulation += 0xffff & bb.getShort();
-            }
-            // pad to an even number of shorts
-            if (length % 2 > 0) {
-                accumulation += (bb.get() & 0xff) << 8;
-            }
-
-            accumulation = ((accumulation >> 16) & 0xffff)
-                    + (accumulation & 0xffff);
-            this.checksum = (short) (~accumulation & 0xffff);
-            bb.putShort(2, this.checksum);
+            this.checksum = InternetChecksum.compute(data, offset, length);
+            bb.putShort(offset + 2, this.checksum);
         }
-        return data;
+        return length;
     }
 
     /* (non-Javadoc)
@@ -60,6 +60,23 @@ public interface IPacket {
      */
     public byte[] serialize();
 
+    /**
+     * Gets the number of bytes this packet and all payloads serialize to
+     * @return the serialized length
+     */
+    public int getSerializedLength();
+
+    /**
+     * Sets all payloads parent packet if applicable, then serializes this
+     * packet and all payloads into the given buffer in a single pass. The
+     * buffer must have at least {@link #getSerializedLength()} bytes from
+     * the offset.
+     * @param data the buffer to write to
+     * @param offset offset to start writing at
+     * @return the number of bytes written
+     */
+    public int serialize(byte[] data, int offset);
+
     /**
      * Deserializes this packet layer and all possible payloads
      * @param data
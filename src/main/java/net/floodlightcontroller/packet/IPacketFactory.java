@@ -0,0 +1,13 @@
+package net.floodlightcontroller.packet;
+
+/**
+ * Creates the packet that parses a payload, such as the payload of an
+ * Ethernet frame with a given EtherType.
+ * @see PacketFactoryTable
+ */
+public interface IPacketFactory {
+    /**
+     * @return a new, empty packet to deserialize a payload into
+     */
+    public IPacket newPacket();
+}
@@ -23,8 +23,6 @@ package net.floodlightcontroller.packet;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.IpProtocol;
@@ -35,13 +33,32 @@ import org.projectfloodlight.openflow.types.U8;
  *
  */
 public class IPv4 extends BasePacket {
-    public static Map<IpProtocol, Class<? extends IPacket>> protocolClassMap;
+    /**
+     * The packets that parse the payload of each IP protocol. Modules may
+     * register their own at init time.
+     */
+    public static final PacketFactoryTable protocolFactories =
+            new PacketFactoryTable(0x100);
 
     static {
-        protocolClassMap = new HashMap<IpProtocol, Class<? extends IPacket>>();
-        protocolClassMap.put(IpProtocol.ICMP, ICMP.class);
-        protocolClassMap.put(IpProtocol.TCP, TCP.class);
-        protocolClassMap.put(IpProtocol.UDP, UDP.class);
+        protocolFactories.register(IpProtocol.ICMP.getIpProtocolNumber(), new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new ICMP();
+            }
+        });
+        protocolFactories.register(IpProtocol.TCP.getIpProtocolNumber(), new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new TCP();
+            }
+        });
+        protocolFactories.register(IpProtocol.UDP.getIpProtocolNumber(), new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new UDP();
+            }
+        });
     }
 
     public static final byte IPV4_FLAGS_MOREFRAG = 0x1;
@@ -315,6 +332,26 @@ public class IPv4 extends BasePacket {
         return this;
     }
 
+    @Override
+    public int getSerializedLength() {
+        return getSerializedHeaderLength() + getPayloadLength();
+    }
+
+    private int getSerializedHeaderLength() {
+        return (this.options == null) ? 20 : 20 + this.options.length;
+    }
+
+    /**
+     * Gets the running sum of the pseudo header that the checksum of a
+     * transport payload of the given length covers
+     */
+    protected int getPseudoHeaderSum(int length) {
+        int sum = InternetChecksum.addInt(this.sourceAddress.getInt(), 0);
+        sum = InternetChecksum.addInt(this.destinationAddress.getInt(), sum);
+        sum = InternetChecksum.addShort(this.protocol.getIpProtocolNumber() & 0xff, sum);
+        return InternetChecksum.addShort(length, sum);
+    }
+
     /**
      * Serializes the packet. Will compute and set the following fields if they
      * are set to specific values at the time serialize is called:
@@ -323,24 +360,15 @@ public class IPv4 extends BasePacket {
      *      -totalLength : 0
      */
     @Override
-    public byte[] serialize() {
-        byte[] payloadData = null;
-        if (payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-        }
-
-        int optionsLength = 0;
-        if (this.options != null)
-            optionsLength = this.options.length / 4;
-        this.headerLength = (byte) (5 + optionsLength);
-
-        this.totalLength = (short) (this.headerLength * 4 + ((payloadData == null) ? 0
-                : payloadData.length));
-
-        byte[] data = new byte[this.totalLength];
-        ByteBuffer bb = ByteBuffer.wrap(data);
-
+    public int serialize(byte[] data, int offset) {
+        int headerLength = getSerializedHeaderLength();
+        this.headerLength = (byte) (headerLength / 4);
+        // the payload may set our protocol and reset our checksum, so
+        // write it first
+        this.totalLength = (short) (headerLength +
+                serializePayload(data, offset + headerLength));
+
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, headerLength);
         bb.put((byte) (((this.version & 0xf) << 4) | (this.headerLength & 0xf)));
         bb.put(this.diffServ);
         bb.putShort(this.totalLength);
@@ -354,22 +382,13 @@ public class IPv4 extends BasePacket {
         bb.putInt(this.destinationAddress.getInt());
         if (this.options != null)
             bb.put(this.options);
-        if (payloadData != null)
-            bb.put(payloadData);
 
         // compute checksum if needed
         if (this.checksum == 0) {
-            bb.rewind();
-            int accumulation = 0;
-            for (int i = 0; i < this.headerLength * 2; ++i) {
-                accumulation += 0xffff & bb.getShort();
-            }
-            accumulation = ((accumulation >> 16) & 0xffff)
-                    + (accumulation & 0xffff);
-            this.checksum = (short) (~accumulation & 0xffff);
-            bb.putShort(10, this.checksum);
+            this.checksum = InternetChecksum.compute(data, offset, headerLength);
+            bb.putShort(offset + 10, this.checksum);
         }
-        return data;
+        return this.totalLength & 0xffff;
     }
 
     @Override
@@ -404,18 +423,13 @@ public class IPv4 extends BasePacket {
             bb.get(this.options);
         }
 
-        IPacket payload;
+        IPacket payload = null;
         isFragment = ((this.flags & IPV4_FLAGS_DONTFRAG) == 0) &&
                 ((this.flags & IPV4_FLAGS_MOREFRAG) != 0 ||
                 this.fragmentOffset != 0);
-        if (!isFragment && IPv4.protocolClassMap.containsKey(this.protocol)) {
-            Class<? extends IPacket> clazz = IPv4.protocolClassMap.get(this.protocol);
-            try {
-                payload = clazz.newInstance();
-            } catch (Exception e) {
-                throw new RuntimeException("Error parsing payload for IPv4 packet", e);
-            }
-        } else {
+        if (!isFragment)
+            payload = protocolFactories.newPacket(this.protocol.getIpProtocolNumber());
+        if (payload == null) {
             if (log.isTraceEnabled() && isFragment) {
                 log.trace("IPv4 fragment detected {}->{}, forward using IP header only",
                         this.sourceAddress.toString(),
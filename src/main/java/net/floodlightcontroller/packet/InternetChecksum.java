@@ -0,0 +1,100 @@
+package net.floodlightcontroller.packet;
+
+/**
+ * Helpers for the one's complement checksum used by IPv4, ICMP, UDP and
+ * TCP (RFC 1071). A checksum is built up by adding to a running sum, which
+ * {@link #finish(int)} folds and complements, so headers written straight
+ * into a buffer can be summed in place. {@link #update(short, short, short)}
+ * adjusts a checksum for a changed field without summing the packet again
+ * (RFC 1624).
+ */
+public final class InternetChecksum {
+
+    private InternetChecksum() {
+    }
+
+    /**
+     * Add a range of bytes to a running sum as 16-bit big-endian words,
+     * padding an odd last byte with zero
+     * @param data the buffer
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @param sum the running sum
+     * @return the new running sum
+     */
+    public static int add(byte[] data, int offset, int length, int sum) {
+        long acc = sum & 0xffffffffL;
+        int end = offset + length - 1;
+        int i = offset;
+        for (; i < end; i += 2) {
+            acc += ((data[i] & 0xff) << 8) | (data[i + 1] & 0xff);
+        }
+        if (i == end) {
+            acc += (data[i] & 0xff) << 8;
+        }
+        return fold(acc);
+    }
+
+    /**
+     * Add a 32-bit value, such as an IPv4 address, to a running sum
+     * @param value the value
+     * @param sum the running sum
+     * @return the new running sum
+     */
+    public static int addInt(int value, int sum) {
+        return fold((sum & 0xffffffffL) + ((value >>> 16) & 0xffff) +
+                    (value & 0xffff));
+    }
+
+    /**
+     * Add a 16-bit value to a running sum
+     * @param value the value
+     * @param sum the running sum
+     * @return the new running sum
+     */
+    public static int addShort(int value, int sum) {
+        return fold((sum & 0xffffffffL) + (value & 0xffff));
+    }
+
+    /**
+     * Fold a running sum to 16 bits and complement it
+     * @param sum the running sum
+     * @return the checksum
+     */
+    public static short finish(int sum) {
+        return (short) (~fold(sum & 0xffffffffL) & 0xffff);
+    }
+
+    /**
+     * Compute the checksum of a range of bytes
+     * @param data the buffer
+     * @param offset the offset of the first byte
+     * @param length the number of bytes
+     * @return the checksum
+     */
+    public static short compute(byte[] data, int offset, int length) {
+        return finish(add(data, offset, length, 0));
+    }
+
+    /**
+     * Update a checksum for a 16-bit field that changed from one value to
+     * another, as when rewriting the TTL or a port of a packet
+     * @param checksum the checksum covering the old value
+     * @param oldValue the old value of the field
+     * @param newValue the new value of the field
+     * @return the checksum covering the new value
+     */
+    public static short update(short checksum, short oldValue,
+                               short newValue) {
+        long acc = (~checksum & 0xffff) + (~oldValue & 0xffff) +
+                   (newValue & 0xffff);
+        return (short) (~fold(acc) & 0xffff);
+    }
+
+    private static int fold(long acc) {
+        while ((acc >>> 16) != 0) {
+            acc = (acc & 0xffff) + (acc >>> 16);
+        }
+        return (int) acc;
+    }
+}
@@ -55,13 +55,16 @@ public class LLC extends BasePacket {
     }
 
     @Override
-    public byte[] serialize() {
-        byte[] data = new byte[3];
-        ByteBuffer bb = ByteBuffer.wrap(data);
-        bb.put(dsap);
-        bb.put(ssap);
-        bb.put(ctrl);
-        return data;
+    public int getSerializedLength() {
+        return 3;
+    }
+
+    @Override
+    public int serialize(byte[] data, int offset) {
+        data[offset] = dsap;
+        data[offset + 1] = ssap;
+        data[offset + 2] = ctrl;
+        return 3;
     }
 
     @Override
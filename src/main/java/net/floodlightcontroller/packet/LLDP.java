@@ -103,28 +103,32 @@ public class LLDP extends BasePacket {
     }
 
     @Override
-    public byte[] serialize() {
+    public int getSerializedLength() {
         int length = 2+this.chassisId.getLength() + 2+this.portId.getLength() +
             2+this.ttl.getLength() + 2;
         for (LLDPTLV tlv : this.optionalTLVList) {
             if (tlv != null)
                 length += 2 + tlv.getLength();
         }
+        return length;
+    }
 
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
-        bb.put(this.chassisId.serialize());
-        bb.put(this.portId.serialize());
-        bb.put(this.ttl.serialize());
+    @Override
+    public int serialize(byte[] data, int offset) {
+        int pos = offset;
+        pos += this.chassisId.serialize(data, pos);
+        pos += this.portId.serialize(data, pos);
+        pos += this.ttl.serialize(data, pos);
         for (LLDPTLV tlv : this.optionalTLVList) {
-            if (tlv != null) bb.put(tlv.serialize());
+            if (tlv != null) pos += tlv.serialize(data, pos);
         }
-        bb.putShort((short) 0); // End of LLDPDU
+        data[pos++] = 0; // End of LLDPDU
+        data[pos++] = 0;
 
         if (this.parent != null && this.parent instanceof Ethernet)
             ((Ethernet)this.parent).setEtherType(ethType);
 
-        return data;
+        return pos - offset;
     }
 
     @Override
@@ -110,14 +110,14 @@ public class LLDPOrganizationalTLV extends LLDPTLV {
     }
 
     @Override
-    public byte[] serialize() {
+    public int serialize(byte[] data, int offset) {
         int valueLength = OUI_LENGTH + SUBTYPE_LENGTH + infoString.length;
         value = new byte[valueLength];
         ByteBuffer bb = ByteBuffer.wrap(value);
         bb.put(oui);
         bb.put(subType);
         bb.put(infoString);
-        return super.serialize();
+        return super.serialize(data, offset);
     }
 
     @Override
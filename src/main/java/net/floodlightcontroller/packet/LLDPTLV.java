@@ -76,16 +76,27 @@ public class LLDPTLV {
     }
 
     public byte[] serialize() {
+        byte[] data = new byte[2+this.length];
+        serialize(data, 0);
+        return data;
+    }
+
+    /**
+     * Serializes this TLV into the given buffer
+     * @param data the buffer to write to
+     * @param offset offset to start writing at
+     * @return the number of bytes written
+     */
+    public int serialize(byte[] data, int offset) {
         // type = 7 bits
         // info string length 9 bits, each value == byte
         // info string
         short scratch = (short) (((0x7f & this.type) << 9) | (0x1ff & this.length));
-        byte[] data = new byte[2+this.length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, 2+this.length);
         bb.putShort(scratch);
         if (this.value != null)
             bb.put(this.value);
-        return data;
+        return 2+this.length;
     }
 
     public LLDPTLV deserialize(ByteBuffer bb) {
@@ -0,0 +1,60 @@
+package net.floodlightcontroller.packet;
+
+/**
+ * A table of {@link IPacketFactory} indexed by a small integer key, such as
+ * an EtherType, IP protocol number or transport port, used to pick the
+ * packet that parses a payload. Lookups are a bounds check and an array
+ * read. Registering copies the table, so modules can add their own
+ * parsers at init time while packets are being parsed.
+ */
+public class PacketFactoryTable {
+    private volatile IPacketFactory[] factories;
+
+    /**
+     * @param size the number of keys, one more than the largest key
+     */
+    public PacketFactoryTable(int size) {
+        factories = new IPacketFactory[size];
+    }
+
+    /**
+     * Register the factory for a key, replacing any existing one
+     * @param key the key
+     * @param factory the factory, or null to remove the key's factory
+     * @return the factory previously registered for the key, or null
+     * @throws IllegalArgumentException if the key is out of range
+     */
+    public synchronized IPacketFactory register(int key,
+                                                IPacketFactory factory) {
+        if (key < 0 || key >= factories.length)
+            throw new IllegalArgumentException("Key " + key +
+                                               " out of range");
+        IPacketFactory[] newFactories = factories.clone();
+        IPacketFactory old = newFactories[key];
+        newFactories[key] = factory;
+        factories = newFactories;
+        return old;
+    }
+
+    /**
+     * Get the factory for a key
+     * @param key the key
+     * @return the factory, or null if none is registered
+     */
+    public IPacketFactory get(int key) {
+        IPacketFactory[] f = factories;
+        if (key < 0 || key >= f.length)
+            return null;
+        return f[key];
+    }
+
+    /**
+     * Create the packet for a key
+     * @param key the key
+     * @return a new packet, or null if no factory is registered
+     */
+    public IPacket newPacket(int key) {
+        IPacketFactory factory = get(key);
+        return (factory == null) ? null : factory.newPacket();
+    }
+}
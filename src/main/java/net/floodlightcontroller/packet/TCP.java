@@ -164,27 +164,25 @@ public class TCP extends BasePacket {
         return this;
     }
 
+    @Override
+    public int getSerializedLength() {
+        return ((dataOffset == 0) ? 5 : dataOffset) * 4 + getPayloadLength();
+    }
+
     /**
      * Serializes the packet. Will compute and set the following fields if they
      * are set to specific values at the time serialize is called:
      *      -checksum : 0
      *      -length : 0
      */
-    public byte[] serialize() {
-        int length;
+    @Override
+    public int serialize(byte[] data, int offset) {
         if (dataOffset == 0)
             dataOffset = 5;  // default header length
-        length = dataOffset << 2;
-        byte[] payloadData = null;
-        if (payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-            length += payloadData.length;
-        }
-
-        byte[] data = new byte[length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+        int headerLength = dataOffset << 2;
+        int length = headerLength + serializePayload(data, offset + headerLength);
 
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, headerLength);
         bb.putShort((short)this.sourcePort.getPort()); //TCP ports are defined to be 16 bits
         bb.putShort((short)this.destinationPort.getPort());
         bb.putInt(this.sequence);
@@ -196,46 +194,27 @@ public class TCP extends BasePacket {
         if (dataOffset > 5) {
             int padding;
             bb.put(options);
-            padding = (dataOffset << 2) - 20 - options.length;
+            padding = headerLength - 20 - options.length;
             for (int i = 0; i < padding; i++)
                 bb.put((byte) 0);
         }
-        if (payloadData != null)
-            bb.put(payloadData);
 
         if (this.parent != null && this.parent instanceof IPv4)
             ((IPv4)this.parent).setProtocol(IpProtocol.TCP);
 
         // compute checksum if needed
         if (this.checksum == 0) {
-            bb.rewind();
             int accumulation = 0;
 
             // compute pseudo header mac
-            if (this.parent != null && this.parent instanceof IPv4) {
-                IPv4 ipv4 = (IPv4) this.parent;
-                accumulation += ((ipv4.getSourceAddress().getInt() >> 16) & 0xffff)
-                        + (ipv4.getSourceAddress().getInt() & 0xffff);
-                accumulation += ((ipv4.getDestinationAddress().getInt() >> 16) & 0xffff)
-                        + (ipv4.getDestinationAddress().getInt() & 0xffff);
-                accumulation += ipv4.getProtocol().getIpProtocolNumber() & 0xff;
-                accumulation += length & 0xffff;
-            }
-
-            for (int i = 0; i < length / 2; ++i) {
-                accumulation += 0xffff & bb.getShort();
-            }
-            // pad to an even number of shorts
-            if (length % 2 > 0) {
-                accumulation += (bb.get() & 0xff) << 8;
-            }
+            if (this.parent != null && this.parent instanceof IPv4)
+                accumulation = ((IPv4) this.parent).getPseudoHeaderSum(length);
 
-            accumulation = ((accumulation >> 16) & 0xffff)
-                    + (accumulation & 0xffff);
-            this.checksum = (short) (~accumulation & 0xffff);
-            bb.putShort(16, this.checksum);
+            accumulation = InternetChecksum.add(data, offset, length, accumulation);
+            this.checksum = InternetChecksum.finish(accumulation);
+            bb.putShort(offset + 16, this.checksum);
         }
-        return data;
+        return length;
     }
 
     /* (non-Javadoc)
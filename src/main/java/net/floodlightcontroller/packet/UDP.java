@@ -18,8 +18,6 @@
 package net.floodlightcontroller.packet;
 
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
 
 import org.projectfloodlight.openflow.types.IpProtocol;
 import org.projectfloodlight.openflow.types.TransportPort;
@@ -29,17 +27,26 @@ import org.projectfloodlight.openflow.types.TransportPort;
  * @author David Erickson (daviderickson@cs.stanford.edu)
  */
 public class UDP extends BasePacket {
-    public static Map<TransportPort, Class<? extends IPacket>> decodeMap;
+    /**
+     * The packets that parse the payload sent to or from each port. Modules
+     * may register their own at init time.
+     */
+    public static final PacketFactoryTable portFactories =
+            new PacketFactoryTable(0x10000);
     public static final TransportPort DHCP_CLIENT_PORT = TransportPort.of(68);
     public static final TransportPort DHCP_SERVER_PORT = TransportPort.of(67);
     static {
-        decodeMap = new HashMap<TransportPort, Class<? extends IPacket>>();
         /*
          * Disable DHCP until the deserialize code is hardened to deal with garbage input
          */
-        UDP.decodeMap.put(DHCP_CLIENT_PORT, DHCP.class);
-        UDP.decodeMap.put(DHCP_SERVER_PORT, DHCP.class);
-        
+        IPacketFactory dhcp = new IPacketFactory() {
+            @Override
+            public IPacket newPacket() {
+                return new DHCP();
+            }
+        };
+        portFactories.register(DHCP_CLIENT_PORT.getPort(), dhcp);
+        portFactories.register(DHCP_SERVER_PORT.getPort(), dhcp);
     }
 
     protected TransportPort sourcePort;
@@ -121,65 +128,44 @@ public class UDP extends BasePacket {
         super.resetChecksum();
     }
 
+    @Override
+    public int getSerializedLength() {
+        return 8 + getPayloadLength();
+    }
+
     /**
      * Serializes the packet. Will compute and set the following fields if they
      * are set to specific values at the time serialize is called:
      *      -checksum : 0
      *      -length : 0
      */
-    public byte[] serialize() {
-        byte[] payloadData = null;
-        if (payload != null) {
-            payload.setParent(this);
-            payloadData = payload.serialize();
-        }
-
-        this.length = (short) (8 + ((payloadData == null) ? 0
-                : payloadData.length));
-
-        byte[] data = new byte[this.length];
-        ByteBuffer bb = ByteBuffer.wrap(data);
+    @Override
+    public int serialize(byte[] data, int offset) {
+        this.length = (short) (8 + serializePayload(data, offset + 8));
 
+        ByteBuffer bb = ByteBuffer.wrap(data, offset, 8);
         bb.putShort((short)this.sourcePort.getPort()); // UDP packet port numbers are 16 bit
         bb.putShort((short)this.destinationPort.getPort());
         bb.putShort(this.length);
         bb.putShort(this.checksum);
-        if (payloadData != null)
-            bb.put(payloadData);
 
         if (this.parent != null && this.parent instanceof IPv4)
             ((IPv4)this.parent).setProtocol(IpProtocol.UDP);
 
         // compute checksum if needed
         if (this.checksum == 0) {
-            bb.rewind();
+            int length = this.length & 0xffff;
             int accumulation = 0;
 
             // compute pseudo header mac
-            if (this.parent != null && this.parent instanceof IPv4) {
-                IPv4 ipv4 = (IPv4) this.parent;
-                accumulation += ((ipv4.getSourceAddress().getInt() >> 16) & 0xffff)
-                        + (ipv4.getSourceAddress().getInt() & 0xffff);
-                accumulation += ((ipv4.getDestinationAddress().getInt() >> 16) & 0xffff)
-                        + (ipv4.getDestinationAddress().getInt() & 0xffff);
-                accumulation += ipv4.getProtocol().getIpProtocolNumber() & 0xff;
-                accumulation += this.length & 0xffff;
-            }
-
-            for (int i = 0; i < this.length / 2; ++i) {
-                accumulation += 0xffff & bb.getShort();
-            }
-            // pad to an even number of shorts
-            if (this.length % 2 > 0) {
-                accumulation += (bb.get() & 0xff) << 8;
-            }
+            if (this.parent != null && this.parent instanceof IPv4)
+                accumulation = ((IPv4) this.parent).getPseudoHeaderSum(length);
 
-            accumulation = ((accumulation >> 16) & 0xffff)
-                    + (accumulation & 0xffff);
-            this.checksum = (short) (~accumulation & 0xffff);
-            bb.putShort(6, this.checksum);
+            accumulation = InternetChecksum.add(data, offset, length, accumulation);
+            this.checksum = InternetChecksum.finish(accumulation);
+            bb.putShort(offset + 6, this.checksum);
         }
-        return data;
+        return this.length & 0xffff;
     }
 
     /* (non-Javadoc)
@@ -228,21 +214,11 @@ public class UDP extends BasePacket {
         this.length = bb.getShort();
         this.checksum = bb.getShort();
 
-        if (UDP.decodeMap.containsKey(this.destinationPort)) {
-            try {
-                this.payload = UDP.decodeMap.get(this.destinationPort).getConstructor().newInstance();
-            } catch (Exception e) {
-                throw new RuntimeException("Failure instantiating class", e);
-            }
-        } else if (UDP.decodeMap.containsKey(this.sourcePort)) {
-            try {
-                this.payload = UDP.decodeMap.get(this.sourcePort).getConstructor().newInstance();
-            } catch (Exception e) {
-                throw new RuntimeException("Failure instantiating class", e);
-            }
-        } else {
+        this.payload = portFactories.newPacket(this.destinationPort.getPort());
+        if (this.payload == null)
+            this.payload = portFactories.newPacket(this.sourcePort.getPort());
+        if (this.payload == null)
             this.payload = new Data();
-        }
         this.payload = payload.deserialize(data, bb.position(), bb.limit()-bb.position());
         this.payload.setParent(this);
         return this;
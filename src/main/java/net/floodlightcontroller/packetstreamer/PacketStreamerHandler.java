@@ -23,32 +23,127 @@ import net.floodlightcontroller.packetstreamer.thrift.*;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * The PacketStreamer handler class that implements the service APIs.
+ *
+ * Every session has a bounded queue so that a slow consumer cannot exhaust
+ * the heap. When the queue of a session is full, either the oldest queued
+ * packet or the new packet is dropped, depending on the configured
+ * {@link DropPolicy}. Each session can also have a {@link SessionFilter}
+ * that is evaluated before a packet is queued; it belongs to the session
+ * queue and goes away with it. Queued packets share the data buffer of the
+ * pushed message instead of copying it.
  */
 @LogMessageCategory("OpenFlow Message Tracing")
 public class PacketStreamerHandler implements PacketStreamer.Iface {
 
+    /**
+     * What to do with a packet pushed to a session whose queue is full.
+     */
+    public enum DropPolicy {
+        /** Drop the oldest queued packet to make room for the new one */
+        DROP_OLDEST,
+        /** Drop the new packet */
+        DROP_NEWEST
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    /** Wait for the first packet of a batch for as long as it takes */
+    public static final long DEFAULT_BATCH_TIMEOUT_MS = 0;
+    public static final long SESSION_START_TIMEOUT_MS = 10000;
+
+    /**
+     * A per-session filter. A packet is queued for the session only if its
+     * message type and DPID are accepted, and then only one in every
+     * samplingRate accepted packets is kept.
+     */
+    public static class SessionFilter {
+        protected Set<OFMessageType> messageTypes;
+        protected Set<Long> dpids;
+        protected int samplingRate;
+
+        /**
+         * @param messageTypes The message types to stream, or null for all
+         * @param dpids The DPIDs of the switches to stream, or null for all
+         * @param samplingRate Keep one in samplingRate matching packets
+         */
+        public SessionFilter(Set<OFMessageType> messageTypes, Set<Long> dpids,
+                             int samplingRate) {
+            this.messageTypes = (messageTypes == null || messageTypes.isEmpty()) ?
+                    null : EnumSet.copyOf(messageTypes);
+            this.dpids = dpids;
+            this.samplingRate = Math.max(1, samplingRate);
+        }
+
+        /**
+         * Checks the message type and DPID of a packet against the filter.
+         */
+        public boolean matches(Packet packet) {
+            if (messageTypes != null &&
+                    !messageTypes.contains(packet.getMessageType()))
+                return false;
+            if (dpids != null && (packet.getSwPortTuple() == null ||
+                    !dpids.contains(packet.getSwPortTuple().getDpid())))
+                return false;
+            return true;
+        }
+
+        public int getSamplingRate() {
+            return samplingRate;
+        }
+
+        /**
+         * Converts the filter sent by a remote client
+         * @param filter The filter, or null
+         * @return The session filter, or null if filter is null
+         */
+        public static SessionFilter of(PacketFilter filter) {
+            if (filter == null) return null;
+            Set<OFMessageType> messageTypes = null;
+            if (filter.isSetMessageTypes()) {
+                messageTypes = new HashSet<OFMessageType>(filter.getMessageTypes());
+                // Types this version does not know
+                messageTypes.remove(null);
+            }
+            Set<Long> dpids = null;
+            if (filter.isSetDpids() && !filter.getDpids().isEmpty())
+                dpids = new HashSet<Long>(filter.getDpids());
+            return new SessionFilter(messageTypes, dpids, filter.getSamplingRate());
+        }
+    }
+
 	/**
 	 * The queue wrapper class that contains the queue for the streamed packets.
 	 */
     protected class SessionQueue {
         protected BlockingQueue<ByteBuffer> pQueue;
+        protected volatile SessionFilter filter;
+        protected final AtomicLong matched = new AtomicLong();
+        protected final AtomicLong queued = new AtomicLong();
+        protected final AtomicLong filtered = new AtomicLong();
+        protected final AtomicLong dropped = new AtomicLong();
 
         /**
          * The queue wrapper constructor
          */
         public SessionQueue() {
-            this.pQueue = new LinkedBlockingQueue<ByteBuffer>();
+            this.pQueue = new ArrayBlockingQueue<ByteBuffer>(queueCapacity);
         }
 
         /**
@@ -57,6 +152,58 @@ public class PacketStreamerHandler implements PacketStreamer.Iface {
         public BlockingQueue<ByteBuffer> getQueue() {
             return this.pQueue;
         }
+
+        /**
+         * Applies the session filter to a packet.
+         * @return true if the packet should be queued for this session
+         */
+        protected boolean accept(Packet packet) {
+            SessionFilter f = filter;
+            if (f == null) return true;
+            if (!f.matches(packet)) {
+                filtered.incrementAndGet();
+                return false;
+            }
+            if (f.getSamplingRate() > 1 &&
+                    matched.getAndIncrement() % f.getSamplingRate() != 0) {
+                filtered.incrementAndGet();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Queues a packet, applying the drop policy if the queue is full.
+         * @return true if the packet was queued
+         */
+        protected boolean offer(ByteBuffer bb) {
+            while (!pQueue.offer(bb)) {
+                if (dropPolicy == DropPolicy.DROP_NEWEST) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                if (pQueue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+            queued.incrementAndGet();
+            return true;
+        }
+
+        /** @return The number of packets queued for this session */
+        public long getQueuedCount() {
+            return queued.get();
+        }
+
+        /** @return The number of packets rejected by the session filter */
+        public long getFilteredCount() {
+            return filtered.get();
+        }
+
+        /** @return The number of packets dropped because the queue was full */
+        public long getDroppedCount() {
+            return dropped.get();
+        }
     }
     
     /**
@@ -68,18 +215,85 @@ public class PacketStreamerHandler implements PacketStreamer.Iface {
     /**
      * A sessionId-to-queue mapping
      */
-    protected Map<String, SessionQueue> msgQueues;
+    protected ConcurrentMap<String, SessionQueue> msgQueues;
+
+    protected int queueCapacity;
+    protected DropPolicy dropPolicy;
+    protected int maxBatchSize;
+    protected long batchTimeoutMs;
 
     /**
      * The handler's constructor
      */
     public PacketStreamerHandler() {
+        this(DEFAULT_QUEUE_CAPACITY, DropPolicy.DROP_OLDEST,
+             DEFAULT_MAX_BATCH_SIZE, DEFAULT_BATCH_TIMEOUT_MS);
+    }
+
+    /**
+     * The handler's constructor
+     * @param queueCapacity The maximum number of packets queued per session
+     * @param dropPolicy What to drop when the queue of a session is full
+     * @param maxBatchSize The maximum number of packets returned by getPackets()
+     * @param batchTimeoutMs How long getPackets() waits for the first packet,
+     * or 0 to block until there is one
+     */
+    public PacketStreamerHandler(int queueCapacity, DropPolicy dropPolicy,
+                                 int maxBatchSize, long batchTimeoutMs) {
         this.msgQueues = new ConcurrentHashMap<String, SessionQueue>();
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.dropPolicy = dropPolicy;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.batchTimeoutMs = batchTimeoutMs;
+    }
+
+    /**
+     * Sets or clears the filter of a session, starting the session if
+     * needed. The filter applies to the packets pushed after this call,
+     * until the session is terminated.
+     * @param sessionid
+     * @param filter The filter, or null to stream all packets
+     */
+    public void setSessionFilter(String sessionid, SessionFilter filter) {
+        getOrCreateSession(sessionid).filter = filter;
+    }
+
+    /**
+     * The implementation for setSessionFilter() function.
+     * @param sessionid
+     * @param filter The filter, or null to stream all packets
+     * @throws TException
+     */
+    @Override
+    public void setSessionFilter(String sessionid, PacketFilter filter)
+            throws org.apache.thrift.TException {
+        setSessionFilter(sessionid, SessionFilter.of(filter));
+    }
+
+    /**
+     * Gets the queue of a session, creating it if needed.
+     */
+    protected SessionQueue getOrCreateSession(String sessionid) {
+        SessionQueue pQueue = msgQueues.get(sessionid);
+        if (pQueue == null) {
+            pQueue = new SessionQueue();
+            SessionQueue existing = msgQueues.putIfAbsent(sessionid, pQueue);
+            if (existing != null) {
+                pQueue = existing;
+            } else {
+                synchronized (msgQueues) {
+                    msgQueues.notifyAll();
+                }
+            }
+        }
+        return pQueue;
     }
 
     /**
      * The implementation for getPackets() function.
-     * This is a blocking API.
+     * This is a blocking API. It waits for the session to start and then
+     * for the first packet, for no longer than the batch timeout if one is
+     * set, and returns at most the maximum batch size of packets.
      * 
      * @param sessionid
      * @return A list of packets associated with the session
@@ -100,26 +314,39 @@ public class PacketStreamerHandler implements PacketStreamer.Iface {
     public List<ByteBuffer> getPackets(String sessionid)
             throws org.apache.thrift.TException {
         List<ByteBuffer> packets = new ArrayList<ByteBuffer>();
-        int count = 0;
-        
-        while (!msgQueues.containsKey(sessionid) && count++ < 100) {
+
+        SessionQueue pQueue = msgQueues.get(sessionid);
+        if (pQueue == null) {
             log.debug("Queue for session {} doesn't exist yet.", sessionid);
-            try {
-                Thread.sleep(100);    // Wait 100 ms to check again.
-            } catch (InterruptedException e) {
-                log.error("Interrupted while waiting for session start");
+            long deadline = System.currentTimeMillis() + SESSION_START_TIMEOUT_MS;
+            synchronized (msgQueues) {
+                try {
+                    while ((pQueue = msgQueues.get(sessionid)) == null) {
+                        long wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0) break;
+                        msgQueues.wait(wait);
+                    }
+                } catch (InterruptedException e) {
+                    log.error("Interrupted while waiting for session start");
+                    Thread.currentThread().interrupt();
+                }
             }
         }
 
-        if (count < 100) {
-	        SessionQueue pQueue = msgQueues.get(sessionid);
+        if (pQueue != null) {
 	        BlockingQueue<ByteBuffer> queue = pQueue.getQueue();
-	        // Block if queue is empty
+	        // Block until the first packet arrives or the batch times out
 	        try {
-	            packets.add(queue.take());
-	            queue.drainTo(packets);
+	            ByteBuffer first = (batchTimeoutMs > 0) ?
+	                    queue.poll(batchTimeoutMs, TimeUnit.MILLISECONDS) :
+	                    queue.take();
+	            if (first != null) {
+	                packets.add(first);
+	                queue.drainTo(packets, maxBatchSize - 1);
+	            }
 	        } catch (InterruptedException e) {
 	            log.error("Interrupted while waiting for packets");
+	            Thread.currentThread().interrupt();
 	        }
         }
 
@@ -138,46 +365,35 @@ public class PacketStreamerHandler implements PacketStreamer.Iface {
         @LogMessageDoc(level="ERROR",
                 message="Could not push empty message",
                 explanation="An empty message was sent to the packet streamer",
-                recommendation=LogMessageDoc.REPORT_CONTROLLER_BUG),
-        @LogMessageDoc(level="ERROR",
-                message="queue for session {sessionId} is null",
-                explanation="The queue for the packet streamer session " +
-                		"is missing",
                 recommendation=LogMessageDoc.REPORT_CONTROLLER_BUG)
     })
 
     public int pushMessageSync(Message msg)
             throws org.apache.thrift.TException {
 
-        if (msg == null) {
+        if (msg == null || msg.getPacket() == null) {
             log.error("Could not push empty message");
             return 0;
         }
 
+        Packet packet = msg.getPacket();
+        ByteBuffer data = packet.bufferForData();
         List<String> sessionids = msg.getSessionIDs();
         for (String sid : sessionids) {
-            SessionQueue pQueue = null;
-
-            if (!msgQueues.containsKey(sid)) {
-                pQueue = new SessionQueue();
-                msgQueues.put(sid, pQueue);
-            } else {
-                pQueue = msgQueues.get(sid);
+            SessionQueue pQueue = getOrCreateSession(sid);
+            if (!pQueue.accept(packet)) {
+                continue;
             }
 
-            log.debug("pushMessageSync: SessionId: " + sid + 
-                      " Receive a message, " + msg.toString() + "\n");
-            ByteBuffer bb = ByteBuffer.wrap(msg.getPacket().getData());
-            //ByteBuffer dst = ByteBuffer.wrap(msg.getPacket().toString().getBytes());
-            BlockingQueue<ByteBuffer> queue = pQueue.getQueue();
-            if (queue != null) {
-                if (!queue.offer(bb)) {
-                    log.error("Failed to queue message for session: " + sid);
-                } else {
-                    log.debug("insert a message to session: " + sid);
-                }
-            } else {
-                log.error("queue for session {} is null", sid);
+            if (log.isTraceEnabled()) {
+                log.trace("pushMessageSync: SessionId: {} Receive a message, {}",
+                          sid, msg);
+            }
+            // Share the message data; each session gets its own position
+            ByteBuffer bb = (data == null) ?
+                    ByteBuffer.allocate(0) : data.duplicate();
+            if (!pQueue.offer(bb)) {
+                log.debug("Dropped message for full session: {}", sid);
             }
         }
 
@@ -199,31 +415,38 @@ public class PacketStreamerHandler implements PacketStreamer.Iface {
 
     /**
      * The implementation for terminateSession() function.
-     * It removes the session to queue association.
+     * It removes the session to queue association, and with it the
+     * filter of the session.
      * @param sessionid
      * @throws TException
      */
     @Override
     public void terminateSession(String sessionid)
             throws org.apache.thrift.TException {
-        if (!msgQueues.containsKey(sessionid)) {
+        SessionQueue pQueue = msgQueues.remove(sessionid);
+        if (pQueue == null) {
             return;
         }
 
-        SessionQueue pQueue = msgQueues.get(sessionid);
-
-        log.debug("terminateSession: SessionId: " + sessionid + "\n");
+        log.debug("terminateSession: SessionId: {} queued {} filtered {} dropped {}",
+                  new Object[] { sessionid, pQueue.getQueuedCount(),
+                                 pQueue.getFilteredCount(),
+                                 pQueue.getDroppedCount() });
         String data = "FilterTimeout";
         ByteBuffer bb = ByteBuffer.wrap(data.getBytes());
+        // Always deliver the termination marker, even if the queue is full
         BlockingQueue<ByteBuffer> queue = pQueue.getQueue();
-        if (queue != null) {
-            if (!queue.offer(bb)) {
-                log.error("Failed to queue message for session: " + sessionid);
-            }
-            msgQueues.remove(sessionid);
-        } else {
-            log.error("queue for session {} is null", sessionid);
+        while (!queue.offer(bb)) {
+            queue.poll();
         }
     }
-}
 
+    /**
+     * Gets the counters of a session.
+     * @param sessionid
+     * @return The queue of the session, or null if the session does not exist
+     */
+    protected SessionQueue getSession(String sessionid) {
+        return msgQueues.get(sessionid);
+    }
+}
@@ -50,7 +50,22 @@ public class PacketStreamerServer {
         try {
             port = Integer.parseInt(System.getProperty("net.floodlightcontroller.packetstreamer.port", "9090"));
             
-            handler = new PacketStreamerHandler();
+            int queueSize = Integer.parseInt(System.getProperty(
+                    "net.floodlightcontroller.packetstreamer.queueSize",
+                    String.valueOf(PacketStreamerHandler.DEFAULT_QUEUE_CAPACITY)));
+            PacketStreamerHandler.DropPolicy dropPolicy =
+                    PacketStreamerHandler.DropPolicy.valueOf(System.getProperty(
+                    "net.floodlightcontroller.packetstreamer.dropPolicy",
+                    PacketStreamerHandler.DropPolicy.DROP_OLDEST.name()));
+            int batchSize = Integer.parseInt(System.getProperty(
+                    "net.floodlightcontroller.packetstreamer.batchSize",
+                    String.valueOf(PacketStreamerHandler.DEFAULT_MAX_BATCH_SIZE)));
+            long batchTimeout = Long.parseLong(System.getProperty(
+                    "net.floodlightcontroller.packetstreamer.batchTimeoutMs",
+                    String.valueOf(PacketStreamerHandler.DEFAULT_BATCH_TIMEOUT_MS)));
+            
+            handler = new PacketStreamerHandler(queueSize, dropPolicy,
+                                                batchSize, batchTimeout);
             processor = new PacketStreamer.Processor<PacketStreamerHandler>(handler);
 
             Runnable simple = new Runnable() {
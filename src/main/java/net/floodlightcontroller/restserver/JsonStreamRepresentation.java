@@ -0,0 +1,96 @@
+/**
+ *    Copyright 2013, Big Switch Networks, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License"); you may
+ *    not use this file except in compliance with the License. You may obtain
+ *    a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ **/
+
+package net.floodlightcontroller.restserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+import org.restlet.data.MediaType;
+import org.restlet.representation.OutputRepresentation;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * A JSON array written straight to the response from an iterator, one
+ * item at a time, so that the whole collection is never held in memory
+ * as objects or as text.  Only the page of items the client asked for
+ * is written, and when it asked for some fields only those fields of
+ * each item.
+ *
+ * The iterator is read when the response is written, after the resource
+ * method has returned, so it must remain valid until then; the weakly
+ * consistent iterators of the concurrent collections are.
+ */
+public class JsonStreamRepresentation extends OutputRepresentation {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    static {
+        // flush once at the end rather than after every item
+        mapper.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+    }
+
+    private final Iterator<?> items;
+    private final PageRequest page;
+
+    public JsonStreamRepresentation(Iterator<?> items, PageRequest page) {
+        super(MediaType.APPLICATION_JSON);
+        this.items = items;
+        this.page = page;
+    }
+
+    public JsonStreamRepresentation(Iterator<?> items) {
+        this(items, PageRequest.ALL);
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        JsonGenerator jGen = mapper.getFactory()
+                .createGenerator(outputStream, JsonEncoding.UTF8);
+        write(jGen);
+        jGen.flush();
+    }
+
+    /**
+     * Write the page of items as a JSON array
+     * @param jGen the generator to write to
+     * @throws IOException
+     */
+    public void write(JsonGenerator jGen) throws IOException {
+        jGen.writeStartArray();
+        for (long skip = page.getOffset(); skip > 0 && items.hasNext(); skip--) {
+            items.next();
+        }
+        long limit = page.getLimit();
+        for (long n = 0; (limit < 0 || n < limit) && items.hasNext(); n++) {
+            Object item = items.next();
+            if (page.getFields() == null || item == null) {
+                mapper.writeValue(jGen, item);
+            } else {
+                JsonNode node = mapper.valueToTree(item);
+                if (node.isObject())
+                    ((ObjectNode) node).retain(page.getFields());
+                mapper.writeTree(jGen, node);
+            }
+        }
+        jGen.writeEndArray();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2013, Big Switch Networks, Inc.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License"); you may
+ *    not use this file except in compliance with the License. You may obtain
+ *    a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ **/
+
+package net.floodlightcontroller.restserver;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.restlet.data.Form;
+
+/**
+ * The part of a collection a REST client asked for: the items from
+ * an offset, at most a limit of them, and only some fields of each.  It
+ * is read from the query parameters
+ * <code>?offset=200&amp;limit=100&amp;fields=mac,ipv4</code>.
+ */
+public class PageRequest {
+    public static final String OFFSET = "offset";
+    public static final String LIMIT = "limit";
+    public static final String FIELDS = "fields";
+
+    /** Every item, with every field */
+    public static final PageRequest ALL = new PageRequest(0, -1, null);
+
+    private final long offset;
+    private final long limit;
+    private final Set<String> fields;
+
+    /**
+     * @param offset the number of items to skip
+     * @param limit the most items to return, or -1 for all of them
+     * @param fields the fields of each item to return, or null for all of
+     * them
+     */
+    public PageRequest(long offset, long limit, Set<String> fields) {
+        this.offset = offset;
+        this.limit = limit;
+        this.fields = fields == null ? null :
+            Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * Read a page request from query parameters.  Missing parameters
+     * select everything.
+     * @param form the query
+     * @return the page request
+     * @throws IllegalArgumentException if a parameter is not valid
+     */
+    public static PageRequest fromQuery(Form form) {
+        long offset = parseCount(form.getFirstValue(OFFSET, true), OFFSET, 0);
+        long limit = parseCount(form.getFirstValue(LIMIT, true), LIMIT, -1);
+        Set<String> fields = null;
+        String fieldsStr = form.getFirstValue(FIELDS, true);
+        if (fieldsStr != null) {
+            fields = new HashSet<String>();
+            for (String field : fieldsStr.split(",")) {
+                field = field.trim();
+                if (!field.isEmpty()) fields.add(field);
+            }
+            if (fields.isEmpty()) fields = null;
+        }
+        return new PageRequest(offset, limit, fields);
+    }
+
+    private static long parseCount(String value, String name, long dflt) {
+        if (value == null) return dflt;
+        long count;
+        try {
+            count = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name +
+                                               ": must be an integer");
+        }
+        if (count < 0)
+            throw new IllegalArgumentException("Invalid " + name +
+                                               ": must not be negative");
+        return count;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the most items to return, or -1 for all of them
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the fields of each item to return, or null for all of them
+     */
+    public Set<String> getFields() {
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return "PageRequest [offset=" + offset + ", limit=" + limit +
+               ", fields=" + fields + "]";
+    }
+}
@@ -43,6 +43,7 @@ import net.floodlightcontroller.routing.IRoutingDecision;
 import net.floodlightcontroller.routing.Route;
 import net.floodlightcontroller.topology.ITopologyService;
 import net.floodlightcontroller.topology.NodePortTuple;
+import net.floodlightcontroller.topology.TopologySnapshot;
 import net.floodlightcontroller.util.MatchUtils;
 import net.floodlightcontroller.util.OFMessageDamper;
 import net.floodlightcontroller.util.TimedCache;
@@ -121,6 +122,20 @@ public abstract class ForwardingBase implements IOFMessageListener {
 		}
 	};
 
+	/**
+	 * @return a comparator for sorting by SwitchCluster in the given snapshot
+	 */
+	protected static Comparator<SwitchPort> getClusterIdComparator(final TopologySnapshot topology) {
+		return new Comparator<SwitchPort>() {
+			@Override
+			public int compare(SwitchPort d1, SwitchPort d2) {
+				DatapathId d1ClusterId = topology.getL2DomainId(d1.getSwitchDPID());
+				DatapathId d2ClusterId = topology.getL2DomainId(d2.getSwitchDPID());
+				return d1ClusterId.compareTo(d2ClusterId);
+			}
+		};
+	}
+
 	/**
 	 * init data structures
 	 *
@@ -180,7 +195,8 @@ public abstract class ForwardingBase implements IOFMessageListener {
 	/**
 	 * Push routes from back to front
 	 * @param route Route to push
-	 * @param match OpenFlow fields to match on
+	 * @param match OpenFlow fields to match on. IN_PORT is set to the
+	 *        ingress port of each hop, unless the match leaves it out
 	 * @param srcSwPort Source switch port for the first hop
 	 * @param dstSwPort Destination switch port for final hop
 	 * @param cookie The cookie to set in each flow_mod
@@ -255,7 +271,11 @@ public abstract class ForwardingBase implements IOFMessageListener {
 			// set input and output ports on the switch
 			OFPort outPort = switchPortList.get(indx).getPortId();
 			OFPort inPort = switchPortList.get(indx - 1).getPortId();
-			mb.setExact(MatchField.IN_PORT, inPort);
+			// A match without IN_PORT is shared by the flows of every
+			// ingress port, so it is left out on every hop
+			if (match.isExact(MatchField.IN_PORT)) {
+				mb.setExact(MatchField.IN_PORT, inPort);
+			}
 			aob.setPort(outPort);
 			aob.setMaxLen(Integer.MAX_VALUE);
 			actions.add(aob.build());
@@ -35,7 +35,9 @@ public interface IRoutingService extends IFloodlightService {
      * multiple routes.
      * @param src Source switch DPID.
      * @param dst Destination switch DPID.
-     * @param cookie cookie (usage determined by implementation; ignored by topology instance now).
+     * @param cookie cookie (usage determined by implementation; the topology instance
+     * uses a non-zero cookie as a flow hash to pick one of the equal-cost routes, and
+     * returns the default route for a zero cookie).
      */
     public Route getRoute(DatapathId src, DatapathId dst, U64 cookie);
 
@@ -44,7 +46,7 @@ public interface IRoutingService extends IFloodlightService {
      *  not allow tunnels in the path.
      * @param src Source switch DPID.
      * @param dst Destination switch DPID.
-     * @param cookie cookie (usage determined by implementation; ignored by topology instance now).
+     * @param cookie cookie (usage determined by implementation; a flow hash for equal-cost multipath).
      * @param tunnelEnabled boolean option.
      */
     public Route getRoute(DatapathId src, DatapathId dst, U64 cookie, boolean tunnelEnabled);
@@ -55,7 +57,7 @@ public interface IRoutingService extends IFloodlightService {
      * @param srcPort Source port on source switch.
      * @param dst Destination switch DPID.
      * @param dstPort dstPort on Destination switch.
-     * @param cookie cookie (usage determined by implementation; ignored by topology instance now).
+     * @param cookie cookie (usage determined by implementation; a flow hash for equal-cost multipath).
      */
     public Route getRoute(DatapathId srcId, OFPort srcPort, DatapathId dstId, OFPort dstPort, U64 cookie);
 
@@ -65,12 +67,16 @@ public interface IRoutingService extends IFloodlightService {
      * @param srcPort Source port on source switch.
      * @param dst Destination switch DPID.
      * @param dstPort dstPort on Destination switch.
-     * @param cookie cookie (usage determined by implementation; ignored by topology instance now).
+     * @param cookie cookie (usage determined by implementation; a flow hash for equal-cost multipath).
      * @param tunnelEnabled boolean option.
      */
     public Route getRoute(DatapathId srcId, OFPort srcPort, DatapathId dstId, OFPort dstPort, U64 cookie, boolean tunnelEnabled);
 
-    /** return all routes, if available */
+    /**
+     * Provides the shortest routes between src and dst, cheapest first,
+     * up to the number of paths the implementation computes per switch
+     * pair. The first route is the default route.
+     */
     public ArrayList<Route> getRoutes(DatapathId longSrcDpid, DatapathId longDstDpid, boolean tunnelEnabled);
 
     /** Check if a route exists between src and dst, including tunnel links
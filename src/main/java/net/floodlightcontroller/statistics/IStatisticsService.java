@@ -0,0 +1,27 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.Map;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.topology.NodePortTuple;
+
+/**
+ * Port load measured from periodic port statistics
+ */
+public interface IStatisticsService extends IFloodlightService {
+
+    /**
+     * @param dpid the switch
+     * @param port the port
+     * @return the load of the port, or null if it has not been measured
+     */
+    public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort port);
+
+    /**
+     * @return the load of every measured port
+     */
+    public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption();
+}
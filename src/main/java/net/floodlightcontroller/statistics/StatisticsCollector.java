@@ -0,0 +1,255 @@
+package net.floodlightcontroller.statistics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.module.FloodlightModuleException;
+import net.floodlightcontroller.core.module.IFloodlightModule;
+import net.floodlightcontroller.core.module.IFloodlightService;
+import net.floodlightcontroller.core.util.SingletonTask;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.topology.NodePortTuple;
+import net.floodlightcontroller.util.OFPortUtils;
+
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPortStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFPortStatsReply;
+import org.projectfloodlight.openflow.protocol.OFPortStatsRequest;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Polls the port statistics of every switch and keeps smoothed rates of
+ * the traffic and drops of each port. Requests are sent without waiting
+ * for the replies, which are processed as they arrive, so a slow switch
+ * does not delay the others.
+ */
+public class StatisticsCollector implements IFloodlightModule, IStatisticsService {
+	private static final Logger log = LoggerFactory.getLogger(StatisticsCollector.class);
+
+	/** Weight of a new sample in the rate averages, as a shift (1/4) */
+	private static final int RATE_EWMA_SHIFT = 2;
+
+	protected IOFSwitchService switchService;
+	protected IThreadPoolService threadPoolService;
+
+	protected int portStatsInterval = 10; // seconds
+	protected SingletonTask portStatsTask;
+
+	/** The counters of the last reply per port */
+	protected final ConcurrentHashMap<NodePortTuple, PortCounters> portCounters =
+			new ConcurrentHashMap<NodePortTuple, PortCounters>();
+	protected final ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth> portBandwidth =
+			new ConcurrentHashMap<NodePortTuple, SwitchPortBandwidth>();
+
+	protected static class PortCounters {
+		protected final long timeNs;
+		protected final long rxBytes;
+		protected final long txBytes;
+		protected final long drops;
+
+		protected PortCounters(long timeNs, long rxBytes, long txBytes, long drops) {
+			this.timeNs = timeNs;
+			this.rxBytes = rxBytes;
+			this.txBytes = txBytes;
+			this.drops = drops;
+		}
+	}
+
+	// ******************
+	// IStatisticsService
+	// ******************
+
+	@Override
+	public SwitchPortBandwidth getBandwidthConsumption(DatapathId dpid, OFPort port) {
+		return portBandwidth.get(new NodePortTuple(dpid, port));
+	}
+
+	@Override
+	public Map<NodePortTuple, SwitchPortBandwidth> getBandwidthConsumption() {
+		return Collections.unmodifiableMap(portBandwidth);
+	}
+
+	// *****************
+	// Port statistics
+	// *****************
+
+	/**
+	 * Send a port statistics request to every active switch, and forget
+	 * the ports of switches that are gone.
+	 */
+	protected void collectPortStats() {
+		for (NodePortTuple npt : portCounters.keySet()) {
+			if (switchService.getSwitch(npt.getNodeId()) == null) {
+				portCounters.remove(npt);
+				portBandwidth.remove(npt);
+			}
+		}
+
+		for (DatapathId dpid : switchService.getAllSwitchDpids()) {
+			final IOFSwitch sw = switchService.getSwitch(dpid);
+			if (sw == null || !sw.isActive())
+				continue;
+
+			OFPortStatsRequest req = sw.getOFFactory().buildPortStatsRequest()
+					.setPortNo(OFPort.ANY)
+					.build();
+			ListenableFuture<List<OFPortStatsReply>> future = sw.writeStatsRequest(req);
+			Futures.addCallback(future, new FutureCallback<List<OFPortStatsReply>>() {
+				@Override
+				public void onSuccess(List<OFPortStatsReply> replies) {
+					long now = System.nanoTime();
+					for (OFPortStatsReply reply : replies) {
+						for (OFPortStatsEntry entry : reply.getEntries()) {
+							updatePort(sw, entry, now);
+						}
+					}
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					log.debug("Port statistics request to {} failed: {}",
+							sw.getId(), t.getMessage());
+				}
+			});
+		}
+	}
+
+	/**
+	 * Fold the counters of a port statistics reply into the port's rates.
+	 * Replies of a switch arrive on its connection's IO thread, one at a
+	 * time.
+	 * @param sw the switch
+	 * @param entry the port counters
+	 * @param nowNs the time the reply was received at
+	 */
+	protected void updatePort(IOFSwitch sw, OFPortStatsEntry entry, long nowNs) {
+		NodePortTuple npt = new NodePortTuple(sw.getId(), entry.getPortNo());
+		PortCounters cur = new PortCounters(nowNs,
+				entry.getRxBytes().getValue(),
+				entry.getTxBytes().getValue(),
+				entry.getRxDropped().getValue() + entry.getTxDropped().getValue());
+		PortCounters prev = portCounters.put(npt, cur);
+		if (prev == null)
+			return;
+
+		long elapsedNs = nowNs - prev.timeNs;
+		long rxBytes = cur.rxBytes - prev.rxBytes;
+		long txBytes = cur.txBytes - prev.txBytes;
+		long drops = cur.drops - prev.drops;
+		if (elapsedNs <= 0 || rxBytes < 0 || txBytes < 0 || drops < 0) {
+			// The counters were reset, start over from this sample
+			return;
+		}
+
+		double seconds = elapsedNs / 1e9;
+		long rxBps = (long) (rxBytes * 8 / seconds);
+		long txBps = (long) (txBytes * 8 / seconds);
+		long dps = (long) (drops / seconds);
+		SwitchPortBandwidth old = portBandwidth.get(npt);
+		if (old != null) {
+			rxBps = smooth(old.getRxBitsPerSecond(), rxBps);
+			txBps = smooth(old.getTxBitsPerSecond(), txBps);
+			dps = smooth(old.getDropsPerSecond(), dps);
+		}
+
+		OFPortDesc desc = sw.getPort(entry.getPortNo());
+		long speed = (desc == null) ? 0 : OFPortUtils.getSpeed(desc);
+		portBandwidth.put(npt, new SwitchPortBandwidth(sw.getId(),
+				entry.getPortNo(), speed, rxBps, txBps, dps));
+	}
+
+	/**
+	 * Move the average a quarter of the way to the sample, by at least one,
+	 * so that rates below four per second still reach the average.
+	 */
+	protected static long smooth(long average, long sample) {
+		long diff = sample - average;
+		if (diff > 0)
+			return average + ((diff + (1 << RATE_EWMA_SHIFT) - 1) >> RATE_EWMA_SHIFT);
+		return average + (diff >> RATE_EWMA_SHIFT);
+	}
+
+	// *****************
+	// IFloodlightModule
+	// *****************
+
+	@Override
+	public Collection<Class<? extends IFloodlightService>> getModuleServices() {
+		Collection<Class<? extends IFloodlightService>> l =
+				new ArrayList<Class<? extends IFloodlightService>>();
+		l.add(IStatisticsService.class);
+		return l;
+	}
+
+	@Override
+	public Map<Class<? extends IFloodlightService>, IFloodlightService> getServiceImpls() {
+		Map<Class<? extends IFloodlightService>, IFloodlightService> m =
+				new HashMap<Class<? extends IFloodlightService>, IFloodlightService>();
+		m.put(IStatisticsService.class, this);
+		return m;
+	}
+
+	@Override
+	public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
+		Collection<Class<? extends IFloodlightService>> l =
+				new ArrayList<Class<? extends IFloodlightService>>();
+		l.add(IOFSwitchService.class);
+		l.add(IThreadPoolService.class);
+		return l;
+	}
+
+	@Override
+	public void init(FloodlightModuleContext context)
+			throws FloodlightModuleException {
+		switchService = context.getServiceImpl(IOFSwitchService.class);
+		threadPoolService = context.getServiceImpl(IThreadPoolService.class);
+
+		Map<String, String> configOptions = context.getConfigParams(this);
+		String interval = configOptions.get("collectionIntervalPortStatsSeconds");
+		if (interval != null) {
+			try {
+				portStatsInterval = Math.max(1, Integer.parseInt(interval.trim()));
+			} catch (NumberFormatException e) {
+				log.warn("Invalid port statistics interval {}, using {} seconds",
+						interval, portStatsInterval);
+			}
+		}
+		log.debug("Port statistics collected every {} seconds", portStatsInterval);
+	}
+
+	@Override
+	public void startUp(FloodlightModuleContext context)
+			throws FloodlightModuleException {
+		ScheduledExecutorService ses = threadPoolService.getScheduledExecutor();
+		portStatsTask = new SingletonTask(ses, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					collectPortStats();
+				} catch (Exception e) {
+					log.error("Exception in port statistics collector", e);
+				} finally {
+					portStatsTask.reschedule(portStatsInterval, TimeUnit.SECONDS);
+				}
+			}
+		});
+		portStatsTask.reschedule(portStatsInterval, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,84 @@
+package net.floodlightcontroller.statistics;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * The smoothed load of a switch port. Instances are immutable; a new one
+ * is published with every port statistics reply.
+ */
+public class SwitchPortBandwidth {
+    private final DatapathId dpid;
+    private final OFPort port;
+    private final long speed;
+    private final long rxBitsPerSecond;
+    private final long txBitsPerSecond;
+    private final long dropsPerSecond;
+
+    /**
+     * @param speed the current port speed in bits/s, or 0 if unknown
+     */
+    public SwitchPortBandwidth(DatapathId dpid, OFPort port, long speed,
+                               long rxBitsPerSecond, long txBitsPerSecond,
+                               long dropsPerSecond) {
+        this.dpid = dpid;
+        this.port = port;
+        this.speed = speed;
+        this.rxBitsPerSecond = rxBitsPerSecond;
+        this.txBitsPerSecond = txBitsPerSecond;
+        this.dropsPerSecond = dropsPerSecond;
+    }
+
+    public DatapathId getSwitchId() {
+        return dpid;
+    }
+
+    public OFPort getSwitchPort() {
+        return port;
+    }
+
+    /** @return the current port speed in bits/s, or 0 if unknown */
+    public long getSpeed() {
+        return speed;
+    }
+
+    public long getRxBitsPerSecond() {
+        return rxBitsPerSecond;
+    }
+
+    public long getTxBitsPerSecond() {
+        return txBitsPerSecond;
+    }
+
+    /** @return the packets dropped per second, received and transmitted */
+    public long getDropsPerSecond() {
+        return dropsPerSecond;
+    }
+
+    /**
+     * @return the utilization of the busier direction of the port, in
+     * [0, 1], or 0 if the port speed is unknown
+     */
+    public double getUtilization() {
+        return Math.max(getRxUtilization(), getTxUtilization());
+    }
+
+    /** @return the receive utilization in [0, 1], or 0 if the speed is unknown */
+    public double getRxUtilization() {
+        if (speed <= 0) return 0;
+        return Math.min(1.0, (double) rxBitsPerSecond / speed);
+    }
+
+    /** @return the transmit utilization in [0, 1], or 0 if the speed is unknown */
+    public double getTxUtilization() {
+        if (speed <= 0) return 0;
+        return Math.min(1.0, (double) txBitsPerSecond / speed);
+    }
+
+    @Override
+    public String toString() {
+        return "SwitchPortBandwidth [dpid=" + dpid + ", port=" + port
+                + ", speed=" + speed + ", rx=" + rxBitsPerSecond
+                + ", tx=" + txBitsPerSecond + ", drops=" + dropsPerSecond + "]";
+    }
+}
@@ -30,6 +30,14 @@ public interface ITopologyService extends IFloodlightService  {
 
 	public Date getLastUpdateTime();
 
+	/**
+	 * Returns an immutable view of the current topology, for callers that
+	 * query it several times per packet. The view may lag the topology by
+	 * one computation.
+	 */
+	public TopologySnapshot getSnapshot();
+	public TopologySnapshot getSnapshot(boolean tunnelEnabled);
+
 	/**
 	 * Query to determine if devices must be learned on a given switch port.
 	 */
@@ -0,0 +1,27 @@
+package net.floodlightcontroller.topology;
+
+/**
+ * The metric unicast paths are computed with. Set with the "pathMetric"
+ * option of the TopologyManager.
+ */
+public enum PathMetric {
+    /** Every link costs 1 */
+    HOPCOUNT,
+    /**
+     * Links cost their measured latency, see the "measureLinkLatency"
+     * option of the LinkDiscoveryManager. Links without a measurement
+     * cost 1.
+     */
+    LATENCY,
+    /**
+     * Links cost a reference bandwidth divided by their speed, taken from
+     * the current speed of their ports
+     */
+    INVERSE_CAPACITY,
+    /**
+     * Links cost their inverse capacity, scaled up as they get busy, so
+     * that new flows avoid saturated links. Needs the statistics module
+     * (IStatisticsService); without it, the same as INVERSE_CAPACITY.
+     */
+    UTILIZATION;
+}
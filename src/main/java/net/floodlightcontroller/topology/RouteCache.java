@@ -0,0 +1,274 @@
+package net.floodlightcontroller.topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+
+import net.floodlightcontroller.debugcounter.IDebugCounter;
+import net.floodlightcontroller.routing.Route;
+import net.floodlightcontroller.routing.RouteId;
+
+/**
+ * The unicast route cache of a {@link TopologyInstance}. For every switch
+ * pair it keeps the shortest routes between them, cheapest first, so that
+ * both the default route and the equal-cost routes chosen by a flow hash
+ * come from the same cache. Routes are kept as int arrays of (switch
+ * index, port number) pairs instead of lists of {@link NodePortTuple}s,
+ * and the cache is bounded by an estimate of the memory it uses rather
+ * than by a number of routes. Switch pairs without a route are cached too.
+ *
+ * Every lookup returns new {@link Route}s, so callers may modify them.
+ */
+public class RouteCache {
+    protected static final Logger log = LoggerFactory.getLogger(RouteCache.class);
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    /** The estimated size of a cache entry besides its routes, in bytes */
+    protected static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    /** The estimated size of a route besides its switch ports, in bytes */
+    protected static final int ROUTE_OVERHEAD_BYTES = 16;
+
+    private static final int[][] NO_ROUTES = new int[0][];
+
+    /**
+     * The shortest routes between two switches, cheapest first
+     */
+    public static class Multipath {
+        protected final List<Route> routes;
+        /** The number of leading routes that share the lowest cost */
+        protected final int equalCostRoutes;
+
+        public Multipath(List<Route> routes, int equalCostRoutes) {
+            this.routes = routes;
+            this.equalCostRoutes = equalCostRoutes;
+        }
+    }
+
+    /**
+     * The encoded routes of a switch pair
+     */
+    private static class Entry {
+        private final int[][] routes;
+        private final int equalCostRoutes;
+
+        private Entry(int[][] routes, int equalCostRoutes) {
+            this.routes = routes;
+            this.equalCostRoutes = equalCostRoutes;
+        }
+    }
+
+    /**
+     * The counters a route cache updates, any of which may be null
+     */
+    public static class Counters {
+        protected final IDebugCounter hits;
+        protected final IDebugCounter misses;
+        protected final IDebugCounter loadTimeUs;
+
+        public Counters(IDebugCounter hits, IDebugCounter misses,
+                        IDebugCounter loadTimeUs) {
+            this.hits = hits;
+            this.misses = misses;
+            this.loadTimeUs = loadTimeUs;
+        }
+    }
+
+    /**
+     * Computes the routes between two switches on a cache miss
+     */
+    public interface RouteLoader {
+        /**
+         * @return the shortest routes, cheapest first, with no routes if
+         * there is none
+         */
+        public Multipath load(RouteId id);
+    }
+
+    private final DatapathId[] switchIds;
+    private final Map<DatapathId, Integer> switchIndex;
+    private final Counters counters;
+    private final LoadingCache<RouteId, Entry> cache;
+
+    /**
+     * @param switches the switches routes may go through
+     * @param maxBytes the memory the cached routes may use
+     * @param loader computes missing routes
+     * @param counters the counters to update, or null
+     */
+    public RouteCache(Set<DatapathId> switches, long maxBytes,
+                      final RouteLoader loader, Counters counters) {
+        this.switchIds = switches.toArray(new DatapathId[switches.size()]);
+        this.switchIndex = new HashMap<DatapathId, Integer>();
+        for (int i = 0; i < switchIds.length; i++) {
+            switchIndex.put(switchIds[i], i);
+        }
+        this.counters = counters;
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(4)
+                .maximumWeight(Math.max(maxBytes, ENTRY_OVERHEAD_BYTES))
+                .weigher(new Weigher<RouteId, Entry>() {
+                    @Override
+                    public int weigh(RouteId id, Entry entry) {
+                        int weight = ENTRY_OVERHEAD_BYTES;
+                        for (int[] route : entry.routes) {
+                            weight += ROUTE_OVERHEAD_BYTES + 4 * route.length;
+                        }
+                        return weight;
+                    }
+                })
+                .build(new CacheLoader<RouteId, Entry>() {
+                    @Override
+                    public Entry load(RouteId id) {
+                        return encode(id, loader.load(id));
+                    }
+                });
+    }
+
+    /**
+     * @param id the switch pair
+     * @return a copy of the cheapest route, or null if there is none
+     */
+    public Route get(RouteId id) {
+        Entry entry = lookup(id);
+        if (entry == null || entry.routes.length == 0) return null;
+        return decode(id, entry.routes, 0);
+    }
+
+    /**
+     * @param id the switch pair
+     * @param hash a flow hash
+     * @return a copy of the equal-cost route the hash picks, or null if
+     * there is none
+     */
+    public Route get(RouteId id, long hash) {
+        Entry entry = lookup(id);
+        if (entry == null || entry.equalCostRoutes == 0) return null;
+        int index = (int) ((hash & Long.MAX_VALUE) % entry.equalCostRoutes);
+        return decode(id, entry.routes, index);
+    }
+
+    /**
+     * @param id the switch pair
+     * @return copies of all the cached routes, cheapest first
+     */
+    public List<Route> getAll(RouteId id) {
+        Entry entry = lookup(id);
+        if (entry == null) return Collections.emptyList();
+        List<Route> routes = new ArrayList<Route>(entry.routes.length);
+        for (int i = 0; i < entry.routes.length; i++) {
+            routes.add(decode(id, entry.routes, i));
+        }
+        return routes;
+    }
+
+    private Entry lookup(RouteId id) {
+        Entry route = cache.getIfPresent(id);
+        if (route != null) {
+            if (counters != null && counters.hits != null)
+                counters.hits.increment();
+        } else {
+            long start = System.nanoTime();
+            try {
+                route = cache.get(id);
+            } catch (ExecutionException e) {
+                log.error("Failed to compute route {}", id, e);
+                return null;
+            }
+            if (counters != null) {
+                if (counters.misses != null)
+                    counters.misses.increment();
+                if (counters.loadTimeUs != null)
+                    counters.loadTimeUs.add((System.nanoTime() - start) / 1000);
+            }
+        }
+        return route;
+    }
+
+    /**
+     * Computes and caches the routes of the given switch pairs, without
+     * counting them as hits or misses.
+     * @param ids the switch pairs
+     * @param max the maximum number of routes to compute
+     * @return the number of routes computed
+     */
+    public int warmUp(Collection<RouteId> ids, int max) {
+        int loaded = 0;
+        for (RouteId id : ids) {
+            if (loaded >= max) break;
+            if (cache.getIfPresent(id) != null) continue;
+            try {
+                cache.get(id);
+                loaded++;
+            } catch (ExecutionException e) {
+                log.debug("Failed to compute route {}", id, e);
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return the switch pairs that are currently cached
+     */
+    public Set<RouteId> getCachedRouteIds() {
+        return cache.asMap().keySet();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private Entry encode(RouteId id, Multipath mp) {
+        if (mp == null || mp.routes.isEmpty())
+            return new Entry(NO_ROUTES, 0);
+        int[][] routes = new int[mp.routes.size()][];
+        for (int r = 0; r < routes.length; r++) {
+            List<NodePortTuple> path = mp.routes.get(r).getPath();
+            int[] encoded = new int[path.size() * 2];
+            int i = 0;
+            for (NodePortTuple npt : path) {
+                Integer index = switchIndex.get(npt.getNodeId());
+                if (index == null) {
+                    log.warn("Route {} goes through unknown switch {}",
+                             id, npt.getNodeId());
+                    return new Entry(NO_ROUTES, 0);
+                }
+                encoded[i++] = index;
+                encoded[i++] = npt.getPortId().getPortNumber();
+            }
+            routes[r] = encoded;
+        }
+        return new Entry(routes, Math.min(mp.equalCostRoutes, routes.length));
+    }
+
+    private Route decode(RouteId id, int[][] routes, int index) {
+        int[] route = routes[index];
+        List<NodePortTuple> path = new ArrayList<NodePortTuple>(route.length / 2);
+        for (int i = 0; i < route.length; i += 2) {
+            path.add(new NodePortTuple(switchIds[route[i]], OFPort.of(route[i + 1])));
+        }
+        Route r = new Route(id, path);
+        r.setRouteCount(index);
+        return r;
+    }
+}
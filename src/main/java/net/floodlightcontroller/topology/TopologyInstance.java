@@ -17,6 +17,8 @@
 package net.floodlightcontroller.topology;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -31,9 +33,6 @@ import org.projectfloodlight.openflow.types.U64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 
 import net.floodlightcontroller.util.ClusterDFS;
 import net.floodlightcontroller.core.annotations.LogMessageCategory;
@@ -58,6 +57,7 @@ public class TopologyInstance {
     public static final int MAX_LINK_WEIGHT = 10000;
     public static final int MAX_PATH_WEIGHT = Integer.MAX_VALUE - MAX_LINK_WEIGHT - 1;
     public static final int PATH_CACHE_SIZE = 1000;
+    public static final int DEFAULT_MAX_PATHS = 4;
 
     protected static Logger log = LoggerFactory.getLogger(TopologyInstance.class);
 
@@ -74,6 +74,12 @@ public class TopologyInstance {
     protected Set<DatapathId> switches;
     protected Set<NodePortTuple> broadcastDomainPorts;
     protected Set<NodePortTuple> tunnelPorts;
+    /** Weights of the links used for unicast paths; links without a weight count 1 */
+    protected Map<Link, Integer> linkWeights;
+    /** Link costs of the unicast paths, the link weights plus tunnel costs */
+    protected Map<Link, Integer> unicastLinkCost;
+    /** The number of shortest paths computed per switch pair */
+    protected int maxPaths = DEFAULT_MAX_PATHS;
 
     protected Set<Cluster> clusters;  // set of openflow domains
     protected Map<DatapathId, Cluster> switchClusterMap; // switch to OF domain map
@@ -83,22 +89,11 @@ public class TopologyInstance {
     protected Map<DatapathId, Set<NodePortTuple>> clusterBroadcastNodePorts;
     protected Map<DatapathId, BroadcastTree> clusterBroadcastTrees;
 
-    protected class PathCacheLoader extends CacheLoader<RouteId, Route> {
-        TopologyInstance ti;
-        PathCacheLoader(TopologyInstance ti) {
-            this.ti = ti;
-        }
-
-        @Override
-        public Route load(RouteId rid) {
-            return ti.buildroute(rid);
-        }
-    }
+    // Shortest routes between switch pairs, the first one along the
+    // destination rooted trees
+    protected RouteCache pathcache;
 
-    // Path cache loader is defined for loading a path when it not present
-    // in the cache.
-    private final PathCacheLoader pathCacheLoader = new PathCacheLoader(this);
-    protected LoadingCache<RouteId, Route> pathcache;
+    protected TopologySnapshot snapshot;
 
     public TopologyInstance() {
         this.switches = new HashSet<DatapathId>();
@@ -108,6 +103,7 @@ public class TopologyInstance {
         this.tunnelPorts = new HashSet<NodePortTuple>();
         this.blockedPorts = new HashSet<NodePortTuple>();
         this.blockedLinks = new HashSet<Link>();
+        this.linkWeights = new HashMap<Link, Integer>();
     }
 
     public TopologyInstance(Map<DatapathId, Set<OFPort>> switchPorts,
@@ -122,6 +118,7 @@ public class TopologyInstance {
         this.tunnelPorts = new HashSet<NodePortTuple>();
         this.blockedPorts = new HashSet<NodePortTuple>();
         this.blockedLinks = new HashSet<Link>();
+        this.linkWeights = new HashMap<Link, Integer>();
 
         clusters = new HashSet<Cluster>();
         switchClusterMap = new HashMap<DatapathId, Cluster>();
@@ -131,6 +128,53 @@ public class TopologyInstance {
                             Map<NodePortTuple, Set<Link>> switchPortLinks,
                             Set<NodePortTuple> broadcastDomainPorts,
                             Set<NodePortTuple> tunnelPorts){
+        this(switchPorts, blockedPorts, switchPortLinks, broadcastDomainPorts,
+             tunnelPorts, Collections.<Link, Integer>emptyMap());
+    }
+
+    /**
+     * @param linkWeights the weights of the links for unicast path
+     * computation, in [1, MAX_LINK_WEIGHT]. Links without a weight count 1,
+     * so an empty map gives hop count paths.
+     */
+    public TopologyInstance(Map<DatapathId, Set<OFPort>> switchPorts,
+                            Set<NodePortTuple> blockedPorts,
+                            Map<NodePortTuple, Set<Link>> switchPortLinks,
+                            Set<NodePortTuple> broadcastDomainPorts,
+                            Set<NodePortTuple> tunnelPorts,
+                            Map<Link, Integer> linkWeights){
+        this(switchPorts, blockedPorts, switchPortLinks, broadcastDomainPorts,
+             tunnelPorts, linkWeights, DEFAULT_MAX_PATHS);
+    }
+
+    /**
+     * @param maxPaths the number of shortest paths to compute per switch
+     * pair, among which equal-cost multipath routes are chosen
+     */
+    public TopologyInstance(Map<DatapathId, Set<OFPort>> switchPorts,
+                            Set<NodePortTuple> blockedPorts,
+                            Map<NodePortTuple, Set<Link>> switchPortLinks,
+                            Set<NodePortTuple> broadcastDomainPorts,
+                            Set<NodePortTuple> tunnelPorts,
+                            Map<Link, Integer> linkWeights,
+                            int maxPaths){
+        this(switchPorts, blockedPorts, switchPortLinks, broadcastDomainPorts,
+             tunnelPorts, linkWeights, maxPaths, RouteCache.DEFAULT_MAX_BYTES, null);
+    }
+
+    /**
+     * @param routeCacheMaxBytes the memory the cached routes may use
+     * @param routeCacheCounters the route cache counters, or null
+     */
+    public TopologyInstance(Map<DatapathId, Set<OFPort>> switchPorts,
+                            Set<NodePortTuple> blockedPorts,
+                            Map<NodePortTuple, Set<Link>> switchPortLinks,
+                            Set<NodePortTuple> broadcastDomainPorts,
+                            Set<NodePortTuple> tunnelPorts,
+                            Map<Link, Integer> linkWeights,
+                            int maxPaths,
+                            long routeCacheMaxBytes,
+                            RouteCache.Counters routeCacheCounters){
 
         // copy these structures
         this.switches = new HashSet<DatapathId>(switchPorts.keySet());
@@ -147,6 +191,9 @@ public class TopologyInstance {
         }
         this.broadcastDomainPorts = new HashSet<NodePortTuple>(broadcastDomainPorts);
         this.tunnelPorts = new HashSet<NodePortTuple>(tunnelPorts);
+        this.linkWeights = new HashMap<Link, Integer>(linkWeights);
+        this.unicastLinkCost = new HashMap<Link, Integer>();
+        this.maxPaths = Math.max(1, maxPaths);
 
         blockedLinks = new HashSet<Link>();
         clusters = new HashSet<Cluster>();
@@ -155,14 +202,13 @@ public class TopologyInstance {
         clusterBroadcastTrees = new HashMap<DatapathId, BroadcastTree>();
         clusterBroadcastNodePorts = new HashMap<DatapathId, Set<NodePortTuple>>();
 
-        pathcache = CacheBuilder.newBuilder().concurrencyLevel(4)
-                    .maximumSize(1000L)
-                    .build(
-                            new CacheLoader<RouteId, Route>() {
-                                public Route load(RouteId rid) {
-                                    return pathCacheLoader.load(rid);
-                                }
-                            });
+        pathcache = new RouteCache(switches, routeCacheMaxBytes,
+                                   new RouteCache.RouteLoader() {
+                                       public RouteCache.Multipath load(RouteId rid) {
+                                           return buildMultipath(rid);
+                                       }
+                                   },
+                                   routeCacheCounters);
     }
 
     public void compute() {
@@ -188,10 +234,20 @@ public class TopologyInstance {
         // clusters as possible.
         calculateBroadcastNodePortsInClusters();
 
-        // Step 4. print topology.
+        // Step 4. Freeze the per-port state for per-packet queries.
+        snapshot = new TopologySnapshot(this);
+
+        // Step 5. print topology.
         printTopology();
     }
 
+    /**
+     * @return the snapshot of this instance, or null before compute()
+     */
+    public TopologySnapshot getSnapshot() {
+        return snapshot;
+    }
+
     public void printTopology() {
         if (log.isTraceEnabled()) {
             log.trace("-----------------------------------------------");
@@ -544,8 +600,14 @@ public class TopologyInstance {
         pathcache.invalidateAll();
         destinationRootedTrees.clear();
 
-        Map<Link, Integer> linkCost = new HashMap<Link, Integer>();
-        int tunnel_weight = switchPorts.size() + 1;
+        Map<Link, Integer> linkCost = new HashMap<Link, Integer>(linkWeights);
+        // Tunnels must cost more than any path through the cluster
+        int maxWeight = 1;
+        for (Integer w : linkWeights.values()) {
+            if (w != null && w > maxWeight) maxWeight = w;
+        }
+        int tunnel_weight = Math.max(switchPorts.size() + 1,
+                (int) Math.min((long) (switchPorts.size() + 1) * maxWeight, MAX_LINK_WEIGHT));
 
         for(NodePortTuple npt: tunnelPorts) {
             if (switchPortLinks.get(npt) == null) continue;
@@ -554,6 +616,7 @@ public class TopologyInstance {
                 linkCost.put(link, tunnel_weight);
             }
         }
+        unicastLinkCost = linkCost;
 
         for(Cluster c: clusters) {
             for (DatapathId node : c.links.keySet()) {
@@ -602,7 +665,7 @@ public class TopologyInstance {
         DatapathId srcId = id.getSrc();
         DatapathId dstId = id.getDst();
 
-        LinkedList<NodePortTuple> switchPorts = new LinkedList<NodePortTuple>();
+        List<NodePortTuple> switchPorts = new ArrayList<NodePortTuple>();
 
         if (destinationRootedTrees == null) return null;
         if (destinationRootedTrees.get(dstId) == null) return null;
@@ -623,16 +686,16 @@ public class TopologyInstance {
                 Link l = nexthoplinks.get(srcId);
 
                 npt = new NodePortTuple(l.getSrc(), l.getSrcPort());
-                switchPorts.addLast(npt);
+                switchPorts.add(npt);
                 npt = new NodePortTuple(l.getDst(), l.getDstPort());
-                switchPorts.addLast(npt);
+                switchPorts.add(npt);
                 srcId = nexthoplinks.get(srcId).getDst();
             }
         }
         // else, no path exists, and path equals null
 
         Route result = null;
-        if (switchPorts != null && !switchPorts.isEmpty()) {
+        if (!switchPorts.isEmpty()) {
             result = new Route(id, switchPorts);
         }
         if (log.isTraceEnabled()) {
@@ -641,6 +704,159 @@ public class TopologyInstance {
         return result;
     }
 
+    /**
+     * Compute the k shortest loopless paths between two switches with
+     * Yen's algorithm, bounded by maxPaths. Only switches in the same
+     * cluster have more than one path.
+     */
+    protected RouteCache.Multipath buildMultipath(RouteId id) {
+        DatapathId srcId = id.getSrc();
+        DatapathId dstId = id.getDst();
+        List<Route> routes = new ArrayList<Route>();
+
+        List<Link> first = getTreePath(srcId, dstId);
+        if (first == null) return new RouteCache.Multipath(routes, 0);
+
+        List<List<Link>> paths = new ArrayList<List<Link>>();
+        paths.add(first);
+        Cluster c = switchClusterMap.get(srcId);
+        if (maxPaths > 1 && c != null && c == switchClusterMap.get(dstId)) {
+            List<List<Link>> candidates = new ArrayList<List<Link>>();
+            while (paths.size() < maxPaths) {
+                List<Link> last = paths.get(paths.size() - 1);
+                for (int i = 0; i < last.size(); i++) {
+                    // Deviate from the last path at its i-th switch, avoiding
+                    // the links that known paths with the same prefix take
+                    // and the switches of the prefix itself
+                    List<Link> root = last.subList(0, i);
+                    Set<Link> excludedLinks = new HashSet<Link>();
+                    for (List<Link> p : paths) {
+                        if (p.size() > i && p.subList(0, i).equals(root))
+                            excludedLinks.add(p.get(i));
+                    }
+                    Set<DatapathId> excludedNodes = new HashSet<DatapathId>();
+                    for (Link l : root) excludedNodes.add(l.getSrc());
+
+                    List<Link> spur = getShortestPath(c, last.get(i).getSrc(), dstId,
+                                                      excludedLinks, excludedNodes);
+                    if (spur == null) continue;
+                    List<Link> candidate = new ArrayList<Link>(root);
+                    candidate.addAll(spur);
+                    if (!candidates.contains(candidate) && !paths.contains(candidate))
+                        candidates.add(candidate);
+                }
+                if (candidates.isEmpty()) break;
+
+                // Take the cheapest candidate, the first one found on ties
+                int best = 0;
+                for (int i = 1; i < candidates.size(); i++) {
+                    if (getPathCost(candidates.get(i)) < getPathCost(candidates.get(best)))
+                        best = i;
+                }
+                paths.add(candidates.remove(best));
+            }
+        }
+
+        int lowestCost = getPathCost(first);
+        int equalCostRoutes = 0;
+        for (List<Link> path : paths) {
+            if (getPathCost(path) == lowestCost) equalCostRoutes++;
+            Route r = new Route(id, getPathSwitchPorts(path));
+            r.setRouteCount(routes.size());
+            routes.add(r);
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("buildMultipath: {} -> {}", id, routes);
+        }
+        return new RouteCache.Multipath(routes, equalCostRoutes);
+    }
+
+    /**
+     * @return the links of the path from srcId to dstId in the destination
+     * rooted tree, or null if there is none
+     */
+    protected List<Link> getTreePath(DatapathId srcId, DatapathId dstId) {
+        BroadcastTree bt = destinationRootedTrees.get(dstId);
+        if (bt == null || bt.getLinks().get(srcId) == null) return null;
+        Map<DatapathId, Link> nexthoplinks = bt.getLinks();
+
+        List<Link> path = new ArrayList<Link>();
+        DatapathId node = srcId;
+        while (!node.equals(dstId)) {
+            Link l = nexthoplinks.get(node);
+            if (l == null) return null;
+            path.add(l);
+            node = l.getDst();
+        }
+        return path;
+    }
+
+    /**
+     * Dijkstra from srcId to dstId within a cluster, using the unicast link
+     * costs.
+     * @return the links of the path, or null if there is none
+     */
+    protected List<Link> getShortestPath(Cluster c, DatapathId srcId, DatapathId dstId,
+                                         Set<Link> excludedLinks,
+                                         Set<DatapathId> excludedNodes) {
+        Map<DatapathId, Link> prevLinks = new HashMap<DatapathId, Link>();
+        Map<DatapathId, Integer> cost = new HashMap<DatapathId, Integer>();
+        Set<DatapathId> seen = new HashSet<DatapathId>();
+        PriorityQueue<NodeDist> nodeq = new PriorityQueue<NodeDist>();
+        nodeq.add(new NodeDist(srcId, 0));
+        cost.put(srcId, 0);
+        while (nodeq.peek() != null) {
+            NodeDist n = nodeq.poll();
+            DatapathId cnode = n.getNode();
+            if (!seen.add(cnode)) continue;
+            if (cnode.equals(dstId)) break;
+            if (c.links.get(cnode) == null) continue;
+
+            for (Link link : c.links.get(cnode)) {
+                DatapathId neighbor = link.getDst();
+                // links directed toward cnode
+                if (neighbor.equals(cnode)) continue;
+                if (seen.contains(neighbor) || excludedNodes.contains(neighbor)
+                        || excludedLinks.contains(link)) continue;
+
+                int ndist = n.getDist() + getLinkCost(link);
+                Integer ncost = cost.get(neighbor);
+                if (ncost == null || ndist < ncost) {
+                    cost.put(neighbor, ndist);
+                    prevLinks.put(neighbor, link);
+                    nodeq.add(new NodeDist(neighbor, ndist));
+                }
+            }
+        }
+        if (!seen.contains(dstId)) return null;
+
+        LinkedList<Link> path = new LinkedList<Link>();
+        for (DatapathId node = dstId; !node.equals(srcId); node = path.getFirst().getSrc()) {
+            path.addFirst(prevLinks.get(node));
+        }
+        return path;
+    }
+
+    protected int getLinkCost(Link link) {
+        Integer w = unicastLinkCost.get(link);
+        return (w == null) ? 1 : w;
+    }
+
+    protected int getPathCost(List<Link> path) {
+        int cost = 0;
+        for (Link link : path) cost += getLinkCost(link);
+        return cost;
+    }
+
+    protected List<NodePortTuple> getPathSwitchPorts(List<Link> path) {
+        List<NodePortTuple> switchPorts = new ArrayList<NodePortTuple>(path.size() * 2);
+        for (Link l : path) {
+            switchPorts.add(new NodePortTuple(l.getSrc(), l.getSrcPort()));
+            switchPorts.add(new NodePortTuple(l.getDst(), l.getDstPort()));
+        }
+        return switchPorts;
+    }
+
     protected int getCost(DatapathId srcId, DatapathId dstId) {
         BroadcastTree bt = destinationRootedTrees.get(dstId);
         if (bt == null) return -1;
@@ -675,7 +891,7 @@ public class TopologyInstance {
 
         List<NodePortTuple> nptList;
         NodePortTuple npt;
-        Route r = getRoute(srcId, dstId, U64.of(0));
+        Route r = getRoute(srcId, dstId, cookie);
         if (r == null && !srcId.equals(dstId)) return null;
 
         if (r != null) {
@@ -694,8 +910,10 @@ public class TopologyInstance {
     }
 
     // NOTE: Return a null route if srcId equals dstId.  The null route
-    // need not be stored in the cache.  Moreover, the LoadingCache will
-    // throw an exception if null route is returned.
+    // need not be stored in the cache.
+    //
+    // A non-zero cookie is a flow hash that picks one of the equal-cost
+    // routes, so that the flows between two switches are spread over them.
     protected Route getRoute(DatapathId srcId, DatapathId dstId, U64 cookie) {
         // Return null route if srcId equals dstId
         if (srcId.equals(dstId)) return null;
@@ -704,10 +922,10 @@ public class TopologyInstance {
         RouteId id = new RouteId(srcId, dstId);
         Route result = null;
 
-        try {
+        if (maxPaths > 1 && cookie != null && !cookie.equals(U64.ZERO)) {
+            result = pathcache.get(id, cookie.getValue());
+        } else {
             result = pathcache.get(id);
-        } catch (Exception e) {
-            log.error("{}", e);
         }
 
         if (log.isTraceEnabled()) {
@@ -716,6 +934,31 @@ public class TopologyInstance {
         return result;
     }
 
+    /**
+     * @return up to maxPaths shortest routes between two switches,
+     * cheapest first
+     */
+    protected List<Route> getRoutes(DatapathId srcId, DatapathId dstId) {
+        if (srcId.equals(dstId)) return Collections.emptyList();
+        return pathcache.getAll(new RouteId(srcId, dstId));
+    }
+
+    /**
+     * Computes the routes of the given switch pairs ahead of their use,
+     * e.g. the pairs that were cached by the previous instance.
+     * @return the number of routes computed
+     */
+    public int warmUpRouteCache(Collection<RouteId> ids, int max) {
+        return pathcache.warmUp(ids, max);
+    }
+
+    /**
+     * @return the switch pairs whose routes are cached
+     */
+    public Set<RouteId> getCachedRouteIds() {
+        return pathcache.getCachedRouteIds();
+    }
+
     protected BroadcastTree getBroadcastTreeForCluster(long clusterId){
         Cluster c = switchClusterMap.get(clusterId);
         if (c == null) return null;
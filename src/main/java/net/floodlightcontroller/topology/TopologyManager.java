@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,7 @@ import net.floodlightcontroller.debugevent.IDebugEventService.EventFieldType;
 import net.floodlightcontroller.debugevent.IDebugEventService.EventType;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryListener;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.LinkInfo;
 import net.floodlightcontroller.packet.BSN;
 import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.LLDP;
@@ -62,12 +64,16 @@ import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.routing.IRoutingService;
 import net.floodlightcontroller.routing.Link;
 import net.floodlightcontroller.routing.Route;
+import net.floodlightcontroller.statistics.IStatisticsService;
+import net.floodlightcontroller.statistics.SwitchPortBandwidth;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.web.TopologyWebRoutable;
+import net.floodlightcontroller.util.OFPortUtils;
 
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPacketOut;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
 import org.projectfloodlight.openflow.protocol.OFType;
 import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
@@ -130,15 +136,17 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	protected IOFSwitchService switchService;
 	protected IRestApiService restApiService;
 	protected IDebugCounterService debugCounterService;
+	/** Optional, used by the UTILIZATION path metric */
+	protected IStatisticsService statisticsService;
 
 	// Modules that listen to our updates
-	protected ArrayList<ITopologyListener> topologyAware;
+	protected List<ITopologyListener> topologyAware;
 
 	protected BlockingQueue<LDUpdate> ldUpdates;
 
 	// These must be accessed using getCurrentInstance(), not directly
-	protected TopologyInstance currentInstance;
-	protected TopologyInstance currentInstanceWithoutTunnels;
+	protected volatile TopologyInstance currentInstance;
+	protected volatile TopologyInstance currentInstanceWithoutTunnels;
 
 	protected SingletonTask newInstanceTask;
 	private Date lastUpdateTime;
@@ -160,6 +168,37 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 
 	protected int TOPOLOGY_COMPUTE_INTERVAL_MS = 500;
 
+	/**
+	 * The metric for unicast paths, and the link weights the current
+	 * instance was computed with
+	 */
+	protected PathMetric pathMetric = PathMetric.HOPCOUNT;
+	protected Map<Link, Integer> linkWeights = Collections.emptyMap();
+	/** Link latency per unit of link weight, in microseconds */
+	protected static final long LATENCY_US_PER_WEIGHT = 100;
+	/** Speed of a link of weight 1, in bits/s (100 Gbps) */
+	protected static final long REFERENCE_BANDWIDTH = 100000000000L;
+	/** Speed assumed for ports that do not report one (1 Gbps) */
+	protected static final long DEFAULT_LINK_SPEED = 1000000000L;
+	/** Utilization at which a link counts as saturated */
+	protected static final double SATURATED_UTILIZATION = 0.95;
+	/** Weight changes smaller than this are ignored, so routes do not flap */
+	protected static final int LINK_WEIGHT_HYSTERESIS_PERCENT = 25;
+	/** How often changed link weights are checked for, in milliseconds */
+	protected static final long LINK_WEIGHT_CHECK_INTERVAL_MS = 15000;
+	protected long lastLinkWeightCheck = 0;
+
+	/** The number of shortest paths computed per switch pair */
+	protected int maxPathsToCompute = TopologyInstance.DEFAULT_MAX_PATHS;
+
+	/** The memory the route cache of an instance may use */
+	protected long routeCacheMaxBytes = RouteCache.DEFAULT_MAX_BYTES;
+	/**
+	 * The number of routes cached by the previous instance that a new
+	 * instance computes before it is used
+	 */
+	protected int routeCacheWarmUpSize = 1000;
+
 	private IHAListener haListener;
 
 	/**
@@ -167,6 +206,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	 */
 	protected static final String PACKAGE = TopologyManager.class.getPackage().getName();
 	protected IDebugCounter ctrIncoming;
+	protected RouteCache.Counters routeCacheCounters;
 
 	/**
 	 * Debug Events
@@ -293,7 +333,116 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 
 	// To be used for adding any periodic events that's required by topology.
 	protected void handleMiscellaneousPeriodicEvents() {
-		return;
+		if (pathMetric == PathMetric.HOPCOUNT) return;
+
+		// Link metrics change without link discovery updates, so check
+		// them every now and then and recompute the paths if needed.
+		long now = System.currentTimeMillis();
+		if (now - lastLinkWeightCheck < LINK_WEIGHT_CHECK_INTERVAL_MS) return;
+		lastLinkWeightCheck = now;
+		if (!applyHysteresis(linkWeights, computeLinkWeights()).equals(linkWeights)) {
+			linksUpdated = true;
+			createNewInstance("link-weight-updates");
+			linksUpdated = false;
+			informListeners(new ArrayList<LDUpdate>());
+		}
+	}
+
+	/**
+	 * Compute the link weights for the configured path metric. The
+	 * weights are coarse so that measurement noise does not cause paths
+	 * to be recomputed.
+	 * @return the link weights, in [1, MAX_LINK_WEIGHT]
+	 */
+	protected Map<Link, Integer> computeLinkWeights() {
+		if (pathMetric == PathMetric.HOPCOUNT) return Collections.emptyMap();
+
+		Map<Link, Integer> weights = new HashMap<Link, Integer>();
+		for (Map.Entry<Link, LinkInfo> entry : linkDiscoveryService.getLinks().entrySet()) {
+			Link link = entry.getKey();
+			long weight;
+			switch (pathMetric) {
+			case LATENCY:
+				long latency = entry.getValue().getLatency();
+				if (latency < 0) continue;
+				weight = latency / LATENCY_US_PER_WEIGHT;
+				break;
+			case INVERSE_CAPACITY:
+				weight = REFERENCE_BANDWIDTH / getLinkSpeed(link);
+				break;
+			case UTILIZATION:
+				weight = (long) (REFERENCE_BANDWIDTH / getLinkSpeed(link)
+						/ (1 - getLinkUtilization(link)));
+				break;
+			default:
+				continue;
+			}
+			weights.put(link, (int) Math.max(1,
+					Math.min(weight, TopologyInstance.MAX_LINK_WEIGHT)));
+		}
+		return weights;
+	}
+
+	/**
+	 * @return the speed of the slower end of a link in bits/s
+	 */
+	protected long getLinkSpeed(Link link) {
+		long speed = Math.min(getPortSpeed(link.getSrc(), link.getSrcPort()),
+				getPortSpeed(link.getDst(), link.getDstPort()));
+		return (speed > 0) ? speed : DEFAULT_LINK_SPEED;
+	}
+
+	protected long getPortSpeed(DatapathId dpid, OFPort port) {
+		IOFSwitch sw = switchService.getSwitch(dpid);
+		if (sw == null) return Long.MAX_VALUE;
+		OFPortDesc desc = sw.getPort(port);
+		if (desc == null) return Long.MAX_VALUE;
+		long speed = OFPortUtils.getSpeed(desc);
+		return (speed > 0) ? speed : Long.MAX_VALUE;
+	}
+
+	/**
+	 * @return the utilization of a link in its direction, as seen by the
+	 * port statistics of both ends, capped at SATURATED_UTILIZATION. A link
+	 * that drops packets counts as saturated.
+	 */
+	protected double getLinkUtilization(Link link) {
+		if (statisticsService == null) return 0;
+		SwitchPortBandwidth src = statisticsService.getBandwidthConsumption(
+				link.getSrc(), link.getSrcPort());
+		SwitchPortBandwidth dst = statisticsService.getBandwidthConsumption(
+				link.getDst(), link.getDstPort());
+		double utilization = 0;
+		if (src != null) {
+			utilization = Math.max(utilization, src.getTxUtilization());
+			if (src.getDropsPerSecond() > 0) utilization = SATURATED_UTILIZATION;
+		}
+		if (dst != null) {
+			utilization = Math.max(utilization, dst.getRxUtilization());
+			if (dst.getDropsPerSecond() > 0) utilization = SATURATED_UTILIZATION;
+		}
+		return Math.min(utilization, SATURATED_UTILIZATION);
+	}
+
+	/**
+	 * Keep the current weight of links whose new weight is within
+	 * LINK_WEIGHT_HYSTERESIS_PERCENT of it.
+	 * @param current the weights of the current instance
+	 * @param computed newly computed weights
+	 * @return the weights to compute paths with
+	 */
+	protected static Map<Link, Integer> applyHysteresis(Map<Link, Integer> current,
+			Map<Link, Integer> computed) {
+		if (current.isEmpty()) return computed;
+		Map<Link, Integer> weights = new HashMap<Link, Integer>(computed);
+		for (Map.Entry<Link, Integer> entry : computed.entrySet()) {
+			Integer old = current.get(entry.getKey());
+			if (old == null) continue;
+			long delta = Math.abs((long) entry.getValue() - old);
+			if (delta * 100 < (long) old * LINK_WEIGHT_HYSTERESIS_PERCENT)
+				weights.put(entry.getKey(), old);
+		}
+		return weights;
 	}
 
 	public boolean updateTopology() {
@@ -344,6 +493,16 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 		topologyAware.add(listener);
 	}
 
+	@Override
+	public TopologySnapshot getSnapshot() {
+		return getSnapshot(true);
+	}
+
+	@Override
+	public TopologySnapshot getSnapshot(boolean tunnelEnabled) {
+		return getCurrentInstance(tunnelEnabled).getSnapshot();
+	}
+
 	@Override
 	public boolean isAttachmentPointPort(DatapathId switchid, OFPort port) {
 		return isAttachmentPointPort(switchid, port, true);
@@ -358,17 +517,12 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 		if (linkDiscoveryService.isTunnelPort(switchid, port))
 			return false;
 
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-
 		// if the port is not attachment point port according to
-		// topology instance, then return false
-		if (ti.isAttachmentPointPort(switchid, port) == false)
+		// topology instance, then return false. This also rules out
+		// "special" ports, we should not learn attachment points on them.
+		if (getSnapshot(tunnelEnabled).isAttachmentPointPort(switchid, port) == false)
 			return false;
 
-		// Check whether the port is a physical port. We should not learn
-		// attachment points on "special" ports.
-		if ((port.getShortPortNumber() & 0xff00) == 0xff00 && port.getShortPortNumber() != (short)0xfffe) return false;
-
 		// Make sure that the port is enabled.
 		IOFSwitch sw = switchService.getActiveSwitch(switchid);
 		if (sw == null) return false;
@@ -382,8 +536,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 
 	@Override
 	public DatapathId getOpenflowDomainId(DatapathId switchId, boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.getOpenflowDomainId(switchId);
+		return getSnapshot(tunnelEnabled).getOpenflowDomainId(switchId);
 	}
 
 	@Override
@@ -393,8 +546,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 
 	@Override
 	public DatapathId getL2DomainId(DatapathId switchId, boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.getL2DomainId(switchId);
+		return getSnapshot(tunnelEnabled).getL2DomainId(switchId);
 	}
 
 	@Override
@@ -405,8 +557,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	@Override
 	public boolean inSameOpenflowDomain(DatapathId switch1, DatapathId switch2,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.inSameOpenflowDomain(switch1, switch2);
+		return getSnapshot(tunnelEnabled).inSameOpenflowDomain(switch1, switch2);
 	}
 
 	@Override
@@ -416,8 +567,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 
 	@Override
 	public boolean isAllowed(DatapathId sw, OFPort portId, boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.isAllowed(sw, portId);
+		return getSnapshot(tunnelEnabled).isAllowed(sw, portId);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -430,8 +580,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	@Override
 	public boolean isIncomingBroadcastAllowed(DatapathId sw, OFPort portId,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.isIncomingBroadcastAllowedOnSwitchPort(sw, portId);
+		return getSnapshot(tunnelEnabled).isIncomingBroadcastAllowed(sw, portId);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -469,8 +618,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	public Set<OFPort> getBroadcastPorts(DatapathId targetSw,
 			DatapathId src, OFPort srcPort,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.getBroadcastPorts(targetSw, src, srcPort);
+		return getSnapshot(tunnelEnabled).getBroadcastPorts(targetSw);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -543,8 +691,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	@Override
 	public boolean isBroadcastDomainPort(DatapathId sw, OFPort port,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.isBroadcastDomainPort(new NodePortTuple(sw, port));
+		return getSnapshot(tunnelEnabled).isBroadcastDomainPort(sw, port);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -564,8 +711,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	public boolean isConsistent(DatapathId oldSw, OFPort oldPort,
 			DatapathId newSw, OFPort newPort,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.isConsistent(oldSw, oldPort, newSw, newPort);
+		return getSnapshot(tunnelEnabled).isConsistent(oldSw, oldPort, newSw, newPort);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -581,8 +727,7 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	@Override
 	public boolean inSameL2Domain(DatapathId switch1, DatapathId switch2,
 			boolean tunnelEnabled) {
-		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
-		return ti.inSameL2Domain(switch1, switch2);
+		return getSnapshot(tunnelEnabled).inSameL2Domain(switch1, switch2);
 	}
 
 	////////////////////////////////////////////////////////////////////////
@@ -710,12 +855,8 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 	@Override
 	public ArrayList<Route> getRoutes(DatapathId srcDpid, DatapathId dstDpid,
 			boolean tunnelEnabled) {
-		// Floodlight supports single path routing now
-
-		// return single path now
-		ArrayList<Route> result=new ArrayList<Route>();
-		result.add(getRoute(srcDpid, dstDpid, U64.of(0), tunnelEnabled));
-		return result;
+		TopologyInstance ti = getCurrentInstance(tunnelEnabled);
+		return new ArrayList<Route>(ti.getRoutes(srcDpid, dstDpid));
 	}
 
 	// ******************
@@ -855,9 +996,55 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 		directLinks = new HashMap<NodePortTuple, Set<Link>>();
 		portBroadcastDomainLinks = new HashMap<NodePortTuple, Set<Link>>();
 		tunnelPorts = new HashSet<NodePortTuple>();
-		topologyAware = new ArrayList<ITopologyListener>();
+		// Listeners may be added concurrently from other modules' startUp
+		topologyAware = new CopyOnWriteArrayList<ITopologyListener>();
 		ldUpdates = new LinkedBlockingQueue<LDUpdate>();
 		haListener = new HAListenerDelegate();
+
+		Map<String, String> configOptions = context.getConfigParams(this);
+		String metric = configOptions.get("pathMetric");
+		if (metric != null) {
+			try {
+				pathMetric = PathMetric.valueOf(metric.trim().toUpperCase());
+			} catch (IllegalArgumentException e) {
+				log.warn("Unknown path metric {}, using {}", metric, pathMetric);
+			}
+		}
+		statisticsService = context.getServiceImpl(IStatisticsService.class);
+		if (pathMetric == PathMetric.UTILIZATION && statisticsService == null) {
+			log.warn("Path metric {} needs the statistics module, link utilization is ignored",
+					pathMetric);
+		}
+		log.debug("Path metric set to {}", pathMetric);
+
+		String maxPaths = configOptions.get("maxPathsToCompute");
+		if (maxPaths != null) {
+			try {
+				maxPathsToCompute = Math.max(1, Integer.parseInt(maxPaths.trim()));
+			} catch (NumberFormatException e) {
+				log.warn("Invalid maxPathsToCompute {}, using {}", maxPaths, maxPathsToCompute);
+			}
+		}
+		log.debug("Computing up to {} paths per switch pair", maxPathsToCompute);
+
+		String cacheSize = configOptions.get("routeCacheSizeMB");
+		if (cacheSize != null) {
+			try {
+				routeCacheMaxBytes = Math.max(1, Long.parseLong(cacheSize.trim())) * 1024 * 1024;
+			} catch (NumberFormatException e) {
+				log.warn("Invalid routeCacheSizeMB {}, using {} bytes", cacheSize, routeCacheMaxBytes);
+			}
+		}
+		String warmUpSize = configOptions.get("routeCacheWarmUpSize");
+		if (warmUpSize != null) {
+			try {
+				routeCacheWarmUpSize = Math.max(0, Integer.parseInt(warmUpSize.trim()));
+			} catch (NumberFormatException e) {
+				log.warn("Invalid routeCacheWarmUpSize {}, using {}", warmUpSize, routeCacheWarmUpSize);
+			}
+		}
+		log.debug("Route cache of {} bytes, warmed up with {} routes",
+				routeCacheMaxBytes, routeCacheWarmUpSize);
 		registerTopologyDebugCounters();
 		registerTopologyDebugEvents();
 	}
@@ -902,6 +1089,13 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 		ctrIncoming = debugCounterService.registerCounter(
 				PACKAGE, "incoming",
 				"All incoming packets seen by this module");
+		routeCacheCounters = new RouteCache.Counters(
+				debugCounterService.registerCounter(PACKAGE, "route-cache-hit",
+						"Routes found in the route cache"),
+				debugCounterService.registerCounter(PACKAGE, "route-cache-miss",
+						"Routes computed because they were not in the route cache"),
+				debugCounterService.registerCounter(PACKAGE, "route-cache-load-time-us",
+						"Total time spent computing missing routes, in microseconds"));
 	}
 
 	protected void addRestletRoutable() {
@@ -1220,12 +1414,24 @@ public class TopologyManager implements IFloodlightModule, ITopologyService, IRo
 			}
 		}
 
+		linkWeights = applyHysteresis(linkWeights, computeLinkWeights());
 		TopologyInstance nt = new TopologyInstance(switchPorts,
 				blockedPorts,
 				openflowLinks,
 				broadcastDomainPorts,
-				tunnelPorts);
+				tunnelPorts,
+				linkWeights,
+				maxPathsToCompute,
+				routeCacheMaxBytes,
+				routeCacheCounters);
 		nt.compute();
+		// Compute the routes that were in use before the change ahead of
+		// the first packets that need them
+		TopologyInstance old = currentInstance;
+		if (old != null && routeCacheWarmUpSize > 0) {
+			int warmed = nt.warmUpRouteCache(old.getCachedRouteIds(), routeCacheWarmUpSize);
+			log.debug("Warmed up the route cache with {} routes", warmed);
+		}
 		// We set the instances with and without tunnels to be identical.
 		// If needed, we may compute them differently.
 		currentInstance = nt;
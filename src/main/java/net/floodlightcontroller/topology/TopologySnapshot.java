@@ -0,0 +1,232 @@
+package net.floodlightcontroller.topology;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * An immutable view of the per-switch-port state of one
+ * {@link TopologyInstance}, for the queries made on every PACKET_IN.
+ * Callers grab it once per packet with {@link ITopologyService#getSnapshot()}
+ * and get consistent answers from a single topology, at the cost of being
+ * at most one topology computation behind.
+ *
+ * Each switch has a sorted array of the port numbers the topology knows
+ * about and a parallel array of flags, so a query is one map lookup and a
+ * binary search, without allocating a {@link NodePortTuple}.
+ */
+public class TopologySnapshot {
+    /** The port has links in the topology, i.e. is not an attachment point */
+    protected static final byte LINK = 0x01;
+    protected static final byte BROADCAST_DOMAIN = 0x02;
+    protected static final byte BLOCKED = 0x04;
+    protected static final byte TUNNEL = 0x08;
+    /** The port is on the broadcast tree of its cluster */
+    protected static final byte BROADCAST_TREE = 0x10;
+
+    protected static class SwitchEntry {
+        protected final DatapathId clusterId;
+        protected final Set<DatapathId> clusterSwitches;
+        protected final int[] ports;
+        protected final byte[] flags;
+        protected final Set<OFPort> portsWithLinks;
+        protected final Set<OFPort> broadcastPorts;
+
+        protected SwitchEntry(DatapathId clusterId,
+                              Set<DatapathId> clusterSwitches,
+                              Map<Integer, Byte> portFlags,
+                              Set<OFPort> portsWithLinks,
+                              Set<OFPort> broadcastPorts) {
+            this.clusterId = clusterId;
+            this.clusterSwitches = clusterSwitches;
+            this.ports = new int[portFlags.size()];
+            int i = 0;
+            for (Integer port : portFlags.keySet()) {
+                ports[i++] = port;
+            }
+            Arrays.sort(ports);
+            this.flags = new byte[ports.length];
+            for (i = 0; i < ports.length; i++) {
+                flags[i] = portFlags.get(ports[i]);
+            }
+            this.portsWithLinks = portsWithLinks;
+            this.broadcastPorts = broadcastPorts;
+        }
+
+        protected byte getFlags(OFPort port) {
+            int i = Arrays.binarySearch(ports, port.getPortNumber());
+            return (i < 0) ? 0 : flags[i];
+        }
+    }
+
+    private final Map<DatapathId, SwitchEntry> switches;
+
+    /**
+     * An empty snapshot, for test doubles that answer the queries themselves
+     */
+    TopologySnapshot() {
+        this.switches = Collections.emptyMap();
+    }
+
+    /**
+     * Builds the snapshot of a computed topology instance
+     * @param ti the instance, after {@link TopologyInstance#compute()}
+     */
+    public TopologySnapshot(TopologyInstance ti) {
+        Map<DatapathId, Map<Integer, Byte>> portFlags =
+                new HashMap<DatapathId, Map<Integer, Byte>>();
+        addFlags(portFlags, ti.switchPortLinks.keySet(), LINK);
+        addFlags(portFlags, ti.broadcastDomainPorts, BROADCAST_DOMAIN);
+        addFlags(portFlags, ti.blockedPorts, BLOCKED);
+        addFlags(portFlags, ti.tunnelPorts, TUNNEL);
+        for (Set<NodePortTuple> npts : ti.clusterBroadcastNodePorts.values()) {
+            addFlags(portFlags, npts, BROADCAST_TREE);
+        }
+
+        Set<DatapathId> dpids = new HashSet<DatapathId>(portFlags.keySet());
+        dpids.addAll(ti.switchClusterMap.keySet());
+        dpids.addAll(ti.switchPorts.keySet());
+
+        Map<DatapathId, SwitchEntry> entries = new HashMap<DatapathId, SwitchEntry>();
+        for (DatapathId dpid : dpids) {
+            Map<Integer, Byte> flags = portFlags.get(dpid);
+            if (flags == null)
+                flags = Collections.emptyMap();
+
+            Cluster c = ti.switchClusterMap.get(dpid);
+            DatapathId clusterId = (c == null) ? dpid : c.getId();
+            Set<DatapathId> clusterSwitches = (c == null)
+                    ? Collections.singleton(dpid)
+                    : Collections.unmodifiableSet(c.getNodes());
+
+            Set<OFPort> broadcastPorts = new HashSet<OFPort>();
+            Set<NodePortTuple> clusterPorts = ti.clusterBroadcastNodePorts.get(clusterId);
+            if (clusterPorts != null) {
+                for (NodePortTuple npt : clusterPorts) {
+                    if (npt.getNodeId().equals(dpid))
+                        broadcastPorts.add(npt.getPortId());
+                }
+            }
+
+            Set<OFPort> portsWithLinks = ti.switchPorts.get(dpid);
+            entries.put(dpid, new SwitchEntry(clusterId, clusterSwitches, flags,
+                    (portsWithLinks == null) ? null
+                            : Collections.unmodifiableSet(new HashSet<OFPort>(portsWithLinks)),
+                    Collections.unmodifiableSet(broadcastPorts)));
+        }
+        this.switches = entries;
+    }
+
+    private static void addFlags(Map<DatapathId, Map<Integer, Byte>> portFlags,
+                                 Set<NodePortTuple> npts, byte flag) {
+        for (NodePortTuple npt : npts) {
+            Map<Integer, Byte> flags = portFlags.get(npt.getNodeId());
+            if (flags == null) {
+                flags = new HashMap<Integer, Byte>();
+                portFlags.put(npt.getNodeId(), flags);
+            }
+            int port = npt.getPortId().getPortNumber();
+            Byte old = flags.get(port);
+            flags.put(port, (byte) ((old == null ? 0 : old) | flag));
+        }
+    }
+
+    private byte getFlags(DatapathId sw, OFPort port) {
+        SwitchEntry entry = switches.get(sw);
+        if (entry == null) return 0;
+        return entry.getFlags(port);
+    }
+
+    /**
+     * Checks whether hosts may be learned on a port: it has no links and
+     * is neither a tunnel port nor a special port. Whether the port is
+     * enabled is up to the caller.
+     */
+    public boolean isAttachmentPointPort(DatapathId sw, OFPort port) {
+        if ((getFlags(sw, port) & (LINK | TUNNEL)) != 0)
+            return false;
+        short portNumber = port.getShortPortNumber();
+        return (portNumber & 0xff00) != 0xff00 || portNumber == (short) 0xfffe;
+    }
+
+    public boolean isBroadcastDomainPort(DatapathId sw, OFPort port) {
+        return (getFlags(sw, port) & BROADCAST_DOMAIN) != 0;
+    }
+
+    public boolean isBlockedPort(DatapathId sw, OFPort port) {
+        return (getFlags(sw, port) & BLOCKED) != 0;
+    }
+
+    public boolean isTunnelPort(DatapathId sw, OFPort port) {
+        return (getFlags(sw, port) & TUNNEL) != 0;
+    }
+
+    public boolean isAllowed(DatapathId sw, OFPort port) {
+        return true;
+    }
+
+    /**
+     * Broadcasts may only enter a cluster through its attachment points
+     * or the ports of its broadcast tree.
+     */
+    public boolean isIncomingBroadcastAllowed(DatapathId sw, OFPort port) {
+        byte flags = getFlags(sw, port);
+        return (flags & LINK) == 0 || (flags & BROADCAST_TREE) != 0;
+    }
+
+    /**
+     * Checks if a new attachment point is consistent with an old one
+     */
+    public boolean isConsistent(DatapathId oldSw, OFPort oldPort,
+                                DatapathId newSw, OFPort newPort) {
+        if ((getFlags(newSw, newPort) & LINK) != 0) return true;
+        return oldSw.equals(newSw) && oldPort.equals(newPort);
+    }
+
+    /**
+     * @return the cluster of a switch, or the switch itself if it has no links
+     */
+    public DatapathId getOpenflowDomainId(DatapathId sw) {
+        SwitchEntry entry = switches.get(sw);
+        return (entry == null) ? sw : entry.clusterId;
+    }
+
+    public DatapathId getL2DomainId(DatapathId sw) {
+        return getOpenflowDomainId(sw);
+    }
+
+    public boolean inSameOpenflowDomain(DatapathId switch1, DatapathId switch2) {
+        return getOpenflowDomainId(switch1).equals(getOpenflowDomainId(switch2));
+    }
+
+    public boolean inSameL2Domain(DatapathId switch1, DatapathId switch2) {
+        return inSameOpenflowDomain(switch1, switch2);
+    }
+
+    public Set<DatapathId> getSwitchesInOpenflowDomain(DatapathId sw) {
+        SwitchEntry entry = switches.get(sw);
+        return (entry == null) ? Collections.singleton(sw) : entry.clusterSwitches;
+    }
+
+    /**
+     * @return the ports of a switch that have links, or null if none
+     */
+    public Set<OFPort> getPortsWithLinks(DatapathId sw) {
+        SwitchEntry entry = switches.get(sw);
+        return (entry == null) ? null : entry.portsWithLinks;
+    }
+
+    /**
+     * @return the ports of a switch on the broadcast tree of its cluster
+     */
+    public Set<OFPort> getBroadcastPorts(DatapathId sw) {
+        SwitchEntry entry = switches.get(sw);
+        return (entry == null) ? Collections.<OFPort>emptySet() : entry.broadcastPorts;
+    }
+}
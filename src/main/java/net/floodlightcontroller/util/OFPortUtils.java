@@ -0,0 +1,47 @@
+package net.floodlightcontroller.util;
+
+import java.util.Set;
+
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPortFeatures;
+
+public class OFPortUtils {
+
+	private OFPortUtils() {};
+
+	/**
+	 * Get the current speed of a port, from the speed field of OpenFlow
+	 * 1.1 and later or the current features of OpenFlow 1.0.
+	 * @param desc the port
+	 * @return the speed in bits/s, or 0 if unknown
+	 */
+	public static long getSpeed(OFPortDesc desc) {
+		try {
+			// kbps
+			long speed = desc.getCurrSpeed();
+			if (speed > 0)
+				return speed * 1000;
+		} catch (UnsupportedOperationException e) {
+			// OpenFlow 1.0 only has the features
+		}
+
+		Set<OFPortFeatures> curr = desc.getCurr();
+		if (curr == null)
+			return 0;
+		if (curr.contains(OFPortFeatures.PF_1TB_FD))
+			return 1000000000000L;
+		if (curr.contains(OFPortFeatures.PF_100GB_FD))
+			return 100000000000L;
+		if (curr.contains(OFPortFeatures.PF_40GB_FD))
+			return 40000000000L;
+		if (curr.contains(OFPortFeatures.PF_10GB_FD))
+			return 10000000000L;
+		if (curr.contains(OFPortFeatures.PF_1GB_FD) || curr.contains(OFPortFeatures.PF_1GB_HD))
+			return 1000000000L;
+		if (curr.contains(OFPortFeatures.PF_100MB_FD) || curr.contains(OFPortFeatures.PF_100MB_HD))
+			return 100000000L;
+		if (curr.contains(OFPortFeatures.PF_10MB_FD) || curr.contains(OFPortFeatures.PF_10MB_HD))
+			return 10000000L;
+		return 0;
+	}
+}
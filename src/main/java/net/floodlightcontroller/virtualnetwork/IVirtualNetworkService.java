@@ -62,4 +62,14 @@ public interface IVirtualNetworkService extends IFloodlightService {
      * @return Collection <VirtualNetwork>
      */
     public Collection <VirtualNetwork> listNetworks();
+
+    /**
+     * Checks whether unicast traffic from one host to another is let
+     * through, i.e. whether they are on the same virtual network or one is
+     * the gateway of the other.
+     * @param src The MAC address of the sending host.
+     * @param dst The MAC address of the receiving host.
+     * @return True if the traffic is allowed, false otherwise.
+     */
+    public boolean isAllowed(MacAddress src, MacAddress dst);
 }
@@ -27,11 +27,19 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.projectfloodlight.openflow.protocol.OFFactory;
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
+import org.projectfloodlight.openflow.protocol.OFFlowModFlags;
+import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
 import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
 import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.IPv4Address;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFBufferId;
@@ -43,6 +51,9 @@ import net.floodlightcontroller.core.FloodlightContext;
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IOFSwitchListener;
+import net.floodlightcontroller.core.PortChangeType;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightModule;
@@ -51,6 +62,7 @@ import net.floodlightcontroller.core.util.AppCookie;
 import net.floodlightcontroller.devicemanager.IDevice;
 import net.floodlightcontroller.devicemanager.IDeviceListener;
 import net.floodlightcontroller.devicemanager.IDeviceService;
+import net.floodlightcontroller.packet.ARP;
 import net.floodlightcontroller.packet.DHCP;
 import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.IPacket;
@@ -68,10 +80,18 @@ import net.floodlightcontroller.routing.ForwardingBase;
  * - There is filtering of multicast/broadcast traffic
  * - All DHCP traffic will be allowed, regardless of unicast/broadcast
  *
+ * Packet-ins are checked against a VirtualNetworkIndex snapshot that is
+ * updated whenever a network, host or gateway changes. When the
+ * install-drop-flows option is set, traffic between hosts on different
+ * networks is also blocked in the switches with drop flows. They are
+ * installed for each host pair when its first packet is refused, and
+ * removed again when the membership of one of the hosts changes. The
+ * flows are tracked until the switch reports them removed or disconnects.
+ *
  * @author alexreimers
  */
 public class VirtualNetworkFilter
-implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
+implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener, IOFSwitchListener {
 	protected static Logger log = LoggerFactory.getLogger(VirtualNetworkFilter.class);
 
 	private static final short APP_ID = 20;
@@ -83,6 +103,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 	IFloodlightProviderService floodlightProviderService;
 	IRestApiService restApiService;
 	IDeviceService deviceService;
+	IOFSwitchService switchService;
 
 	// Our internal state
 	protected Map<String, VirtualNetwork> vNetsByGuid; // List of all created virtual networks
@@ -93,6 +114,21 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 	protected Map<MacAddress, String> macToGuid; // Host MAC -> Network ID
 	protected Map<String, MacAddress> portToMac; // Host MAC -> logical port name
 
+	// Read-only snapshot of the maps above used by the packet-in path.
+	// Updates to the maps happen while holding the lock on this module and
+	// end with a call to publishIndex().
+	protected volatile VirtualNetworkIndex index;
+
+	// Install drop flows for traffic that crosses networks
+	protected boolean installDropFlows = false;
+	// Source MAC -> destination MAC -> switches that hold our drop flow.
+	// Guarded by itself, as is dropFlowPeers.
+	protected Map<MacAddress, Map<MacAddress, Set<DatapathId>>> dropFlows;
+	// Host MAC -> the hosts it has drop flows with, in either direction
+	protected Map<MacAddress, Set<MacAddress>> dropFlowPeers;
+	// Hosts whose drop flows must be deleted once the lock is released
+	protected Set<MacAddress> pendingFlowDeletes;
+
 	// Device Listener impl class
 	protected DeviceListenerImpl deviceListener;
 
@@ -139,6 +175,13 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 
 	@Override
 	public void createNetwork(String guid, String network, IPv4Address gateway) {
+		synchronized (this) {
+			createNetworkLocked(guid, network, gateway);
+		}
+		flushFlowDeletes();
+	}
+
+	private void createNetworkLocked(String guid, String network, IPv4Address gateway) {
 		if (log.isDebugEnabled()) {
 			String gw = null;
 			try {
@@ -171,11 +214,20 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 			addGateway(guid, gateway);
 			if (vNetsByGuid.get(guid) != null)
 				vNetsByGuid.get(guid).setGateway(gateway.toString());
+			publishIndex(index.edit().setNetworkGateway(guid, gateway),
+					getHostsInNetwork(guid));
 		}
 	}
 
 	@Override
 	public void deleteNetwork(String guid) {
+		synchronized (this) {
+			deleteNetworkLocked(guid);
+		}
+		flushFlowDeletes();
+	}
+
+	private void deleteNetworkLocked(String guid) {
 		String name = null;
 		if (nameToGuid.isEmpty()) {
 			log.warn("Could not delete network with ID {}, network doesn't exist",
@@ -199,17 +251,14 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 			vNetsByGuid.get(guid).clearHosts();
 			vNetsByGuid.remove(guid);
 		}
-		Collection<MacAddress> deleteList = new ArrayList<MacAddress>();
-		for (MacAddress host : macToGuid.keySet()) {
-			if (macToGuid.get(host).equals(guid)) {
-				deleteList.add(host);
-			}
-		}
+		Collection<MacAddress> deleteList = getHostsInNetwork(guid);
+		VirtualNetworkIndex.Editor edit = index.edit().setNetworkGateway(guid, null);
 		for (MacAddress mac : deleteList) {
 			if (log.isDebugEnabled()) {
 				log.debug("Removing host {} from network {}", mac.toString(), guid);
 			}
 			macToGuid.remove(mac);
+			edit.setHost(mac, null);
 			for (Entry<String, MacAddress> entry : portToMac.entrySet()) {
 				if (entry.getValue().equals(mac)) {
 					portToMac.remove(entry.getKey());
@@ -217,10 +266,18 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 				}
 			}
 		}
+		publishIndex(edit, deleteList);
 	}
 
 	@Override
 	public void addHost(MacAddress mac, String guid, String port) {
+		synchronized (this) {
+			addHostLocked(mac, guid, port);
+		}
+		flushFlowDeletes();
+	}
+
+	private void addHostLocked(MacAddress mac, String guid, String port) {
 		if (guid != null) {
 			if (log.isDebugEnabled()) {
 				log.debug("Adding {} to network ID {} on port {}",
@@ -231,6 +288,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 			portToMac.put(port, mac);
 			if (vNetsByGuid.get(guid) != null)
 				vNetsByGuid.get(guid).addHost(port, mac);
+			publishIndex(index.edit().setHost(mac, guid), Collections.singleton(mac));
 		} else {
 			log.warn("Could not add MAC {} to network ID {} on port {}, the network does not exist",
 					new Object[] {mac.toString(), guid, port});
@@ -239,6 +297,13 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 
 	@Override
 	public void deleteHost(MacAddress mac, String port) {
+		synchronized (this) {
+			deleteHostLocked(mac, port);
+		}
+		flushFlowDeletes();
+	}
+
+	private void deleteHostLocked(MacAddress mac, String port) {
 		if (log.isDebugEnabled()) {
 			log.debug("Removing host {} from port {}", mac, port);
 		}
@@ -247,8 +312,10 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 			MacAddress host = portToMac.remove(port);
 			if (host != null && vNetsByGuid.get(macToGuid.get(host)) != null)
 				vNetsByGuid.get(macToGuid.get(host)).removeHost(host);
-			if (host != null)
+			if (host != null) {
 				macToGuid.remove(host);
+				publishIndex(index.edit().setHost(host, null), Collections.singleton(host));
+			}
 		} else if (mac != null) {
 			if (!portToMac.isEmpty()) {
 				for (Entry<String, MacAddress> entry : portToMac.entrySet()) {
@@ -257,6 +324,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 							vNetsByGuid.get(macToGuid.get(entry.getValue())).removeHost(entry.getValue());
 						portToMac.remove(entry.getKey());
 						macToGuid.remove(entry.getValue());
+						publishIndex(index.edit().setHost(mac, null), Collections.singleton(mac));
 						return;
 					}
 				}
@@ -264,6 +332,182 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		}
 	}
 
+	/**
+	 * Gets the hosts attached to a virtual network.
+	 * @param guid The ID (not name) of the network.
+	 * @return The MAC addresses of the hosts on the network.
+	 */
+	protected Collection<MacAddress> getHostsInNetwork(String guid) {
+		Collection<MacAddress> hosts = new ArrayList<MacAddress>();
+		for (Entry<MacAddress, String> entry : macToGuid.entrySet()) {
+			if (entry.getValue().equals(guid)) {
+				hosts.add(entry.getKey());
+			}
+		}
+		return hosts;
+	}
+
+	/**
+	 * Publishes the snapshot with the changes in the editor applied. If drop
+	 * flows are enabled, the drop flows of the given hosts are queued for
+	 * deletion since their reachability may have changed; the deletes are
+	 * sent by flushFlowDeletes() after the lock is released. Must be called
+	 * while holding the lock on this module.
+	 * @param edit The changes to the current snapshot.
+	 * @param changedHosts The MAC addresses of the hosts whose network or
+	 * gateway changed.
+	 */
+	protected void publishIndex(VirtualNetworkIndex.Editor edit, Collection<MacAddress> changedHosts) {
+		index = edit.build();
+		if (installDropFlows) {
+			pendingFlowDeletes.addAll(changedHosts);
+		}
+	}
+
+	/**
+	 * Sends the flow deletes queued by publishIndex(). Must be called without
+	 * holding the lock on this module, so that switch I/O never delays the
+	 * REST API or the device listener.
+	 */
+	protected void flushFlowDeletes() {
+		Collection<MacAddress> hosts;
+		synchronized (this) {
+			if (pendingFlowDeletes.isEmpty()) return;
+			hosts = new ArrayList<MacAddress>(pendingFlowDeletes);
+			pendingFlowDeletes.clear();
+		}
+		deleteFlowsForHosts(hosts);
+	}
+
+	/**
+	 * Deletes our drop flows to and from the given hosts on every switch.
+	 * The deletes are limited to our cookie; OpenFlow 1.0 has no cookie mask,
+	 * so there each drop flow that was installed for the hosts is deleted
+	 * with a strict match instead. Flows of other modules are left to time out.
+	 * @param hosts The MAC addresses of the hosts.
+	 */
+	protected void deleteFlowsForHosts(Collection<MacAddress> hosts) {
+		if (switchService == null) return;
+		// The pairs to delete with a strict match on OpenFlow 1.0 switches
+		List<MacAddress[]> pairs = new ArrayList<MacAddress[]>();
+		synchronized (dropFlows) {
+			for (MacAddress host : hosts) {
+				Set<MacAddress> peers = dropFlowPeers.remove(host);
+				if (peers == null) continue;
+				dropFlows.remove(host);
+				for (MacAddress peer : peers) {
+					unlinkDropFlowPeer(peer, host);
+					Map<MacAddress, Set<DatapathId>> back = dropFlows.get(peer);
+					if (back != null) {
+						back.remove(host);
+						if (back.isEmpty()) dropFlows.remove(peer);
+					}
+					pairs.add(new MacAddress[] { host, peer });
+					pairs.add(new MacAddress[] { peer, host });
+				}
+			}
+		}
+		U64 cookie = AppCookie.makeCookie(APP_ID, 0);
+		for (IOFSwitch sw : switchService.getAllSwitchMap().values()) {
+			OFFactory factory = sw.getOFFactory();
+			List<OFMessage> deletes = new ArrayList<OFMessage>();
+			if (factory.getVersion().compareTo(OFVersion.OF_10) > 0) {
+				for (MacAddress host : hosts) {
+					deletes.add(factory.buildFlowDelete()
+							.setCookie(cookie)
+							.setCookieMask(AppCookie.getAppFieldMask())
+							.setMatch(factory.buildMatch()
+									.setExact(MatchField.ETH_SRC, host)
+									.build())
+							.build());
+					deletes.add(factory.buildFlowDelete()
+							.setCookie(cookie)
+							.setCookieMask(AppCookie.getAppFieldMask())
+							.setMatch(factory.buildMatch()
+									.setExact(MatchField.ETH_DST, host)
+									.build())
+							.build());
+				}
+			} else {
+				for (MacAddress[] pair : pairs) {
+					deletes.add(factory.buildFlowDeleteStrict()
+							.setMatch(dropFlowMatch(factory, pair[0], pair[1]))
+							.build());
+				}
+			}
+			if (!deletes.isEmpty()) {
+				sw.write(deletes);
+				sw.flush();
+			}
+		}
+	}
+
+	private static Match dropFlowMatch(OFFactory factory, MacAddress src, MacAddress dst) {
+		return factory.buildMatch()
+				.setExact(MatchField.ETH_SRC, src)
+				.setExact(MatchField.ETH_DST, dst)
+				.build();
+	}
+
+	/**
+	 * Records a drop flow from src to dst on a switch.
+	 */
+	protected void addDropFlow(DatapathId dpid, MacAddress src, MacAddress dst) {
+		synchronized (dropFlows) {
+			Map<MacAddress, Set<DatapathId>> flows = dropFlows.get(src);
+			if (flows == null) {
+				flows = new HashMap<MacAddress, Set<DatapathId>>();
+				dropFlows.put(src, flows);
+			}
+			Set<DatapathId> switches = flows.get(dst);
+			if (switches == null) {
+				switches = new HashSet<DatapathId>();
+				flows.put(dst, switches);
+			}
+			switches.add(dpid);
+			linkDropFlowPeer(src, dst);
+			linkDropFlowPeer(dst, src);
+		}
+	}
+
+	/**
+	 * Forgets a drop flow from src to dst on a switch. The hosts stop being
+	 * peers once no switch holds a drop flow between them in either direction.
+	 */
+	protected void removeDropFlow(DatapathId dpid, MacAddress src, MacAddress dst) {
+		synchronized (dropFlows) {
+			Map<MacAddress, Set<DatapathId>> flows = dropFlows.get(src);
+			if (flows == null) return;
+			Set<DatapathId> switches = flows.get(dst);
+			if (switches == null || !switches.remove(dpid)) return;
+			if (!switches.isEmpty()) return;
+			flows.remove(dst);
+			if (flows.isEmpty()) dropFlows.remove(src);
+			Map<MacAddress, Set<DatapathId>> back = dropFlows.get(dst);
+			if (back != null && back.containsKey(src)) return;
+			unlinkDropFlowPeer(src, dst);
+			unlinkDropFlowPeer(dst, src);
+		}
+	}
+
+	// Must hold the lock on dropFlows
+	private void linkDropFlowPeer(MacAddress host, MacAddress peer) {
+		Set<MacAddress> peers = dropFlowPeers.get(host);
+		if (peers == null) {
+			peers = new HashSet<MacAddress>();
+			dropFlowPeers.put(host, peers);
+		}
+		peers.add(peer);
+	}
+
+	// Must hold the lock on dropFlows
+	private void unlinkDropFlowPeer(MacAddress host, MacAddress peer) {
+		Set<MacAddress> peers = dropFlowPeers.get(host);
+		if (peers == null) return;
+		peers.remove(peer);
+		if (peers.isEmpty()) dropFlowPeers.remove(host);
+	}
+
 	// IFloodlightModule
 
 	@Override
@@ -292,6 +536,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		l.add(IFloodlightProviderService.class);
 		l.add(IRestApiService.class);
 		l.add(IDeviceService.class);
+		l.add(IOFSwitchService.class);
 		return l;
 	}
 
@@ -301,6 +546,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		floodlightProviderService = context.getServiceImpl(IFloodlightProviderService.class);
 		restApiService = context.getServiceImpl(IRestApiService.class);
 		deviceService = context.getServiceImpl(IDeviceService.class);
+		switchService = context.getServiceImpl(IOFSwitchService.class);
 
 		vNetsByGuid = new ConcurrentHashMap<String, VirtualNetwork>();
 		nameToGuid = new ConcurrentHashMap<String, String>();
@@ -309,13 +555,28 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		macToGuid = new ConcurrentHashMap<MacAddress, String>();
 		portToMac = new ConcurrentHashMap<String, MacAddress>();
 		macToGateway = new ConcurrentHashMap<MacAddress, IPv4Address>();
+		index = VirtualNetworkIndex.EMPTY;
+		dropFlows = new HashMap<MacAddress, Map<MacAddress, Set<DatapathId>>>();
+		dropFlowPeers = new HashMap<MacAddress, Set<MacAddress>>();
+		pendingFlowDeletes = new HashSet<MacAddress>();
 		deviceListener = new DeviceListenerImpl();
 
+		Map<String, String> configOptions = context.getConfigParams(this);
+		String tmp = configOptions.get("install-drop-flows");
+		if (tmp != null) {
+			installDropFlows = Boolean.parseBoolean(tmp);
+		}
+		log.info("Drop flows for inter-network traffic {}",
+				installDropFlows ? "enabled" : "disabled");
 	}
 
 	@Override
 	public void startUp(FloodlightModuleContext context) {
 		floodlightProviderService.addOFMessageListener(OFType.PACKET_IN, this);
+		if (installDropFlows) {
+			floodlightProviderService.addOFMessageListener(OFType.FLOW_REMOVED, this);
+			if (switchService != null) switchService.addOFSwitchListener(this);
+		}
 		restApiService.addRestletRoutable(new VirtualNetworkWebRoutable());
 		deviceService.addListener(this.deviceListener);
 	}
@@ -345,6 +606,8 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		switch (msg.getType()) {
 		case PACKET_IN:
 			return processPacketIn(sw, (OFPacketIn)msg, cntx);
+		case FLOW_REMOVED:
+			return processFlowRemoved(sw, (OFFlowRemoved)msg);
 		default:
 			break;
 		}
@@ -358,21 +621,9 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 	 * @return True if it is to/from a gateway, false otherwise.
 	 */
 	protected boolean isDefaultGateway(Ethernet frame) {
-		if (macToGateway.containsKey(frame.getSourceMACAddress()))
-			return true;
-
-		IPv4Address gwIp = macToGateway.get(frame.getDestinationMACAddress());
-		if (gwIp != null) {
-			MacAddress host = frame.getSourceMACAddress();
-			String srcNet = macToGuid.get(host);
-			if (srcNet != null) {
-				IPv4Address gwIpSrcNet = guidToGateway.get(srcNet);
-				if ((gwIpSrcNet != null) && (gwIp.equals(gwIpSrcNet)))
-					return true;
-			}
-		}
-
-		return false;
+		VirtualNetworkIndex idx = index;
+		return idx.isGateway(frame.getSourceMACAddress())
+				|| idx.isGatewayOf(frame.getDestinationMACAddress(), frame.getSourceMACAddress());
 	}
 
 	/**
@@ -383,11 +634,7 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 	 *          false otherwise.
 	 */
 	protected boolean oneSameNetwork(MacAddress m1, MacAddress m2) {
-		String net1 = macToGuid.get(m1);
-		String net2 = macToGuid.get(m2);
-		if (net1 == null) return false;
-		if (net2 == null) return false;
-		return net1.equals(net2);
+		return index.onSameNetwork(m1, m2);
 	}
 
 	/**
@@ -417,16 +664,17 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		Ethernet eth = IFloodlightProviderService.bcStore.get(cntx,
 				IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
 		Command ret = Command.STOP;
-		String srcNetwork = macToGuid.get(eth.getSourceMACAddress());
+		VirtualNetworkIndex idx = index;
+		int srcNetwork = idx.getNetwork(eth.getSourceMACAddress());
 		// If the host is on an unknown network we deny it.
 		// We make exceptions for ARP and DHCP.
 		if (eth.isBroadcast() || eth.isMulticast() || isDefaultGateway(eth) || isDhcpPacket(eth)) {
 			ret = Command.CONTINUE;
-		} else if (srcNetwork == null) {
+		} else if (srcNetwork == VirtualNetworkIndex.NONE) {
 			log.trace("Blocking traffic from host {} because it is not attached to any network.",
 					eth.getSourceMACAddress().toString());
 			ret = Command.STOP;
-		} else if (oneSameNetwork(eth.getSourceMACAddress(), eth.getDestinationMACAddress())) {
+		} else if (srcNetwork == idx.getNetwork(eth.getDestinationMACAddress())) {
 			// if they are on the same network continue
 			ret = Command.CONTINUE;
 		}
@@ -434,17 +682,31 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		if (log.isTraceEnabled())
 			log.trace("Results for flow between {} and {} is {}",
 					new Object[] {eth.getSourceMACAddress(), eth.getDestinationMACAddress(), ret});
-		/*
-		 * TODO - figure out how to still detect gateways while using
-		 * drop mods
-        if (ret == Command.STOP) {
-            if (!(eth.getPayload() instanceof ARP))
-                doDropFlow(sw, msg, cntx);
-        }
-		 */
+		// ARP is never dropped in the switches so that gateways can still be
+		// learned; a newly learned gateway removes the drop flows of its MAC.
+		if (installDropFlows && ret == Command.STOP && srcNetwork != VirtualNetworkIndex.NONE) {
+			if (!(eth.getPayload() instanceof ARP))
+				doDropFlow(sw, msg, cntx);
+		}
 		return ret;
 	}
 
+	/**
+	 * Forgets our drop flows once the switch has removed them, so that
+	 * dropFlowPeers only holds pairs that still have flows to delete.
+	 * @param sw The switch the flow was removed from.
+	 * @param msg The OFFlowRemoved message from the switch.
+	 * @return Command.CONTINUE, so other modules see the message too.
+	 */
+	protected Command processFlowRemoved(IOFSwitch sw, OFFlowRemoved msg) {
+		if (AppCookie.extractApp(msg.getCookie()) != APP_ID) return Command.CONTINUE;
+		Match match = msg.getMatch();
+		MacAddress src = match.get(MatchField.ETH_SRC);
+		MacAddress dst = match.get(MatchField.ETH_DST);
+		if (src != null && dst != null) removeDropFlow(sw.getId(), src, dst);
+		return Command.CONTINUE;
+	}
+
 	/**
 	 * Writes a FlowMod to a switch that inserts a drop flow.
 	 * @param sw The switch to write the FlowMod to.
@@ -462,21 +724,29 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 			return;
 		}
 
-		// Create flow-mod based on packet-in and src-switch
-		OFFlowMod.Builder fmb = sw.getOFFactory().buildFlowModify();
+		// Create flow-mod based on the MAC addresses of the packet so it
+		// applies to the host pair regardless of the ingress port
+		Ethernet eth = IFloodlightProviderService.bcStore.get(cntx,
+				IFloodlightProviderService.CONTEXT_PI_PAYLOAD);
+		Match match = dropFlowMatch(sw.getOFFactory(),
+				eth.getSourceMACAddress(), eth.getDestinationMACAddress());
+		// Remember the flow so it can be deleted when either host changes
+		addDropFlow(sw.getId(), eth.getSourceMACAddress(), eth.getDestinationMACAddress());
+		OFFlowMod.Builder fmb = sw.getOFFactory().buildFlowAdd();
 		List<OFAction> actions = new ArrayList<OFAction>(); // no actions = drop
 		U64 cookie = AppCookie.makeCookie(APP_ID, 0);
 		fmb.setCookie(cookie)
 		.setIdleTimeout(ForwardingBase.FLOWMOD_DEFAULT_IDLE_TIMEOUT)
 		.setHardTimeout(ForwardingBase.FLOWMOD_DEFAULT_HARD_TIMEOUT)
 		.setBufferId(OFBufferId.NO_BUFFER)
-		.setMatch(pi.getMatch())
+		.setFlags(Collections.singleton(OFFlowModFlags.SEND_FLOW_REM))
+		.setMatch(match)
 		.setActions(actions);
 
 		if (log.isTraceEnabled()) {
 			log.trace("write drop flow-mod srcSwitch={} match={} " +
 					"pi={} flow-mod={}",
-					new Object[] {sw, pi.getMatch(), pi, fmb.build()});
+					new Object[] {sw, match, pi, fmb.build()});
 		}
 		sw.write(fmb.build());
 		return;
@@ -487,32 +757,90 @@ implements IFloodlightModule, IVirtualNetworkService, IOFMessageListener {
 		return vNetsByGuid.values();
 	}
 
+	@Override
+	public boolean isAllowed(MacAddress src, MacAddress dst) {
+		VirtualNetworkIndex idx = index;
+		return idx.isGateway(src) || idx.isGatewayOf(dst, src)
+				|| idx.onSameNetwork(src, dst);
+	}
+
+	// IOFSwitchListener
+
+	@Override
+	public void switchAdded(DatapathId switchId) {
+		// ignore
+	}
+
+	@Override
+	public void switchRemoved(DatapathId switchId) {
+		// A disconnected switch never reports the removal of its flows
+		synchronized (dropFlows) {
+			List<MacAddress[]> pairs = new ArrayList<MacAddress[]>();
+			for (Entry<MacAddress, Map<MacAddress, Set<DatapathId>>> e : dropFlows.entrySet()) {
+				for (Entry<MacAddress, Set<DatapathId>> f : e.getValue().entrySet()) {
+					if (f.getValue().contains(switchId))
+						pairs.add(new MacAddress[] { e.getKey(), f.getKey() });
+				}
+			}
+			for (MacAddress[] pair : pairs) {
+				removeDropFlow(switchId, pair[0], pair[1]);
+			}
+		}
+	}
+
+	@Override
+	public void switchActivated(DatapathId switchId) {
+		// ignore
+	}
+
+	@Override
+	public void switchPortChanged(DatapathId switchId, OFPortDesc port,
+			PortChangeType type) {
+		// ignore
+	}
+
+	@Override
+	public void switchChanged(DatapathId switchId) {
+		// ignore
+	}
+
 	// IDeviceListener
 	class DeviceListenerImpl implements IDeviceListener{
 		@Override
 		public void deviceAdded(IDevice device) {
 			if (device.getIPv4Addresses() == null) return;
-			for (IPv4Address i : device.getIPv4Addresses()) {
-				if (gatewayToGuid.containsKey(i)) {
-					MacAddress mac = device.getMACAddress();
-					if (log.isDebugEnabled())
-						log.debug("Adding MAC {} with IP {} a a gateway",
-								mac.toString(),
-								i.toString());
-					macToGateway.put(mac, i);
+			synchronized (VirtualNetworkFilter.this) {
+				MacAddress mac = device.getMACAddress();
+				IPv4Address gateway = null;
+				for (IPv4Address i : device.getIPv4Addresses()) {
+					if (gatewayToGuid.containsKey(i)) {
+						if (log.isDebugEnabled())
+							log.debug("Adding MAC {} with IP {} a a gateway",
+									mac.toString(),
+									i.toString());
+						if (!i.equals(macToGateway.put(mac, i)))
+							gateway = i;
+					}
 				}
+				if (gateway != null)
+					publishIndex(index.edit().setGateway(mac, gateway), Collections.singleton(mac));
 			}
+			flushFlowDeletes();
 		}
 
 		@Override
 		public void deviceRemoved(IDevice device) {
 			// if device is a gateway remove
 			MacAddress mac = device.getMACAddress();
-			if (macToGateway.containsKey(mac)) {
-				if (log.isDebugEnabled())
-					log.debug("Removing MAC {} as a gateway", mac.toString());
-				macToGateway.remove(mac);
+			synchronized (VirtualNetworkFilter.this) {
+				if (macToGateway.containsKey(mac)) {
+					if (log.isDebugEnabled())
+						log.debug("Removing MAC {} as a gateway", mac.toString());
+					macToGateway.remove(mac);
+					publishIndex(index.edit().setGateway(mac, null), Collections.singleton(mac));
+				}
 			}
+			flushFlowDeletes();
 		}
 
 		@Override
@@ -0,0 +1,355 @@
+package net.floodlightcontroller.virtualnetwork;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+
+/**
+ * An immutable snapshot of the MAC addresses known to the VirtualNetworkFilter.
+ * Every host and gateway MAC is stored once in an open-addressed table keyed
+ * by the MAC's long value, together with the index of the network the host
+ * belongs to and the index of the gateway IP the MAC answers for. This lets
+ * the packet-in path resolve tenancy with a single probe per MAC instead of
+ * chaining lookups through the filter's configuration maps.
+ *
+ * Changes are applied with an {@link Editor} to a copy of the current
+ * snapshot, and the result is published through a volatile reference, so
+ * readers never observe a partial update. Network and gateway indexes are
+ * kept from one snapshot to the next and are never reused.
+ */
+public class VirtualNetworkIndex {
+    public static final int NONE = -1;
+
+    private static final long EMPTY_SLOT = -1L; // MACs are only 48 bits long
+    private static final int MIN_CAPACITY = 16;
+    public static final VirtualNetworkIndex EMPTY = new Editor().build();
+
+    private final long[] macs;
+    private final int[] networks; // network index of a host MAC
+    private final int[] gateways; // gateway index of a gateway MAC
+    private final int[] networkGateways; // network index -> gateway index
+    private final int mask;
+    private final int size;
+    private final Map<String, Integer> networkIds; // Network ID -> network index
+    private final Map<IPv4Address, Integer> gatewayIds; // Gateway IP -> gateway index
+
+    private VirtualNetworkIndex(Editor e) {
+        macs = e.macs;
+        networks = e.networks;
+        gateways = e.gateways;
+        networkGateways = e.networkGateways;
+        mask = e.macs.length - 1;
+        size = e.size;
+        networkIds = e.networkIds;
+        gatewayIds = e.gatewayIds;
+    }
+
+    /**
+     * Builds a new snapshot from the filter's configuration maps.
+     * @param macToGuid Host MAC -> Network ID
+     * @param guidToGateway Network ID -> Gateway IP
+     * @param macToGateway Gateway MAC -> Gateway IP
+     * @return The new snapshot
+     */
+    public static VirtualNetworkIndex build(Map<MacAddress, String> macToGuid,
+                                            Map<String, IPv4Address> guidToGateway,
+                                            Map<MacAddress, IPv4Address> macToGateway) {
+        Editor e = EMPTY.edit();
+        for (Entry<MacAddress, String> entry : macToGuid.entrySet()) {
+            e.setHost(entry.getKey(), entry.getValue());
+        }
+        for (Entry<MacAddress, IPv4Address> entry : macToGateway.entrySet()) {
+            e.setGateway(entry.getKey(), entry.getValue());
+        }
+        for (Entry<String, IPv4Address> entry : guidToGateway.entrySet()) {
+            e.setNetworkGateway(entry.getKey(), entry.getValue());
+        }
+        return e.build();
+    }
+
+    /**
+     * @return An editor holding a copy of this snapshot, which is left unchanged.
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    private static int hash(long mac) {
+        long h = mac * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(MacAddress mac) {
+        if (mac == null) return NONE;
+        long key = mac.getLong();
+        int slot = hash(key) & mask;
+        while (macs[slot] != EMPTY_SLOT) {
+            if (macs[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return The number of host and gateway MACs in this snapshot.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param mac A host MAC address
+     * @return The index of the host's network in this snapshot, or NONE
+     * if the host is not attached to any network.
+     */
+    public int getNetwork(MacAddress mac) {
+        int slot = find(mac);
+        return slot == NONE ? NONE : networks[slot];
+    }
+
+    /**
+     * @param mac A MAC address
+     * @return True if the MAC belongs to a known gateway.
+     */
+    public boolean isGateway(MacAddress mac) {
+        int slot = find(mac);
+        return slot != NONE && gateways[slot] != NONE;
+    }
+
+    /**
+     * Checks whether a gateway MAC is the gateway of the host's network.
+     * @param gatewayMac The MAC address of the gateway.
+     * @param host The MAC address of the host.
+     * @return True if the host's network uses the gateway, false otherwise.
+     */
+    public boolean isGatewayOf(MacAddress gatewayMac, MacAddress host) {
+        int slot = find(gatewayMac);
+        if (slot == NONE || gateways[slot] == NONE) return false;
+        int network = getNetwork(host);
+        return network != NONE && networkGateways[network] == gateways[slot];
+    }
+
+    /**
+     * Checks to see if two MAC Addresses are on the same network.
+     * @param m1 The first MAC.
+     * @param m2 The second MAC.
+     * @return True if both hosts are attached to the same network.
+     */
+    public boolean onSameNetwork(MacAddress m1, MacAddress m2) {
+        int net1 = getNetwork(m1);
+        return net1 != NONE && net1 == getNetwork(m2);
+    }
+
+    /**
+     * A private copy of a snapshot that changes are applied to. Building it
+     * hands the copy over to a new snapshot; the editor cannot be used after
+     * that.
+     */
+    public static class Editor {
+        private long[] macs;
+        private int[] networks;
+        private int[] gateways;
+        private int[] networkGateways;
+        private int size;
+        private final Map<String, Integer> networkIds;
+        private final Map<IPv4Address, Integer> gatewayIds;
+
+        private Editor() {
+            allocate(MIN_CAPACITY);
+            networkGateways = new int[0];
+            networkIds = new HashMap<String, Integer>();
+            gatewayIds = new HashMap<IPv4Address, Integer>();
+        }
+
+        private Editor(VirtualNetworkIndex index) {
+            macs = index.macs.clone();
+            networks = index.networks.clone();
+            gateways = index.gateways.clone();
+            networkGateways = index.networkGateways.clone();
+            size = index.size;
+            networkIds = new HashMap<String, Integer>(index.networkIds);
+            gatewayIds = new HashMap<IPv4Address, Integer>(index.gatewayIds);
+        }
+
+        private void allocate(int capacity) {
+            macs = new long[capacity];
+            networks = new int[capacity];
+            gateways = new int[capacity];
+            Arrays.fill(macs, EMPTY_SLOT);
+            Arrays.fill(networks, NONE);
+            Arrays.fill(gateways, NONE);
+        }
+
+        private int find(long mac) {
+            int mask = macs.length - 1;
+            int slot = hash(mac) & mask;
+            while (macs[slot] != EMPTY_SLOT) {
+                if (macs[slot] == mac) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return NONE;
+        }
+
+        private int insert(long mac) {
+            int slot = find(mac);
+            if (slot != NONE) return slot;
+            // Keep the load factor at or below one half
+            if (2 * (size + 1) > macs.length) {
+                long[] oldMacs = macs;
+                int[] oldNetworks = networks;
+                int[] oldGateways = gateways;
+                allocate(macs.length << 1);
+                for (int i = 0; i < oldMacs.length; i++) {
+                    if (oldMacs[i] == EMPTY_SLOT) continue;
+                    int s = probe(oldMacs[i]);
+                    macs[s] = oldMacs[i];
+                    networks[s] = oldNetworks[i];
+                    gateways[s] = oldGateways[i];
+                }
+            }
+            slot = probe(mac);
+            macs[slot] = mac;
+            size++;
+            return slot;
+        }
+
+        private int probe(long mac) {
+            int mask = macs.length - 1;
+            int slot = hash(mac) & mask;
+            while (macs[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Empties a slot and moves later entries of its probe sequence back
+         * so that lookups never stop short of them.
+         */
+        private void remove(int slot) {
+            int mask = macs.length - 1;
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                macs[hole] = EMPTY_SLOT;
+                networks[hole] = NONE;
+                gateways[hole] = NONE;
+                while (true) {
+                    next = (next + 1) & mask;
+                    if (macs[next] == EMPTY_SLOT) {
+                        size--;
+                        return;
+                    }
+                    int home = hash(macs[next]) & mask;
+                    // Entries whose home lies cyclically in (hole, next] stay put
+                    boolean stays = hole <= next ? (hole < home && home <= next)
+                                                 : (hole < home || home <= next);
+                    if (!stays) break;
+                }
+                macs[hole] = macs[next];
+                networks[hole] = networks[next];
+                gateways[hole] = gateways[next];
+                hole = next;
+            }
+        }
+
+        private void removeIfUnused(int slot) {
+            if (networks[slot] == NONE && gateways[slot] == NONE) {
+                remove(slot);
+            }
+        }
+
+        private int networkId(String guid) {
+            Integer id = networkIds.get(guid);
+            if (id == null) {
+                id = networkIds.size();
+                networkIds.put(guid, id);
+                networkGateways = Arrays.copyOf(networkGateways, id + 1);
+                networkGateways[id] = NONE;
+            }
+            return id;
+        }
+
+        private int gatewayId(IPv4Address ip) {
+            Integer id = gatewayIds.get(ip);
+            if (id == null) {
+                id = gatewayIds.size();
+                gatewayIds.put(ip, id);
+            }
+            return id;
+        }
+
+        /**
+         * Attaches a host to a network, or detaches it.
+         * @param mac The MAC address of the host.
+         * @param guid The ID of the network, or null to detach the host.
+         * @return This editor.
+         */
+        public Editor setHost(MacAddress mac, String guid) {
+            if (guid != null) {
+                // insert() may replace the arrays, so it must run first
+                int slot = insert(mac.getLong());
+                networks[slot] = networkId(guid);
+            } else {
+                int slot = find(mac.getLong());
+                if (slot != NONE) {
+                    networks[slot] = NONE;
+                    removeIfUnused(slot);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Sets the gateway IP a MAC address answers for.
+         * @param mac The MAC address of the gateway.
+         * @param ip The IP address of the gateway, or null if the MAC is no
+         * longer a gateway.
+         * @return This editor.
+         */
+        public Editor setGateway(MacAddress mac, IPv4Address ip) {
+            if (ip != null) {
+                int slot = insert(mac.getLong());
+                gateways[slot] = gatewayId(ip);
+            } else {
+                int slot = find(mac.getLong());
+                if (slot != NONE) {
+                    gateways[slot] = NONE;
+                    removeIfUnused(slot);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Sets the gateway of a network.
+         * @param guid The ID of the network.
+         * @param ip The IP address of the gateway, or null for none.
+         * @return This editor.
+         */
+        public Editor setNetworkGateway(String guid, IPv4Address ip) {
+            if (ip != null) {
+                networkGateways[networkId(guid)] = gatewayId(ip);
+            } else {
+                Integer id = networkIds.get(guid);
+                if (id != null) networkGateways[id] = NONE;
+            }
+            return this;
+        }
+
+        /**
+         * @return A new snapshot with the changes applied.
+         */
+        public VirtualNetworkIndex build() {
+            if (macs == null)
+                throw new IllegalStateException("Snapshot already built");
+            VirtualNetworkIndex index = new VirtualNetworkIndex(this);
+            macs = null;
+            return index;
+        }
+    }
+}
@@ -16,12 +16,16 @@
 
 package org.sdnplatform.sync;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.sdnplatform.sync.error.ObsoleteVersionException;
 import org.sdnplatform.sync.error.SyncException;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 /**
  * The user-facing interface to a sync store. Gives basic put/get/delete
@@ -157,6 +161,54 @@ public interface IStoreClient<K, V> {
     public boolean putIfNotObsolete(K key, Versioned<V> versioned)
             throws SyncException;
 
+    /**
+     * Get the versioned values associated with the given keys in a single
+     * request to the store.  As for {@link #get(Object)}, every key is
+     * present in the result, possibly with a {@link Versioned} that has a
+     * null value.
+     *
+     * @param keys The keys for which to fetch the values
+     * @return a map from each key to its versioned value
+     * @throws SyncException
+     */
+    public Map<K, Versioned<V>> getAll(Collection<K> keys)
+            throws SyncException;
+
+    /**
+     * Associate each of the given values to its key, clobbering any existing
+     * values, with a single request to the store.  The same caveats as for
+     * {@link #put(Object, Object)} apply.  The values are written
+     * independently, so if the put fails some of them may have been written.
+     *
+     * @param values a map from each key to its new value
+     * @throws SyncException
+     */
+    public void putAll(Map<K, V> values) throws SyncException;
+
+    /**
+     * Get the versioned value associated with the given key without
+     * waiting for the store.  Callbacks on the returned future may run
+     * in a thread of the sync manager, so they must not block.
+     *
+     * @param key The key for which to fetch the value.
+     * @return a future for the versioned value, as returned by
+     * {@link #get(Object)}
+     * @see #get(Object)
+     */
+    public ListenableFuture<Versioned<V>> getAsync(K key);
+
+    /**
+     * Associate the given value to the key without waiting for the store.
+     * Callbacks on the returned future may run in a thread of the sync
+     * manager, so they must not block.
+     *
+     * @param key The key
+     * @param value The value
+     * @return a future for the version of the object
+     * @see #put(Object, Object)
+     */
+    public ListenableFuture<IVersion> putAsync(K key, V value);
+
     /**
      * Delete the key by writing a null tombstone to the store obliterating
      * any existing value stored for the key.
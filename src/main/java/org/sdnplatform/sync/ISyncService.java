@@ -133,4 +133,24 @@ public interface ISyncService extends IFloodlightService {
                        IInconsistencyResolver<Versioned<V>> resolver)
                                throws UnknownStoreException;
 
+    /**
+     * Get a store client that will use the provided serializer for the
+     * values of the store instead of mapping them to JSON.  Keys are still
+     * mapped to JSON.
+     * @param storeName the name of the store to retrieve
+     * @param keyClass the class for the underlying key needed for
+     * deserialization
+     * @param valueSerializer the serializer for the values
+     * @param resolver the inconsistency resolver to use for the store, or
+     * null to use the default one
+     * @return the store client
+     * @throws UnknownStoreException
+     */
+    public <K, V> IStoreClient<K, V>
+        getStoreClient(String storeName,
+                       Class<K> keyClass,
+                       IValueSerializer<V> valueSerializer,
+                       IInconsistencyResolver<Versioned<V>> resolver)
+                               throws UnknownStoreException;
+
 }
@@ -0,0 +1,29 @@
+package org.sdnplatform.sync;
+
+import org.sdnplatform.sync.error.SyncException;
+
+/**
+ * Converts the values of a store to and from bytes, for stores whose
+ * values have a more compact encoding than the default JSON mapping.
+ * Every node that uses the store must register the same serializer.
+ * @param <V> the value type
+ * @see ISyncService#getStoreClient(String, Class, IValueSerializer,
+ * IInconsistencyResolver)
+ */
+public interface IValueSerializer<V> {
+    /**
+     * Serialize a value
+     * @param value the value, which is never null
+     * @return the serialized value
+     * @throws SyncException
+     */
+    public byte[] serialize(V value) throws SyncException;
+
+    /**
+     * Deserialize a value
+     * @param data the serialized value
+     * @return the value
+     * @throws SyncException
+     */
+    public V deserialize(byte[] data) throws SyncException;
+}
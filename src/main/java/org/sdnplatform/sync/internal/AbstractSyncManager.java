@@ -8,6 +8,7 @@ import java.util.Map;
 import org.sdnplatform.sync.IInconsistencyResolver;
 import org.sdnplatform.sync.IStoreClient;
 import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.IValueSerializer;
 import org.sdnplatform.sync.Versioned;
 import org.sdnplatform.sync.error.UnknownStoreException;
 import org.sdnplatform.sync.internal.store.IStore;
@@ -73,6 +74,23 @@ public abstract class AbstractSyncManager
                               valueClass, null, resolver);
     }
 
+    @Override
+    public <K, V> IStoreClient<K, V>
+        getStoreClient(String storeName,
+                       Class<K> keyClass,
+                       IValueSerializer<V> valueSerializer,
+                       IInconsistencyResolver<Versioned<V>> resolver)
+                               throws UnknownStoreException {
+        IStore<ByteArray,byte[]> store = getStore(storeName);
+        IStore<K, V> serializingStore =
+                new JacksonStore<K, V>(store, keyClass, valueSerializer);
+        return new DefaultStoreClient<K, V>(serializingStore,
+                                            resolver,
+                                            this,
+                                            keyClass,
+                                            null);
+    }
+
     // *****************
     // IFloodlightModule
     // *****************
@@ -1,9 +1,21 @@
 package org.sdnplatform.sync.internal;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.sdnplatform.sync.IClosableIterator;
 import org.sdnplatform.sync.IInconsistencyResolver;
@@ -36,6 +48,11 @@ public class DefaultStoreClient<K, V> extends AbstractStoreClient<K, V> {
     protected static final Logger logger =
             LoggerFactory.getLogger(DefaultStoreClient.class.getName());
 
+    /**
+     * How long the blocking batch operations wait for the store, in seconds
+     */
+    protected static final int BATCH_TIMEOUT = 30;
+
     private IStore<K, V> delegate;
     private IInconsistencyResolver<Versioned<V>> resolver;
     private AbstractSyncManager syncManager;
@@ -91,6 +108,44 @@ public class DefaultStoreClient<K, V> extends AbstractStoreClient<K, V> {
         return versioned.getVersion();
     }
 
+    @Override
+    public Map<K, Versioned<V>> getAll(Collection<K> keys)
+            throws SyncException {
+        return waitFor(getAllAsync(keys));
+    }
+
+    @Override
+    public void putAll(Map<K, V> values) throws SyncException {
+        waitFor(putAllAsync(values));
+    }
+
+    @Override
+    public ListenableFuture<Versioned<V>> getAsync(final K key) {
+        Function<Map<K, Versioned<V>>, Versioned<V>> getValue =
+                new Function<Map<K, Versioned<V>>, Versioned<V>>() {
+            @Override
+            public Versioned<V> apply(Map<K, Versioned<V>> values) {
+                return values.get(key);
+            }
+        };
+        return Futures.transform(getAllAsync(Collections.singleton(key)),
+                                 getValue);
+    }
+
+    @Override
+    public ListenableFuture<IVersion> putAsync(final K key, V value) {
+        Function<Map<K, IVersion>, IVersion> getVersion =
+                new Function<Map<K, IVersion>, IVersion>() {
+            @Override
+            public IVersion apply(Map<K, IVersion> versions) {
+                return versions.get(key);
+            }
+        };
+        return Futures.transform(putAllAsync(Collections.singletonMap(key,
+                                                                      value)),
+                                 getVersion);
+    }
+
     @Override
     public void addStoreListener(IStoreListener<K> listener) {
         if (listener == null)
@@ -120,6 +175,103 @@ public class DefaultStoreClient<K, V> extends AbstractStoreClient<K, V> {
     // Private local methods
     // *********************
 
+    /**
+     * Get the resolved values for a set of keys with a single request to
+     * the store
+     * @param keys the keys
+     * @return a future for a map from every key to its resolved value
+     */
+    protected ListenableFuture<Map<K, Versioned<V>>>
+            getAllAsync(final Collection<K> keys) {
+        AsyncFunction<Map<K, List<Versioned<V>>>, Map<K, Versioned<V>>>
+            resolve = new AsyncFunction<Map<K, List<Versioned<V>>>,
+                                        Map<K, Versioned<V>>>() {
+            @Override
+            public ListenableFuture<Map<K, Versioned<V>>>
+                    apply(Map<K, List<Versioned<V>>> raw) throws Exception {
+                Map<K, Versioned<V>> values =
+                        new HashMap<K, Versioned<V>>();
+                for (K key : keys) {
+                    values.put(key, handleGet(key, null, raw.get(key)));
+                }
+                return Futures.immediateFuture(values);
+            }
+        };
+        return Futures.transform(delegate.getAllAsync(keys), resolve);
+    }
+
+    /**
+     * Write a set of values with a single request to the store, each on
+     * top of the current version of its key as in
+     * {@link AbstractStoreClient#put(Object, Object)}
+     * @param values the values
+     * @return a future for a map from every key to its new version
+     */
+    protected ListenableFuture<Map<K, IVersion>>
+            putAllAsync(final Map<K, V> values) {
+        AsyncFunction<Map<K, List<Versioned<V>>>, Map<K, IVersion>>
+            write = new AsyncFunction<Map<K, List<Versioned<V>>>,
+                                      Map<K, IVersion>>() {
+            @Override
+            public ListenableFuture<Map<K, IVersion>>
+                    apply(Map<K, List<Versioned<V>>> raw) throws Exception {
+                Map<K, Versioned<V>> versioned =
+                        new HashMap<K, Versioned<V>>();
+                Map<K, IVersion> versions = new HashMap<K, IVersion>();
+                long now = System.currentTimeMillis();
+                for (Entry<K, V> e : values.entrySet()) {
+                    K key = e.getKey();
+                    VectorClock vc = baseVersion(key, raw.get(key));
+                    vc = vc.incremented(syncManager.getLocalNodeId(), now);
+                    versioned.put(key, Versioned.value(e.getValue(), vc));
+                    versions.put(key, vc);
+                }
+                return Futures.transform(delegate.putAllAsync(versioned),
+                                         Functions.constant(versions));
+            }
+        };
+        return Futures.transform(delegate.getAllAsync(values.keySet()),
+                                 write);
+    }
+
+    /**
+     * Get the version a new value for a key replaces
+     * @param key the key
+     * @param raw the current values of the key
+     * @return the version
+     * @throws InconsistentDataException
+     */
+    private VectorClock baseVersion(K key, List<Versioned<V>> raw)
+            throws InconsistentDataException {
+        if (raw == null || raw.isEmpty())
+            return new VectorClock();
+        if (raw.size() == 1)
+            return (VectorClock)raw.get(0).getVersion();
+        return (VectorClock)handleGet(key, null, raw).getVersion();
+    }
+
+    /**
+     * Wait for the result of a batch operation
+     * @param future the future for the result
+     * @return the result
+     * @throws SyncException if the operation failed or timed out
+     */
+    private static <T> T waitFor(ListenableFuture<T> future)
+            throws SyncException {
+        try {
+            return future.get(BATCH_TIMEOUT, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SyncException)
+                throw (SyncException)e.getCause();
+            throw new SyncException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new SyncException("Timed out on operation", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SyncException("Interrupted while waiting for store", e);
+        }
+    }
+
     protected Versioned<V> handleGet(K key,
                                      Versioned<V> defaultValue,
                                      List<Versioned<V>> raw) 
@@ -19,6 +19,7 @@ import org.sdnplatform.sync.error.SyncException;
 import org.sdnplatform.sync.internal.store.IStorageEngine;
 import org.sdnplatform.sync.internal.store.InMemoryStorageEngine;
 import org.sdnplatform.sync.internal.store.JavaDBStorageEngine;
+import org.sdnplatform.sync.internal.store.LogStorageEngine;
 import org.sdnplatform.sync.internal.store.SynchronizingStorageEngine;
 import org.sdnplatform.sync.internal.util.ByteArray;
 import org.slf4j.Logger;
@@ -42,6 +43,12 @@ public class StoreRegistry {
      * Directory where the persistent store will be located
      */
     private final String dbPath;
+
+    /**
+     * Whether persistent stores use a {@link LogStorageEngine} rather than
+     * a {@link JavaDBStorageEngine}
+     */
+    private final boolean logEngine;
     
     /**
      * A data source suitable for use in persistent stores
@@ -71,9 +78,22 @@ public class StoreRegistry {
      * @param syncManager The associated syncManager
      */
     public StoreRegistry(SyncManager syncManager, String dbPath) {
+        this(syncManager, dbPath, false);
+    }
+
+    /**
+     * Construct a new {@link StoreRegistry}
+     * @param syncManager The associated syncManager
+     * @param dbPath Directory where the persistent stores will be located
+     * @param logEngine whether persistent stores use a
+     * {@link LogStorageEngine} rather than a {@link JavaDBStorageEngine}
+     */
+    public StoreRegistry(SyncManager syncManager, String dbPath,
+                         boolean logEngine) {
         super();
         this.syncManager = syncManager;
         this.dbPath = dbPath;
+        this.logEngine = logEngine;
         hints = new InMemoryStorageEngine<HintKey, byte[]>("system-hints");
     }
     
@@ -110,7 +130,10 @@ public class StoreRegistry {
         }
                 
         IStorageEngine<ByteArray, byte[]> dstore;
-        if (persistent) {
+        if (persistent && logEngine) {
+            dstore = new LogStorageEngine(storeName,
+                    LogStorageEngine.getStoreDir(dbPath, storeName));
+        } else if (persistent) {
             if (persistentDataSource == null)
                 persistentDataSource = JavaDBStorageEngine.getDataSource(dbPath, false);
             dstore = new JavaDBStorageEngine(storeName, persistentDataSource);
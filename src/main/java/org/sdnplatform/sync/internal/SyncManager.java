@@ -3,7 +3,7 @@ package org.sdnplatform.sync.internal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -46,8 +46,8 @@ import org.sdnplatform.sync.internal.version.VectorClock;
 import org.sdnplatform.sync.thrift.SyncMessage;
 import org.sdnplatform.sync.thrift.KeyedValues;
 import org.sdnplatform.sync.thrift.KeyedVersions;
+import org.sdnplatform.sync.thrift.Store;
 import org.sdnplatform.sync.thrift.SyncOfferMessage;
-import org.sdnplatform.sync.thrift.SyncValueMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -462,7 +462,10 @@ public class SyncManager extends AbstractSyncManager {
         threadPool = context.getServiceImpl(IThreadPoolService.class);
         debugCounter = context.getServiceImpl(IDebugCounterService.class);
         Map<String, String> config = context.getConfigParams(this);
-        storeRegistry = new StoreRegistry(this, config.get("dbPath"));
+        // "log" stores persistent data in segment logs instead of Java DB
+        storeRegistry =
+                new StoreRegistry(this, config.get("dbPath"),
+                                  "log".equalsIgnoreCase(config.get("persistentStorageEngine")));
 
         String[] configProviders =
              {PropertyCCProvider.class.getName(),
@@ -746,8 +749,10 @@ public class SyncManager extends AbstractSyncManager {
     }
 
     /**
-     * Worker thread that will drain the sync item queue and write the
-     * appropriate messages to the node I/O channels
+     * Worker thread that will drain the sync item queue and hand the
+     * values to the send queues of the connected nodes.  Writing to the
+     * node I/O channels is left to the send queue workers of the
+     * {@link RPCService}, so a slow node cannot hold up the others.
      * @author readams
      */
     @LogMessageDoc(level="ERROR",
@@ -756,28 +761,16 @@ public class SyncManager extends AbstractSyncManager {
             recommendation=LogMessageDoc.REPORT_CONTROLLER_BUG)
     protected class HintWorker implements Runnable {
         ArrayList<Hint> tasks = new ArrayList<Hint>(50);
-        protected Map<String, SyncMessage> messages =
-                new LinkedHashMap<String, SyncMessage>();
+        protected Map<String, Store> stores =
+                new HashMap<String, Store>();
 
         @Override
         public void run() {
             while (rpcService != null) {
                 try {
-                    // Batch up sync tasks so we use fewer, larger messages
                     // XXX - todo - handle hints targeted to specific nodes
                     storeRegistry.takeHints(tasks, 50);
-                    for (Hint task : tasks) {
-                        counterHints.increment();
-                        SynchronizingStorageEngine store =
-                                storeRegistry.get(task.getHintKey().
-                                                  getStoreName());
-                        SyncMessage bsm = getMessage(store);
-                        KeyedValues kv =
-                                TProtocolUtil.
-                                getTKeyedValues(task.getHintKey().getKey(),
-                                                task.getValues());
-                        bsm.getSyncValue().addToValues(kv);
-                    }
+                    counterHints.add(tasks.size());
 
                     Iterable<Node> nodes = getClusterConfig().getNodes();
                     short localDomainId =
@@ -787,24 +780,23 @@ public class SyncManager extends AbstractSyncManager {
                     for (Node n : nodes) {
                         if (localNodeId == n.getNodeId())
                             continue;
-                        for (SyncMessage bsm : messages.values()) {
-                            SyncValueMessage svm = bsm.getSyncValue();
-                            if (svm.getStore().getScope().
+                        for (Hint task : tasks) {
+                            Store store =
+                                    getStore(task.getHintKey().getStoreName());
+                            if (store.getScope().
                                     equals(org.sdnplatform.sync.thrift.
                                            Scope.LOCAL) &&
                                            n.getDomainId() != localDomainId) {
-                                // This message is only for local domain
+                                // This value is only for local domain
                                 continue;
                             }
-
-                            svm.getHeader().
-                            setTransactionId(rpcService.getTransactionId());
-                            counterSentValues.add(bsm.getSyncValue().getValuesSize());
-                            rpcService.writeToNode(n.getNodeId(), bsm);
+                            rpcService.queueValues(n.getNodeId(), store,
+                                                   task.getHintKey().getKey(),
+                                                   task.getValues());
                         }
                     }
                     tasks.clear();
-                    clearMessages();
+                    stores.clear();
 
                 } catch (Exception e) {
                     logger.error("Error occured in synchronization worker", e);
@@ -813,28 +805,21 @@ public class SyncManager extends AbstractSyncManager {
         }
 
         /**
-         * Clear the current list of pending messages
-         */
-        private void clearMessages() {
-            messages.clear();
-        }
-
-        /**
-         * Allocate a partially-initialized {@link SyncMessage} object for
-         * the given store
-         * @param store the store
-         * @return the {@link SyncMessage} object
+         * Get the thrift description of the given store
+         * @param storeName the name of the store
+         * @return the {@link Store} object
          */
-        private SyncMessage getMessage(SynchronizingStorageEngine store) {
-            String storeName = store.getName();
-            SyncMessage bsm = messages.get(storeName);
-            if (bsm == null) {
-                bsm = TProtocolUtil.getTSyncValueMessage(storeName,
-                                                         store.getScope(),
-                                                         store.isPersistent());
-                messages.put(storeName, bsm);
+        private Store getStore(String storeName) {
+            Store store = stores.get(storeName);
+            if (store == null) {
+                SynchronizingStorageEngine engine =
+                        storeRegistry.get(storeName);
+                store = TProtocolUtil.getTStore(storeName,
+                                                engine.getScope(),
+                                                engine.isPersistent());
+                stores.put(storeName, store);
             }
-            return bsm;
+            return store;
         }
     }
 }
@@ -39,6 +39,7 @@ public class SyncTorture implements IFloodlightModule {
     int keysPerWorker = 1024*1024;
     int iterations = 0;
     int delay = 0;
+    boolean persistent = false;
 
     @Override
     public Collection<Class<? extends IFloodlightService>>
@@ -69,13 +70,21 @@ public class SyncTorture implements IFloodlightModule {
         syncService = context.getServiceImpl(ISyncService.class);
         debugCounter = context.getServiceImpl(IDebugCounterService.class);
 
+        Map<String,String> config = context.getConfigParams(this);
+        if (config.containsKey("persistent")) {
+            persistent = Boolean.parseBoolean(config.get("persistent"));
+        }
         try {
-            syncService.registerStore(SYNC_STORE_NAME, Scope.GLOBAL);
+            // A persistent store exercises the persistent storage engine
+            // configured in the sync manager
+            if (persistent)
+                syncService.registerPersistentStore(SYNC_STORE_NAME, Scope.GLOBAL);
+            else
+                syncService.registerStore(SYNC_STORE_NAME, Scope.GLOBAL);
         } catch (SyncException e) {
             throw new FloodlightModuleException(e);
         }
         
-        Map<String,String> config = context.getConfigParams(this);
         if (config.containsKey("numWorkers")) {
             numWorkers = Integer.parseInt(config.get("numWorkers"));
         }
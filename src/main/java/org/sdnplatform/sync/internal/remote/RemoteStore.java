@@ -1,10 +1,16 @@
 package org.sdnplatform.sync.internal.remote;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -28,6 +34,10 @@ import org.sdnplatform.sync.thrift.KeyedValues;
 import org.sdnplatform.sync.thrift.MessageType;
 import org.sdnplatform.sync.thrift.PutRequestMessage;
 
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 /**
  * A store implementation that will connect to a remote sync instance
@@ -93,6 +103,90 @@ public class RemoteStore implements IStore<ByteArray, byte[]> {
         getReply(header.getTransactionId(), bsm);
     }
 
+    @Override
+    public ListenableFuture<Map<ByteArray, List<Versioned<byte[]>>>>
+            getAllAsync(Collection<ByteArray> keys) {
+        if (keys.isEmpty())
+            return Futures.immediateFuture(Collections.
+                    <ByteArray, List<Versioned<byte[]>>>emptyMap());
+
+        GetRequestMessage grm = new GetRequestMessage();
+        AsyncMessageHeader header = new AsyncMessageHeader();
+        header.setTransactionId(syncManager.getTransactionId());
+        grm.setHeader(header);
+        grm.setStoreName(storeName);
+        try {
+            StoreUtils.assertValidKeys(keys);
+            for (ByteArray key : keys) {
+                grm.addToKeys(ByteBuffer.wrap(key.get()));
+            }
+        } catch (Exception e) {
+            return Futures.<Map<ByteArray, List<Versioned<byte[]>>>>
+                    immediateFailedFuture(e);
+        }
+
+        SyncMessage bsm = new SyncMessage(MessageType.GET_REQUEST);
+        bsm.setGetRequest(grm);
+
+        AsyncFunction<SyncReply, Map<ByteArray, List<Versioned<byte[]>>>>
+            getValues = new AsyncFunction<SyncReply,
+                                          Map<ByteArray,
+                                              List<Versioned<byte[]>>>>() {
+            @Override
+            public ListenableFuture<Map<ByteArray, List<Versioned<byte[]>>>>
+                    apply(SyncReply reply) throws Exception {
+                checkReply(reply);
+                Map<ByteArray, List<Versioned<byte[]>>> values =
+                        new HashMap<ByteArray, List<Versioned<byte[]>>>();
+                if (reply.getKeyedValues() != null) {
+                    for (KeyedValues kv : reply.getKeyedValues()) {
+                        values.put(new ByteArray(kv.getKey()),
+                                   TProtocolUtil.
+                                       getVersionedList(kv.getValues()));
+                    }
+                }
+                return Futures.immediateFuture(values);
+            }
+        };
+        return sendAsync(header.getTransactionId(), bsm, getValues);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<ByteArray, Versioned<byte[]>> values) {
+        if (values.isEmpty())
+            return Futures.immediateFuture(null);
+
+        PutRequestMessage prm = new PutRequestMessage();
+        AsyncMessageHeader header = new AsyncMessageHeader();
+        header.setTransactionId(syncManager.getTransactionId());
+        prm.setHeader(header);
+        prm.setStoreName(storeName);
+        try {
+            StoreUtils.assertValidKeys(values.keySet());
+            for (Entry<ByteArray, Versioned<byte[]>> e : values.entrySet()) {
+                prm.addToKeyedValues(TProtocolUtil.
+                        getTKeyedValues(e.getKey(), e.getValue()));
+            }
+        } catch (Exception e) {
+            return Futures.<Void>immediateFailedFuture(e);
+        }
+
+        SyncMessage bsm = new SyncMessage(MessageType.PUT_REQUEST);
+        bsm.setPutRequest(prm);
+
+        AsyncFunction<SyncReply, Void> done =
+                new AsyncFunction<SyncReply, Void>() {
+            @Override
+            public ListenableFuture<Void> apply(SyncReply reply)
+                    throws Exception {
+                checkReply(reply);
+                return Futures.immediateFuture(null);
+            }
+        };
+        return sendAsync(header.getTransactionId(), bsm, done);
+    }
+
     @Override
     public List<IVersion> getVersions(ByteArray key) throws SyncException {
         List<Versioned<byte[]>> values = get(key);
@@ -132,10 +226,38 @@ public class RemoteStore implements IStore<ByteArray, byte[]> {
             throw new RemoteStoreException("Error while waiting for reply", e);
         }
 
+        checkReply(reply);
+        return reply;
+    }
+
+    /**
+     * Send a request without waiting for the reply
+     * @param xid the transaction ID of the request
+     * @param bsm the request
+     * @param handleReply converts the reply into the result
+     * @return a future for the result. Its callbacks run in the callback
+     * executor of the sync manager rather than in the I/O thread.  It
+     * fails if the sync manager gets no reply in time or shuts down first.
+     */
+    private <T> ListenableFuture<T>
+            sendAsync(int xid, SyncMessage bsm,
+                      AsyncFunction<SyncReply, T> handleReply) {
+        ListenableFuture<SyncReply> future;
+        Executor executor = syncManager.callbackExecutor;
+        if (executor == null)
+            return Futures.<T>immediateFailedFuture(
+                    new RemoteStoreException("Sync manager is shut down"));
+        try {
+            future = syncManager.sendRequest(xid, bsm);
+        } catch (Exception e) {
+            return Futures.<T>immediateFailedFuture(e);
+        }
+        return Futures.transform(future, handleReply, executor);
+    }
+
+    private static void checkReply(SyncReply reply) throws SyncException {
         if (reply.getError() != null)
             throw reply.getError();
-
-        return reply;
     }
     
     private class RemoteIterator 
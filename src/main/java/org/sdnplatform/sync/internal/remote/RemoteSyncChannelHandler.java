@@ -73,7 +73,8 @@ public class RemoteSyncChannelHandler extends AbstractRPCChannelHandler {
                                      Channel channel) {
         List<Versioned<byte[]>> values = 
                 TProtocolUtil.getVersionedList(response.getValues());
-        SyncReply reply = new SyncReply(values, null, true, null, 0);
+        SyncReply reply = new SyncReply(values,
+                                        response.getKeyedValues(), true, null, 0);
         syncManager.dispatchReply(response.getHeader().getTransactionId(), 
                                   reply);
     }
@@ -1,17 +1,20 @@
 package org.sdnplatform.sync.internal.remote;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import org.jboss.netty.util.Timeout;
 
-public class RemoteSyncFuture implements Future<SyncReply> {
+import com.google.common.util.concurrent.AbstractFuture;
+
+/**
+ * A future for the reply to a request sent to the remote sync manager.
+ * Callbacks registered on it run in the thread that sets the reply, so
+ * they should not block.
+ */
+public class RemoteSyncFuture extends AbstractFuture<SyncReply> {
 
     private final int xid;
     private final int connectionGeneration;
-    private volatile SyncReply reply = null;
-    private Object notify = new Object();
-    
+    private volatile Timeout timeout;
+
     public RemoteSyncFuture(int xid, int connectionGeneration) {
         super();
         this.xid = xid;
@@ -21,50 +24,16 @@ public class RemoteSyncFuture implements Future<SyncReply> {
     // *****************
     // Future<SyncReply>
     // *****************
-    
-    @Override
-    public boolean cancel(boolean mayInterruptIfRunning) {
-        return false;
-    }
-
-    @Override
-    public SyncReply get() throws InterruptedException,
-                               ExecutionException {
-        if (reply != null) return reply;
-        synchronized (notify) {
-            while (reply == null)
-                notify.wait();
-        }
-        return reply;
-    }
-
-    @Override
-    public SyncReply
-            get(long timeout, TimeUnit unit) throws InterruptedException,
-                                            ExecutionException,
-                                            TimeoutException {
-        if (reply != null) return reply;
-        synchronized (notify) {
-            notify.wait(TimeUnit.MILLISECONDS.convert(timeout, unit));
-        }
-        if (reply == null) throw new TimeoutException();
-        return reply;
-    }
 
     @Override
-    public boolean isCancelled() {
+    public boolean cancel(boolean mayInterruptIfRunning) {
         return false;
     }
 
-    @Override
-    public boolean isDone() {
-        return (reply != null);
-    }
-
     // ****************
     // RemoteSyncFuture
     // ****************
-    
+
     /**
      * Get the xid for this message
      * @return
@@ -72,7 +41,7 @@ public class RemoteSyncFuture implements Future<SyncReply> {
     protected int getXid() {
         return xid;
     }
-    
+
     /**
      * Get the connection generation for this future
      * @return
@@ -86,9 +55,16 @@ public class RemoteSyncFuture implements Future<SyncReply> {
      * @param reply
      */
     protected void setReply(SyncReply reply) {
-        synchronized (notify) {
-            this.reply = reply;
-            notify.notifyAll();
-        }
+        Timeout t = timeout;
+        if (t != null) t.cancel();
+        set(reply);
+    }
+
+    /**
+     * Set the timeout that fails this future if no reply arrives
+     * @param timeout
+     */
+    protected void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
     }
 }
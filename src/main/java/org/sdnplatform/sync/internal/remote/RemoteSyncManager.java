@@ -18,6 +18,10 @@ import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
 import org.sdnplatform.sync.error.RemoteStoreException;
 import org.sdnplatform.sync.error.SyncException;
 import org.sdnplatform.sync.error.SyncRuntimeException;
@@ -43,6 +47,8 @@ import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.module.FloodlightModuleException;
 import net.floodlightcontroller.core.module.IFloodlightService;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Implementation of a sync service that passes its functionality off to a
  * remote sync manager over a TCP connection
@@ -61,6 +67,17 @@ public class RemoteSyncManager extends AbstractSyncManager {
     ExecutorService bossExecutor;
     ExecutorService workerExecutor;
 
+    /**
+     * Executor for the callbacks of asynchronous store operations, so that
+     * they run outside the I/O threads and may send further requests
+     */
+    ExecutorService callbackExecutor;
+
+    /**
+     * Timer used to fail requests that receive no reply
+     */
+    Timer requestTimer;
+
     /**
      * Active connection to server
      */
@@ -103,6 +120,12 @@ public class RemoteSyncManager extends AbstractSyncManager {
             new ConcurrentHashMap<Integer, RemoteSyncFuture>();
     private Object futureNotify = new Object();
     private static int MAX_PENDING_REQUESTS = 1000;
+
+    /**
+     * Time in seconds after which a request with no reply is failed and
+     * stops counting against {@link #MAX_PENDING_REQUESTS}
+     */
+    protected static int REQUEST_TIMEOUT = 5;
     
     // ************
     // ISyncService
@@ -151,6 +174,9 @@ public class RemoteSyncManager extends AbstractSyncManager {
     public void shutdown() {
         shutdown = true;
         logger.debug("Shutting down Remote Sync Manager");
+        // Fail outstanding requests while the callback executor can still
+        // run the continuations of asynchronous operations
+        failPending(new RemoteStoreException("Sync manager shut down"));
         try {
             if (!cg.close().await(5, TimeUnit.SECONDS)) {
                 logger.debug("Failed to cleanly shut down remote sync");
@@ -169,6 +195,12 @@ public class RemoteSyncManager extends AbstractSyncManager {
             if (bossExecutor != null)
                 bossExecutor.shutdown();
             bossExecutor = null;
+            if (callbackExecutor != null)
+                callbackExecutor.shutdown();
+            callbackExecutor = null;
+            if (requestTimer != null)
+                requestTimer.stop();
+            requestTimer = null;
         } catch (InterruptedException e) {
             logger.debug("Interrupted while shutting down remote sync");
         }
@@ -200,6 +232,8 @@ public class RemoteSyncManager extends AbstractSyncManager {
         shutdown = false;
         bossExecutor = Executors.newCachedThreadPool();
         workerExecutor = Executors.newCachedThreadPool();
+        callbackExecutor = Executors.newCachedThreadPool();
+        requestTimer = new HashedWheelTimer();
         
         final ClientBootstrap bootstrap =
                 new ClientBootstrap(
@@ -241,19 +275,33 @@ public class RemoteSyncManager extends AbstractSyncManager {
      * Send a request to the server and generate a future for the 
      * eventual reply.  Note that this call can block if there is no active
      * connection while a new connection is re-established or if the maximum
-     * number of requests is already pending
+     * number of requests is already pending.  If no reply arrives within
+     * {@link #REQUEST_TIMEOUT} seconds the future fails with a
+     * {@link RemoteStoreException}.
      * @param xid the transaction ID for the request
      * @param request the actual request to send
-     * @return A {@link Future} for the reply message
+     * @return A {@link ListenableFuture} for the reply message
      * @throws InterruptedException 
      */
-    public Future<SyncReply> sendRequest(int xid,
+    public ListenableFuture<SyncReply> sendRequest(int xid,
                                             SyncMessage request) 
                                          throws RemoteStoreException {
         ensureConnected();
         RemoteSyncFuture future = new RemoteSyncFuture(xid, 
                                                        connectionGeneration);
         futureMap.put(Integer.valueOf(xid), future);
+        Timer timer = requestTimer;
+        if (timer != null) {
+            final int timeoutXid = xid;
+            future.setTimeout(timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    failRequest(timeoutXid,
+                                new RemoteStoreException("Timed out on " +
+                                                         "operation"));
+                }
+            }, REQUEST_TIMEOUT, TimeUnit.SECONDS));
+        }
 
         if (futureMap.size() > MAX_PENDING_REQUESTS) {
             synchronized (futureNotify) {
@@ -277,12 +325,11 @@ public class RemoteSyncManager extends AbstractSyncManager {
                    recommendation=LogMessageDoc.REPORT_CONTROLLER_BUG)
     public void dispatchReply(int xid,
                               SyncReply reply) {
-        RemoteSyncFuture future = futureMap.get(Integer.valueOf(xid));
+        RemoteSyncFuture future = futureMap.remove(Integer.valueOf(xid));
         if (future == null) {
             logger.warn("Unexpected sync message replyid={}", xid);
             return;
         }
-        futureMap.remove(Integer.valueOf(xid));
         future.setReply(reply);
         synchronized (futureNotify) {
             futureNotify.notify();
@@ -304,6 +351,31 @@ public class RemoteSyncManager extends AbstractSyncManager {
     // Local methods
     // ***************
 
+    /**
+     * Fail the pending request with the given transaction ID, if it is
+     * still waiting for its reply
+     * @param xid the transaction ID of the request
+     * @param why the error to report to the caller
+     */
+    protected void failRequest(int xid, SyncException why) {
+        RemoteSyncFuture future = futureMap.remove(Integer.valueOf(xid));
+        if (future == null) return;
+        future.setReply(new SyncReply(null, null, false, why, 0));
+        synchronized (futureNotify) {
+            futureNotify.notify();
+        }
+    }
+
+    /**
+     * Fail all pending requests
+     * @param why the error to report to the callers
+     */
+    protected void failPending(SyncException why) {
+        for (Integer xid : futureMap.keySet()) {
+            failRequest(xid.intValue(), why);
+        }
+    }
+
     protected void ensureConnected() {
         if (!ready) {
             for (int i = 0; i < 2; i++) {
@@ -0,0 +1,305 @@
+package org.sdnplatform.sync.internal.rpc;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.floodlightcontroller.debugcounter.IDebugCounter;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+
+import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.SyncException;
+import org.sdnplatform.sync.internal.StoreRegistry.HintKey;
+import org.sdnplatform.sync.internal.store.InMemoryStorageEngine;
+import org.sdnplatform.sync.internal.util.ByteArray;
+import org.sdnplatform.sync.thrift.KeyedValues;
+import org.sdnplatform.sync.thrift.Store;
+import org.sdnplatform.sync.thrift.SyncMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The outbound queue of sync messages for a single remote node.  Each
+ * node has its own queue, drained by its own worker, so a node that is
+ * slow to acknowledge messages only delays the messages sent to it.
+ *
+ * Values queued for the same key are coalesced while they wait: a newer
+ * version replaces the older versions it supersedes, so the backlog of a
+ * slow node is bounded by the number of keys written rather than by the
+ * number of writes.  Other messages are sent in the order they were
+ * queued, ahead of the values.
+ */
+public class NodeSendQueue {
+    protected static final Logger logger =
+            LoggerFactory.getLogger(NodeSendQueue.class);
+
+    private static final String PACKAGE =
+            ISyncService.class.getPackage().getName();
+
+    private final short nodeId;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Messages to send in order
+     */
+    private final ArrayDeque<SyncMessage> messages =
+            new ArrayDeque<SyncMessage>();
+
+    /**
+     * Values waiting to be sent, coalesced by key
+     */
+    private final InMemoryStorageEngine<HintKey, byte[]> values;
+
+    /**
+     * The keys with values waiting to be sent, in the order they were
+     * first queued, with the time they were queued in nanoseconds
+     */
+    private final LinkedHashMap<HintKey, Long> pending =
+            new LinkedHashMap<HintKey, Long>();
+
+    /**
+     * The stores of the keys waiting to be sent
+     */
+    private final Map<String, Store> stores = new HashMap<String, Store>();
+
+    private long lastMessageQueued;
+
+    private IDebugCounter counterBacklog;
+    private IDebugCounter counterLag;
+    private IDebugCounter counterCoalesced;
+    private IDebugCounter counterDropped;
+
+    public NodeSendQueue(short nodeId) {
+        super();
+        this.nodeId = nodeId;
+        values = new InMemoryStorageEngine<HintKey, byte[]>("send-queue-" +
+                                                              nodeId);
+    }
+
+    /**
+     * Register the debug counters for this node.  The backlog and lag
+     * counters are gauges, updated whenever the queue changes.
+     * @param debugCounter the debug counter service
+     */
+    public void registerCounters(IDebugCounterService debugCounter) {
+        String peer = "peer-" + nodeId;
+        debugCounter.registerCounter(PACKAGE, peer,
+                "Sync messages queued for node " + nodeId);
+        counterBacklog = debugCounter.registerCounter(PACKAGE,
+                peer + "/backlog",
+                "Messages and keys waiting to be sent to node " + nodeId);
+        counterLag = debugCounter.registerCounter(PACKAGE,
+                peer + "/lag-ms",
+                "Time the oldest value waiting to be sent to node " +
+                nodeId + " has been queued, in milliseconds");
+        counterCoalesced = debugCounter.registerCounter(PACKAGE,
+                peer + "/coalesced",
+                "Values for node " + nodeId + " merged with a value " +
+                "already queued for the same key");
+        counterDropped = debugCounter.registerCounter(PACKAGE,
+                peer + "/dropped",
+                "Messages and keys for node " + nodeId + " dropped " +
+                "because the node was not connected",
+                IDebugCounterService.MetaData.DROP);
+    }
+
+    /**
+     * Get the node this queue sends to
+     * @return the node ID
+     */
+    public short getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Queue values of a key to be sent, merging them with any values
+     * already queued for the key
+     * @param store the store of the key
+     * @param key the key
+     * @param kvalues the values
+     */
+    public void offerValues(Store store, ByteArray key,
+                            List<Versioned<byte[]>> kvalues) {
+        HintKey hk = new HintKey(store.getStoreName(), key);
+        lock.lock();
+        try {
+            stores.put(store.getStoreName(), store);
+            if (pending.containsKey(hk)) {
+                if (counterCoalesced != null)
+                    counterCoalesced.increment();
+            } else {
+                pending.put(hk, System.nanoTime());
+            }
+            for (Versioned<byte[]> value : kvalues) {
+                values.doput(hk, value);
+            }
+            updateGauges(System.nanoTime());
+            notEmpty.signal();
+        } catch (SyncException e) {
+            logger.error("Failed to queue value for node " + nodeId, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a message to be sent
+     * @param bsm the message
+     */
+    public void offerMessage(SyncMessage bsm) {
+        lock.lock();
+        try {
+            if (messages.isEmpty())
+                lastMessageQueued = System.nanoTime();
+            messages.add(bsm);
+            updateGauges(System.nanoTime());
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove everything waiting to be sent, such as when the node
+     * disconnects
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            dropped(messages.size() + pending.size());
+            messages.clear();
+            for (HintKey hk : pending.keySet()) {
+                values.remove(hk);
+            }
+            pending.clear();
+            updateGauges(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record messages that could not be sent
+     * @param count the number of messages or keys
+     */
+    public void dropped(int count) {
+        if (counterDropped != null && count > 0)
+            counterDropped.add(count);
+    }
+
+    /**
+     * Get the number of messages and keys waiting to be sent
+     * @return the backlog
+     */
+    public int getBacklog() {
+        lock.lock();
+        try {
+            return messages.size() + pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get how long the oldest item in the queue has been waiting
+     * @return the lag in milliseconds, or 0 if the queue is empty
+     */
+    public long getLag() {
+        lock.lock();
+        try {
+            return getLag(System.nanoTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for messages to send and remove them from the queue.  The
+     * queued messages come first, followed by value messages holding
+     * up to the given number of keys.
+     * @param c the collection to which the messages are added
+     * @param maxKeys the maximum number of keys to take
+     * @param maxWait the maximum time to wait in milliseconds
+     * @return the number of messages taken
+     * @throws InterruptedException
+     */
+    public int take(Collection<SyncMessage> c, int maxKeys, long maxWait)
+            throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+            while (messages.isEmpty() && pending.isEmpty()) {
+                if (nanos <= 0) return 0;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            long now = System.nanoTime();
+            int count = messages.size();
+            c.addAll(messages);
+            messages.clear();
+
+            Map<String, SyncMessage> svms =
+                    new LinkedHashMap<String, SyncMessage>();
+            Iterator<HintKey> it = pending.keySet().iterator();
+            for (int i = 0; i < maxKeys && it.hasNext(); i++) {
+                HintKey hk = it.next();
+                it.remove();
+                List<Versioned<byte[]>> kvalues = values.remove(hk);
+                if (kvalues == null) continue;
+
+                SyncMessage bsm = svms.get(hk.getStoreName());
+                if (bsm == null) {
+                    bsm = TProtocolUtil.
+                            getTSyncValueMessage(stores.get(hk.getStoreName()));
+                    svms.put(hk.getStoreName(), bsm);
+                }
+                KeyedValues kv =
+                        TProtocolUtil.getTKeyedValues(hk.getKey(), kvalues);
+                bsm.getSyncValue().addToValues(kv);
+            }
+            count += svms.size();
+            c.addAll(svms.values());
+            if (pending.isEmpty())
+                stores.clear();
+
+            updateGauges(now);
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // *************
+    // Local methods
+    // *************
+
+    private long getLag(long now) {
+        long lag = 0;
+        if (!messages.isEmpty())
+            lag = now - lastMessageQueued;
+        if (!pending.isEmpty())
+            lag = Math.max(lag, now - pending.values().iterator().next());
+        return TimeUnit.NANOSECONDS.toMillis(lag);
+    }
+
+    private void updateGauges(long now) {
+        if (counterBacklog != null) {
+            counterBacklog.reset();
+            counterBacklog.add(messages.size() + pending.size());
+        }
+        if (counterLag != null) {
+            counterLag.reset();
+            counterLag.add(getLag(now));
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.sdnplatform.sync.internal.rpc;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -10,6 +11,7 @@ import net.floodlightcontroller.core.annotations.LogMessageCategory;
 import net.floodlightcontroller.core.annotations.LogMessageDoc;
 import net.floodlightcontroller.debugcounter.IDebugCounter;
 
+import org.apache.thrift.TBaseHelper;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
@@ -28,7 +30,6 @@ import org.sdnplatform.sync.internal.config.AuthScheme;
 import org.sdnplatform.sync.internal.config.ClusterConfig;
 import org.sdnplatform.sync.internal.config.Node;
 import org.sdnplatform.sync.internal.config.SyncStoreCCProvider;
-import org.sdnplatform.sync.internal.rpc.RPCService.NodeMessage;
 import org.sdnplatform.sync.internal.store.IStorageEngine;
 import org.sdnplatform.sync.internal.util.ByteArray;
 import org.sdnplatform.sync.internal.util.CryptoUtil;
@@ -145,10 +146,24 @@ public class RPCChannelHandler extends AbstractRPCChannelHandler {
             header.setTransactionId(request.getHeader().getTransactionId());
             m.setHeader(header);
 
-            List<Versioned<byte[]>> values =
-                    store.get(new ByteArray(request.getKey()));
-            for (Versioned<byte[]> value : values) {
-                m.addToValues(TProtocolUtil.getTVersionedValue(value));
+            if (request.isSetKeys()) {
+                m.setKeyedValues(new ArrayList<KeyedValues>());
+                for (ByteBuffer k : request.getKeys()) {
+                    ByteArray key =
+                            new ByteArray(TBaseHelper.byteBufferToByteArray(k));
+                    List<Versioned<byte[]>> values = store.get(key);
+                    if (values == null || values.size() == 0) continue;
+                    m.addToKeyedValues(TProtocolUtil.getTKeyedValues(key,
+                                                                     values));
+                }
+            } else if (request.isSetKey()) {
+                List<Versioned<byte[]>> values =
+                        store.get(new ByteArray(request.getKey()));
+                for (Versioned<byte[]> value : values) {
+                    m.addToValues(TProtocolUtil.getTVersionedValue(value));
+                }
+            } else {
+                throw new SyncException("No key specified for get");
             }
 
             SyncMessage bsm = new SyncMessage(MessageType.GET_RESPONSE);
@@ -168,6 +183,14 @@ public class RPCChannelHandler extends AbstractRPCChannelHandler {
             IStorageEngine<ByteArray, byte[]> store =
                     syncManager.getRawStore(storeName);
 
+            if (request.isSetKeyedValues()) {
+                putAll(store, request.getKeyedValues());
+                sendPutResponse(request, channel);
+                return;
+            }
+            if (!request.isSetKey())
+                throw new SyncException("No key specified for put");
+
             ByteArray key = new ByteArray(request.getKey());
             Versioned<byte[]> value = null;
             if (request.isSetVersionedValue()) {
@@ -190,21 +213,48 @@ public class RPCChannelHandler extends AbstractRPCChannelHandler {
             }
 
             store.put(key, value);
-
-            PutResponseMessage m = new PutResponseMessage();
-            AsyncMessageHeader header = new AsyncMessageHeader();
-            header.setTransactionId(request.getHeader().getTransactionId());
-            m.setHeader(header);
-
-            SyncMessage bsm = new SyncMessage(MessageType.PUT_RESPONSE);
-            bsm.setPutResponse(m);
-            channel.write(bsm);
+            sendPutResponse(request, channel);
         } catch (Exception e) {
             channel.write(getError(request.getHeader().getTransactionId(), e,
                                    MessageType.PUT_REQUEST));
         }
     }
 
+    /**
+     * Apply the values of a batched put. Every value is written even if
+     * an earlier one fails; the first failure is rethrown afterwards.
+     */
+    private void putAll(IStorageEngine<ByteArray, byte[]> store,
+                        List<KeyedValues> keyedValues) throws SyncException {
+        SyncException error = null;
+        for (KeyedValues kv : keyedValues) {
+            ByteArray key = new ByteArray(kv.getKey());
+            for (VersionedValue tvv : kv.getValues()) {
+                Versioned<byte[]> value =
+                        TProtocolUtil.getVersionedValued(tvv);
+                value.increment(syncManager.getLocalNodeId(),
+                                System.currentTimeMillis());
+                try {
+                    store.put(key, value);
+                } catch (SyncException e) {
+                    if (error == null) error = e;
+                }
+            }
+        }
+        if (error != null) throw error;
+    }
+
+    private void sendPutResponse(PutRequestMessage request, Channel channel) {
+        PutResponseMessage m = new PutResponseMessage();
+        AsyncMessageHeader header = new AsyncMessageHeader();
+        header.setTransactionId(request.getHeader().getTransactionId());
+        m.setHeader(header);
+
+        SyncMessage bsm = new SyncMessage(MessageType.PUT_RESPONSE);
+        bsm.setPutResponse(m);
+        channel.write(bsm);
+    }
+
     @Override
     protected void handleDeleteRequest(DeleteRequestMessage request,
                                        Channel channel) {
@@ -350,7 +400,8 @@ public class RPCChannelHandler extends AbstractRPCChannelHandler {
             svm.getHeader().setTransactionId(rpcService.getTransactionId());
 
             for (ByteBuffer key : request.getKeys()) {
-                ByteArray keyArray = new ByteArray(key.array());
+                ByteArray keyArray =
+                        new ByteArray(TBaseHelper.byteBufferToByteArray(key));
                 List<Versioned<byte[]>> values =
                         store.get(keyArray);
                 if (values == null || values.size() == 0) continue;
@@ -362,8 +413,7 @@ public class RPCChannelHandler extends AbstractRPCChannelHandler {
             if (svm.isSetValues()) {
                 updateCounter(SyncManager.counterSentValues,
                               svm.getValuesSize());
-                rpcService.syncQueue.add(new NodeMessage(getRemoteNodeId(),
-                                                         bsm));
+                rpcService.queueMessage(getRemoteNodeId(), bsm);
             }
         } catch (Exception e) {
             channel.write(getError(request.getHeader().getTransactionId(), e,
@@ -2,8 +2,11 @@ package org.sdnplatform.sync.internal.rpc;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -14,7 +17,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.concurrent.LinkedTransferQueue;
 
 import net.floodlightcontroller.core.annotations.LogMessageCategory;
 import net.floodlightcontroller.core.annotations.LogMessageDoc;
@@ -33,8 +35,10 @@ import org.jboss.netty.channel.group.DefaultChannelGroup;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.sdnplatform.sync.internal.SyncManager;
+import org.sdnplatform.sync.Versioned;
 import org.sdnplatform.sync.internal.config.Node;
-import org.sdnplatform.sync.internal.util.Pair;
+import org.sdnplatform.sync.internal.util.ByteArray;
+import org.sdnplatform.sync.thrift.Store;
 import org.sdnplatform.sync.thrift.SyncMessage;
 import org.sdnplatform.sync.thrift.MessageType;
 import org.slf4j.Logger;
@@ -143,23 +147,25 @@ public class RPCService {
      * A thread pool for handling sync messages.  These messages require
      * a separate pool since writing to the node can be a blocking operation
      * while waiting for window capacity, and blocking the I/O threads could
-     * lead to deadlock
+     * lead to deadlock.  Each node gets its own worker, so waiting on the
+     * window of one node does not hold up the others.
      * @see SyncMessageWorker
      */
     protected ExecutorService syncExecutor;
     
     /**
-     * A queue for holding sync messages that are awaiting being written
-     * to the channel.
+     * The queues of sync messages that are awaiting being written to the
+     * channel of each node
      * @see SyncMessageWorker
      */
-    protected LinkedTransferQueue<NodeMessage> syncQueue = 
-            new LinkedTransferQueue<NodeMessage>();
-    
+    protected ConcurrentHashMap<Short, NodeSendQueue> sendQueues =
+            new ConcurrentHashMap<Short, NodeSendQueue>();
+
     /**
-     * Number of workers in the sync message thread pool
+     * The maximum number of keys a worker takes from a send queue at a
+     * time, and so the maximum number of values in a sync value message
      */
-    protected static final int SYNC_MESSAGE_POOL = 2;
+    protected static final int MAX_VALUES_PER_MESSAGE = 50;
 
     /**
      * The maximum number of outstanding pending messages for messages
@@ -167,6 +173,22 @@ public class RPCService {
      */
     protected static final int MAX_PENDING_MESSAGES = 500;
 
+    /**
+     * The smallest and the initial message window.  The window of a node
+     * grows by one message for each message acknowledged within
+     * {@link #WINDOW_TARGET_LATENCY}, up to {@link #MAX_PENDING_MESSAGES},
+     * and is halved, at most once per round trip, when a message takes
+     * longer
+     */
+    protected static final int MIN_PENDING_MESSAGES = 8;
+    protected static final int INITIAL_PENDING_MESSAGES = 64;
+
+    /**
+     * The acknowledgement latency above which the window shrinks, in
+     * milliseconds
+     */
+    protected static final long WINDOW_TARGET_LATENCY = 250;
+
     public RPCService(SyncManager syncManager, 
                       IDebugCounterService debugCounter) {
         super();
@@ -198,8 +220,8 @@ public class RPCService {
             }
         };
         syncExecutor = Executors.newCachedThreadPool(f1);
-        for (int i = 0; i < SYNC_MESSAGE_POOL; i++) {
-            syncExecutor.execute(new SyncMessageWorker());
+        for (NodeSendQueue queue : sendQueues.values()) {
+            syncExecutor.execute(new SyncMessageWorker(queue));
         }
         
         final ThreadGroup tg2 = new ThreadGroup("Sync I/O Threads");
@@ -253,6 +275,9 @@ public class RPCService {
             if (workerExecutor != null)
                 workerExecutor.shutdown();
             workerExecutor = null;
+            if (syncExecutor != null)
+                syncExecutor.shutdownNow();
+            syncExecutor = null;
         } catch (InterruptedException e) {
             logger.warn("Interrupted while shutting down RPC server");
         }
@@ -281,13 +306,64 @@ public class RPCService {
         if (nodeId == null) return false;
         NodeConnection nc = connections.get(nodeId);
         if (nc != null && nc.state == NodeConnectionState.CONNECTED) {
-            waitForMessageWindow(bsm.getType(), nodeId, 0);
+            if (!waitForMessageWindow(bsm.getType(), nodeId, 0))
+                return false;
             nc.nodeChannel.write(bsm);
             return true;
         }
         return false;
     }
 
+    /**
+     * Queue values to be written to the node specified without waiting.
+     * Values still waiting for an earlier write of the same key are merged
+     * with the new values.  Nothing is queued if the node is not
+     * connected.
+     * @param nodeId the node ID
+     * @param store the store of the key
+     * @param key the key
+     * @param values the values
+     * @return <code>true</code> if the values were queued
+     */
+    public boolean queueValues(short nodeId, Store store, ByteArray key,
+                               List<Versioned<byte[]>> values) {
+        NodeSendQueue queue = getSendQueue(nodeId);
+        if (!isConnected(nodeId)) {
+            queue.dropped(1);
+            return false;
+        }
+        queue.offerValues(store, key, values);
+        return true;
+    }
+
+    /**
+     * Queue a message to be written to the node specified without waiting.
+     * Nothing is queued if the node is not connected.
+     * @param nodeId the node ID
+     * @param bsm the message to write
+     * @return <code>true</code> if the message was queued
+     */
+    public boolean queueMessage(Short nodeId, SyncMessage bsm) {
+        if (nodeId == null) return false;
+        NodeSendQueue queue = getSendQueue(nodeId);
+        if (!isConnected(nodeId)) {
+            queue.dropped(1);
+            return false;
+        }
+        queue.offerMessage(bsm);
+        return true;
+    }
+
+    /**
+     * Get the queue of messages waiting to be written to a node
+     * @param nodeId the node ID
+     * @return the queue, or <code>null</code> if nothing was ever queued
+     * for the node
+     */
+    public NodeSendQueue getNodeSendQueue(short nodeId) {
+        return sendQueues.get(nodeId);
+    }
+
     /**
      * Remove the connection from the connection registry and clean up
      * any remaining shrapnel
@@ -313,6 +389,11 @@ public class RPCService {
                 nc.nuke();
             }
             connections.remove(nodeId);
+
+            NodeSendQueue queue = sendQueues.get(n);
+            if (queue != null) {
+                queue.clear();
+            }
         }
     }
     
@@ -358,7 +439,8 @@ public class RPCService {
         if (mw == null) return;
 
         int pending = mw.pending.decrementAndGet();
-        if (pending < MAX_PENDING_MESSAGES) {
+        mw.acked(System.nanoTime());
+        if (pending < mw.limit) {
             mw.lock.lock();
             try {
                 mw.full.signalAll();
@@ -372,6 +454,32 @@ public class RPCService {
     // Local methods
     // *************
     
+    /**
+     * Get the send queue for the given node, creating it and starting its
+     * worker if needed
+     * @param nodeId the remote node
+     * @return the {@link NodeSendQueue}
+     */
+    private NodeSendQueue getSendQueue(short nodeId) {
+        Short n = Short.valueOf(nodeId);
+        NodeSendQueue queue = sendQueues.get(n);
+        if (queue == null) {
+            synchronized (sendQueues) {
+                queue = sendQueues.get(n);
+                if (queue == null) {
+                    queue = new NodeSendQueue(nodeId);
+                    if (debugCounter != null)
+                        queue.registerCounters(debugCounter);
+                    sendQueues.put(n, queue);
+                    ExecutorService executor = syncExecutor;
+                    if (executor != null)
+                        executor.execute(new SyncMessageWorker(queue));
+                }
+            }
+        }
+        return queue;
+    }
+
     /**
      * Get the appropriate {@link MessageWindow} object for the given node. 
      * @param nodeId the remote node
@@ -411,24 +519,26 @@ public class RPCService {
         // note that this can allow slightly more than the maximum number
         // of messages.  This is fine.
         MessageWindow mw = getMW(nodeId);
+        if (mw == null) return false;
         if (!mw.disconnected && 
-            mw.pending.get() >= MAX_PENDING_MESSAGES) {
+            mw.pending.get() >= mw.limit) {
             mw.lock.lock();
             try {
                 while (!mw.disconnected && 
-                       mw.pending.get() >= MAX_PENDING_MESSAGES) {
+                       mw.pending.get() >= mw.limit) {
                     long now = System.nanoTime();
                     if (maxWait > 0 && 
-                        (now - start) > maxWait * 1000) return false;
-                    mw.full.awaitNanos(now - start);
+                        (now - start) > maxWait * 1000000) return false;
+                    mw.full.await(WINDOW_TARGET_LATENCY,
+                                  TimeUnit.MILLISECONDS);
                 }
             } finally {
                 mw.lock.unlock();
             }
         }
         mw = getMW(nodeId);
-        if (mw != null)
-            mw.pending.getAndIncrement();
+        if (mw == null) return false;
+        mw.sent(System.nanoTime());
         
         return true;
     }
@@ -647,40 +757,86 @@ public class RPCService {
      */
     protected static class MessageWindow {
         AtomicInteger pending = new AtomicInteger();
+        volatile int limit = INITIAL_PENDING_MESSAGES;
         volatile boolean disconnected = false;
         Lock lock = new ReentrantLock();
         Condition full = lock.newCondition();
-    }
-    
-    /**
-     * A pending message to be sent to a particular mode.
-     * @author readams
-     */
-    protected static class NodeMessage extends Pair<Short,SyncMessage> {
-        private static final long serialVersionUID = -3443080461324647922L;
 
-        public NodeMessage(Short first, SyncMessage second) {
-            super(first, second);
+        /**
+         * The send times of the unacknowledged messages, in nanoseconds.
+         * Messages are acknowledged in the order they are sent.
+         */
+        private final ArrayDeque<Long> sendTimes = new ArrayDeque<Long>();
+        private long lastDecrease;
+
+        synchronized void sent(long now) {
+            pending.getAndIncrement();
+            sendTimes.add(now);
+        }
+
+        /**
+         * Adjust the window for an acknowledged message based on how long
+         * it took
+         * @param now the current time in nanoseconds
+         */
+        synchronized void acked(long now) {
+            Long sendTime = sendTimes.poll();
+            if (sendTime == null) return;
+            long latency = now - sendTime;
+            if (latency <= TimeUnit.MILLISECONDS.
+                                toNanos(WINDOW_TARGET_LATENCY)) {
+                if (limit < MAX_PENDING_MESSAGES)
+                    limit += 1;
+            } else if (now - lastDecrease > latency) {
+                limit = Math.max(MIN_PENDING_MESSAGES, limit / 2);
+                lastDecrease = now;
+            }
         }
     }
     
     /**
      * A worker thread responsible for reading sync messages off the queue
-     * and writing them to the appropriate node's channel.  Because calls 
+     * of a node and writing them to the node's channel.  Because calls 
      * {@link RPCService#writeToNode(Short, SyncMessage)} can block while
      * waiting for available slots in the message window, we do this in a
-     * separate thread.
+     * separate thread for each node.
      * @author readams
      */
     protected class SyncMessageWorker implements Runnable {
+        private final NodeSendQueue queue;
+        private final List<SyncMessage> messages =
+                new ArrayList<SyncMessage>();
+
+        public SyncMessageWorker(NodeSendQueue queue) {
+            super();
+            this.queue = queue;
+        }
+
         @Override
         public void run() {
-            while (true) {
+            Short nodeId = Short.valueOf(queue.getNodeId());
+            while (!shutDown) {
                 try {
-                    NodeMessage m = syncQueue.take();
-                    writeToNode(m.getFirst(), m.getSecond());
+                    queue.take(messages, MAX_VALUES_PER_MESSAGE, 1000);
+                    for (SyncMessage bsm : messages) {
+                        if (bsm.getType() == MessageType.SYNC_VALUE &&
+                            !bsm.getSyncValue().isSetResponseTo()) {
+                            bsm.getSyncValue().getHeader().
+                                setTransactionId(getTransactionId());
+                            if (SyncManager.counterSentValues != null) {
+                                SyncManager.counterSentValues.
+                                    add(bsm.getSyncValue().getValuesSize());
+                            }
+                        }
+                        if (!writeToNode(nodeId, bsm))
+                            queue.dropped(1);
+                    }
+                } catch (InterruptedException e) {
+                    return;
                 } catch (Exception e) {
                     logger.error("Error while dispatching message", e);
+                } finally {
+                    messages.clear();
                 }
             }
         }
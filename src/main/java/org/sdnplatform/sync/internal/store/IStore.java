@@ -17,7 +17,9 @@
 
 package org.sdnplatform.sync.internal.store;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import org.sdnplatform.sync.IClosableIterator;
@@ -25,6 +27,8 @@ import org.sdnplatform.sync.IVersion;
 import org.sdnplatform.sync.Versioned;
 import org.sdnplatform.sync.error.SyncException;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 /**
  * The basic interface used for storage and storage decorators. Allows the usual
@@ -67,6 +71,28 @@ public interface IStore<K, V> {
     public void put(K key, Versioned<V> value)
             throws SyncException;
 
+    /**
+     * Get the values associated with a set of keys, without waiting for
+     * the store if it is remote
+     *
+     * @param keys The keys to check for
+     * @return A future for a map from each key that has values to its
+     *         values. Keys with no values are left out.
+     */
+    public ListenableFuture<Map<K, List<Versioned<V>>>>
+            getAllAsync(Collection<K> keys);
+
+    /**
+     * Associate a set of values with their keys and versions in this store,
+     * without waiting for the store if it is remote.  Each put is applied
+     * on its own: if one fails, the others are still applied, and the
+     * future fails with the first error.
+     *
+     * @param values The values to store and their versions, by key
+     * @return A future that completes when all the values are stored
+     */
+    public ListenableFuture<Void> putAllAsync(Map<K, Versioned<V>> values);
+
     /**
      * Get a list of the versions associated with the given key
      * @param key the key
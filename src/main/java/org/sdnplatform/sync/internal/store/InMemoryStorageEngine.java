@@ -18,8 +18,10 @@
 package org.sdnplatform.sync.internal.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -32,6 +34,8 @@ import org.sdnplatform.sync.error.ObsoleteVersionException;
 import org.sdnplatform.sync.error.SyncException;
 import org.sdnplatform.sync.internal.util.Pair;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 
 /**
  * A simple non-persistent, in-memory store.
@@ -69,6 +73,18 @@ public class InMemoryStorageEngine<K, V> implements IStorageEngine<K, V> {
         return StoreUtils.getVersions(get(key));
     }
 
+    @Override
+    public ListenableFuture<Map<K, List<Versioned<V>>>>
+            getAllAsync(Collection<K> keys) {
+        return StoreUtils.getAllAsync(this, keys);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<K, Versioned<V>> values) {
+        return StoreUtils.putAllAsync(this, values);
+    }
+
     @Override
     public List<Versioned<V>> get(K key) throws SyncException {
         StoreUtils.assertValidKey(key);
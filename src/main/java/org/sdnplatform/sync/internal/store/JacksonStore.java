@@ -2,7 +2,10 @@ package org.sdnplatform.sync.internal.store;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -12,9 +15,13 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import org.sdnplatform.sync.IClosableIterator;
 import org.sdnplatform.sync.IVersion;
+import org.sdnplatform.sync.IValueSerializer;
 import org.sdnplatform.sync.Versioned;
 import org.sdnplatform.sync.error.SerializationException;
 import org.sdnplatform.sync.error.SyncException;
@@ -26,7 +33,8 @@ import org.slf4j.LoggerFactory;
 
 
 /**
- * A store that will serialize and deserialize objects to JSON using Jackson
+ * A store that will serialize and deserialize objects to JSON using Jackson,
+ * or the values with an {@link IValueSerializer} if one is given
  */
 public class JacksonStore<K, V> implements IStore<K, V> {
     protected static Logger logger =
@@ -45,6 +53,7 @@ public class JacksonStore<K, V> implements IStore<K, V> {
     private final ObjectWriter valueWriter;
     private final ObjectReader keyReader;
     private final ObjectReader valueReader;
+    private final IValueSerializer<V> valueSerializer;
     
     private final boolean keyAsTree;
     private final boolean valueAsTree;
@@ -72,6 +81,7 @@ public class JacksonStore<K, V> implements IStore<K, V> {
             this.valueWriter = mapper.writerWithType(valueClass);
             this.valueReader = mapper.reader(valueClass);
         }
+        this.valueSerializer = null;
     }
     
     public JacksonStore(IStore<ByteArray, byte[]> delegate,
@@ -85,6 +95,27 @@ public class JacksonStore<K, V> implements IStore<K, V> {
         this.keyReader = mapper.reader(keyType);
         this.valueWriter = mapper.writerWithType(valueType);
         this.valueReader = mapper.reader(valueType);
+        this.valueSerializer = null;
+    }
+
+    public JacksonStore(IStore<ByteArray, byte[]> delegate,
+                        Class<K> keyClass,
+                        IValueSerializer<V> valueSerializer) {
+        super();
+        this.delegate = delegate;
+        if (keyClass.isAssignableFrom(JsonNode.class)) {
+            keyAsTree = true;
+            this.keyWriter = null;
+            this.keyReader = null;
+        } else {
+            keyAsTree = false;
+            this.keyWriter = mapper.writerWithType(keyClass);
+            this.keyReader = mapper.reader(keyClass);
+        }
+        valueAsTree = false;
+        this.valueWriter = null;
+        this.valueReader = null;
+        this.valueSerializer = valueSerializer;
     }
 
     // ************
@@ -113,6 +144,62 @@ public class JacksonStore<K, V> implements IStore<K, V> {
                      new Versioned<byte[]>(valuebytes, value.getVersion()));
     }
 
+    @Override
+    public ListenableFuture<Map<K, List<Versioned<V>>>>
+            getAllAsync(Collection<K> keys) {
+        final Map<ByteArray, K> keyObjects =
+                new HashMap<ByteArray, K>(keys.size());
+        try {
+            for (K key : keys) {
+                keyObjects.put(getKeyBytes(key), key);
+            }
+        } catch (Exception e) {
+            return Futures.<Map<K, List<Versioned<V>>>>
+                    immediateFailedFuture(e);
+        }
+        AsyncFunction<Map<ByteArray, List<Versioned<byte[]>>>,
+                      Map<K, List<Versioned<V>>>> convert =
+                new AsyncFunction<Map<ByteArray, List<Versioned<byte[]>>>,
+                                  Map<K, List<Versioned<V>>>>() {
+            @Override
+            public ListenableFuture<Map<K, List<Versioned<V>>>>
+                    apply(Map<ByteArray, List<Versioned<byte[]>>> values)
+                            throws Exception {
+                Map<K, List<Versioned<V>>> result =
+                        new HashMap<K, List<Versioned<V>>>(values.size());
+                for (Entry<ByteArray, List<Versioned<byte[]>>> e :
+                        values.entrySet()) {
+                    K key = keyObjects.get(e.getKey());
+                    if (key == null) key = getKeyObject(e.getKey());
+                    result.put(key, convertValues(e.getValue()));
+                }
+                return Futures.immediateFuture(result);
+            }
+        };
+        return Futures.transform(delegate.getAllAsync(keyObjects.keySet()),
+                                 convert);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<K, Versioned<V>> values) {
+        Map<ByteArray, Versioned<byte[]>> valuebytes =
+                new HashMap<ByteArray, Versioned<byte[]>>(values.size());
+        try {
+            for (Entry<K, Versioned<V>> e : values.entrySet()) {
+                Versioned<V> value = e.getValue();
+                byte[] v = value.getValue() != null
+                        ? getValueBytes(value.getValue())
+                        : null;
+                valuebytes.put(getKeyBytes(e.getKey()),
+                               new Versioned<byte[]>(v, value.getVersion()));
+            }
+        } catch (Exception e) {
+            return Futures.<Void>immediateFailedFuture(e);
+        }
+        return delegate.putAllAsync(valuebytes);
+    }
+
     @Override
     public String getName() {
         return delegate.getName();
@@ -155,6 +242,8 @@ public class JacksonStore<K, V> implements IStore<K, V> {
     }
 
     private byte[] getValueBytes(V value) throws SyncException {
+        if (valueSerializer != null)
+            return valueSerializer.serialize(value);
         try {
             byte[] v = null;
             if (valueAsTree)
@@ -174,8 +263,10 @@ public class JacksonStore<K, V> implements IStore<K, V> {
 
     @SuppressWarnings("unchecked")
     private V getValueObject(byte[] value) throws SyncException {
+        if (value == null) return null;
+        if (valueSerializer != null)
+            return valueSerializer.deserialize(value);
         try {
-            if (value == null) return null;
             if (valueAsTree)
                 return (V)mapper.readTree(value);
             else
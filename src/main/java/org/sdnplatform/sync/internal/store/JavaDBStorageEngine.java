@@ -3,7 +3,6 @@ package org.sdnplatform.sync.internal.store;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -11,7 +10,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
@@ -41,6 +42,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Persistent storage engine that keeps its data in a JDB database
@@ -195,7 +197,7 @@ public class JavaDBStorageEngine implements IStorageEngine<ByteArray, byte[]> {
                 values.add(value);
 
                 ByteArrayInputStream is = 
-                        new ByteArrayInputStream(mapper.writeValueAsBytes(values));                
+                        new ByteArrayInputStream(VersionedCodec.encode(values));
                 update.setBinaryStream(vindex, is);
                 update.execute();
                 dbConnection.commit();
@@ -268,6 +270,18 @@ public class JavaDBStorageEngine implements IStorageEngine<ByteArray, byte[]> {
         return StoreUtils.getVersions(get(key));
     }
 
+    @Override
+    public ListenableFuture<Map<ByteArray, List<Versioned<byte[]>>>>
+            getAllAsync(Collection<ByteArray> keys) {
+        return StoreUtils.getAllAsync(this, keys);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<ByteArray, Versioned<byte[]>> values) {
+        return StoreUtils.putAllAsync(this, values);
+    }
+
     @Override
     public void cleanupTask() throws SyncException {
         Connection dbConnection = null;
@@ -402,18 +416,24 @@ public class JavaDBStorageEngine implements IStorageEngine<ByteArray, byte[]> {
         return sql.replace("<tbl>", dbTableName);
     }
     
+    /**
+     * Read the values of the current row, which were written either with
+     * {@link VersionedCodec} or, by older versions, as Smile
+     */
     private static List<Versioned<byte[]>> getVersionedList(ResultSet rs) 
                 throws SQLException, JsonParseException, 
-                    JsonMappingException, IOException {
-        InputStream is = rs.getBinaryStream("datavalue");
-        return mapper.readValue(is,
+                    JsonMappingException, IOException, SyncException {
+        byte[] data = rs.getBytes("datavalue");
+        if (VersionedCodec.isEncoded(data))
+            return VersionedCodec.decode(data);
+        return mapper.readValue(data,
                                 new TypeReference<List<VCVersioned<byte[]>>>() {});
     }
     
     private List<Versioned<byte[]>> doSelect(PreparedStatement stmt,
                                              String key) 
                 throws SQLException, JsonParseException, 
-                    JsonMappingException, IOException {
+                    JsonMappingException, IOException, SyncException {
         stmt.setString(1, key);
         ResultSet rs = stmt.executeQuery();
         
@@ -1,9 +1,11 @@
 package org.sdnplatform.sync.internal.store;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import net.floodlightcontroller.core.annotations.LogMessageCategory;
@@ -21,6 +23,8 @@ import org.sdnplatform.sync.internal.util.ByteArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * A storage engine that proxies to another storage engine and notifies
  * registered listeners of changes
@@ -109,6 +113,18 @@ public class ListenerStorageEngine
         return localStorage.getVersions(key);
     }
 
+    @Override
+    public ListenableFuture<Map<ByteArray, List<Versioned<byte[]>>>>
+            getAllAsync(Collection<ByteArray> keys) {
+        return StoreUtils.getAllAsync(this, keys);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<ByteArray, Versioned<byte[]>> values) {
+        return StoreUtils.putAllAsync(this, values);
+    }
+
     @Override
     public boolean writeSyncValue(ByteArray key,
                                   Iterable<Versioned<byte[]>> values) {
@@ -0,0 +1,915 @@
+package org.sdnplatform.sync.internal.store;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import net.floodlightcontroller.core.annotations.LogMessageCategory;
+
+import org.sdnplatform.sync.IClosableIterator;
+import org.sdnplatform.sync.IVersion;
+import org.sdnplatform.sync.IVersion.Occurred;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.ObsoleteVersionException;
+import org.sdnplatform.sync.error.PersistException;
+import org.sdnplatform.sync.error.SerializationException;
+import org.sdnplatform.sync.error.SyncException;
+import org.sdnplatform.sync.internal.util.ByteArray;
+import org.sdnplatform.sync.internal.util.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Persistent storage engine that appends every write to a log of segment
+ * files and keeps the current versions of every key in memory, so reads
+ * never touch the disk.
+ *
+ * Writes use group commit: a write is appended to a queue of pending
+ * records, and whichever writer finds no flush in progress writes all the
+ * pending records with a single write and fsync, then wakes the writers
+ * that were waiting for them. A write returns once its record is on disk,
+ * and readers only see it from then on. A failed write is reported to its
+ * writers only: the next flush cuts the active segment back to its last
+ * synced length and carries on.
+ *
+ * When the active segment is full, a new one is started. The cleanup task
+ * removes old tombstones and, when most of the bytes of the older segments
+ * are dead, compacts them by rewriting their live keys to the active
+ * segment and deleting them.
+ */
+@LogMessageCategory("State Synchronization")
+public class LogStorageEngine implements IStorageEngine<ByteArray, byte[]> {
+    protected static final Logger logger =
+            LoggerFactory.getLogger(LogStorageEngine.class.getName());
+
+    public static final long DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * The older segments are compacted when less than this share of their
+     * bytes is live
+     */
+    protected static final double COMPACTION_LIVE_RATIO = 0.5;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    /** Record length and CRC */
+    private static final int RECORD_HEADER = 8;
+    private static final int LOCK_STRIPES = 64;
+
+    private final String name;
+    private final File dir;
+    private final long segmentSize;
+
+    /**
+     * Interval in milliseconds before tombstones will be cleared.
+     */
+    private int tombstoneDeletion = 24 * 60 * 60 * 1000;
+
+    /** The durable versions of each key; the lists are never modified */
+    private final ConcurrentMap<ByteArray, List<Versioned<byte[]>>> map =
+            new ConcurrentHashMap<ByteArray, List<Versioned<byte[]>>>();
+    /**
+     * The latest queued record of keys whose records are not on disk yet.
+     * New versions are merged with these rather than with the durable ones.
+     */
+    private final ConcurrentMap<ByteArray, Record> staged =
+            new ConcurrentHashMap<ByteArray, Record>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Where the latest record of each key is, and the total and live bytes
+     * of each segment. Only changed while holding logLock.
+     */
+    private final Map<ByteArray, Location> locations =
+            new HashMap<ByteArray, Location>();
+    private final SortedMap<Integer, long[]> segmentBytes =
+            new TreeMap<Integer, long[]>();
+
+    private final ReentrantLock logLock = new ReentrantLock();
+    private int activeSegment;
+    private FileChannel activeChannel;
+    private long activeSize;
+    /** The length of the active segment at its last fsync */
+    private long activeSyncedSize;
+    /** Set when a write failed, until the active segment is repaired */
+    private boolean damaged = false;
+
+    /** Records waiting for a flush, guarded by pendingLock */
+    private final Object pendingLock = new Object();
+    private Batch pending = new Batch();
+    private boolean flushing = false;
+    /** Incremented by truncate, to drop the records queued before it */
+    private volatile int epoch = 0;
+
+    private static class Location {
+        private final int segment;
+        private final int size;
+
+        private Location(int segment, int size) {
+            this.segment = segment;
+            this.size = size;
+        }
+    }
+
+    private static class Record {
+        private final ByteArray key;
+        /** The versions of the key, or null for a delete */
+        private final List<Versioned<byte[]>> values;
+        private final byte[] data;
+        private final int epoch;
+
+        private Record(ByteArray key, List<Versioned<byte[]>> values,
+                       int epoch) {
+            this.key = key;
+            this.values = values;
+            this.data = encode(key, values);
+            this.epoch = epoch;
+        }
+
+        private boolean isDelete() {
+            return values == null;
+        }
+    }
+
+    /** Records flushed together, guarded by pendingLock */
+    private static class Batch {
+        private final List<Record> records = new ArrayList<Record>();
+        private boolean done = false;
+        private IOException error;
+    }
+
+    /**
+     * Open the log of a store, creating it if needed, and load its contents
+     * @param name the name of the store
+     * @param dir the directory of the store's segments
+     * @param segmentSize the size at which a new segment is started
+     * @throws PersistException
+     */
+    public LogStorageEngine(String name, File dir, long segmentSize)
+            throws PersistException {
+        super();
+        this.name = name;
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs())
+                throw new IOException("Could not create " + dir);
+            recover();
+        } catch (IOException e) {
+            throw new PersistException("Could not open log of store " + name, e);
+        }
+    }
+
+    public LogStorageEngine(String name, File dir) throws PersistException {
+        this(name, dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Get the directory of the log of a store
+     * @param dbPath The path where the logs will be located, or null for
+     * the working directory
+     * @param storeName the name of the store
+     * @return the directory
+     */
+    public static File getStoreDir(String dbPath, String storeName) {
+        File base = (dbPath == null) ? new File("SyncLog")
+                                     : new File(dbPath, "SyncLog");
+        return new File(base, storeName);
+    }
+
+    // *******************************
+    // StorageEngine<ByteArray,byte[]>
+    // *******************************
+
+    @Override
+    public List<Versioned<byte[]>> get(ByteArray key) throws SyncException {
+        StoreUtils.assertValidKey(key);
+        List<Versioned<byte[]>> values = map.get(key);
+        if (values == null)
+            return new ArrayList<Versioned<byte[]>>(0);
+        return new ArrayList<Versioned<byte[]>>(values);
+    }
+
+    @Override
+    public IClosableIterator<Entry<ByteArray, List<Versioned<byte[]>>>>
+            entries() {
+        return new LogIterator(map);
+    }
+
+    @Override
+    public void put(ByteArray key, Versioned<byte[]> value)
+            throws SyncException {
+        StoreUtils.assertValidKey(key);
+        Batch batch;
+        synchronized (getLock(key)) {
+            List<Versioned<byte[]>> values = merge(current(key), value);
+            if (values == null)
+                throw new ObsoleteVersionException("Obsolete version for key '"
+                                                   + key + "': "
+                                                   + value.getVersion());
+            batch = enqueue(key, values);
+        }
+        awaitDurable(batch);
+    }
+
+    @Override
+    public IClosableIterator<ByteArray> keys() {
+        return StoreUtils.keys(entries());
+    }
+
+    @Override
+    public void truncate() throws SyncException {
+        logLock.lock();
+        try {
+            epoch += 1;
+            synchronized (pendingLock) {
+                pending.done = true;
+                pending = new Batch();
+                pendingLock.notifyAll();
+            }
+            map.clear();
+            staged.clear();
+            locations.clear();
+            segmentBytes.clear();
+            closeActive();
+            for (int segment : listSegments()) {
+                deleteSegment(segment);
+            }
+            openSegment(activeSegment + 1);
+            damaged = false;
+        } catch (IOException e) {
+            throw new PersistException("Failed to truncate store " + name, e);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() throws SyncException {
+        Batch batch;
+        synchronized (pendingLock) {
+            batch = pending;
+        }
+        awaitDurable(batch);
+        logLock.lock();
+        try {
+            closeActive();
+        } catch (IOException e) {
+            throw new PersistException("Failed to close log of store " + name, e);
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean writeSyncValue(ByteArray key,
+                                  Iterable<Versioned<byte[]>> values) {
+        Batch batch;
+        synchronized (getLock(key)) {
+            List<Versioned<byte[]>> current = current(key);
+            List<Versioned<byte[]>> updated = current;
+            for (Versioned<byte[]> value : values) {
+                List<Versioned<byte[]>> merged = merge(updated, value);
+                if (merged != null)
+                    updated = merged;
+            }
+            if (updated == current)
+                return false;
+            batch = enqueue(key, updated);
+        }
+        try {
+            awaitDurable(batch);
+            return true;
+        } catch (PersistException e) {
+            logger.error("Failed to sync value because of " +
+                         "persistence exception", e);
+            return false;
+        }
+    }
+
+    @Override
+    public List<IVersion> getVersions(ByteArray key) throws SyncException {
+        return StoreUtils.getVersions(get(key));
+    }
+
+    @Override
+    public ListenableFuture<Map<ByteArray, List<Versioned<byte[]>>>>
+            getAllAsync(Collection<ByteArray> keys) {
+        return StoreUtils.getAllAsync(this, keys);
+    }
+
+    @Override
+    public ListenableFuture<Void>
+            putAllAsync(Map<ByteArray, Versioned<byte[]>> values) {
+        return StoreUtils.putAllAsync(this, values);
+    }
+
+    @Override
+    public void cleanupTask() throws SyncException {
+        // Remove tombstones that are older than the tombstone deletion
+        // threshold
+        Batch batch = null;
+        for (Entry<ByteArray, List<Versioned<byte[]>>> e : map.entrySet()) {
+            ByteArray key = e.getKey();
+            if (!StoreUtils.canDelete(e.getValue(), tombstoneDeletion))
+                continue;
+            synchronized (getLock(key)) {
+                List<Versioned<byte[]>> values = current(key);
+                if (values == null ||
+                    !StoreUtils.canDelete(values, tombstoneDeletion))
+                    continue;
+                batch = enqueue(key, null);
+            }
+        }
+        awaitDurable(batch);
+
+        compact();
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+
+    @Override
+    public void setTombstoneInterval(int interval) {
+        this.tombstoneDeletion = interval;
+    }
+
+    // ****************
+    // LogStorageEngine
+    // ****************
+
+    /**
+     * Get the number of keys currently in the store
+     * @return the number of keys
+     */
+    public int size() {
+        return map.size();
+    }
+
+    /**
+     * Get the number of segment files of the log
+     * @return the number of segments
+     */
+    public int getSegmentCount() {
+        logLock.lock();
+        try {
+            return segmentBytes.size();
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Rewrite the live keys of the segments older than the active one and
+     * delete them, if less than {@link #COMPACTION_LIVE_RATIO} of their
+     * bytes is live. Deleting all the older segments at once also gets rid
+     * of the delete records in them.
+     * @throws SyncException
+     */
+    protected void compact() throws SyncException {
+        int cutoff;
+        List<ByteArray> keys = new ArrayList<ByteArray>();
+        logLock.lock();
+        try {
+            cutoff = activeSegment;
+            long total = 0;
+            long live = 0;
+            for (long[] bytes : segmentBytes.headMap(cutoff).values()) {
+                total += bytes[0];
+                live += bytes[1];
+            }
+            if (total == 0 || live >= total * COMPACTION_LIVE_RATIO)
+                return;
+            for (Entry<ByteArray, Location> e : locations.entrySet()) {
+                if (e.getValue().segment < cutoff)
+                    keys.add(e.getKey());
+            }
+        } finally {
+            logLock.unlock();
+        }
+
+        Batch batch = null;
+        for (ByteArray key : keys) {
+            synchronized (getLock(key)) {
+                List<Versioned<byte[]>> values = current(key);
+                // Keys without values have a delete queued
+                if (values != null)
+                    batch = enqueue(key, values);
+            }
+        }
+        awaitDurable(batch);
+
+        logLock.lock();
+        try {
+            for (Location l : locations.values()) {
+                if (l.segment < cutoff) {
+                    // Keep the segments rather than lose a key
+                    return;
+                }
+            }
+            // Delete oldest first and stop at the first failure, so that the
+            // segments left after a crash or an error are still a suffix of
+            // the log and replaying them cannot bring back a deleted key
+            List<Integer> old =
+                    new ArrayList<Integer>(segmentBytes.headMap(cutoff).keySet());
+            int deleted = 0;
+            for (int segment : old) {
+                if (!deleteSegment(segment)) break;
+                segmentBytes.remove(segment);
+                deleted += 1;
+            }
+            syncDir();
+            logger.debug("Compacted {} segments of store {}, {} keys rewritten",
+                         new Object[] { deleted, name, keys.size() });
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    // *************
+    // Local methods
+    // *************
+
+    private Object getLock(ByteArray key) {
+        return locks[(key.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Add a new version to the versions of a key
+     * @return the new versions, or null if the version is obsolete
+     */
+    private static List<Versioned<byte[]>>
+            merge(List<Versioned<byte[]>> values, Versioned<byte[]> value) {
+        List<Versioned<byte[]>> result = new ArrayList<Versioned<byte[]>>();
+        if (values != null) {
+            for (Versioned<byte[]> versioned : values) {
+                Occurred occurred = value.getVersion().compare(versioned.getVersion());
+                if (occurred == Occurred.BEFORE) {
+                    return null;
+                } else if (occurred != Occurred.AFTER) {
+                    result.add(versioned);
+                }
+            }
+        }
+        result.add(value);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Get the latest versions of a key, including the ones not on disk yet;
+     * must be called with the key's lock held
+     * @return the versions, or null if the key is deleted or unknown
+     */
+    private List<Versioned<byte[]>> current(ByteArray key) {
+        Record record = staged.get(key);
+        // A record is published before it is unstaged, so a key that
+        // just left the staged map is already up to date in the map
+        return (record != null) ? record.values : map.get(key);
+    }
+
+    /**
+     * Queue a record; must be called with the key's lock held so that the
+     * records of a key are written in order
+     * @param values the versions of the key, or null to delete it
+     * @return the batch to wait for
+     */
+    private Batch enqueue(ByteArray key, List<Versioned<byte[]>> values) {
+        Record record = new Record(key, values, epoch);
+        staged.put(key, record);
+        synchronized (pendingLock) {
+            pending.records.add(record);
+            return pending;
+        }
+    }
+
+    /**
+     * Wait until the records of a batch are on disk, flushing the pending
+     * records if no other thread is doing so
+     * @param batch the batch, or null if nothing was queued
+     * @throws PersistException if the batch could not be written
+     */
+    private void awaitDurable(Batch batch) throws PersistException {
+        if (batch == null)
+            return;
+        Batch flush;
+        synchronized (pendingLock) {
+            while (true) {
+                if (batch.done) {
+                    if (batch.error != null)
+                        throw new PersistException("Could not write log of " +
+                                                   "store " + name,
+                                                   batch.error);
+                    return;
+                }
+                if (!flushing)
+                    break;
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new PersistException("Interrupted while writing "
+                                               + "log of store " + name, e);
+                }
+            }
+            // Batches are only taken while not flushing, so this is ours
+            flushing = true;
+            flush = pending;
+            pending = new Batch();
+        }
+
+        IOException error = null;
+        try {
+            if (!flush.records.isEmpty())
+                writeBatch(flush.records);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (pendingLock) {
+                flushing = false;
+                flush.done = true;
+                flush.error = error;
+                pendingLock.notifyAll();
+            }
+        }
+        if (error != null)
+            throw new PersistException("Could not write log of store " + name,
+                                       error);
+    }
+
+    /**
+     * Write a batch of records to the log with one write and one fsync per
+     * segment it goes to, and publish them once synced. Records queued
+     * before a truncate are skipped. If the write fails, the records not
+     * published are dropped and the next batch repairs the active segment.
+     */
+    private void writeBatch(List<Record> batch) throws IOException {
+        logLock.lock();
+        try {
+            int currentEpoch = epoch;
+            List<Record> records = new ArrayList<Record>(batch.size());
+            try {
+                if (damaged)
+                    repairActive();
+                for (Record r : batch) {
+                    if (r.epoch != currentEpoch) {
+                        staged.remove(r.key, r);
+                        continue;
+                    }
+                    if (activeSize > 0 &&
+                        activeSize + r.data.length > segmentSize) {
+                        // Finish the batch so far in the full segment
+                        writeRecords(records);
+                        records.clear();
+                        closeActive();
+                        openSegment(activeSegment + 1);
+                    }
+                    records.add(r);
+                    activeSize += r.data.length;
+                }
+                writeRecords(records);
+            } catch (IOException e) {
+                damaged = true;
+                // Published records are no longer staged
+                for (Record r : batch) {
+                    staged.remove(r.key, r);
+                }
+                throw e;
+            }
+        } finally {
+            logLock.unlock();
+        }
+    }
+
+    /**
+     * Write records to the active segment, sync it and publish them;
+     * logLock must be held
+     */
+    private void writeRecords(List<Record> records) throws IOException {
+        int length = 0;
+        for (Record r : records) {
+            length += r.data.length;
+        }
+        if (length == 0) return;
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        for (Record r : records) {
+            buf.put(r.data);
+        }
+        buf.flip();
+        while (buf.hasRemaining()) {
+            activeChannel.write(buf);
+        }
+        activeChannel.force(false);
+        activeSyncedSize = activeSize;
+        for (Record r : records) {
+            index(r.key, r.isDelete(), activeSegment, r.data.length);
+            if (r.isDelete())
+                map.remove(r.key);
+            else
+                map.put(r.key, r.values);
+            staged.remove(r.key, r);
+        }
+    }
+
+    /**
+     * Cut the active segment back to its length at the last fsync, dropping
+     * whatever a failed write left behind, and reopen it; logLock must be
+     * held
+     */
+    private void repairActive() throws IOException {
+        try {
+            closeActive();
+        } catch (IOException e) {
+            // The channel is replaced anyway
+        }
+        File f = getSegmentFile(activeSegment);
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(Math.min(activeSyncedSize, raf.length()));
+            raf.getFD().sync();
+        } finally {
+            raf.close();
+        }
+        openSegment(activeSegment);
+        damaged = false;
+        logger.info("Repaired log segment {} of store {} after a failed write",
+                    f, name);
+    }
+
+    /**
+     * Account for a record written to a segment; logLock must be held
+     */
+    private void index(ByteArray key, boolean delete, int segment, int size) {
+        long[] bytes = segmentBytes.get(segment);
+        if (bytes == null) {
+            bytes = new long[2];
+            segmentBytes.put(segment, bytes);
+        }
+        bytes[0] += size;
+        Location old;
+        if (delete) {
+            old = locations.remove(key);
+        } else {
+            old = locations.put(key, new Location(segment, size));
+            bytes[1] += size;
+        }
+        if (old != null) {
+            long[] oldBytes = segmentBytes.get(old.segment);
+            if (oldBytes != null)
+                oldBytes[1] -= old.size;
+        }
+    }
+
+    /**
+     * Serialize a record: length, CRC32 of the rest, type, key length, key
+     * and the versions for a put, encoded with {@link VersionedCodec}
+     */
+    private static byte[] encode(ByteArray key, List<Versioned<byte[]>> values) {
+        byte[] value = (values == null) ? new byte[0]
+                                        : VersionedCodec.encode(values);
+        byte[] k = key.get();
+        ByteBuffer buf = ByteBuffer.allocate(RECORD_HEADER + 1 + 4 +
+                                             k.length + value.length);
+        buf.putInt(buf.capacity() - 4);
+        buf.putInt(0);
+        buf.put(values == null ? RECORD_DELETE : RECORD_PUT);
+        buf.putInt(k.length);
+        buf.put(k);
+        buf.put(value);
+        byte[] data = buf.array();
+        CRC32 crc = new CRC32();
+        crc.update(data, RECORD_HEADER, data.length - RECORD_HEADER);
+        buf.putInt(4, (int) crc.getValue());
+        return data;
+    }
+
+    /**
+     * Load the segments in order, cutting off a torn record at the end of
+     * the last segment, and open the segment to append to. The older
+     * segments were synced before the next one was started, so an invalid
+     * record in one of them is an error rather than a torn write.
+     */
+    private void recover() throws IOException {
+        List<Integer> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            int segment = segments.get(i);
+            long valid = readSegment(segment);
+            File f = getSegmentFile(segment);
+            if (valid < f.length()) {
+                if (i < segments.size() - 1)
+                    throw new IOException("Invalid record at offset " +
+                                          valid + " of " + f);
+                logger.warn("Discarding {} bytes of incomplete records " +
+                            "at the end of {}",
+                            f.length() - valid, f);
+                RandomAccessFile raf = new RandomAccessFile(f, "rw");
+                try {
+                    raf.setLength(valid);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            int last = segments.get(segments.size() - 1);
+            if (getSegmentFile(last).length() < segmentSize)
+                openSegment(last);
+            else
+                openSegment(last + 1);
+        }
+        logger.debug("Loaded {} keys of store {} from {} segments",
+                     new Object[] { map.size(), name, segments.size() });
+    }
+
+    /**
+     * Apply the records of a segment
+     * @return the length of the valid records at the start of the segment
+     */
+    private long readSegment(int segment) throws IOException {
+        File f = getSegmentFile(segment);
+        long offset = 0;
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(f)));
+        try {
+            segmentBytes.put(segment, new long[2]);
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length < RECORD_HEADER + 1 ||
+                    offset + 4 + length > f.length())
+                    break;
+                byte[] data = new byte[4 + length];
+                ByteBuffer.wrap(data).putInt(length);
+                in.readFully(data, 4, length);
+                CRC32 crc = new CRC32();
+                crc.update(data, RECORD_HEADER, data.length - RECORD_HEADER);
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                buf.position(4);
+                if (buf.getInt() != (int) crc.getValue())
+                    break;
+
+                byte type = buf.get();
+                byte[] k = new byte[buf.getInt()];
+                buf.get(k);
+                ByteArray key = new ByteArray(k);
+                if (type == RECORD_DELETE) {
+                    map.remove(key);
+                } else {
+                    List<Versioned<byte[]>> values;
+                    try {
+                        values = VersionedCodec.decode(data, buf.position(),
+                                                       data.length - buf.position());
+                    } catch (SerializationException e) {
+                        throw new IOException("Invalid record in " + f, e);
+                    }
+                    map.put(key, Collections.unmodifiableList(values));
+                }
+                index(key, type == RECORD_DELETE, segment, data.length);
+                offset += data.length;
+            }
+        } finally {
+            in.close();
+        }
+        return offset;
+    }
+
+    private List<Integer> listSegments() {
+        List<Integer> segments = new ArrayList<Integer>();
+        String[] files = dir.list();
+        if (files == null) return segments;
+        for (String f : files) {
+            if (!f.endsWith(SEGMENT_SUFFIX)) continue;
+            try {
+                segments.add(Integer.parseInt(f.substring(0, f.length() -
+                                                          SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+                // not a segment
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private File getSegmentFile(int segment) {
+        return new File(dir, String.format("%08d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    @SuppressWarnings("resource")
+    private void openSegment(int segment) throws IOException {
+        File f = getSegmentFile(segment);
+        activeChannel = new RandomAccessFile(f, "rw").getChannel();
+        activeSize = activeChannel.size();
+        activeSyncedSize = activeSize;
+        activeChannel.position(activeSize);
+        activeSegment = segment;
+        if (!segmentBytes.containsKey(segment))
+            segmentBytes.put(segment, new long[2]);
+    }
+
+    private void closeActive() throws IOException {
+        if (activeChannel != null && activeChannel.isOpen())
+            activeChannel.close();
+    }
+
+    private boolean deleteSegment(int segment) {
+        File f = getSegmentFile(segment);
+        if (f.exists() && !f.delete()) {
+            logger.warn("Could not delete log segment {}", f);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sync the store directory so that segment deletions are durable. Not
+     * every platform can open a directory, in which case this does nothing.
+     */
+    private void syncDir() {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Could not sync directory {}: {}", dir, e);
+        } finally {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) { }
+            }
+        }
+    }
+
+    private static class LogIterator implements
+        IClosableIterator<Entry<ByteArray, List<Versioned<byte[]>>>> {
+
+        private final Iterator<Entry<ByteArray, List<Versioned<byte[]>>>> iterator;
+
+        public LogIterator(ConcurrentMap<ByteArray, List<Versioned<byte[]>>> map) {
+            this.iterator = map.entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Pair<ByteArray, List<Versioned<byte[]>>> next() {
+            Entry<ByteArray, List<Versioned<byte[]>>> entry = iterator.next();
+            return new Pair<ByteArray, List<Versioned<byte[]>>>(entry.getKey(),
+                    new ArrayList<Versioned<byte[]>>(entry.getValue()));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+}
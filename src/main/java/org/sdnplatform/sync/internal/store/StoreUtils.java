@@ -36,6 +36,8 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 /**
  * Group of store utilities
@@ -74,6 +76,39 @@ public class StoreUtils {
         return result;
     }
 
+    /**
+     * Implements getAllAsync for a local store by delegating to get.
+     */
+    public static <K, V> ListenableFuture<Map<K, List<Versioned<V>>>>
+        getAllAsync(IStore<K, V> storageEngine, Collection<K> keys) {
+        try {
+            assertValidKeys(keys);
+            return Futures.immediateFuture(getAll(storageEngine, keys));
+        } catch (Exception e) {
+            return Futures.<Map<K, List<Versioned<V>>>>
+                    immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Implements putAllAsync for a local store by delegating to put.
+     */
+    public static <K, V> ListenableFuture<Void>
+        putAllAsync(IStore<K, V> storageEngine,
+                    Map<K, Versioned<V>> values) {
+        Exception error = null;
+        for (Entry<K, Versioned<V>> e : values.entrySet()) {
+            try {
+                storageEngine.put(e.getKey(), e.getValue());
+            } catch (Exception x) {
+                if (error == null) error = x;
+            }
+        }
+        if (error != null)
+            return Futures.<Void>immediateFailedFuture(error);
+        return Futures.immediateFuture(null);
+    }
+
     /**
      * Returns an empty map with expected size matching the iterable size if
      * it's of type Collection. Otherwise, an empty map with the default size is
@@ -0,0 +1,284 @@
+package org.sdnplatform.sync.internal.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.SerializationException;
+import org.sdnplatform.sync.internal.version.ClockEntry;
+import org.sdnplatform.sync.internal.version.VectorClock;
+
+/**
+ * A compact binary encoding for the versioned values of a key and for
+ * vector clocks, used by the persistent storage engines in place of
+ * Jackson. Node ids, versions and timestamps are written as varints, and
+ * node ids and timestamps as deltas from the previous ones, so a typical
+ * clock takes a handful of bytes. Encoding computes the size first and
+ * fills a single array.
+ *
+ * An encoded list of values starts with {@link #MAGIC}, which can not
+ * start a JSON or Smile document, so callers can tell it apart from data
+ * written by older versions with {@link #isEncoded(byte[])}.
+ *
+ * The format of a list of values is the magic byte, a format version,
+ * the number of values and then, for each value, its clock and its
+ * length plus one (zero for a tombstone) followed by its bytes. A clock
+ * is its timestamp, the number of entries and a node id and version per
+ * entry.
+ */
+public final class VersionedCodec {
+    public static final byte MAGIC = (byte) 0xB5;
+    protected static final byte FORMAT_VERSION = 1;
+
+    private VersionedCodec() {
+    }
+
+    /**
+     * Check whether the given data is an encoded list of values
+     * @param data the data
+     * @return true if it starts with the magic byte
+     */
+    public static boolean isEncoded(byte[] data) {
+        return isEncoded(data, 0, data.length);
+    }
+
+    public static boolean isEncoded(byte[] data, int offset, int length) {
+        return length > 0 && data[offset] == MAGIC;
+    }
+
+    /**
+     * Encode a list of versioned values
+     * @param values the values
+     * @return the encoded values
+     */
+    public static byte[] encode(List<Versioned<byte[]>> values) {
+        int size = 2 + varIntSize(values.size());
+        long timestamp = 0;
+        for (Versioned<byte[]> v : values) {
+            VectorClock clock = (VectorClock) v.getVersion();
+            size += clockSize(clock, timestamp);
+            timestamp = clock.getTimestamp();
+            byte[] value = v.getValue();
+            size += (value == null)
+                    ? 1 : varIntSize(value.length + 1) + value.length;
+        }
+
+        Writer out = new Writer(new byte[size]);
+        out.data[out.pos++] = MAGIC;
+        out.data[out.pos++] = FORMAT_VERSION;
+        out.writeVarLong(values.size());
+        timestamp = 0;
+        for (Versioned<byte[]> v : values) {
+            VectorClock clock = (VectorClock) v.getVersion();
+            writeClock(out, clock, timestamp);
+            timestamp = clock.getTimestamp();
+            byte[] value = v.getValue();
+            if (value == null) {
+                out.writeVarLong(0);
+            } else {
+                out.writeVarLong(value.length + 1);
+                System.arraycopy(value, 0, out.data, out.pos, value.length);
+                out.pos += value.length;
+            }
+        }
+        return out.data;
+    }
+
+    /**
+     * Decode a list of versioned values
+     * @param data the encoded values
+     * @return the values
+     * @throws SerializationException if the data is not a valid encoding
+     */
+    public static List<Versioned<byte[]>> decode(byte[] data)
+            throws SerializationException {
+        return decode(data, 0, data.length);
+    }
+
+    public static List<Versioned<byte[]>> decode(byte[] data,
+                                                 int offset, int length)
+            throws SerializationException {
+        if (!isEncoded(data, offset, length))
+            throw new SerializationException("Not an encoded value list");
+        Reader in = new Reader(data, offset, offset + length);
+        in.pos++;
+        byte format = in.readByte();
+        if (format != FORMAT_VERSION)
+            throw new SerializationException("Unknown value format " + format);
+
+        int count = in.readLength();
+        List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>(count);
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            VectorClock clock = readClock(in, timestamp);
+            timestamp = clock.getTimestamp();
+            int valueLength = in.readLength();
+            byte[] value = null;
+            if (valueLength > 0) {
+                value = in.readBytes(valueLength - 1);
+            }
+            values.add(new Versioned<byte[]>(value, clock));
+        }
+        if (in.pos != in.end)
+            throw new SerializationException("Trailing bytes after values");
+        return values;
+    }
+
+    /**
+     * Encode a vector clock on its own
+     * @param clock the clock
+     * @return the encoded clock
+     */
+    public static byte[] encodeClock(VectorClock clock) {
+        Writer out = new Writer(new byte[clockSize(clock, 0)]);
+        writeClock(out, clock, 0);
+        return out.data;
+    }
+
+    /**
+     * Decode a vector clock encoded with {@link #encodeClock(VectorClock)}
+     * @param data the encoded clock
+     * @return the clock
+     * @throws SerializationException if the data is not a valid encoding
+     */
+    public static VectorClock decodeClock(byte[] data)
+            throws SerializationException {
+        Reader in = new Reader(data, 0, data.length);
+        VectorClock clock = readClock(in, 0);
+        if (in.pos != in.end)
+            throw new SerializationException("Trailing bytes after clock");
+        return clock;
+    }
+
+    // *************
+    // Local methods
+    // *************
+
+    private static int clockSize(VectorClock clock, long prevTimestamp) {
+        List<ClockEntry> entries = clock.getEntries();
+        int size = varIntSize(zigZag(clock.getTimestamp() - prevTimestamp)) +
+                   varIntSize(entries.size());
+        int nodeId = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ClockEntry e = entries.get(i);
+            size += varIntSize(zigZag(e.getNodeId() - nodeId)) +
+                    varIntSize(e.getVersion());
+            nodeId = e.getNodeId();
+        }
+        return size;
+    }
+
+    private static void writeClock(Writer out, VectorClock clock,
+                                   long prevTimestamp) {
+        List<ClockEntry> entries = clock.getEntries();
+        out.writeVarLong(zigZag(clock.getTimestamp() - prevTimestamp));
+        out.writeVarLong(entries.size());
+        int nodeId = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            ClockEntry e = entries.get(i);
+            out.writeVarLong(zigZag(e.getNodeId() - nodeId));
+            out.writeVarLong(e.getVersion());
+            nodeId = e.getNodeId();
+        }
+    }
+
+    private static VectorClock readClock(Reader in, long prevTimestamp)
+            throws SerializationException {
+        long timestamp = prevTimestamp + unZigZag(in.readVarLong());
+        int count = in.readLength();
+        List<ClockEntry> entries = new ArrayList<ClockEntry>(count);
+        int nodeId = 0;
+        for (int i = 0; i < count; i++) {
+            nodeId += (int) unZigZag(in.readVarLong());
+            if (nodeId < 0 || nodeId > Short.MAX_VALUE)
+                throw new SerializationException("Invalid node id " + nodeId);
+            long version = in.readVarLong();
+            if (version < 1)
+                throw new SerializationException("Invalid version " + version);
+            entries.add(new ClockEntry((short) nodeId, version));
+        }
+        return new VectorClock(entries, timestamp);
+    }
+
+    protected static int varIntSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static class Writer {
+        final byte[] data;
+        int pos;
+
+        Writer(byte[] data) {
+            this.data = data;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                data[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[pos++] = (byte) value;
+        }
+    }
+
+    private static class Reader {
+        final byte[] data;
+        final int end;
+        int pos;
+
+        Reader(byte[] data, int offset, int end) {
+            this.data = data;
+            this.pos = offset;
+            this.end = end;
+        }
+
+        byte readByte() throws SerializationException {
+            if (pos >= end)
+                throw new SerializationException("Truncated value");
+            return data[pos++];
+        }
+
+        long readVarLong() throws SerializationException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new SerializationException("Malformed varint");
+        }
+
+        /**
+         * Read a count or length, which must fit in the remaining bytes
+         */
+        int readLength() throws SerializationException {
+            long length = readVarLong();
+            if (length < 0 || length > end - pos + 1)
+                throw new SerializationException("Invalid length " + length);
+            return (int) length;
+        }
+
+        byte[] readBytes(int length) throws SerializationException {
+            if (length > end - pos)
+                throw new SerializationException("Truncated value");
+            byte[] b = new byte[length];
+            System.arraycopy(data, pos, b, 0, length);
+            pos += length;
+            return b;
+        }
+    }
+}
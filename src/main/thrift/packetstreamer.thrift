@@ -61,6 +61,16 @@ struct Message {
   2: Packet packet,
 }
 
+/**
+ * Filter for the packets streamed to a session. An unset or empty list
+ * matches all packets.
+ */
+struct PacketFilter {
+  1: list<OFMessageType> messageTypes,
+  2: list<i64> dpids,
+  3: i32 samplingRate = 1,
+}
+
 /**
  * Packetstreamer API
  */
@@ -87,4 +97,10 @@ service PacketStreamer {
     * Terminate a session
     */
    void terminateSession(1:string sessionid)
+
+   /**
+    * Restrict the packets streamed to a session to those matching the
+    * filter, or stream all packets again if the filter is null
+    */
+   void setSessionFilter(1:string sessionid, 2:PacketFilter filter)
 }
@@ -129,21 +129,24 @@ struct EchoReplyMessage {
 struct GetRequestMessage {
   1: required AsyncMessageHeader header
   2: required string storeName,
-  3: required binary key
+  3: optional binary key,
+  4: optional list<binary> keys
 }
 
 struct GetResponseMessage {
   1: required AsyncMessageHeader header
   2: list<VersionedValue> values,
-  3: optional SyncError error
+  3: optional SyncError error,
+  4: optional list<KeyedValues> keyedValues
 }
 
 struct PutRequestMessage {
   1: required AsyncMessageHeader header
   2: required string storeName,
-  3: required binary key,
+  3: optional binary key,
   4: optional VersionedValue versionedValue,
   5: optional binary value,
+  6: optional list<KeyedValues> keyedValues
 }
 
 struct PutResponseMessage {
@@ -62,6 +62,7 @@ import net.floodlightcontroller.storage.memory.MemoryStorageSource;
 import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
 
 import org.easymock.EasyMock;
 import org.junit.Before;
@@ -136,6 +137,7 @@ public class ACLTest extends FloodlightTestCase {
 
 		topology.addListener(deviceManager);
 		expectLastCall().times(1);
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 		
 		debugCounterService.init(fmc);
@@ -168,6 +170,7 @@ public class ACLTest extends FloodlightTestCase {
 //		expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(1))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(1))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		int[] cidr = new int[2];
@@ -318,6 +321,7 @@ public class ACLTest extends FloodlightTestCase {
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(2))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(1))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(2))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 		
 		int[] cidr = new int[2];
@@ -419,6 +423,7 @@ public class ACLTest extends FloodlightTestCase {
 		expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(1))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(1))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		int[] cidr = new int[2];
@@ -482,6 +487,7 @@ public class ACLTest extends FloodlightTestCase {
 //		expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(1))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(1))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		int[] cidr = new int[2];
@@ -570,6 +576,7 @@ public class ACLTest extends FloodlightTestCase {
 //		expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(1))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(2L), OFPort.of(1))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		int[] cidr = new int[2];
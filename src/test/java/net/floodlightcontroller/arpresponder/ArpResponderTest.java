@@ -0,0 +1,238 @@
+package net.floodlightcontroller.arpresponder;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IListener.Command;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.MockDebugCounterService;
+import net.floodlightcontroller.devicemanager.IDevice;
+import net.floodlightcontroller.devicemanager.IDeviceService;
+import net.floodlightcontroller.devicemanager.SwitchPort;
+import net.floodlightcontroller.packet.ARP;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.test.FloodlightTestCase;
+import net.floodlightcontroller.virtualnetwork.IVirtualNetworkService;
+
+import org.easymock.Capture;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFPacketOut;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFActionOutput;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.VlanVid;
+
+public class ArpResponderTest extends FloodlightTestCase {
+    private static final MacAddress SENDER_MAC = MacAddress.of("00:00:00:00:00:01");
+    private static final MacAddress TARGET_MAC = MacAddress.of("00:00:00:00:00:02");
+    private static final IPv4Address SENDER_IP = IPv4Address.of("10.0.0.1");
+    private static final IPv4Address TARGET_IP = IPv4Address.of("10.0.0.2");
+
+    private ArpResponder arpResponder;
+    private IDeviceService deviceService;
+    private IOFSwitch sw;
+    private OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+
+    @Override
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        deviceService = createMock(IDeviceService.class);
+        arpResponder = new ArpResponder();
+
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        fmc.addService(IFloodlightProviderService.class, getMockFloodlightProvider());
+        fmc.addService(IDeviceService.class, deviceService);
+        fmc.addService(IDebugCounterService.class, new MockDebugCounterService());
+        arpResponder.init(fmc);
+        arpResponder.startUp(fmc);
+
+        sw = createMock(IOFSwitch.class);
+        expect(sw.getId()).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(sw.getOFFactory()).andReturn(factory).anyTimes();
+    }
+
+    private OFPacketIn arpRequest(IPv4Address senderIp, IPv4Address targetIp) {
+        return arpRequest(senderIp, targetIp, VlanVid.ZERO);
+    }
+
+    private OFPacketIn arpRequest(IPv4Address senderIp, IPv4Address targetIp,
+                                  VlanVid vlan) {
+        Ethernet eth = (Ethernet) new Ethernet()
+            .setSourceMACAddress(SENDER_MAC)
+            .setDestinationMACAddress(MacAddress.BROADCAST)
+            .setEtherType(EthType.ARP)
+            .setVlanID(vlan.getVlan())
+            .setPayload(new ARP()
+                .setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) 6)
+                .setProtocolAddressLength((byte) 4)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(SENDER_MAC.getBytes())
+                .setSenderProtocolAddress(senderIp.getBytes())
+                .setTargetHardwareAddress(MacAddress.NONE.getBytes())
+                .setTargetProtocolAddress(targetIp.getBytes()));
+        return factory.buildPacketIn()
+            .setMatch(factory.buildMatch()
+                .setExact(MatchField.IN_PORT, OFPort.of(1))
+                .build())
+            .setBufferId(OFBufferId.NO_BUFFER)
+            .setData(eth.serialize())
+            .setReason(OFPacketInReason.NO_MATCH)
+            .build();
+    }
+
+    private IDevice device(MacAddress mac, Date lastSeen) {
+        IDevice device = createMock(IDevice.class);
+        expect(device.getMACAddress()).andReturn(mac).anyTimes();
+        expect(device.getLastSeen()).andReturn(lastSeen).anyTimes();
+        expect(device.getAttachmentPoints()).andReturn(new SwitchPort[] {
+            new SwitchPort(DatapathId.of(2L), OFPort.of(3)) }).anyTimes();
+        replay(device);
+        return device;
+    }
+
+    private void expectTargetQuery(int times, IDevice... devices) {
+        expectTargetQuery(VlanVid.ZERO, times, devices);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expectTargetQuery(VlanVid vlan, int times, IDevice... devices) {
+        expect((Iterator<IDevice>) deviceService.queryDevices(null, vlan, TARGET_IP, null, null))
+            .andReturn(Arrays.asList(devices).iterator()).times(times);
+    }
+
+    private Command receive(OFPacketIn pi) {
+        FloodlightContext cntx = parseAndAnnotate(pi);
+        return arpResponder.receive(sw, pi, cntx);
+    }
+
+    @Test
+    public void testReplyForKnownTarget() throws Exception {
+        IDevice target = device(TARGET_MAC, new Date());
+        expectTargetQuery(1, target);
+        Capture<OFMessage> wc = new Capture<OFMessage>();
+        sw.write(capture(wc));
+        expectLastCall().once();
+        replay(deviceService, sw);
+
+        assertEquals(Command.STOP, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        verify(deviceService, sw);
+
+        OFPacketOut po = (OFPacketOut) wc.getValue();
+        assertEquals(OFPort.of(1), ((OFActionOutput) po.getActions().get(0)).getPort());
+        Ethernet reply = new Ethernet();
+        reply.deserialize(po.getData(), 0, po.getData().length);
+        assertEquals(TARGET_MAC, reply.getSourceMACAddress());
+        assertEquals(SENDER_MAC, reply.getDestinationMACAddress());
+        ARP arp = (ARP) reply.getPayload();
+        assertEquals(ARP.OP_REPLY, arp.getOpCode());
+        assertArrayEquals(TARGET_MAC.getBytes(), arp.getSenderHardwareAddress());
+        assertEquals(TARGET_IP, IPv4Address.of(arp.getSenderProtocolAddress()));
+        assertArrayEquals(SENDER_MAC.getBytes(), arp.getTargetHardwareAddress());
+        assertEquals(SENDER_IP, IPv4Address.of(arp.getTargetProtocolAddress()));
+    }
+
+    @Test
+    public void testStaleTargetFlooded() throws Exception {
+        long stale = System.currentTimeMillis() -
+                (ArpResponder.MAX_DEVICE_AGE + 1) * 1000L;
+        IDevice target = device(TARGET_MAC, new Date(stale));
+        expectTargetQuery(1, target);
+        replay(deviceService, sw);
+
+        assertEquals(Command.CONTINUE, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        verify(deviceService, sw);
+    }
+
+    @Test
+    public void testUnknownTargetFloodRateLimited() throws Exception {
+        expectTargetQuery(2);
+        replay(deviceService, sw);
+
+        // The first request is flooded, the repeat is dropped
+        assertEquals(Command.CONTINUE, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        assertEquals(Command.STOP, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        verify(deviceService, sw);
+    }
+
+    @Test
+    public void testFloodRateLimitPerVlan() throws Exception {
+        expectTargetQuery(1);
+        expectTargetQuery(VlanVid.ofVlan(10), 1);
+        replay(deviceService, sw);
+
+        // The same address on another VLAN is a different host
+        assertEquals(Command.CONTINUE, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        assertEquals(Command.CONTINUE,
+                     receive(arpRequest(SENDER_IP, TARGET_IP, VlanVid.ofVlan(10))));
+        verify(deviceService, sw);
+    }
+
+    @Test
+    public void testNoReplyAcrossVirtualNetworks() throws Exception {
+        IVirtualNetworkService vns = createMock(IVirtualNetworkService.class);
+        expect(vns.isAllowed(TARGET_MAC, SENDER_MAC)).andReturn(false).once();
+        arpResponder.virtualNetworkService = vns;
+        IDevice target = device(TARGET_MAC, new Date());
+        expectTargetQuery(1, target);
+        replay(vns, deviceService, sw);
+
+        // Left to the virtual network filter, nothing is sent
+        assertEquals(Command.CONTINUE, receive(arpRequest(SENDER_IP, TARGET_IP)));
+        verify(vns, deviceService, sw);
+    }
+
+    @Test
+    public void testGratuitousArpIgnored() throws Exception {
+        replay(deviceService, sw);
+        assertEquals(Command.CONTINUE, receive(arpRequest(SENDER_IP, SENDER_IP)));
+        assertEquals(Command.CONTINUE,
+                     receive(arpRequest(IPv4Address.NONE, TARGET_IP)));
+        verify(deviceService, sw);
+    }
+
+    @Test
+    public void testNonArpIgnored() throws Exception {
+        replay(deviceService, sw);
+        Ethernet eth = (Ethernet) new Ethernet()
+            .setSourceMACAddress(SENDER_MAC)
+            .setDestinationMACAddress(MacAddress.BROADCAST)
+            .setEtherType(EthType.IPv4)
+            .setPayload(new IPv4()
+                .setSourceAddress(SENDER_IP)
+                .setDestinationAddress(IPv4Address.of("10.0.0.255")));
+        OFPacketIn pi = factory.buildPacketIn()
+            .setMatch(factory.buildMatch()
+                .setExact(MatchField.IN_PORT, OFPort.of(1))
+                .build())
+            .setBufferId(OFBufferId.NO_BUFFER)
+            .setData(eth.serialize())
+            .setReason(OFPacketInReason.NO_MATCH)
+            .build();
+        assertEquals(Command.CONTINUE, receive(pi));
+        verify(deviceService, sw);
+    }
+}
@@ -0,0 +1,349 @@
+package net.floodlightcontroller.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Pattern;
+
+import net.floodlightcontroller.core.internal.ControllerDispatchBench;
+import net.floodlightcontroller.debugcounter.DebugCounterBench;
+import net.floodlightcontroller.devicemanager.internal.DeviceLearningBench;
+import net.floodlightcontroller.firewall.FirewallMatchBench;
+import net.floodlightcontroller.packet.EthernetDeserializeBench;
+import net.floodlightcontroller.storage.memory.MemoryStorageQueryBench;
+import net.floodlightcontroller.topology.TopologyInstanceBench;
+import net.floodlightcontroller.util.OFMessageDamperBench;
+
+import org.sdnplatform.sync.internal.StoreClientBench;
+import org.sdnplatform.sync.internal.store.VersionedCodecBench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs the micro-benchmarks of the controller's hot paths and writes their
+ * throughput as JSON, in the layout of the JMH JSON result format, so that
+ * the results of two releases can be compared with the usual JMH tools.
+ *
+ * Like JMH, the runner forks a new JVM for each benchmark, so that the
+ * profile the JIT compiles one benchmark with does not carry over to the
+ * next: the call to {@link MicroBenchmark#run()} only ever sees one class
+ * and stays monomorphic.  With "-f 0" the benchmarks run in this JVM,
+ * which is only good for checking that they work.
+ *
+ * A benchmark runs on one thread: a number of warmup iterations whose
+ * results are discarded, then a number of measurement iterations, in each
+ * fork.  The score is the mean of the measurement iterations of all forks
+ * in operations per second and the error is the half-width of its 99.9%
+ * confidence interval.
+ *
+ * Run with
+ * java net.floodlightcontroller.bench.BenchmarkRunner [-o file] [-f n]
+ *     [-wi n] [-i n] [-r ms] [regex...]
+ * or with "ant bench", which writes target/bench/results.json.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Two-sided Student's t values at 99.9% confidence, indexed by the
+     * degrees of freedom
+     */
+    private static final double[] T_999 = {
+        Double.NaN, 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408,
+        5.041, 4.781, 4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015,
+        3.965, 3.922, 3.883, 3.850
+    };
+
+    /**
+     * A batch of operations takes about this long, so that reading the
+     * clock does not show up in the results
+     */
+    private static final long BATCH_NANOS = 100000;
+
+    private static volatile Object sinkToken = new Object();
+    private static long sinkHits;
+
+    private static List<MicroBenchmark> getBenchmarks() {
+        List<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+        benchmarks.addAll(Arrays.asList(
+            new EthernetDeserializeBench(),
+            new ControllerDispatchBench(),
+            new OFMessageDamperBench(),
+            new TopologyInstanceBench.Compute(),
+            new TopologyInstanceBench.GetRoute(),
+            new DeviceLearningBench(),
+            new FirewallMatchBench(),
+            new DebugCounterBench(),
+            new MemoryStorageQueryBench()));
+        benchmarks.addAll(VersionedCodecBench.getBenchmarks());
+        benchmarks.addAll(StoreClientBench.getBenchmarks());
+        return benchmarks;
+    }
+
+    private int forks = 1;
+    private int warmupIterations = 5;
+    private int iterations = 5;
+    private long iterationMillis = 1000;
+
+    /**
+     * Run a benchmark for one iteration
+     * @param b the benchmark
+     * @param batch the number of operations between reads of the clock
+     * @return the throughput in operations per second
+     */
+    private double iteration(MicroBenchmark b, int batch) throws Exception {
+        // Comparing each result with a token nothing returns keeps the
+        // results alive without a store per operation
+        Object token = sinkToken;
+        long hits = 0;
+        long ops = 0;
+        long start = System.nanoTime();
+        long end = start + iterationMillis * 1000000;
+        long now;
+        do {
+            for (int i = 0; i < batch; i++) {
+                if (b.run() == token) hits++;
+            }
+            ops += batch;
+            now = System.nanoTime();
+        } while (now < end);
+        sinkHits += hits;
+        return (double) ops * b.getOperationsPerRun() * 1e9 / (now - start);
+    }
+
+    /**
+     * Run the iterations of a benchmark in this JVM
+     * @param b the benchmark
+     * @return the result of the benchmark
+     */
+    private Map<String, Object> run(MicroBenchmark b) throws Exception {
+        b.setUp();
+        double[] raw = new double[iterations];
+        Map<String, Double> secondary;
+        try {
+            int batch = 1;
+            for (int i = 0; i < warmupIterations; i++) {
+                double runs = iteration(b, batch) / b.getOperationsPerRun();
+                batch = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+                                       runs * BATCH_NANOS / 1e9));
+            }
+            for (int i = 0; i < iterations; i++) {
+                raw[i] = iteration(b, batch);
+            }
+            secondary = b.getSecondaryMetrics();
+        } finally {
+            b.tearDown();
+        }
+
+        List<List<Double>> rawData = new ArrayList<List<Double>>();
+        rawData.add(toList(raw));
+        Map<String, List<List<Double>>> secondaryData =
+                new LinkedHashMap<String, List<List<Double>>>();
+        for (Entry<String, Double> e : secondary.entrySet()) {
+            List<List<Double>> data = new ArrayList<List<Double>>();
+            data.add(Arrays.asList(e.getValue()));
+            secondaryData.put(e.getKey(), data);
+        }
+        return result(b.getName(), rawData, secondaryData);
+    }
+
+    /**
+     * Run a benchmark in new JVMs, with the arguments and class path of
+     * this one
+     * @param b the benchmark
+     * @return the result of the benchmark over all the forks
+     */
+    private Map<String, Object> fork(MicroBenchmark b) throws Exception {
+        List<List<Double>> rawData = new ArrayList<List<Double>>();
+        Map<String, List<List<Double>>> secondaryData =
+                new LinkedHashMap<String, List<List<Double>>>();
+        File output = File.createTempFile("bench", ".json");
+        try {
+            for (int f = 1; f <= forks; f++) {
+                System.out.println("# Fork " + f + " of " + forks);
+                List<String> command = new ArrayList<String>();
+                command.add(new File(new File(System.getProperty("java.home"),
+                                              "bin"), "java").getPath());
+                command.addAll(ManagementFactory.getRuntimeMXBean()
+                               .getInputArguments());
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(BenchmarkRunner.class.getName());
+                command.addAll(Arrays.asList(
+                        "-f", "0",
+                        "-wi", Integer.toString(warmupIterations),
+                        "-i", Integer.toString(iterations),
+                        "-r", Long.toString(iterationMillis),
+                        "-o", output.getPath(),
+                        "^" + Pattern.quote(b.getName()) + "$"));
+                Process p = new ProcessBuilder(command).inheritIO().start();
+                if (p.waitFor() != 0)
+                    throw new IllegalStateException("Fork of " + b.getName() +
+                                                    " failed");
+
+                List<Map<String, Object>> results = new ObjectMapper()
+                    .readValue(output,
+                               new TypeReference<List<Map<String, Object>>>() {});
+                Map<String, Object> result = results.get(0);
+                rawData.addAll(getRawData(result.get("primaryMetric")));
+                @SuppressWarnings("unchecked")
+                Map<String, Object> secondary =
+                        (Map<String, Object>) result.get("secondaryMetrics");
+                for (Entry<String, Object> e : secondary.entrySet()) {
+                    List<List<Double>> data = secondaryData.get(e.getKey());
+                    if (data == null) {
+                        data = new ArrayList<List<Double>>();
+                        secondaryData.put(e.getKey(), data);
+                    }
+                    data.addAll(getRawData(e.getValue()));
+                }
+            }
+        } finally {
+            output.delete();
+        }
+        return result(b.getName(), rawData, secondaryData);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<List<Double>> getRawData(Object metric) {
+        List<List<Double>> rawData = new ArrayList<List<Double>>();
+        for (List<Number> fork :
+                (List<List<Number>>) ((Map<String, Object>) metric).get("rawData")) {
+            List<Double> values = new ArrayList<Double>();
+            for (Number n : fork) values.add(n.doubleValue());
+            rawData.add(values);
+        }
+        return rawData;
+    }
+
+    private static List<Double> toList(double[] values) {
+        List<Double> l = new ArrayList<Double>(values.length);
+        for (double v : values) l.add(v);
+        return l;
+    }
+
+    /**
+     * Summarize the iterations of the forks of a benchmark
+     * @param rawData the results of the iterations, per fork
+     * @param unit the unit of the results
+     * @return the metric in the JMH layout
+     */
+    private static Map<String, Object> metric(List<List<Double>> rawData,
+                                              String unit) {
+        List<Double> all = new ArrayList<Double>();
+        for (List<Double> fork : rawData) all.addAll(fork);
+        double mean = 0;
+        for (double r : all) mean += r;
+        mean /= all.size();
+        double error = Double.NaN;
+        if (all.size() > 1) {
+            double variance = 0;
+            for (double r : all) variance += (r - mean) * (r - mean);
+            variance /= all.size() - 1;
+            double t = T_999[Math.min(all.size() - 1, T_999.length - 1)];
+            error = t * Math.sqrt(variance / all.size());
+        }
+
+        Map<String, Object> metric = new LinkedHashMap<String, Object>();
+        metric.put("score", mean);
+        metric.put("scoreError", Double.isNaN(error) ? "NaN" : error);
+        metric.put("scoreConfidence", Double.isNaN(error) ?
+                Arrays.asList(mean, mean) :
+                Arrays.asList(mean - error, mean + error));
+        metric.put("scoreUnit", unit);
+        metric.put("rawData", rawData);
+        return metric;
+    }
+
+    private Map<String, Object> result(String name,
+            List<List<Double>> rawData,
+            Map<String, List<List<Double>>> secondaryData) {
+        Map<String, Object> metric = metric(rawData, "ops/s");
+        Map<String, Object> secondary = new LinkedHashMap<String, Object>();
+        for (Entry<String, List<List<Double>>> e : secondaryData.entrySet()) {
+            secondary.put(e.getKey(), metric(e.getValue(), e.getKey()));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        result.put("benchmark", name);
+        result.put("mode", "thrpt");
+        result.put("threads", 1);
+        result.put("forks", forks);
+        result.put("jvmArgs",
+                   ManagementFactory.getRuntimeMXBean().getInputArguments());
+        result.put("jdkVersion", System.getProperty("java.version"));
+        result.put("vmName", System.getProperty("java.vm.name"));
+        result.put("vmVersion", System.getProperty("java.vm.version"));
+        result.put("warmupIterations", warmupIterations);
+        result.put("warmupTime", iterationMillis + " ms");
+        result.put("measurementIterations", iterations);
+        result.put("measurementTime", iterationMillis + " ms");
+        result.put("primaryMetric", metric);
+        result.put("secondaryMetrics", secondary);
+
+        Object error = metric.get("scoreError");
+        System.out.println(String.format("%-70s %14.0f +- %12.0f ops/s",
+                                         name, metric.get("score"),
+                                         error instanceof Double ? error : 0.0));
+        for (Entry<String, Object> e : secondary.entrySet()) {
+            System.out.println(String.format("%-70s %14.1f %s", "",
+                    ((Map<?, ?>) e.getValue()).get("score"), e.getKey()));
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner();
+        File output = null;
+        List<Pattern> filters = new ArrayList<Pattern>();
+        for (int i = 0; i < args.length; i++) {
+            if ("-o".equals(args[i]) && i + 1 < args.length) {
+                output = new File(args[++i]);
+            } else if ("-f".equals(args[i]) && i + 1 < args.length) {
+                runner.forks = Integer.parseInt(args[++i]);
+            } else if ("-wi".equals(args[i]) && i + 1 < args.length) {
+                runner.warmupIterations = Integer.parseInt(args[++i]);
+            } else if ("-i".equals(args[i]) && i + 1 < args.length) {
+                runner.iterations = Integer.parseInt(args[++i]);
+            } else if ("-r".equals(args[i]) && i + 1 < args.length) {
+                runner.iterationMillis = Long.parseLong(args[++i]);
+            } else if (!args[i].isEmpty()) {
+                filters.add(Pattern.compile(args[i]));
+            }
+        }
+        if (runner.iterations < 1)
+            throw new IllegalArgumentException("At least one measurement " +
+                                               "iteration is required");
+
+        List<Map<String, Object>> results =
+                new ArrayList<Map<String, Object>>();
+        for (MicroBenchmark b : getBenchmarks()) {
+            boolean selected = filters.isEmpty();
+            for (Pattern p : filters) {
+                if (p.matcher(b.getName()).find()) {
+                    selected = true;
+                    break;
+                }
+            }
+            if (selected)
+                results.add(runner.forks > 0 ? runner.fork(b) : runner.run(b));
+        }
+        if (sinkHits != 0)
+            System.out.println("(" + sinkHits + " sink hits)");
+
+        if (output != null) {
+            File dir = output.getAbsoluteFile().getParentFile();
+            if (dir != null) dir.mkdirs();
+            new ObjectMapper().writerWithDefaultPrettyPrinter()
+                .writeValue(output, results);
+            System.out.println("Results written to " + output);
+        }
+        // Some of the modules leave non-daemon threads behind
+        System.exit(0);
+    }
+}
@@ -0,0 +1,70 @@
+package net.floodlightcontroller.bench;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A single operation whose throughput is measured by the
+ * {@link BenchmarkRunner}.  The runner calls {@link #setUp()} once, then
+ * {@link #run()} repeatedly for the warmup and measurement iterations,
+ * then {@link #tearDown()}.
+ *
+ * Implementations live in the test tree next to the code they measure so
+ * they can reach its protected methods.
+ */
+public abstract class MicroBenchmark {
+    private final String name;
+
+    /**
+     * @param name the name the results are reported under, usually the
+     * class name of the benchmark followed by the operation
+     */
+    protected MicroBenchmark(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Build the state the operation runs against
+     * @throws Exception
+     */
+    public void setUp() throws Exception {
+    }
+
+    /**
+     * Run the operation once.  The result is consumed by the runner so
+     * that the JIT cannot discard the work that computed it.
+     * @return the result of the operation, or null
+     * @throws Exception
+     */
+    public abstract Object run() throws Exception;
+
+    /**
+     * @return the number of operations one call of {@link #run()} performs,
+     * e.g. the keys of a batch, so that the throughput is reported per
+     * operation
+     */
+    public int getOperationsPerRun() {
+        return 1;
+    }
+
+    /**
+     * Measurements besides the throughput, such as the size of what the
+     * operation produces.  The runner reports them as secondary metrics
+     * after the measurement iterations.
+     * @return the measurements keyed by their unit, e.g. "bytes/op"
+     */
+    public Map<String, Double> getSecondaryMetrics() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * Release anything {@link #setUp()} started
+     * @throws Exception
+     */
+    public void tearDown() throws Exception {
+    }
+}
@@ -0,0 +1,569 @@
+package net.floodlightcontroller.core.emulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.floodlightcontroller.packet.ARP;
+import net.floodlightcontroller.packet.Data;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.LLDP;
+import net.floodlightcontroller.packet.LLDPTLV;
+import net.floodlightcontroller.packet.TCP;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.ExceptionEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.projectfloodlight.openflow.protocol.OFActionType;
+import org.projectfloodlight.openflow.protocol.OFCapabilities;
+import org.projectfloodlight.openflow.protocol.OFEchoRequest;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFeaturesReply;
+import org.projectfloodlight.openflow.protocol.OFFlowMod;
+import org.projectfloodlight.openflow.protocol.OFFlowStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFNiciraControllerRoleRequest;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFPacketOut;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPortStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFRoleRequest;
+import org.projectfloodlight.openflow.protocol.OFSetConfig;
+import org.projectfloodlight.openflow.protocol.OFStatsRequest;
+import org.projectfloodlight.openflow.protocol.OFTableStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.action.OFAction;
+import org.projectfloodlight.openflow.protocol.action.OFActionOutput;
+import org.projectfloodlight.openflow.protocol.match.Match;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFAuxId;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One switch of a {@link SwitchEmulator}.  It completes the handshake the
+ * way an OpenFlow switch would, answers the requests the controller makes
+ * of every switch, and while a run is in progress keeps up to a window of
+ * PACKET_INs outstanding.  A PACKET_IN is answered by the first FLOW_MOD
+ * or PACKET_OUT for the MAC address it was sent from.
+ */
+public class EmulatedSwitch extends SimpleChannelUpstreamHandler {
+    protected static final Logger log =
+            LoggerFactory.getLogger(EmulatedSwitch.class);
+
+    private static final long HOST_MAC_PREFIX = 0x02L << 40;
+    private static final long GATEWAY_MAC_PREFIX = 0x06L << 40;
+    private static final long PORT_MAC_PREFIX = 0x0aL << 40;
+    private static final byte[] LLDP_MULTICAST =
+            MacAddress.of("01:80:c2:00:00:0e").getBytes();
+
+    private final SwitchEmulator emulator;
+    private final int index;
+    private final DatapathId dpid;
+    private final OFFactory factory;
+    private final Random random;
+
+    private volatile Channel channel;
+    private volatile boolean ready;
+    private volatile int missSendLen = 128;
+
+    /** Send time of each outstanding PACKET_IN by its source MAC */
+    private final Map<Long, Long> pending = new ConcurrentHashMap<Long, Long>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger seq = new AtomicInteger();
+
+    EmulatedSwitch(SwitchEmulator emulator, int index, OFVersion version) {
+        this.emulator = emulator;
+        this.index = index;
+        this.dpid = DatapathId.of(index + 1);
+        this.factory = OFFactories.getFactory(version);
+        this.random = new Random(index);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public DatapathId getId() {
+        return dpid;
+    }
+
+    /**
+     * @return whether the switch has been given a role by the controller,
+     * after which the controller treats it as active
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    static MacAddress gatewayMac(int index) {
+        return MacAddress.of(GATEWAY_MAC_PREFIX | index);
+    }
+
+    static IPv4Address gatewayIp(int index) {
+        return IPv4Address.of(0x0a000001 | (index << 8));
+    }
+
+    private int firstHostPort() {
+        return emulator.isLinear() ? 3 : 1;
+    }
+
+    private OFPort hostPort() {
+        int first = firstHostPort();
+        return OFPort.of(first + random.nextInt(emulator.getPorts() - first + 1));
+    }
+
+    // ****************
+    // Handshake and controller requests
+    // ****************
+
+    @Override
+    public void channelConnected(ChannelHandlerContext ctx,
+                                 ChannelStateEvent e) {
+        channel = e.getChannel();
+        write(factory.buildHello().setXid(factory.nextXid()).build());
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) {
+        channel = null;
+        ready = false;
+        log.debug("Switch {} disconnected", dpid);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) {
+        log.warn("Switch {} closing connection: {}", dpid, e.getCause());
+        e.getChannel().close();
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
+        if (!(e.getMessage() instanceof List)) return;
+        @SuppressWarnings("unchecked")
+        List<OFMessage> msgs = (List<OFMessage>) e.getMessage();
+        List<OFMessage> replies = new ArrayList<OFMessage>();
+        boolean roleAssigned = false;
+        for (OFMessage m : msgs) {
+            roleAssigned |= handle(m, replies);
+        }
+        if (!replies.isEmpty()) write(replies);
+        // only once the role reply is on its way
+        if (roleAssigned) ready = true;
+    }
+
+    /**
+     * @return whether the message gave the switch its role
+     */
+    private boolean handle(OFMessage m, List<OFMessage> replies) {
+        switch (m.getType()) {
+            case ECHO_REQUEST:
+                replies.add(factory.buildEchoReply()
+                            .setXid(m.getXid())
+                            .setData(((OFEchoRequest) m).getData())
+                            .build());
+                break;
+            case FEATURES_REQUEST:
+                replies.add(featuresReply(m.getXid()));
+                break;
+            case SET_CONFIG:
+                missSendLen = ((OFSetConfig) m).getMissSendLen();
+                break;
+            case GET_CONFIG_REQUEST:
+                replies.add(factory.buildGetConfigReply()
+                            .setXid(m.getXid())
+                            .setMissSendLen(missSendLen)
+                            .build());
+                break;
+            case BARRIER_REQUEST:
+                replies.add(factory.buildBarrierReply()
+                            .setXid(m.getXid())
+                            .build());
+                break;
+            case STATS_REQUEST:
+                OFMessage reply = statsReply((OFStatsRequest<?>) m);
+                if (reply != null) replies.add(reply);
+                break;
+            case ROLE_REQUEST:
+                OFRoleRequest roleRequest = (OFRoleRequest) m;
+                replies.add(factory.buildRoleReply()
+                            .setXid(m.getXid())
+                            .setRole(roleRequest.getRole())
+                            .setGenerationId(roleRequest.getGenerationId())
+                            .build());
+                return true;
+            case EXPERIMENTER:
+                if (m instanceof OFNiciraControllerRoleRequest) {
+                    replies.add(factory.buildNiciraControllerRoleReply()
+                                .setXid(m.getXid())
+                                .setRole(((OFNiciraControllerRoleRequest) m).getRole())
+                                .build());
+                    return true;
+                }
+                break;
+            case FLOW_MOD:
+                handleFlowMod((OFFlowMod) m);
+                break;
+            case PACKET_OUT:
+                handlePacketOut((OFPacketOut) m);
+                break;
+            default:
+                break;
+        }
+        return false;
+    }
+
+    private List<OFPortDesc> portDescs() {
+        List<OFPortDesc> ports = new ArrayList<OFPortDesc>();
+        for (int p = 1; p <= emulator.getPorts(); p++) {
+            ports.add(factory.buildPortDesc()
+                      .setPortNo(OFPort.of(p))
+                      .setName("eth" + p)
+                      .setHwAddr(MacAddress.of(PORT_MAC_PREFIX |
+                                               ((long) index << 16) | p))
+                      .build());
+        }
+        return ports;
+    }
+
+    private OFFeaturesReply featuresReply(long xid) {
+        OFFeaturesReply.Builder b = factory.buildFeaturesReply()
+                .setXid(xid)
+                .setDatapathId(dpid)
+                .setNBuffers(0)
+                .setNTables((short) 1)
+                .setCapabilities(EnumSet.of(OFCapabilities.FLOW_STATS,
+                                            OFCapabilities.TABLE_STATS,
+                                            OFCapabilities.PORT_STATS));
+        if (factory.getVersion() == OFVersion.OF_10) {
+            b.setActions(EnumSet.of(OFActionType.OUTPUT))
+             .setPorts(portDescs());
+        } else {
+            b.setAuxiliaryId(OFAuxId.MAIN);
+        }
+        return b.build();
+    }
+
+    private OFMessage statsReply(OFStatsRequest<?> request) {
+        long xid = request.getXid();
+        switch (request.getStatsType()) {
+            case DESC:
+                return factory.buildDescStatsReply()
+                        .setXid(xid)
+                        .setMfrDesc("Floodlight")
+                        .setHwDesc("Switch emulator")
+                        .setSwDesc("Switch emulator")
+                        .setSerialNum(Integer.toString(index))
+                        .setDpDesc(dpid.toString())
+                        .build();
+            case PORT_DESC:
+                return factory.buildPortDescStatsReply()
+                        .setXid(xid)
+                        .setEntries(portDescs())
+                        .build();
+            case FLOW:
+                return factory.buildFlowStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFFlowStatsEntry>emptyList())
+                        .build();
+            case AGGREGATE:
+                return factory.buildAggregateStatsReply()
+                        .setXid(xid)
+                        .setPacketCount(U64.ZERO)
+                        .setByteCount(U64.ZERO)
+                        .setFlowCount(0)
+                        .build();
+            case TABLE:
+                return factory.buildTableStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFTableStatsEntry>emptyList())
+                        .build();
+            case PORT:
+                return factory.buildPortStatsReply()
+                        .setXid(xid)
+                        .setEntries(Collections.<OFPortStatsEntry>emptyList())
+                        .build();
+            default:
+                return null;
+        }
+    }
+
+    // ****************
+    // Load
+    // ****************
+
+    private void handleFlowMod(OFFlowMod flowMod) {
+        LoadReport report = emulator.getReport();
+        if (report == null) return;
+        report.flowMods.incrementAndGet();
+        Match match = flowMod.getMatch();
+        if (match.isExact(MatchField.ETH_SRC) &&
+                complete(report, match.get(MatchField.ETH_SRC).getLong()))
+            return;
+        if (match.isExact(MatchField.ETH_DST) &&
+                complete(report, match.get(MatchField.ETH_DST).getLong()))
+            return;
+        report.uncorrelated.incrementAndGet();
+    }
+
+    private void handlePacketOut(OFPacketOut packetOut) {
+        byte[] data = packetOut.getData();
+        if (data == null || data.length < 14) return;
+        int etherType = ((data[12] & 0xff) << 8) | (data[13] & 0xff);
+        if (etherType == (EthType.LLDP.getValue() & 0xffff) ||
+                etherType == (Ethernet.TYPE_BSN & 0xffff)) {
+            forwardDiscovery(packetOut, data);
+            return;
+        }
+        LoadReport report = emulator.getReport();
+        if (report == null) return;
+        report.packetOuts.incrementAndGet();
+        if (complete(report, macAt(data, 6)) || complete(report, macAt(data, 0)))
+            return;
+        report.uncorrelated.incrementAndGet();
+    }
+
+    private static long macAt(byte[] data, int offset) {
+        long mac = 0;
+        for (int i = offset; i < offset + 6; i++) {
+            mac = (mac << 8) | (data[i] & 0xff);
+        }
+        return mac;
+    }
+
+    /**
+     * Deliver the controller's discovery packets to the switches linked to
+     * the ports they are sent out of, so that it finds the links
+     */
+    private void forwardDiscovery(OFPacketOut packetOut, byte[] data) {
+        if (!emulator.isLinear()) return;
+        for (OFAction action : packetOut.getActions()) {
+            if (!(action instanceof OFActionOutput)) continue;
+            OFPort port = ((OFActionOutput) action).getPort();
+            if (port.equals(OFPort.FLOOD) || port.equals(OFPort.ALL)) {
+                deliver(OFPort.of(1), data);
+                deliver(OFPort.of(2), data);
+            } else {
+                deliver(port, data);
+            }
+        }
+    }
+
+    private void deliver(OFPort port, byte[] data) {
+        EmulatedSwitch peer = emulator.getPeer(index, port.getPortNumber());
+        if (peer == null || !peer.isReady()) return;
+        peer.write(peer.packetIn(OFPort.of(emulator.getPeerPort(port.getPortNumber())),
+                                 data));
+        LoadReport report = emulator.getReport();
+        if (report != null) report.discoveryForwarded.incrementAndGet();
+    }
+
+    private boolean complete(LoadReport report, long mac) {
+        Long sent = pending.remove(mac);
+        if (sent == null) return false;
+        report.latency.record(System.nanoTime() - sent);
+        report.responses.incrementAndGet();
+        outstanding.decrementAndGet();
+        inject();
+        return true;
+    }
+
+    OFPacketIn packetIn(OFPort inPort, byte[] data) {
+        OFPacketIn.Builder b = factory.buildPacketIn()
+                .setXid(factory.nextXid())
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setTotalLen(data.length)
+                .setReason(OFPacketInReason.NO_MATCH)
+                .setData(data);
+        if (factory.getVersion().compareTo(OFVersion.OF_12) < 0) {
+            b.setInPort(inPort);
+        } else {
+            b.setMatch(factory.buildMatch()
+                       .setExact(MatchField.IN_PORT, inPort)
+                       .build());
+        }
+        return b.build();
+    }
+
+    /**
+     * Forget PACKET_INs still outstanding from an earlier run
+     */
+    void reset() {
+        pending.clear();
+        outstanding.set(0);
+    }
+
+    /**
+     * Announce this switch's gateway host with a gratuitous ARP so that
+     * the controller has somewhere to send the flows
+     */
+    void announce() {
+        if (!ready) return;
+        IPv4Address ip = gatewayIp(index);
+        Ethernet eth = (Ethernet) new Ethernet()
+            .setSourceMACAddress(gatewayMac(index))
+            .setDestinationMACAddress(MacAddress.BROADCAST)
+            .setEtherType(EthType.ARP)
+            .setPayload(new ARP()
+                .setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) 6)
+                .setProtocolAddressLength((byte) 4)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(gatewayMac(index).getBytes())
+                .setSenderProtocolAddress(ip.getInt())
+                .setTargetHardwareAddress(MacAddress.NONE.getBytes())
+                .setTargetProtocolAddress(ip.getInt()));
+        write(packetIn(OFPort.of(firstHostPort()), eth.serialize()));
+    }
+
+    /**
+     * Send PACKET_INs until the window is full
+     */
+    void inject() {
+        if (!ready || !emulator.isRunning()) return;
+        LoadReport report = emulator.getReport();
+        if (report == null) return;
+        int window = emulator.getWindow();
+        List<OFMessage> msgs = new ArrayList<OFMessage>();
+        for (int i = 0; i < window; i++) {
+            SwitchEmulator.Workload workload = emulator.nextWorkload(random);
+            if (workload == SwitchEmulator.Workload.LLDP) {
+                msgs.add(packetIn(hostPort(), lldp()));
+                report.untracked.incrementAndGet();
+                continue;
+            }
+            if (outstanding.incrementAndGet() > window) {
+                outstanding.decrementAndGet();
+                break;
+            }
+            long mac = HOST_MAC_PREFIX | ((long) index << 24) |
+                    (seq.incrementAndGet() & 0xffffff);
+            byte[] frame = workload == SwitchEmulator.Workload.ARP ?
+                    arpRequest(mac) : newFlow(mac);
+            // answers can arrive before write() returns on a local channel
+            pending.put(mac, System.nanoTime());
+            msgs.add(packetIn(hostPort(), frame));
+            report.packetIns.incrementAndGet();
+        }
+        if (!msgs.isEmpty()) write(msgs);
+    }
+
+    /**
+     * Give up on the PACKET_INs that have waited longer than the timeout
+     * and refill the window
+     */
+    void tick(long now, long timeoutNanos) {
+        LoadReport report = emulator.getReport();
+        if (report == null) return;
+        Iterator<Map.Entry<Long, Long>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> entry = it.next();
+            if (now - entry.getValue() > timeoutNanos &&
+                    pending.remove(entry.getKey(), entry.getValue())) {
+                outstanding.decrementAndGet();
+                report.timeouts.incrementAndGet();
+            }
+        }
+        inject();
+    }
+
+    private int destination() {
+        return emulator.isLinear() ?
+                (index + 1) % emulator.getSwitchCount() : index;
+    }
+
+    private byte[] newFlow(long mac) {
+        int dst = destination();
+        int n = seq.get();
+        return new Ethernet()
+            .setSourceMACAddress(MacAddress.of(mac))
+            .setDestinationMACAddress(gatewayMac(dst))
+            .setEtherType(EthType.IPv4)
+            .setPayload(new IPv4()
+                .setTtl((byte) 64)
+                .setSourceAddress(0x0a000002 | (index << 8) | (n % 250))
+                .setDestinationAddress(gatewayIp(dst))
+                .setProtocol(IpProtocol.TCP)
+                .setPayload(new TCP()
+                    .setSourcePort(1024 + n % 60000)
+                    .setDestinationPort(80)
+                    .setFlags((short) 0x02)
+                    .setPayload(new Data(new byte[0]))))
+            .serialize();
+    }
+
+    private byte[] arpRequest(long mac) {
+        int n = seq.get();
+        return new Ethernet()
+            .setSourceMACAddress(MacAddress.of(mac))
+            .setDestinationMACAddress(MacAddress.BROADCAST)
+            .setEtherType(EthType.ARP)
+            .setPayload(new ARP()
+                .setHardwareType(ARP.HW_TYPE_ETHERNET)
+                .setProtocolType(ARP.PROTO_TYPE_IP)
+                .setHardwareAddressLength((byte) 6)
+                .setProtocolAddressLength((byte) 4)
+                .setOpCode(ARP.OP_REQUEST)
+                .setSenderHardwareAddress(MacAddress.of(mac).getBytes())
+                .setSenderProtocolAddress(0x0a000002 | (index << 8) | (n % 250))
+                .setTargetHardwareAddress(MacAddress.NONE.getBytes())
+                .setTargetProtocolAddress(gatewayIp(destination()).getInt()))
+            .serialize();
+    }
+
+    /**
+     * An LLDP frame from a neighbour the controller did not send, which
+     * it has to look at and drop
+     */
+    private byte[] lldp() {
+        byte[] chassis = MacAddress.of(HOST_MAC_PREFIX | random.nextInt(1 << 24))
+                .getBytes();
+        LLDP lldp = new LLDP();
+        lldp.setChassisId(new LLDPTLV().setType((byte) 1)
+            .setLength((short) 7)
+            .setValue(new byte[] { 4, chassis[0], chassis[1], chassis[2],
+                                   chassis[3], chassis[4], chassis[5] }));
+        lldp.setPortId(new LLDPTLV().setType((byte) 2)
+            .setLength((short) 3)
+            .setValue(new byte[] { 2, 0, 1 }));
+        lldp.setTtl(new LLDPTLV().setType((byte) 3)
+            .setLength((short) 2)
+            .setValue(new byte[] { 0, 0x78 }));
+        return new Ethernet()
+            .setSourceMACAddress(MacAddress.of(chassis))
+            .setDestinationMACAddress(LLDP_MULTICAST)
+            .setEtherType(EthType.LLDP)
+            .setPayload(lldp)
+            .serialize();
+    }
+
+    private void write(OFMessage m) {
+        write(Collections.singletonList(m));
+    }
+
+    private void write(List<OFMessage> msgs) {
+        Channel c = channel;
+        if (c != null && c.isConnected()) c.write(msgs);
+    }
+}
@@ -0,0 +1,93 @@
+package net.floodlightcontroller.core.emulator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds that can be recorded into from
+ * many threads.  Values below 256 get a bucket each; larger values share
+ * buckets 1/128th of a power of two wide, so percentiles are accurate to
+ * within 1% whatever the range of the values.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts =
+            new AtomicLongArray(LINEAR + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    static int bucket(long value) {
+        if (value < LINEAR) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS +
+                (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * @return the smallest value that falls in a bucket
+     */
+    static long lowestValue(int bucket) {
+        if (bucket < LINEAR) return bucket;
+        int shift = (bucket - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (bucket - LINEAR) % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    /**
+     * Record a latency
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get())) {
+            if (max.compareAndSet(m, nanos)) break;
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the mean latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : sum.get() / c;
+    }
+
+    /**
+     * @return the largest latency recorded in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the latency at or below which the given percentage of the
+     * recorded latencies fall
+     * @param percentile the percentage, from 0 to 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long c = count.get();
+        if (c == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * c));
+        if (rank >= c) return max.get();
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(lowestValue(i), max.get());
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,61 @@
+package net.floodlightcontroller.core.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        long last = -1;
+        for (int b = 0; b < 256 + 55 * 128; b++) {
+            long low = LatencyHistogram.lowestValue(b);
+            assertTrue(low > last);
+            assertEquals(b, LatencyHistogram.bucket(low));
+            if (b > 0)
+                assertEquals(b - 1, LatencyHistogram.bucket(low - 1));
+            last = low;
+        }
+        assertEquals(255, LatencyHistogram.bucket(255));
+        assertEquals(256, LatencyHistogram.bucket(256));
+        assertEquals(256, LatencyHistogram.bucket(257));
+        LatencyHistogram.bucket(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.getMean());
+        assertEquals(0, h.getMax());
+        assertEquals(0, h.getPercentile(99));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long i = 1; i <= 100000; i++) {
+            h.record(i * 1000);
+        }
+        assertEquals(100000, h.getCount());
+        assertEquals(100000000, h.getMax());
+        assertEquals(50000500, h.getMean());
+        double[] percentiles = { 1, 50, 90, 99, 99.9 };
+        for (double p : percentiles) {
+            double expected = p * 1000000;
+            long actual = h.getPercentile(p);
+            assertTrue(p + ": " + actual, actual <= expected);
+            assertTrue(p + ": " + actual, actual >= expected * 0.99);
+        }
+        assertEquals(100000000, h.getPercentile(100));
+    }
+
+    @Test
+    public void testNegative() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        assertEquals(1, h.getCount());
+        assertEquals(0, h.getPercentile(50));
+    }
+}
@@ -0,0 +1,143 @@
+package net.floodlightcontroller.core.emulator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the controller did with the load offered by a {@link SwitchEmulator}
+ * during one run.  The counters are updated by the emulated switches while
+ * the run is in progress.
+ */
+public class LoadReport {
+    private final int switches;
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+
+    final AtomicLong packetIns = new AtomicLong();
+    final AtomicLong untracked = new AtomicLong();
+    final AtomicLong responses = new AtomicLong();
+    final AtomicLong timeouts = new AtomicLong();
+    final AtomicLong flowMods = new AtomicLong();
+    final AtomicLong packetOuts = new AtomicLong();
+    final AtomicLong uncorrelated = new AtomicLong();
+    final AtomicLong discoveryForwarded = new AtomicLong();
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    LoadReport(int switches) {
+        this.switches = switches;
+    }
+
+    void end() {
+        endNanos = System.nanoTime();
+    }
+
+    public int getSwitches() {
+        return switches;
+    }
+
+    /**
+     * @return the length of the run in nanoseconds so far
+     */
+    public long getDuration() {
+        long end = endNanos;
+        return (end == 0 ? System.nanoTime() : end) - startNanos;
+    }
+
+    /**
+     * @return the PACKET_INs sent that expected an answer
+     */
+    public long getPacketIns() {
+        return packetIns.get();
+    }
+
+    /**
+     * @return the PACKET_INs sent that expected no answer, such as
+     * third-party LLDP
+     */
+    public long getUntracked() {
+        return untracked.get();
+    }
+
+    /**
+     * @return the PACKET_INs answered by a FLOW_MOD or PACKET_OUT
+     */
+    public long getResponses() {
+        return responses.get();
+    }
+
+    /**
+     * @return the PACKET_INs not answered within the response timeout
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    public long getFlowMods() {
+        return flowMods.get();
+    }
+
+    public long getPacketOuts() {
+        return packetOuts.get();
+    }
+
+    /**
+     * @return the FLOW_MODs and PACKET_OUTs that did not answer an
+     * outstanding PACKET_IN, such as second answers and floods
+     */
+    public long getUncorrelated() {
+        return uncorrelated.get();
+    }
+
+    /**
+     * @return the discovery PACKET_OUTs delivered to a linked switch
+     */
+    public long getDiscoveryForwarded() {
+        return discoveryForwarded.get();
+    }
+
+    /**
+     * @return the answered PACKET_INs per second
+     */
+    public double getThroughput() {
+        long duration = getDuration();
+        return duration == 0 ? 0 :
+            responses.get() * (double) TimeUnit.SECONDS.toNanos(1) / duration;
+    }
+
+    /**
+     * @return the time from sending a PACKET_IN to receiving its answer
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("switches:     %d%n", switches));
+        sb.append(String.format("duration:     %.3f s%n", getDuration() / 1e9));
+        sb.append(String.format("packet-ins:   %d (+%d untracked)%n",
+                                getPacketIns(), getUntracked()));
+        sb.append(String.format("responses:    %d (%.1f/s)%n",
+                                getResponses(), getThroughput()));
+        sb.append(String.format("timeouts:     %d%n", getTimeouts()));
+        sb.append(String.format("flow-mods:    %d%n", getFlowMods()));
+        sb.append(String.format("packet-outs:  %d%n", getPacketOuts()));
+        sb.append(String.format("uncorrelated: %d%n", getUncorrelated()));
+        sb.append(String.format("discovery:    %d forwarded%n",
+                                getDiscoveryForwarded()));
+        sb.append(String.format("latency (ms): mean %.3f p50 %.3f p90 %.3f " +
+                                "p99 %.3f p99.9 %.3f max %.3f",
+                                millis(latency.getMean()),
+                                millis(latency.getPercentile(50)),
+                                millis(latency.getPercentile(90)),
+                                millis(latency.getPercentile(99)),
+                                millis(latency.getPercentile(99.9)),
+                                millis(latency.getMax())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,387 @@
+package net.floodlightcontroller.core.emulator;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.internal.OFMessageDecoder;
+import net.floodlightcontroller.core.internal.OFMessageEncoder;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.local.DefaultLocalClientChannelFactory;
+import org.jboss.netty.channel.local.LocalAddress;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emulates a network of OpenFlow switches connected to a controller, to
+ * measure how quickly the controller answers PACKET_INs.  The switches
+ * connect over TCP, or over in-memory channels to a controller in the same
+ * JVM that listens with
+ * {@link net.floodlightcontroller.core.internal.OFSwitchManager#bindLocal}.
+ * Each switch keeps a window of PACKET_INs outstanding and sends another
+ * as each is answered, like cbench; a window of 1 measures latency and a
+ * larger one throughput.
+ *
+ * Run with
+ * java net.floodlightcontroller.core.emulator.SwitchEmulator [options]
+ */
+public class SwitchEmulator {
+    protected static final Logger log =
+            LoggerFactory.getLogger(SwitchEmulator.class);
+
+    private static final long TICK_MILLIS = 10;
+
+    /**
+     * The kinds of PACKET_IN the switches send
+     */
+    public enum Workload {
+        /** The first packet of a TCP connection to a known host */
+        NEW_FLOW,
+        /** An ARP request for a known host */
+        ARP,
+        /** Third-party LLDP, which gets no answer */
+        LLDP
+    }
+
+    private int switchCount = 16;
+    private OFVersion version = OFVersion.OF_13;
+    private int ports = 8;
+    private int window = 8;
+    private boolean linear;
+    private long responseTimeout = TimeUnit.SECONDS.toNanos(1);
+    private long settleTime = TimeUnit.SECONDS.toNanos(1);
+    private final int[] weights = { 1, 0, 0 };
+
+    private final List<EmulatedSwitch> switches =
+            new ArrayList<EmulatedSwitch>();
+    private final ChannelGroup channels =
+            new DefaultChannelGroup("switch-emulator");
+    private ChannelFactory channelFactory;
+    private ScheduledExecutorService ticker;
+    private volatile LoadReport report;
+    private volatile boolean running;
+
+    public int getSwitchCount() {
+        return switchCount;
+    }
+
+    public void setSwitchCount(int switchCount) {
+        this.switchCount = switchCount;
+    }
+
+    public OFVersion getVersion() {
+        return version;
+    }
+
+    public void setVersion(OFVersion version) {
+        this.version = version;
+    }
+
+    public int getPorts() {
+        return ports;
+    }
+
+    public void setPorts(int ports) {
+        this.ports = ports;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    /**
+     * @param window the number of PACKET_INs each switch keeps outstanding
+     */
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public boolean isLinear() {
+        return linear;
+    }
+
+    /**
+     * Link the switches in a line, port 1 of each to port 2 of the next,
+     * and deliver the controller's LLDP across the links so that it sees
+     * a topology.  New flows then go to a host on the next switch.
+     * @param linear whether to link the switches
+     */
+    public void setLinear(boolean linear) {
+        this.linear = linear;
+    }
+
+    public void setResponseTimeout(long timeout, TimeUnit unit) {
+        this.responseTimeout = unit.toNanos(timeout);
+    }
+
+    /**
+     * @param time how long to wait between announcing the hosts and
+     * starting the load
+     */
+    public void setSettleTime(long time, TimeUnit unit) {
+        this.settleTime = unit.toNanos(time);
+    }
+
+    /**
+     * Set the relative frequency of a kind of PACKET_IN.  Only new flows
+     * are sent by default.
+     */
+    public void setWeight(Workload workload, int weight) {
+        if (weight < 0)
+            throw new IllegalArgumentException("Negative weight " + weight);
+        weights[workload.ordinal()] = weight;
+    }
+
+    Workload nextWorkload(Random random) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int x = random.nextInt(total);
+        for (Workload workload : Workload.values()) {
+            x -= weights[workload.ordinal()];
+            if (x < 0) return workload;
+        }
+        return Workload.NEW_FLOW;
+    }
+
+    EmulatedSwitch getPeer(int index, int port) {
+        if (!linear) return null;
+        if (port == 1 && index + 1 < switches.size())
+            return switches.get(index + 1);
+        if (port == 2 && index > 0)
+            return switches.get(index - 1);
+        return null;
+    }
+
+    int getPeerPort(int port) {
+        return port == 1 ? 2 : 1;
+    }
+
+    LoadReport getReport() {
+        return report;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    public List<EmulatedSwitch> getSwitches() {
+        return Collections.unmodifiableList(switches);
+    }
+
+    /**
+     * Connect the switches to a controller
+     * @param address an {@link InetSocketAddress} to connect over TCP or a
+     * {@link LocalAddress} to connect in memory
+     * @return the number of switches that connected
+     */
+    public int connect(SocketAddress address) {
+        if (linear && ports < 3)
+            throw new IllegalStateException("Linked switches need at least " +
+                                            "3 ports");
+        if (weights[0] + weights[1] + weights[2] == 0)
+            throw new IllegalStateException("No workload has a weight");
+        if (address instanceof LocalAddress) {
+            channelFactory = new DefaultLocalClientChannelFactory();
+        } else {
+            channelFactory = new NioClientSocketChannelFactory(
+                    Executors.newCachedThreadPool(),
+                    Executors.newCachedThreadPool());
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor();
+
+        List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+        for (int i = 0; i < switchCount; i++) {
+            EmulatedSwitch sw = new EmulatedSwitch(this, i, version);
+            switches.add(sw);
+            ChannelPipeline pipeline = Channels.pipeline();
+            pipeline.addLast("ofmessagedecoder", new OFMessageDecoder());
+            pipeline.addLast("ofmessageencoder", new OFMessageEncoder());
+            pipeline.addLast("handler", sw);
+            Channel channel = channelFactory.newChannel(pipeline);
+            channel.getConfig().setOption("tcpNoDelay", true);
+            channels.add(channel);
+            futures.add(channel.connect(address));
+        }
+        int connected = 0;
+        for (ChannelFuture future : futures) {
+            if (future.awaitUninterruptibly().isSuccess()) {
+                connected++;
+            } else {
+                log.warn("Could not connect to {}: {}", address,
+                         future.getCause());
+            }
+        }
+        log.info("{} of {} switches connected to {}",
+                 new Object[] { connected, switchCount, address });
+        return connected;
+    }
+
+    private int countReady() {
+        int n = 0;
+        for (EmulatedSwitch sw : switches) {
+            if (sw.isReady()) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Wait for the controller to finish the handshake with every switch
+     * @return whether every switch is ready
+     */
+    public boolean awaitReady(long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (countReady() < switches.size()) {
+            if (System.nanoTime() >= deadline) return false;
+            Thread.sleep(TICK_MILLIS);
+        }
+        return true;
+    }
+
+    /**
+     * Announce the hosts, then offer load to the controller
+     * @param duration how long to offer load for
+     * @return what the controller did with it
+     */
+    public LoadReport run(long duration, TimeUnit unit)
+            throws InterruptedException {
+        report = null;
+        for (EmulatedSwitch sw : switches) {
+            sw.reset();
+            sw.announce();
+        }
+        TimeUnit.NANOSECONDS.sleep(settleTime);
+
+        final LoadReport r = new LoadReport(countReady());
+        report = r;
+        running = true;
+        ScheduledFuture<?> tick = ticker.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                for (EmulatedSwitch sw : switches) {
+                    sw.tick(now, responseTimeout);
+                }
+            }
+        }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            unit.sleep(duration);
+        } finally {
+            running = false;
+            tick.cancel(false);
+            r.end();
+        }
+        return r;
+    }
+
+    /**
+     * Disconnect the switches
+     */
+    public void shutdown() {
+        running = false;
+        channels.close().awaitUninterruptibly();
+        if (ticker != null) ticker.shutdownNow();
+        if (channelFactory != null) channelFactory.releaseExternalResources();
+    }
+
+    private static class Settings {
+        @Option(name="-H", aliases="--host", metaVar="HOST",
+                usage="Controller address")
+        private String host = "localhost";
+
+        @Option(name="-p", aliases="--port", metaVar="PORT",
+                usage="Controller OpenFlow port")
+        private int port = 6653;
+
+        @Option(name="-s", aliases="--switches", metaVar="N",
+                usage="Number of switches")
+        private int switches = 16;
+
+        @Option(name="-P", aliases="--ports", metaVar="N",
+                usage="Ports per switch")
+        private int ports = 8;
+
+        @Option(name="-V", aliases="--of-version", metaVar="1.0|1.3",
+                usage="OpenFlow version")
+        private String version = "1.3";
+
+        @Option(name="-w", aliases="--window", metaVar="N",
+                usage="PACKET_INs outstanding per switch; 1 measures latency")
+        private int window = 8;
+
+        @Option(name="-d", aliases="--duration", metaVar="SECONDS",
+                usage="How long to offer load for")
+        private int duration = 10;
+
+        @Option(name="-m", aliases="--mix", metaVar="FLOW,ARP,LLDP",
+                usage="Relative weights of new flows, ARP requests and LLDP")
+        private String mix = "1,0,0";
+
+        @Option(name="-l", aliases="--linear",
+                usage="Link the switches in a line")
+        private boolean linear = false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = new Settings();
+        CmdLineParser parser = new CmdLineParser(settings);
+        SwitchEmulator emulator = new SwitchEmulator();
+        try {
+            parser.parseArgument(args);
+            if ("1.0".equals(settings.version)) {
+                emulator.setVersion(OFVersion.OF_10);
+            } else if ("1.3".equals(settings.version)) {
+                emulator.setVersion(OFVersion.OF_13);
+            } else {
+                throw new CmdLineException(parser, "Unsupported OpenFlow " +
+                                           "version " + settings.version);
+            }
+            String[] mix = settings.mix.split(",");
+            if (mix.length != Workload.values().length)
+                throw new CmdLineException(parser, "Bad mix " + settings.mix);
+            try {
+                for (Workload workload : Workload.values()) {
+                    emulator.setWeight(workload,
+                            Integer.parseInt(mix[workload.ordinal()].trim()));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new CmdLineException(parser, "Bad mix " + settings.mix);
+            }
+        } catch (CmdLineException e) {
+            System.err.println(e.getMessage());
+            parser.printUsage(System.err);
+            System.exit(1);
+        }
+        emulator.setSwitchCount(settings.switches);
+        emulator.setPorts(settings.ports);
+        emulator.setWindow(settings.window);
+        emulator.setLinear(settings.linear);
+
+        emulator.connect(new InetSocketAddress(settings.host, settings.port));
+        if (!emulator.awaitReady(30, TimeUnit.SECONDS))
+            log.warn("Not every switch finished the handshake");
+        LoadReport report = emulator.run(settings.duration, TimeUnit.SECONDS);
+        emulator.shutdown();
+        System.out.println(report);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,206 @@
+package net.floodlightcontroller.core.emulator;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.floodlightcontroller.core.internal.OFMessageDecoder;
+import net.floodlightcontroller.core.internal.OFMessageEncoder;
+
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.local.DefaultLocalServerChannelFactory;
+import org.jboss.netty.channel.local.LocalAddress;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFControllerRole;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFeaturesReply;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+public class SwitchEmulatorTest {
+    private static final LocalAddress ADDRESS =
+            new LocalAddress("switch-emulator-test");
+
+    private final OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+    private ServerBootstrap bootstrap;
+    private Channel serverChannel;
+    private FakeController controller;
+    private SwitchEmulator emulator;
+
+    /**
+     * Does the controller's side of the handshake and answers every
+     * PACKET_IN with a FLOW_MOD for its source MAC
+     */
+    private class FakeController extends SimpleChannelUpstreamHandler {
+        final BlockingQueue<OFMessage> received =
+                new LinkedBlockingQueue<OFMessage>();
+        final Map<DatapathId, Channel> switches =
+                new ConcurrentHashMap<DatapathId, Channel>();
+        volatile boolean answer = true;
+
+        @Override
+        public void messageReceived(ChannelHandlerContext ctx,
+                                    MessageEvent e) {
+            @SuppressWarnings("unchecked")
+            List<OFMessage> msgs = (List<OFMessage>) e.getMessage();
+            List<OFMessage> replies = new ArrayList<OFMessage>();
+            for (OFMessage m : msgs) {
+                received.add(m);
+                switch (m.getType()) {
+                    case HELLO:
+                        replies.add(factory.buildFeaturesRequest().build());
+                        break;
+                    case FEATURES_REPLY:
+                        switches.put(((OFFeaturesReply) m).getDatapathId(),
+                                     e.getChannel());
+                        replies.add(factory.buildRoleRequest()
+                                    .setRole(OFControllerRole.ROLE_MASTER)
+                                    .setGenerationId(U64.ZERO)
+                                    .build());
+                        break;
+                    case PACKET_IN:
+                        if (!answer) break;
+                        byte[] data = ((OFPacketIn) m).getData();
+                        MacAddress src =
+                                MacAddress.of(Arrays.copyOfRange(data, 6, 12));
+                        replies.add(factory.buildFlowAdd()
+                                    .setMatch(factory.buildMatch()
+                                              .setExact(MatchField.ETH_SRC, src)
+                                              .build())
+                                    .build());
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (!replies.isEmpty()) e.getChannel().write(replies);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        controller = new FakeController();
+        bootstrap = new ServerBootstrap(new DefaultLocalServerChannelFactory());
+        bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+            @Override
+            public ChannelPipeline getPipeline() {
+                return Channels.pipeline(new OFMessageDecoder(),
+                                         new OFMessageEncoder(),
+                                         controller);
+            }
+        });
+        serverChannel = bootstrap.bind(ADDRESS);
+
+        emulator = new SwitchEmulator();
+        emulator.setSwitchCount(2);
+        emulator.setWindow(4);
+        emulator.setSettleTime(0, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        emulator.shutdown();
+        serverChannel.close().awaitUninterruptibly();
+        bootstrap.releaseExternalResources();
+    }
+
+    @Test
+    public void testHandshake() throws Exception {
+        assertEquals(2, emulator.connect(ADDRESS));
+        assertTrue(emulator.awaitReady(5, TimeUnit.SECONDS));
+        assertEquals(2, controller.switches.size());
+        assertTrue(controller.switches.containsKey(
+                emulator.getSwitches().get(0).getId()));
+        assertTrue(controller.switches.containsKey(
+                emulator.getSwitches().get(1).getId()));
+        int hellos = 0;
+        int roleReplies = 0;
+        for (OFMessage m : controller.received) {
+            if (m.getType() == OFType.HELLO) hellos++;
+            if (m.getType() == OFType.ROLE_REPLY) roleReplies++;
+        }
+        assertEquals(2, hellos);
+        assertEquals(2, roleReplies);
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        emulator.connect(ADDRESS);
+        assertTrue(emulator.awaitReady(5, TimeUnit.SECONDS));
+        LoadReport report = emulator.run(200, TimeUnit.MILLISECONDS);
+        assertEquals(2, report.getSwitches());
+        assertTrue(report.getResponses() > 0);
+        assertEquals(0, report.getTimeouts());
+        assertEquals(0, report.getUncorrelated());
+        assertEquals(report.getResponses(), report.getLatency().getCount());
+        assertEquals(report.getResponses(), report.getFlowMods());
+        long outstanding = report.getPacketIns() - report.getResponses();
+        assertTrue(outstanding >= 0 && outstanding <= 2 * 4);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        controller.answer = false;
+        emulator.setResponseTimeout(20, TimeUnit.MILLISECONDS);
+        emulator.connect(ADDRESS);
+        assertTrue(emulator.awaitReady(5, TimeUnit.SECONDS));
+        LoadReport report = emulator.run(200, TimeUnit.MILLISECONDS);
+        assertEquals(0, report.getResponses());
+        assertTrue(report.getTimeouts() > 0);
+        assertTrue(report.getPacketIns() > 2 * 4);
+    }
+
+    @Test
+    public void testDiscovery() throws Exception {
+        emulator.setLinear(true);
+        emulator.connect(ADDRESS);
+        assertTrue(emulator.awaitReady(5, TimeUnit.SECONDS));
+        controller.received.clear();
+
+        byte[] lldp = new byte[64];
+        lldp[0] = 0x01; lldp[1] = (byte) 0x80; lldp[2] = (byte) 0xc2;
+        lldp[5] = 0x0e;
+        lldp[12] = (byte) 0x88; lldp[13] = (byte) 0xcc;
+        Channel first = controller.switches.get(
+                emulator.getSwitches().get(0).getId());
+        first.write(Collections.singletonList(factory.buildPacketOut()
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setActions(Collections.singletonList(
+                        factory.actions().output(OFPort.of(1), 0xffff)))
+                .setData(lldp)
+                .build())).awaitUninterruptibly();
+
+        OFMessage m = controller.received.poll(5, TimeUnit.SECONDS);
+        assertNotNull(m);
+        assertEquals(OFType.PACKET_IN, m.getType());
+        OFPacketIn pi = (OFPacketIn) m;
+        assertEquals(OFPort.of(2), pi.getMatch().get(MatchField.IN_PORT));
+        assertArrayEquals(lldp, pi.getData());
+    }
+}
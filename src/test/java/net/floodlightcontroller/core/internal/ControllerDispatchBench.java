@@ -0,0 +1,190 @@
+package net.floodlightcontroller.core.internal;
+
+import static org.easymock.EasyMock.*;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.HARole;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.IShutdownListener;
+import net.floodlightcontroller.core.IShutdownService;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.test.MockSwitchManager;
+import net.floodlightcontroller.core.test.MockThreadPoolService;
+import net.floodlightcontroller.debugcounter.DebugCounterServiceImpl;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugevent.DebugEventService;
+import net.floodlightcontroller.debugevent.IDebugEventService;
+import net.floodlightcontroller.packet.Data;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.UDP;
+import net.floodlightcontroller.perfmon.IPktInProcessingTimeService;
+import net.floodlightcontroller.perfmon.PktInProcessingTime;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.restserver.RestApiServer;
+import net.floodlightcontroller.storage.IStorageSourceService;
+import net.floodlightcontroller.storage.memory.MemoryStorageSource;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TransportPort;
+import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.test.MockSyncService;
+
+/**
+ * Dispatches a PACKET_IN through the controller to a chain of listeners
+ * that do nothing, so the result is the cost of the dispatch itself:
+ * decoding the frame, picking the listeners and calling them.
+ */
+public class ControllerDispatchBench extends MicroBenchmark {
+    private static final int LISTENERS = 8;
+
+    private Controller controller;
+    private MockThreadPoolService tp;
+    private IOFSwitch sw;
+    private OFPacketIn pi;
+
+    public ControllerDispatchBench() {
+        super(ControllerDispatchBench.class.getName() + ".handleMessage");
+    }
+
+    private static class NoopListener implements IOFMessageListener {
+        private final String name;
+
+        public NoopListener(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isCallbackOrderingPrereq(OFType type, String name) {
+            return false;
+        }
+
+        @Override
+        public boolean isCallbackOrderingPostreq(OFType type, String name) {
+            return false;
+        }
+
+        @Override
+        public Command receive(IOFSwitch sw, OFMessage msg,
+                               FloodlightContext cntx) {
+            return Command.CONTINUE;
+        }
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        FloodlightProvider cm = new FloodlightProvider();
+        fmc.addConfigParam(cm, "role", HARole.ACTIVE.toString());
+        controller = (Controller)cm.getServiceImpls().get(IFloodlightProviderService.class);
+        fmc.addService(IFloodlightProviderService.class, controller);
+
+        MemoryStorageSource memstorage = new MemoryStorageSource();
+        fmc.addService(IStorageSourceService.class, memstorage);
+        RestApiServer restApi = new RestApiServer();
+        fmc.addService(IRestApiService.class, restApi);
+        MockSwitchManager switchService = new MockSwitchManager();
+        fmc.addService(IOFSwitchService.class, switchService);
+        PktInProcessingTime ppt = new PktInProcessingTime();
+        fmc.addService(IPktInProcessingTimeService.class, ppt);
+        DebugCounterServiceImpl debugCounterService = new DebugCounterServiceImpl();
+        fmc.addService(IDebugCounterService.class, debugCounterService);
+        DebugEventService debugEventService = new DebugEventService();
+        fmc.addService(IDebugEventService.class, debugEventService);
+
+        IShutdownService shutdownService = createMock(IShutdownService.class);
+        shutdownService.registerShutdownListener(anyObject(IShutdownListener.class));
+        expectLastCall().anyTimes();
+        replay(shutdownService);
+        fmc.addService(IShutdownService.class, shutdownService);
+
+        tp = new MockThreadPoolService();
+        fmc.addService(IThreadPoolService.class, tp);
+        MockSyncService syncService = new MockSyncService();
+        fmc.addService(ISyncService.class, syncService);
+
+        ppt.init(fmc);
+        restApi.init(fmc);
+        memstorage.init(fmc);
+        tp.init(fmc);
+        debugCounterService.init(fmc);
+        debugEventService.init(fmc);
+        syncService.init(fmc);
+        cm.init(fmc);
+
+        ppt.startUp(fmc);
+        restApi.startUp(fmc);
+        memstorage.startUp(fmc);
+        tp.startUp(fmc);
+        debugCounterService.startUp(fmc);
+        debugEventService.startUp(fmc);
+        syncService.startUp(fmc);
+        cm.startUp(fmc);
+
+        for (int i = 0; i < LISTENERS; i++) {
+            controller.addOFMessageListener(OFType.PACKET_IN,
+                                            new NoopListener("bench" + i));
+        }
+
+        sw = createNiceMock(IOFSwitch.class);
+        expect(sw.getId()).andReturn(DatapathId.of(1L)).anyTimes();
+        replay(sw);
+
+        byte[] data = new Ethernet()
+            .setSourceMACAddress("00:44:33:22:11:00")
+            .setDestinationMACAddress("00:11:22:33:44:55")
+            .setEtherType(EthType.IPv4)
+            .setPayload(new IPv4()
+                .setTtl((byte) 64)
+                .setSourceAddress("10.0.0.1")
+                .setDestinationAddress("10.0.0.2")
+                .setProtocol(IpProtocol.UDP)
+                .setPayload(new UDP()
+                    .setSourcePort(TransportPort.of(5000))
+                    .setDestinationPort(TransportPort.of(5001))
+                    .setPayload(new Data(new byte[64]))))
+            .serialize();
+        OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+        pi = factory.buildPacketIn()
+            .setMatch(factory.buildMatch()
+                .setExact(MatchField.IN_PORT, OFPort.of(1))
+                .build())
+            .setBufferId(OFBufferId.NO_BUFFER)
+            .setData(data)
+            .setReason(OFPacketInReason.NO_MATCH)
+            .setTotalLen(data.length)
+            .build();
+    }
+
+    @Override
+    public Object run() {
+        controller.handleMessage(sw, pi, null);
+        return null;
+    }
+
+    @Override
+    public void tearDown() {
+        tp.getScheduledExecutor().shutdownNow();
+    }
+}
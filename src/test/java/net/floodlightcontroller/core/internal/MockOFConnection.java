@@ -33,6 +33,7 @@ public class MockOFConnection implements IOFConnectionBackend {
     private final List<OFMessage> messages;
     private final Map<Long, RequestAndFuture<?>>requests;
     private IOFConnectionListener listener;
+    private long latency = -1;
 
     public MockOFConnection(DatapathId id, OFAuxId auxId){
         this.id = id;
@@ -193,6 +194,16 @@ public class MockOFConnection implements IOFConnectionBackend {
         this.listener = listener;
     }
 
+    @Override
+    public long getLatency() {
+        return latency;
+    }
+
+    @Override
+    public void updateLatency(long rttNs) {
+        this.latency = rttNs / 2000;
+    }
+
     // for interacting with the action
     public List<OFMessage> getMessages() {
         return messages;
@@ -27,6 +27,7 @@ import static org.easymock.EasyMock.reset;
 import static org.easymock.EasyMock.verify;
 import static org.easymock.EasyMock.anyObject;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
@@ -34,7 +35,11 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.local.LocalAddress;
 import org.jboss.netty.util.Timer;
 import org.junit.After;
 import org.junit.Before;
@@ -54,6 +59,8 @@ import net.floodlightcontroller.core.NullConnection;
 import net.floodlightcontroller.core.OFSwitch;
 import net.floodlightcontroller.core.PortChangeType;
 import net.floodlightcontroller.core.SwitchDescription;
+import net.floodlightcontroller.core.emulator.EmulatedSwitch;
+import net.floodlightcontroller.core.emulator.SwitchEmulator;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
 import net.floodlightcontroller.debugcounter.MockDebugCounterService;
@@ -459,6 +466,35 @@ public class OFSwitchManagerTest{
        controller.processUpdateQueueForTesting();
    }
 
+   /**
+    * Tests that the switch map views are reused while nothing changes and
+    * follow switch additions, status changes and disconnects.
+    */
+   @Test
+   public void testSwitchMapSnapshots() {
+       MockOFConnection connection = new MockOFConnection(DATAPATH_ID_1, OFAuxId.MAIN);
+       IOFSwitchBackend sw = new MockOFSwitchImpl(connection);
+       sw.setStatus(SwitchStatus.HANDSHAKE);
+
+       switchManager.switchAdded(sw);
+       Map<DatapathId, IOFSwitch> all = switchManager.getAllSwitchMap(true);
+       assertEquals(sw, all.get(DATAPATH_ID_1));
+       assertSame(all, switchManager.getAllSwitchMap(true));
+       assertTrue(switchManager.getAllSwitchMap(false).isEmpty());
+       assertFalse(switchManager.getActiveSwitches().iterator().hasNext());
+
+       sw.setStatus(SwitchStatus.MASTER);
+       switchManager.switchStatusChanged(sw, SwitchStatus.HANDSHAKE, SwitchStatus.MASTER);
+       assertEquals(sw, switchManager.getAllSwitchMap(false).get(DATAPATH_ID_1));
+       assertEquals(sw, switchManager.getActiveSwitches().iterator().next());
+
+       switchManager.switchDisconnected(sw);
+       assertTrue(switchManager.getAllSwitchMap(true).isEmpty());
+       assertFalse(switchManager.getActiveSwitches().iterator().hasNext());
+       // we don't care for updates. drain queue.
+       controller.processUpdateQueueForTesting();
+   }
+
    /**
     * Test that notifyPortChanged() results in an IOFSwitchListener
     * update and that its arguments are passed through to
@@ -835,4 +871,46 @@ public class OFSwitchManagerTest{
         assertTrue(switchManager.getSwitchHandshakeHandlers().size() == 0);
 
     }
+
+    /**
+     * Connect emulated switches to the switch manager over a local channel
+     * and check that the real handshake makes them active switches
+     * @param version the OpenFlow version of the switches
+     */
+    private void doTestBindLocalHandshake(OFVersion version) throws Exception {
+        LocalAddress address = new LocalAddress("of-switch-manager-test-" + version);
+        Channel server = switchManager.bindLocal(address);
+        SwitchEmulator emulator = new SwitchEmulator();
+        emulator.setVersion(version);
+        emulator.setSwitchCount(2);
+        try {
+            assertEquals(2, emulator.connect(address));
+            assertTrue(emulator.awaitReady(10, TimeUnit.SECONDS));
+            for (EmulatedSwitch esw : emulator.getSwitches()) {
+                // The role reply may be handled after the switch saw it sent
+                IOFSwitch sw = null;
+                long deadline = System.currentTimeMillis() + 10000;
+                while ((sw = switchManager.getActiveSwitch(esw.getId())) == null
+                        && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                }
+                assertNotNull(esw.getId() + " not active", sw);
+                assertEquals(SwitchStatus.MASTER, sw.getStatus());
+                assertEquals(version, sw.getOFFactory().getVersion());
+            }
+        } finally {
+            emulator.shutdown();
+            server.close().awaitUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testBindLocalHandshakeOF10() throws Exception {
+        doTestBindLocalHandshake(OFVersion.OF_10);
+    }
+
+    @Test
+    public void testBindLocalHandshakeOF13() throws Exception {
+        doTestBindLocalHandshake(OFVersion.OF_13);
+    }
 }
@@ -0,0 +1,122 @@
+package net.floodlightcontroller.core.internal;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import net.floodlightcontroller.core.IOFMessageListener;
+import net.floodlightcontroller.core.IPacketInInterestListener;
+import net.floodlightcontroller.core.PacketInInterest;
+import net.floodlightcontroller.core.PacketInInterest.DstMacClass;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+
+public class PacketInDispatchTableTest {
+    private static final DatapathId DPID_1 = DatapathId.of(1);
+    private static final DatapathId DPID_2 = DatapathId.of(2);
+
+    private IOFMessageListener all;
+    private IPacketInInterestListener ipv4Only;
+    private IPacketInInterestListener noLldp;
+    private IPacketInInterestListener unicastOnSwitch1;
+    private List<IOFMessageListener> ordered;
+
+    private static byte[] frame(String dstMac, int ethType, boolean vlan) {
+        byte[] data = new byte[64];
+        String[] octets = dstMac.split(":");
+        for (int i = 0; i < 6; i++) {
+            data[i] = (byte) Integer.parseInt(octets[i], 16);
+        }
+        int offset = 12;
+        if (vlan) {
+            data[offset++] = (byte) 0x81;
+            data[offset++] = 0x00;
+            offset += 2;
+        }
+        data[offset++] = (byte) (ethType >> 8);
+        data[offset] = (byte) ethType;
+        return data;
+    }
+
+    @Before
+    public void setUp() {
+        all = createNiceMock(IOFMessageListener.class);
+        ipv4Only = createNiceMock(IPacketInInterestListener.class);
+        expect(ipv4Only.getPacketInInterest())
+                .andReturn(PacketInInterest.forEthTypes(EthType.IPv4)).anyTimes();
+        noLldp = createNiceMock(IPacketInInterestListener.class);
+        expect(noLldp.getPacketInInterest())
+                .andReturn(PacketInInterest.ignoringEthTypes(EthType.LLDP)).anyTimes();
+        unicastOnSwitch1 = createNiceMock(IPacketInInterestListener.class);
+        expect(unicastOnSwitch1.getPacketInInterest())
+                .andReturn(new PacketInInterest(Collections.<EthType>emptySet(),
+                                                Collections.<EthType>emptySet(),
+                                                EnumSet.of(DstMacClass.UNICAST),
+                                                Collections.singleton(DPID_1)))
+                .anyTimes();
+        replay(all, ipv4Only, noLldp, unicastOnSwitch1);
+        ordered = Arrays.<IOFMessageListener>asList(all, ipv4Only, noLldp, unicastOnSwitch1);
+    }
+
+    @Test
+    public void testClassification() {
+        assertEquals(DstMacClass.UNICAST,
+                PacketInInterest.getDstMacClass(frame("00:00:00:00:00:01", 0x0800, false)));
+        assertEquals(DstMacClass.BROADCAST,
+                PacketInInterest.getDstMacClass(frame("ff:ff:ff:ff:ff:ff", 0x0806, false)));
+        assertEquals(DstMacClass.LINK_LOCAL,
+                PacketInInterest.getDstMacClass(frame("01:80:c2:00:00:0e", 0x88cc, false)));
+        assertEquals(DstMacClass.MULTICAST,
+                PacketInInterest.getDstMacClass(frame("01:00:5e:00:00:01", 0x0800, false)));
+        assertEquals(0x0800, PacketInInterest.getEthType(frame("00:00:00:00:00:01", 0x0800, true)));
+        assertEquals(-1, PacketInInterest.getEthType(new byte[10]));
+    }
+
+    @Test
+    public void testListenersPerClass() {
+        PacketInDispatchTable table = new PacketInDispatchTable(ordered);
+
+        // Unicast IPv4 on switch 1 goes to everybody, in order
+        assertEquals(ordered,
+                table.getListeners(DPID_1, frame("00:00:00:00:00:01", 0x0800, false)));
+        // The switch filter applies on other switches
+        assertEquals(Arrays.<IOFMessageListener>asList(all, ipv4Only, noLldp),
+                table.getListeners(DPID_2, frame("00:00:00:00:00:01", 0x0800, true)));
+        // LLDP only reaches listeners without an interest
+        assertEquals(Arrays.<IOFMessageListener>asList(all),
+                table.getListeners(DPID_2, frame("01:80:c2:00:00:0e", 0x88cc, false)));
+        // An EtherType no interest names
+        assertEquals(Arrays.<IOFMessageListener>asList(all, noLldp),
+                table.getListeners(DPID_2, frame("ff:ff:ff:ff:ff:ff", 0x0806, false)));
+        // Frames too short to classify go to every listener
+        assertSame(ordered, table.getListeners(DPID_2, new byte[10]));
+    }
+
+    @Test
+    public void testInterestInAll() {
+        // A listener declaring every packet is dispatched like one without
+        // an interest, including the classes other interests carve out
+        IPacketInInterestListener declaredAll = createNiceMock(IPacketInInterestListener.class);
+        expect(declaredAll.getPacketInInterest()).andReturn(PacketInInterest.ALL).anyTimes();
+        replay(declaredAll);
+        PacketInDispatchTable table = new PacketInDispatchTable(
+                Arrays.<IOFMessageListener>asList(declaredAll, ipv4Only, noLldp));
+
+        assertEquals(Arrays.<IOFMessageListener>asList(declaredAll),
+                table.getListeners(DPID_1, frame("01:80:c2:00:00:0e", 0x88cc, false)));
+        assertEquals(Arrays.<IOFMessageListener>asList(declaredAll, noLldp),
+                table.getListeners(DPID_2, frame("01:80:c2:00:00:03", 0x888e, false)));
+        assertEquals(Arrays.<IOFMessageListener>asList(declaredAll, ipv4Only, noLldp),
+                table.getListeners(DPID_2, frame("01:00:5e:00:00:01", 0x0800, true)));
+    }
+}
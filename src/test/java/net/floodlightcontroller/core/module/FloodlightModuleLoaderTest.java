@@ -0,0 +1,134 @@
+package net.floodlightcontroller.core.module;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FloodlightModuleLoaderTest {
+    private interface IServiceA extends IFloodlightService {}
+    private interface IServiceB extends IFloodlightService {}
+    private interface IServiceC extends IFloodlightService {}
+    private interface IServiceD extends IFloodlightService {}
+    private interface IServiceE extends IFloodlightService {}
+
+    private FloodlightModuleLoader loader;
+    private List<String> events;
+    private Random random;
+
+    /**
+     * A module that records when its startUp begins and ends
+     */
+    private class OrderModule implements IFloodlightModule {
+        private final String name;
+        private final Class<? extends IFloodlightService> service;
+        private final List<Class<? extends IFloodlightService>> dependencies;
+        private final boolean fail;
+
+        @SafeVarargs
+        OrderModule(String name, boolean fail,
+                    Class<? extends IFloodlightService> service,
+                    Class<? extends IFloodlightService>... dependencies) {
+            this.name = name;
+            this.fail = fail;
+            this.service = service;
+            this.dependencies = Arrays.asList(dependencies);
+        }
+
+        @Override
+        public Collection<Class<? extends IFloodlightService>> getModuleServices() {
+            return Collections.<Class<? extends IFloodlightService>>singletonList(service);
+        }
+
+        @Override
+        public Map<Class<? extends IFloodlightService>, IFloodlightService> getServiceImpls() {
+            return null;
+        }
+
+        @Override
+        public Collection<Class<? extends IFloodlightService>> getModuleDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public void init(FloodlightModuleContext context)
+                throws FloodlightModuleException {
+        }
+
+        @Override
+        public void startUp(FloodlightModuleContext context)
+                throws FloodlightModuleException {
+            events.add("start " + name);
+            try {
+                Thread.sleep(random.nextInt(5));
+            } catch (InterruptedException e) {
+                throw new FloodlightModuleException(e);
+            }
+            if (fail)
+                throw new FloodlightModuleException(name + " failed");
+            events.add("end " + name);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        loader = new FloodlightModuleLoader();
+        loader.setStartupThreads(4);
+        events = Collections.synchronizedList(new ArrayList<String>());
+        random = new Random(7);
+    }
+
+    private void assertBefore(String first, String second) {
+        int i = events.indexOf(first);
+        int j = events.indexOf(second);
+        assertTrue(first + " missing in " + events, i >= 0);
+        assertTrue(second + " missing in " + events, j >= 0);
+        assertTrue(first + " not before " + second + " in " + events, i < j);
+    }
+
+    @Test
+    public void testDependencyOrder() throws Exception {
+        // D needs B and C, B needs A; A and C can run side by side
+        List<IFloodlightModule> modules = new ArrayList<IFloodlightModule>();
+        modules.add(new OrderModule("A", false, IServiceA.class));
+        modules.add(new OrderModule("C", false, IServiceC.class));
+        modules.add(new OrderModule("B", false, IServiceB.class, IServiceA.class));
+        modules.add(new OrderModule("E", false, IServiceE.class));
+        modules.add(new OrderModule("D", false, IServiceD.class,
+                                    IServiceB.class, IServiceC.class));
+        for (int round = 0; round < 20; round++) {
+            events.clear();
+            loader.runPhase(modules, false);
+            assertEquals(2 * modules.size(), events.size());
+            assertBefore("end A", "start B");
+            assertBefore("end B", "start D");
+            assertBefore("end C", "start D");
+        }
+    }
+
+    @Test
+    public void testFailureAbortsStartup() throws Exception {
+        List<IFloodlightModule> modules = new ArrayList<IFloodlightModule>();
+        modules.add(new OrderModule("A", true, IServiceA.class));
+        modules.add(new OrderModule("C", false, IServiceC.class));
+        modules.add(new OrderModule("B", false, IServiceB.class, IServiceA.class));
+        modules.add(new OrderModule("D", false, IServiceD.class, IServiceB.class));
+        try {
+            loader.runPhase(modules, false);
+            fail("Expected FloodlightModuleException");
+        } catch (FloodlightModuleException e) {
+            assertEquals("A failed", e.getMessage());
+        }
+        // Nothing that depends on the failed module was started
+        assertFalse(events.contains("start B"));
+        assertFalse(events.contains("start D"));
+    }
+}
@@ -0,0 +1,34 @@
+package net.floodlightcontroller.debugcounter;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+
+/**
+ * Increments a counter registered with the debug counter service, as the
+ * modules do for every message they handle.
+ */
+public class DebugCounterBench extends MicroBenchmark {
+    private static final String MODULE = "bench";
+
+    private IDebugCounter counter;
+
+    public DebugCounterBench() {
+        super(DebugCounterBench.class.getName() + ".increment");
+    }
+
+    @Override
+    public void setUp() {
+        DebugCounterServiceImpl debugCounterService =
+                new DebugCounterServiceImpl();
+        debugCounterService.registerModule(MODULE);
+        debugCounterService.registerCounter(MODULE, "packets",
+                                            "Packets handled");
+        counter = debugCounterService.registerCounter(MODULE, "packets/in",
+                                                      "Packets received");
+    }
+
+    @Override
+    public Object run() {
+        counter.increment();
+        return null;
+    }
+}
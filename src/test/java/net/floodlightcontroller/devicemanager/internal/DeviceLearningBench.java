@@ -0,0 +1,125 @@
+package net.floodlightcontroller.devicemanager.internal;
+
+import static org.easymock.EasyMock.*;
+
+import java.util.Date;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.HARole;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.test.MockFloodlightProvider;
+import net.floodlightcontroller.core.test.MockThreadPoolService;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.MockDebugCounterService;
+import net.floodlightcontroller.debugevent.IDebugEventService;
+import net.floodlightcontroller.debugevent.MockDebugEventService;
+import net.floodlightcontroller.devicemanager.IDeviceService;
+import net.floodlightcontroller.devicemanager.IEntityClassifierService;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.restserver.RestApiServer;
+import net.floodlightcontroller.storage.IStorageSourceService;
+import net.floodlightcontroller.storage.memory.MemoryStorageSource;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.VlanVid;
+import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.test.MockSyncService;
+
+/**
+ * Learns entities of a fixed population of hosts that do not move, one
+ * entity per operation, which after the first pass is the steady state of
+ * the device manager: looking up the known device and refreshing it.
+ */
+public class DeviceLearningBench extends MicroBenchmark {
+    private static final int HOSTS = 1000;
+
+    private DeviceManagerImpl deviceManager;
+    private MockThreadPoolService tp;
+    private Entity[] entities;
+    private int next;
+
+    public DeviceLearningBench() {
+        super(DeviceLearningBench.class.getName() + ".learnDeviceByEntity");
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        tp = new MockThreadPoolService();
+        RestApiServer restApi = new RestApiServer();
+        MockFloodlightProvider mockFloodlightProvider = new MockFloodlightProvider();
+        mockFloodlightProvider.setRole(HARole.ACTIVE, "");
+        MemoryStorageSource storageSource = new MemoryStorageSource();
+        MockSyncService syncService = new MockSyncService();
+        DefaultEntityClassifier entityClassifier = new DefaultEntityClassifier();
+        deviceManager = new DeviceManagerImpl();
+
+        ITopologyService topology = createNiceMock(ITopologyService.class);
+        expect(topology.isAttachmentPointPort(anyObject(DatapathId.class),
+                                              anyObject(OFPort.class)))
+            .andReturn(true).anyTimes();
+        expect(topology.getL2DomainId(anyObject(DatapathId.class)))
+            .andReturn(DatapathId.of(1L)).anyTimes();
+        expect(topology.isConsistent(anyObject(DatapathId.class),
+                                     anyObject(OFPort.class),
+                                     anyObject(DatapathId.class),
+                                     anyObject(OFPort.class)))
+            .andReturn(true).anyTimes();
+        expect(topology.getLastUpdateTime()).andReturn(new Date()).anyTimes();
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
+        replay(topology);
+
+        fmc.addService(IThreadPoolService.class, tp);
+        fmc.addService(IDeviceService.class, deviceManager);
+        fmc.addService(IStorageSourceService.class, storageSource);
+        fmc.addService(IFloodlightProviderService.class, mockFloodlightProvider);
+        fmc.addService(IRestApiService.class, restApi);
+        fmc.addService(IEntityClassifierService.class, entityClassifier);
+        fmc.addService(ITopologyService.class, topology);
+        fmc.addService(ISyncService.class, syncService);
+        fmc.addService(IDebugCounterService.class, new MockDebugCounterService());
+        fmc.addService(IDebugEventService.class, new MockDebugEventService());
+        tp.init(fmc);
+        restApi.init(fmc);
+        storageSource.init(fmc);
+        deviceManager.init(fmc);
+        entityClassifier.init(fmc);
+        syncService.init(fmc);
+        storageSource.startUp(fmc);
+        deviceManager.startUp(fmc);
+        tp.startUp(fmc);
+        entityClassifier.startUp(fmc);
+        syncService.startUp(fmc);
+
+        Date now = new Date();
+        entities = new Entity[HOSTS];
+        for (int i = 0; i < HOSTS; i++) {
+            entities[i] = new Entity(MacAddress.of(i + 1),
+                                     VlanVid.ofVlan(1 + i % 4),
+                                     IPv4Address.of(0x0a000001 + i),
+                                     DatapathId.of(1 + i % 16),
+                                     OFPort.of(1 + i / 16 % 48),
+                                     now);
+        }
+        next = 0;
+    }
+
+    @Override
+    public Object run() {
+        Entity entity = entities[next];
+        if (++next == HOSTS) next = 0;
+        return deviceManager.learnDeviceByEntity(entity);
+    }
+
+    @Override
+    public void tearDown() {
+        tp.getScheduledExecutor().shutdownNow();
+    }
+}
@@ -87,6 +87,7 @@ import net.floodlightcontroller.storage.memory.MemoryStorageSource;
 import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
 
 import org.easymock.EasyMock;
 import org.junit.Before;
@@ -215,6 +216,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		reset(topology);
 		topology.addListener(deviceManager);
 		expectLastCall().anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		IOFSwitch mockSwitch1 = makeSwitchMock(DatapathId.of(1L));
@@ -386,6 +388,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		Entity entity7 = new Entity(MacAddress.of(2L), VlanVid.ofVlan(4), IPv4Address.of(2), DatapathId.of(50L), OFPort.of(3), new Date());
 
 		mockListener.deviceAdded(isA(IDevice.class));
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockListener, mockTopology);
 
 		Device d1 = deviceManager.learnDeviceByEntity(entity1);
@@ -500,6 +503,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		reset(deviceManager.topology);
 		deviceManager.topology.addListener(deviceManager);
 		expectLastCall().times(1);
+		expect(deviceManager.topology.getSnapshot()).andReturn(new MockTopologySnapshot(deviceManager.topology)).anyTimes();
 		replay(deviceManager.topology);
 
 		deviceManager.entityClassifier = new MockEntityClassifierMac();
@@ -595,6 +599,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -705,6 +710,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -813,6 +819,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -933,6 +940,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -1034,6 +1042,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -1100,6 +1109,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		deviceManager.topology = mockTopology;
@@ -1209,6 +1219,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		ITopologyService mockTopology = createMock(ITopologyService.class);
 		deviceManager.topology = mockTopology;
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		FloodlightContext cntx = new FloodlightContext();
@@ -1244,6 +1255,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		// the same device
 		reset(mockTopology);
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		// trigger the packet in
@@ -1277,6 +1289,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		MacAddress dstMac = deviceMac;
 		reset(mockTopology);
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		// trigger the packet in
 		cntx = new FloodlightContext();
@@ -1326,6 +1339,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		ITopologyService mockTopology = createMock(ITopologyService.class);
 		deviceManager.topology = mockTopology;
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 
@@ -1372,6 +1386,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		ITopologyService mockTopology = createMock(ITopologyService.class);
 		deviceManager.topology = mockTopology;
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		FloodlightContext cntx = new FloodlightContext();
 
@@ -1432,6 +1447,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		ITopologyService mockTopology = createMock(ITopologyService.class);
 		deviceManager.topology = mockTopology;
 		mockTopologyForPacketInTests(mockTopology);
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		FloodlightContext cntx = new FloodlightContext();
 
@@ -1522,6 +1538,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 
@@ -1612,6 +1629,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.isBroadcastDomainPort(DatapathId.of(EasyMock.anyLong()),
 				OFPort.of(EasyMock.anyShort()))).
 				andReturn(false).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		IDevice d = deviceManager.learnDeviceByEntity(entity2);
@@ -1769,6 +1787,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		anyTimes();
 
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 
@@ -1861,6 +1880,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.getLastUpdateTime()).andReturn(topologyUpdateTime).
 		anyTimes();
 
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 
@@ -2017,6 +2037,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				OFPort.of(anyShort()))).
 				andReturn(true).anyTimes();
 		expect(mockTopology.getL2DomainId(DatapathId.of(EasyMock.anyLong()))).andReturn(DatapathId.of(1L)).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		doTestDeviceQuery();
 	}
@@ -2029,6 +2050,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				OFPort.of(anyShort()))).
 				andReturn(true).anyTimes();
 		expect(mockTopology.getL2DomainId(DatapathId.of(EasyMock.anyLong()))).andReturn(DatapathId.of(1L)).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		doTestDeviceQuery();
@@ -2114,6 +2136,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				OFPort.of(anyShort()))).
 				andReturn(true).anyTimes();
 		expect(mockTopology.getL2DomainId(DatapathId.of(EasyMock.anyLong()))).andReturn(DatapathId.of(1L)).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		doTestDeviceClassQuery();
@@ -2126,6 +2149,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		expect(mockTopology.isAttachmentPointPort(DatapathId.of(anyLong()),
 				OFPort.of(anyShort()))).andReturn(true).anyTimes();
 		expect(mockTopology.getL2DomainId(DatapathId.of(EasyMock.anyLong()))).andReturn(DatapathId.of(1L)).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		doTestDeviceClassQuery();
@@ -2143,6 +2167,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				OFPort.of(anyShort()))).
 				andReturn(true).anyTimes();
 		expect(mockTopology.getL2DomainId(DatapathId.of(EasyMock.anyLong()))).andReturn(DatapathId.of(1L)).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		Entity entity1 = new Entity(MacAddress.of(1L), VlanVid.ofVlan(1), IPv4Address.of(1), DatapathId.of(1L), OFPort.of(1), new Date());
@@ -2283,6 +2308,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				DatapathId.of(EasyMock.anyLong()),
 				OFPort.of(EasyMock.anyShort()))).
 				andReturn(false).anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		Entity e1 = new Entity(MacAddress.of(1L), VlanVid.ofVlan(1), null, null, null, new Date(2000));
@@ -2420,6 +2446,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 				OFPort.of(EasyMock.anyShort())))
 				.andReturn(false)
 				.anyTimes();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 
 		//flexClassifier.createTestEntityClass("Class1");
@@ -2586,6 +2613,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 	@Test
 	public void testDeviceSyncRepresentationFromDevice() {
 		ITopologyService mockTopology = makeMockTopologyAllPortsAp();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 
@@ -2685,13 +2713,14 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 	}
 
 	/* interate through all entries in the sync store and return them as
-	 * list. We don't return the key from the store however, we assert
+	 * list, after writing the pending device updates. We don't return the key from the store however, we assert
 	 * that the key from the store matches the key in the representation.
 	 * If we have a null value (tombstone) we simply add the null value to
 	 * the list to return.
 	 */
 	private List<DeviceSyncRepresentation> getEntriesFromStore()
 			throws Exception {
+		deviceManager.flushSyncStore();
 		List<DeviceSyncRepresentation> entries =
 				new ArrayList<DeviceSyncRepresentation>();
 		IClosableIterator<Entry<String, Versioned<DeviceSyncRepresentation>>> iter =
@@ -2736,6 +2765,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 	public void testWriteToSyncStore() throws Exception {
 		int syncStoreIntervalMs = 50;
 		ITopologyService mockTopology = makeMockTopologyAllPortsAp();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 		deviceManager.setSyncStoreWriteInterval(syncStoreIntervalMs);
@@ -2841,6 +2871,44 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		}
 	}
 
+	/* Updates of a device are coalesced until the next flush of the sync
+	 * store, and pending updates of removed devices are dropped.
+	 */
+	@Test
+	public void testSyncStoreCoalescedWrites() throws Exception {
+		ITopologyService mockTopology = makeMockTopologyAllPortsAp();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
+		replay(mockTopology);
+		deviceManager.topology = mockTopology;
+		deviceManager.setSyncStoreWriteInterval(0);
+
+		// The device moves twice before the store is flushed
+		Entity e1a = new Entity(MacAddress.of(1L), null, IPv4Address.of(3), DatapathId.of(4L), OFPort.of(5), new Date(1000));
+		Entity e1b = new Entity(MacAddress.of(1L), null, IPv4Address.of(3), DatapathId.of(4L), OFPort.of(6), new Date(2000));
+		Entity e1c = new Entity(MacAddress.of(1L), null, IPv4Address.of(3), DatapathId.of(4L), OFPort.of(7), new Date(3000));
+		deviceManager.learnDeviceByEntity(e1a);
+		deviceManager.learnDeviceByEntity(e1b);
+		Device d1 = deviceManager.learnDeviceByEntity(e1c);
+
+		List<DeviceSyncRepresentation> entries = getEntriesFromStore();
+		assertEquals(1, entries.size());
+		DeviceSyncRepresentation expected = new DeviceSyncRepresentation(d1);
+		DeviceSyncRepresentation dsr = entries.get(0);
+		assertEquals(expected.getKey(), dsr.getKey());
+		assertEquals(expected.getEntities().size(), dsr.getEntities().size());
+		for (int i = 0; i < expected.getEntities().size(); i++) {
+			assertEntityEquals(expected.getEntities().get(i).asEntity(),
+					dsr.getEntities().get(i));
+		}
+
+		// A device that expires before the store is flushed is not written
+		Entity e2 = new Entity(MacAddress.of(2L), null, null, DatapathId.of(5L), OFPort.of(5), new Date(1000));
+		Device d2 = deviceManager.learnDeviceByEntity(e2);
+		String d2Key = DeviceSyncRepresentation.computeKey(d2);
+		deviceManager.cleanupEntities();
+		deviceManager.flushSyncStore();
+		assertNull(storeClient.get(d2Key).getValue());
+	}
 
 	private void assertDeviceIps(IPv4Address[] expected, IDevice d) {
 		List<IPv4Address> expectedList = Arrays.asList(expected);
@@ -2864,6 +2932,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 		int syncStoreWriteIntervalMs = 0;
 		int initialSyncStoreConsolidateIntervalMs = 50;
 		ITopologyService mockTopology = makeMockTopologyAllPortsAp();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 		// We want an EntityClassifier that has switch/port as key fields
@@ -2967,6 +3036,7 @@ public class DeviceManagerImplTest extends FloodlightTestCase {
 	public void testConsolitateStore() throws Exception {
 		int syncStoreInternalMs = 0;
 		ITopologyService mockTopology = makeMockTopologyAllPortsAp();
+		expect(mockTopology.getSnapshot()).andReturn(new MockTopologySnapshot(mockTopology)).anyTimes();
 		replay(mockTopology);
 		deviceManager.topology = mockTopology;
 		// We want an EntityClassifier that has switch/port as key fields
@@ -0,0 +1,232 @@
+package net.floodlightcontroller.dhcpserver;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.slf4j.LoggerFactory;
+
+public class DHCPPoolTest {
+	private static final IPv4Address START = IPv4Address.of("10.0.0.10");
+	private static final int SIZE = 4;
+	private static final MacAddress MAC1 = MacAddress.of("00:00:00:00:00:01");
+	private static final MacAddress MAC2 = MacAddress.of("00:00:00:00:00:02");
+	private static final MacAddress MAC3 = MacAddress.of("00:00:00:00:00:03");
+
+	private DHCPPool pool;
+
+	private static IPv4Address ip(int offset) {
+		return IPv4Address.of(START.getInt() + offset);
+	}
+
+	@Before
+	public void setUp() {
+		pool = new DHCPPool(START, SIZE, LoggerFactory.getLogger(DHCPPoolTest.class));
+	}
+
+	@Test
+	public void testAllocation() {
+		assertEquals(SIZE, pool.getPoolSize());
+		assertEquals(SIZE, pool.getPoolAvailability());
+
+		DHCPBinding lease = pool.offerLease(null, MAC1, 60);
+		assertEquals(ip(0), lease.getIPv4Address());
+		assertEquals(MAC1, lease.getMACAddress());
+		assertTrue(lease.isActiveLease());
+		assertEquals(SIZE - 1, pool.getPoolAvailability());
+
+		// A specific address is honored when it is free
+		lease = pool.offerLease(ip(3), MAC2, 60);
+		assertEquals(ip(3), lease.getIPv4Address());
+
+		// ...and otherwise the lowest unassigned address is picked
+		lease = pool.offerLease(ip(0), MAC3, 60);
+		assertEquals(ip(1), lease.getIPv4Address());
+		assertEquals(SIZE - 3, pool.getPoolAvailability());
+
+		// Addresses never leased go out before previously leased ones
+		assertTrue(pool.cancelLeaseOfMAC(MAC1));
+		MacAddress mac4 = MacAddress.of("00:00:00:00:00:04");
+		assertEquals(ip(2), pool.offerLease(null, mac4, 60).getIPv4Address());
+		MacAddress mac5 = MacAddress.of("00:00:00:00:00:05");
+		assertEquals(ip(0), pool.offerLease(null, mac5, 60).getIPv4Address());
+
+		assertFalse(pool.hasAvailableAddresses());
+		assertNull(pool.offerLease(null, MacAddress.of("00:00:00:00:00:06"), 60));
+	}
+
+	@Test
+	public void testIndexes() {
+		assertNull(pool.getDHCPbindingFromMAC(MAC1));
+		assertNull(pool.getDHCPbindingFromIPv4(IPv4Address.of("10.0.0.1")));
+		assertFalse(pool.containsIPv4(IPv4Address.of("10.0.0.1")));
+		assertTrue(pool.containsIPv4(ip(SIZE - 1)));
+
+		DHCPBinding lease = pool.offerLease(ip(2), MAC1, 60);
+		assertSame(lease, pool.getDHCPbindingFromMAC(MAC1));
+		assertSame(lease, pool.getDHCPbindingFromIPv4(ip(2)));
+		assertTrue(pool.isIPv4Leased(ip(2)));
+		assertFalse(pool.isIPv4Leased(ip(1)));
+
+		// A client that comes back gets its previous address
+		pool.cancelLeaseOfIPv4(ip(2));
+		assertFalse(pool.isIPv4Leased(ip(2)));
+		assertSame(lease, pool.getAnyAvailableLease(MAC1));
+
+		// Handing the address to another MAC moves the index
+		pool.offerLease(ip(2), MAC2, 60);
+		assertNull(pool.getDHCPbindingFromMAC(MAC1));
+		assertSame(lease, pool.getDHCPbindingFromMAC(MAC2));
+	}
+
+	@Test
+	public void testFixedLease() {
+		assertTrue(pool.configureFixedIPLease(ip(3), MAC1));
+		assertFalse(pool.configureFixedIPLease(IPv4Address.of("10.0.0.1"), MAC1));
+
+		// Other clients never get the fixed address
+		for (int i = 0; i < SIZE - 1; i++) {
+			MacAddress mac = MacAddress.of(0x100 + i);
+			assertFalse(ip(3).equals(pool.offerLease(ip(3), mac, 60).getIPv4Address()));
+		}
+		assertNull(pool.requestLease(ip(3), MAC2, 60));
+
+		// Its owner gets it, whatever it asks for
+		assertEquals(ip(3), pool.offerLease(ip(0), MAC1, 60).getIPv4Address());
+		assertEquals(ip(3), pool.requestLease(ip(3), MAC1, 60).getIPv4Address());
+		assertTrue(pool.getDHCPbindingFromIPv4(ip(3)).isStaticIPLease());
+	}
+
+	@Test
+	public void testRequestLease() {
+		DHCPBinding lease = pool.requestLease(ip(1), MAC1, 60);
+		assertEquals(ip(1), lease.getIPv4Address());
+		assertTrue(lease.isActiveLease());
+
+		// Renewal by the owner, refusal for anybody else
+		assertSame(lease, pool.requestLease(ip(1), MAC1, 60));
+		assertNull(pool.requestLease(ip(1), MAC2, 60));
+		assertNull(pool.requestLease(IPv4Address.of("10.0.0.1"), MAC2, 60));
+		assertEquals(SIZE - 1, pool.getPoolAvailability());
+
+		// Without a requested address, any available one
+		assertEquals(ip(0), pool.requestLease(null, MAC2, 60).getIPv4Address());
+	}
+
+	@Test
+	public void testRemove() {
+		pool.offerLease(ip(3), MAC1, 60);
+		pool.offerLease(ip(1), MAC2, 60);
+
+		// Removing a free address fills its slot with the last binding
+		pool.removeIPv4FromDHCPPool(ip(0));
+		assertEquals(SIZE - 1, pool.getPoolSize());
+		assertEquals(SIZE - 3, pool.getPoolAvailability());
+		assertFalse(pool.containsIPv4(ip(0)));
+		assertEquals(ip(3), pool.getDHCPbindingFromMAC(MAC1).getIPv4Address());
+		assertSame(pool.getDHCPbindingFromMAC(MAC1), pool.getDHCPbindingFromIPv4(ip(3)));
+
+		// Removing an active lease frees nothing and forgets the MAC
+		pool.removeIPv4FromDHCPPool(ip(1));
+		assertEquals(SIZE - 2, pool.getPoolSize());
+		assertEquals(SIZE - 3, pool.getPoolAvailability());
+		assertNull(pool.getDHCPbindingFromMAC(MAC2));
+		assertEquals(1, pool.getScheduledExpirationCount());
+
+		pool.removeIPv4FromDHCPPool(ip(1));
+		assertEquals(SIZE - 2, pool.getPoolSize());
+
+		// The remaining free address is still handed out, and nothing else
+		assertEquals(ip(2), pool.offerLease(null, MAC3, 60).getIPv4Address());
+		assertNull(pool.offerLease(null, MacAddress.of("00:00:00:00:00:04"), 60));
+
+		// An address added back is appended to the pool
+		assertNotNull(pool.addIPv4ToDHCPPool(ip(0)));
+		assertNull(pool.addIPv4ToDHCPPool(ip(0)));
+		assertEquals(SIZE - 1, pool.getPoolSize());
+		assertEquals(ip(0), pool.offerLease(null, MacAddress.of("00:00:00:00:00:04"), 60).getIPv4Address());
+	}
+
+	@Test
+	public void testExpiration() {
+		pool.offerLease(ip(0), MAC1, 0);
+		pool.offerLease(ip(1), MAC2, 3600);
+		assertEquals(2, pool.getScheduledExpirationCount());
+
+		// Renewals replace the pending expiration rather than adding to it
+		for (int i = 0; i < 10; i++) {
+			assertTrue(pool.renewLease(ip(1), 3600));
+			pool.requestLease(ip(1), MAC2, 3600);
+		}
+		assertEquals(2, pool.getScheduledExpirationCount());
+
+		List<DHCPBinding> expired = pool.cleanExpiredLeases();
+		assertEquals(1, expired.size());
+		assertEquals(ip(0), expired.get(0).getIPv4Address());
+		assertFalse(pool.isIPv4Leased(ip(0)));
+		assertTrue(pool.isIPv4Leased(ip(1)));
+		assertEquals(1, pool.getScheduledExpirationCount());
+		assertEquals(SIZE - 1, pool.getPoolAvailability());
+		assertTrue(pool.cleanExpiredLeases().isEmpty());
+
+		// A renewal that makes the lease expire now supersedes the long one
+		pool.renewLease(ip(1), 0);
+		assertEquals(1, pool.getScheduledExpirationCount());
+		assertEquals(1, pool.cleanExpiredLeases().size());
+
+		// Cancelled leases never expire
+		pool.offerLease(ip(2), MAC3, 0);
+		pool.cancelLeaseOfMAC(MAC3);
+		assertEquals(0, pool.getScheduledExpirationCount());
+		assertTrue(pool.cleanExpiredLeases().isEmpty());
+		assertEquals(SIZE, pool.getPoolAvailability());
+	}
+
+	@Test
+	public void testConcurrentOffers() throws Exception {
+		final int threads = 8;
+		final int perThread = 64;
+		pool = new DHCPPool(START, threads * perThread, LoggerFactory.getLogger(DHCPPoolTest.class));
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<IPv4Address> leased = Collections.synchronizedList(new ArrayList<IPv4Address>());
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final int base = t * perThread;
+			Thread worker = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i = 0; i < perThread; i++) {
+						DHCPBinding lease = pool.offerLease(null, MacAddress.of(base + i + 1), 60);
+						if (lease != null) leased.add(lease.getIPv4Address());
+					}
+				}
+			};
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		Set<IPv4Address> distinct = new HashSet<IPv4Address>(leased);
+		assertEquals(threads * perThread, leased.size());
+		assertEquals(leased.size(), distinct.size());
+		assertEquals(0, pool.getPoolAvailability());
+		assertEquals(threads * perThread, pool.getScheduledExpirationCount());
+	}
+}
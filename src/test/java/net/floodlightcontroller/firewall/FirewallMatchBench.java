@@ -0,0 +1,137 @@
+package net.floodlightcontroller.firewall;
+
+import static org.easymock.EasyMock.*;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.FloodlightContext;
+import net.floodlightcontroller.core.IFloodlightProviderService;
+import net.floodlightcontroller.core.IOFSwitch;
+import net.floodlightcontroller.core.internal.IOFSwitchService;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.test.MockFloodlightProvider;
+import net.floodlightcontroller.core.test.MockSwitchManager;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.MockDebugCounterService;
+import net.floodlightcontroller.packet.Data;
+import net.floodlightcontroller.packet.Ethernet;
+import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.TCP;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.restserver.RestApiServer;
+import net.floodlightcontroller.storage.IStorageSourceService;
+import net.floodlightcontroller.storage.memory.MemoryStorageSource;
+
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFPacketIn;
+import org.projectfloodlight.openflow.protocol.OFPacketInReason;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.OFBufferId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.TransportPort;
+
+/**
+ * Matches a TCP PACKET_IN against a rule list in which only the last
+ * rule matches, so every rule is checked.
+ */
+public class FirewallMatchBench extends MicroBenchmark {
+    private static final int RULES = 100;
+
+    private Firewall firewall;
+    private IOFSwitch sw;
+    private OFPacketIn pi;
+    private FloodlightContext cntx;
+
+    public FirewallMatchBench() {
+        super(FirewallMatchBench.class.getName() + ".matchWithRule");
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        MockFloodlightProvider mockFloodlightProvider = new MockFloodlightProvider();
+        MockSwitchManager mockSwitchManager = new MockSwitchManager();
+        MockDebugCounterService debugCounterService = new MockDebugCounterService();
+        MemoryStorageSource storageService = new MemoryStorageSource();
+        RestApiServer restApi = new RestApiServer();
+        firewall = new Firewall();
+
+        OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+        sw = createNiceMock(IOFSwitch.class);
+        expect(sw.getId()).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(sw.getOFFactory()).andReturn(factory).anyTimes();
+        replay(sw);
+
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        fmc.addService(IFloodlightProviderService.class, mockFloodlightProvider);
+        fmc.addService(IDebugCounterService.class, debugCounterService);
+        fmc.addService(IOFSwitchService.class, mockSwitchManager);
+        fmc.addService(IFirewallService.class, firewall);
+        fmc.addService(IStorageSourceService.class, storageService);
+        fmc.addService(IRestApiService.class, restApi);
+        debugCounterService.init(fmc);
+        storageService.init(fmc);
+        restApi.init(fmc);
+        firewall.init(fmc);
+        debugCounterService.startUp(fmc);
+        storageService.startUp(fmc);
+        firewall.startUp(fmc);
+        firewall.enableFirewall(true);
+
+        for (int i = 0; i < RULES - 1; i++) {
+            FirewallRule rule = new FirewallRule();
+            rule.dl_type = EthType.IPv4;
+            rule.any_dl_type = false;
+            rule.nw_proto = IpProtocol.TCP;
+            rule.any_nw_proto = false;
+            rule.tp_dst = TransportPort.of(1000 + i);
+            rule.any_tp_dst = false;
+            rule.priority = i;
+            rule.action = FirewallRule.FirewallAction.DROP;
+            firewall.addRule(rule);
+        }
+        FirewallRule rule = new FirewallRule();
+        rule.dl_type = EthType.IPv4;
+        rule.any_dl_type = false;
+        rule.nw_proto = IpProtocol.TCP;
+        rule.any_nw_proto = false;
+        rule.tp_dst = TransportPort.of(80);
+        rule.any_tp_dst = false;
+        rule.priority = RULES;
+        rule.action = FirewallRule.FirewallAction.ALLOW;
+        firewall.addRule(rule);
+
+        Ethernet eth = (Ethernet) new Ethernet()
+            .setDestinationMACAddress("00:11:22:33:44:55")
+            .setSourceMACAddress("00:44:33:22:11:00")
+            .setEtherType(EthType.IPv4)
+            .setPayload(new IPv4()
+                .setTtl((byte) 128)
+                .setSourceAddress("192.168.1.1")
+                .setDestinationAddress("192.168.1.2")
+                .setProtocol(IpProtocol.TCP)
+                .setPayload(new TCP()
+                    .setSourcePort((short) 81)
+                    .setDestinationPort((short) 80)
+                    .setPayload(new Data(new byte[] {0x01}))));
+        pi = factory.buildPacketIn()
+            .setBufferId(OFBufferId.NO_BUFFER)
+            .setMatch(factory.buildMatch()
+                .setExact(MatchField.IN_PORT, OFPort.of(1))
+                .build())
+            .setData(eth.serialize())
+            .setReason(OFPacketInReason.NO_MATCH)
+            .build();
+        cntx = new FloodlightContext();
+        IFloodlightProviderService.bcStore.put(cntx,
+                IFloodlightProviderService.CONTEXT_PI_PAYLOAD, eth);
+    }
+
+    @Override
+    public Object run() {
+        return firewall.matchWithRule(sw, pi, cntx);
+    }
+}
@@ -31,6 +31,7 @@ import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.internal.IOFSwitchService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.util.AppCookie;
 import net.floodlightcontroller.core.test.MockThreadPoolService;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
 import net.floodlightcontroller.debugcounter.MockDebugCounterService;
@@ -39,6 +40,7 @@ import net.floodlightcontroller.debugevent.MockDebugEventService;
 import net.floodlightcontroller.devicemanager.internal.DefaultEntityClassifier;
 import net.floodlightcontroller.devicemanager.test.MockDeviceManager;
 import net.floodlightcontroller.devicemanager.IDevice;
+import net.floodlightcontroller.devicemanager.IDeviceListener;
 import net.floodlightcontroller.devicemanager.IDeviceService;
 import net.floodlightcontroller.devicemanager.IEntityClassifierService;
 import net.floodlightcontroller.packet.Data;
@@ -52,6 +54,7 @@ import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyListener;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
 import net.floodlightcontroller.topology.NodePortTuple;
 import net.floodlightcontroller.util.OFMessageUtils;
 import net.floodlightcontroller.forwarding.Forwarding;
@@ -60,6 +63,8 @@ import org.easymock.Capture;
 import org.easymock.CaptureType;
 import org.easymock.EasyMock;
 import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFBarrierReply;
+import org.projectfloodlight.openflow.protocol.OFBarrierRequest;
 import org.projectfloodlight.openflow.protocol.OFFeaturesReply;
 import org.projectfloodlight.openflow.protocol.OFFlowMod;
 import org.projectfloodlight.openflow.protocol.match.Match;
@@ -73,6 +78,7 @@ import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IPv4AddressWithMask;
 import org.projectfloodlight.openflow.types.IpProtocol;
 import org.projectfloodlight.openflow.types.MacAddress;
 import org.projectfloodlight.openflow.types.OFBufferId;
@@ -85,6 +91,8 @@ import org.projectfloodlight.openflow.protocol.action.OFActionOutput;
 import org.sdnplatform.sync.ISyncService;
 import org.sdnplatform.sync.test.MockSyncService;
 
+import com.google.common.util.concurrent.SettableFuture;
+
 public class ForwardingTest extends FloodlightTestCase {
     protected FloodlightContext cntx;
     protected MockDeviceManager deviceManager;
@@ -93,6 +101,7 @@ public class ForwardingTest extends FloodlightTestCase {
     protected ITopologyService topology;
     protected MockThreadPoolService threadPool;
     protected IOFSwitch sw1, sw2;
+    protected SettableFuture<OFBarrierReply> barrier1, barrier2;
     protected OFFeaturesReply swFeatures;
     protected IDevice srcDevice, dstDevice1, dstDevice2;
     protected OFPacketIn packetIn;
@@ -103,6 +112,7 @@ public class ForwardingTest extends FloodlightTestCase {
     protected int expected_wildcards;
     protected Date currentDate;
     private MockSyncService mockSyncService;
+    private FloodlightModuleContext fmc;
     private OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
     
 
@@ -142,7 +152,7 @@ public class ForwardingTest extends FloodlightTestCase {
         DefaultEntityClassifier entityClassifier = new DefaultEntityClassifier();
 
 
-        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        fmc = new FloodlightModuleContext();
         fmc.addService(IFloodlightProviderService.class,
                        mockFloodlightProvider);
         fmc.addService(IThreadPoolService.class, threadPool);
@@ -158,6 +168,7 @@ public class ForwardingTest extends FloodlightTestCase {
         topology.addListener(anyObject(ITopologyListener.class));
         expectLastCall().anyTimes();
         expect(topology.isIncomingBroadcastAllowed(anyObject(DatapathId.class), anyObject(OFPort.class))).andReturn(true).anyTimes();
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(topology);
 
         threadPool.init(fmc);
@@ -188,6 +199,12 @@ public class ForwardingTest extends FloodlightTestCase {
 
         expect(sw2.hasAttribute(IOFSwitch.PROP_SUPPORTS_OFPP_TABLE)).andReturn(true).anyTimes();
 
+        // Barriers confirming flow setups
+        barrier1 = SettableFuture.create();
+        expect(sw1.writeRequest(anyObject(OFBarrierRequest.class))).andReturn(barrier1).anyTimes();
+        barrier2 = SettableFuture.create();
+        expect(sw2.writeRequest(anyObject(OFBarrierRequest.class))).andReturn(barrier2).anyTimes();
+
         // Load the switch map
         Map<DatapathId, IOFSwitch> switches = new HashMap<DatapathId, IOFSwitch>();
         switches.put(DatapathId.of(1L), sw1);
@@ -283,6 +300,7 @@ public class ForwardingTest extends FloodlightTestCase {
         expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(3)))
                                               .andReturn(true)
                                               .anyTimes();
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(topology);
 
         srcDevice =
@@ -327,7 +345,7 @@ public class ForwardingTest extends FloodlightTestCase {
         nptList.add(new NodePortTuple(DatapathId.of(2L), OFPort.of(1)));
         nptList.add(new NodePortTuple(DatapathId.of(2L), OFPort.of(3)));
         route.setPath(nptList);
-        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(2L), OFPort.of(3), U64.ZERO)).andReturn(route).atLeastOnce();
+        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(2L), OFPort.of(3), Forwarding.getFlowHash((Ethernet) testPacket))).andReturn(route).atLeastOnce();
 
         // Expected Flow-mods
         Match match = packetIn.getMatch();
@@ -359,6 +377,7 @@ public class ForwardingTest extends FloodlightTestCase {
         expect(topology.isIncomingBroadcastAllowed(DatapathId.of(anyLong()), OFPort.of(anyShort()))).andReturn(true).anyTimes();
 
         // Reset mocks, trigger the packet in, and validate results
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(sw1, sw2, routingEngine, topology);
         forwarding.receive(sw1, this.packetIn, cntx);
         verify(sw1, sw2, routingEngine);
@@ -391,7 +410,7 @@ public class ForwardingTest extends FloodlightTestCase {
         Route route = new  Route(DatapathId.of(1L), DatapathId.of(1L));
         route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(1)));
         route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(3)));
-        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), U64.ZERO)).andReturn(route).atLeastOnce();
+        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), Forwarding.getFlowHash((Ethernet) testPacket))).andReturn(route).atLeastOnce();
 
         // Expected Flow-mods
         Match match = packetIn.getMatch();
@@ -422,6 +441,7 @@ public class ForwardingTest extends FloodlightTestCase {
         expect(topology.isAttachmentPointPort(DatapathId.of(1L),  OFPort.of(3))).andReturn(true).anyTimes();
 
         // Reset mocks, trigger the packet in, and validate results
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(sw1, sw2, routingEngine, topology);
         forwarding.receive(sw1, this.packetIn, cntx);
         verify(sw1, sw2, routingEngine);
@@ -433,6 +453,275 @@ public class ForwardingTest extends FloodlightTestCase {
         assertTrue(OFMessageUtils.equalsIgnoreXid(wc2.getValue(), packetOut));
     }
 
+    @Test
+    public void testFlowSetupSuppression() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE2);
+
+        Capture<OFMessage> wc1 = new Capture<OFMessage>(CaptureType.ALL);
+        Capture<Iterable<OFMessage>> wcParked = new Capture<Iterable<OFMessage>>();
+
+        Route route = new  Route(DatapathId.of(1L), DatapathId.of(1L));
+        route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(1)));
+        route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(3)));
+        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), Forwarding.getFlowHash((Ethernet) testPacket))).andReturn(route).once();
+
+        // One flow-mod and packet-out for the first packet-in, then one
+        // write of the parked packet-ins once the barrier is answered
+        sw1.write(capture(wc1));
+        expectLastCall().times(2);
+        sw1.write(capture(wcParked));
+        expectLastCall().once();
+
+        reset(topology);
+        expect(topology.isIncomingBroadcastAllowed(DatapathId.of(anyLong()), OFPort.of(anyShort()))).andReturn(true).anyTimes();
+        expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(topology.isAttachmentPointPort(DatapathId.of(1L),  OFPort.of(1))).andReturn(true).anyTimes();
+        expect(topology.isAttachmentPointPort(DatapathId.of(1L),  OFPort.of(3))).andReturn(true).anyTimes();
+
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
+        replay(sw1, sw2, routingEngine, topology);
+        forwarding.receive(sw1, this.packetIn, cntx);
+        forwarding.receive(sw1, this.packetIn, cntx);
+        forwarding.receive(sw1, this.packetIn, cntx);
+        assertFalse(wcParked.hasCaptured());
+
+        barrier1.set(factory.buildBarrierReply().build());
+        verify(sw1, sw2, routingEngine);
+
+        List<OFAction> actions = new ArrayList<OFAction>();
+        actions.add(factory.actions().output(OFPort.TABLE, Integer.MAX_VALUE));
+        OFPacketOut parkedOut = factory.buildPacketOut()
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setActions(actions)
+                .setInPort(OFPort.of(1))
+                .setData(testPacketSerialized)
+                .build();
+        int released = 0;
+        for (OFMessage m : wcParked.getValue()) {
+            assertTrue(OFMessageUtils.equalsIgnoreXid(parkedOut, m));
+            released++;
+        }
+        assertEquals(2, released);
+        assertEquals(0, forwarding.inFlightFlows.size());
+
+        // The next packet-in of the flow is routed again
+        reset(sw1, routingEngine);
+        expect(sw1.getId()).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(sw1.getOFFactory()).andReturn(factory).anyTimes();
+        expect(sw1.hasAttribute(IOFSwitch.PROP_SUPPORTS_OFPP_TABLE)).andReturn(true).anyTimes();
+        expect(sw1.writeRequest(anyObject(OFBarrierRequest.class))).andReturn(SettableFuture.<OFBarrierReply>create()).anyTimes();
+        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), Forwarding.getFlowHash((Ethernet) testPacket))).andReturn(route).once();
+        sw1.write(anyObject(OFMessage.class));
+        expectLastCall().times(1, 2);
+        replay(sw1, routingEngine);
+        forwarding.receive(sw1, this.packetIn, cntx);
+        verify(sw1, routingEngine);
+    }
+
+    @Test
+    public void testForwardDstMacMatch() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE1);
+        forwarding.matchMode = Forwarding.MatchMode.DST_MAC;
+
+        Capture<OFMessage> wc1 = new Capture<OFMessage>(CaptureType.ALL);
+        Capture<OFMessage> wc2 = new Capture<OFMessage>(CaptureType.ALL);
+
+        Route route = new Route(DatapathId.of(1L), DatapathId.of(2L));
+        List<NodePortTuple> nptList = new ArrayList<NodePortTuple>();
+        nptList.add(new NodePortTuple(DatapathId.of(1L), OFPort.of(1)));
+        nptList.add(new NodePortTuple(DatapathId.of(1L), OFPort.of(3)));
+        nptList.add(new NodePortTuple(DatapathId.of(2L), OFPort.of(1)));
+        nptList.add(new NodePortTuple(DatapathId.of(2L), OFPort.of(3)));
+        route.setPath(nptList);
+        expect(routingEngine.getRoute(eq(DatapathId.of(1L)), eq(OFPort.of(1)), eq(DatapathId.of(2L)), eq(OFPort.of(3)), anyObject(U64.class))).andReturn(route).atLeastOnce();
+
+        // Flow-mods shared by all sources: no IN_PORT or source fields
+        Match match = factory.buildMatch()
+                .setExact(MatchField.ETH_DST, MacAddress.of("00:11:22:33:44:55"))
+                .build();
+        List<OFAction> actions = new ArrayList<OFAction>();
+        actions.add(factory.actions().output(OFPort.of(3), Integer.MAX_VALUE));
+        OFFlowMod fm = factory.buildFlowAdd()
+                .setIdleTimeout((short)5)
+                .setMatch(match)
+                .setActions(actions)
+                .setOutPort(OFPort.of(3))
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setCookie(U64.of(2L << 52))
+                .setPriority(1)
+                .build();
+
+        sw1.write(capture(wc1));
+        expectLastCall().anyTimes();
+        sw2.write(capture(wc2));
+        expectLastCall().anyTimes();
+
+        reset(topology);
+        expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(topology.getL2DomainId(DatapathId.of(2L))).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(topology.isAttachmentPointPort(DatapathId.of(1L),  OFPort.of(1))).andReturn(true).anyTimes();
+        expect(topology.isAttachmentPointPort(DatapathId.of(2L),  OFPort.of(3))).andReturn(true).anyTimes();
+        expect(topology.isIncomingBroadcastAllowed(DatapathId.of(anyLong()), OFPort.of(anyShort()))).andReturn(true).anyTimes();
+
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
+        replay(sw1, sw2, routingEngine, topology);
+        forwarding.receive(sw1, this.packetIn, cntx);
+        verify(sw1, sw2, routingEngine);
+
+        int flowMods = 0;
+        for (OFMessage m : wc1.getValues()) {
+            if (m instanceof OFFlowMod) {
+                assertTrue(OFMessageUtils.equalsIgnoreXid(fm, m));
+                flowMods++;
+            }
+        }
+        assertEquals(1, flowMods);
+        assertTrue(OFMessageUtils.equalsIgnoreXid(fm, wc2.getValue()));
+    }
+
+    /**
+     * Starts a new forwarding module in a match mode, with a device service
+     * that hands over the device listener the module registers.
+     * @return the listener, or null if the module registers none
+     */
+    private IDeviceListener startForwarding(String matchMode,
+                                            String prefixLength) throws Exception {
+        IDeviceService devices = createMock(IDeviceService.class);
+        Capture<IDeviceListener> listener = new Capture<IDeviceListener>();
+        devices.addListener(capture(listener));
+        expectLastCall().anyTimes();
+        replay(devices);
+
+        forwarding = new Forwarding();
+        fmc.addService(IDeviceService.class, devices);
+        fmc.addConfigParam(forwarding, "match-mode", matchMode);
+        if (prefixLength != null) {
+            fmc.addConfigParam(forwarding, "match-subnet-prefix-length", prefixLength);
+        }
+        forwarding.init(fmc);
+        forwarding.startUp(fmc);
+        fmc.addService(IDeviceService.class, deviceManager);
+        return listener.hasCaptured() ? listener.getValue() : null;
+    }
+
+    private OFMessage flowDelete(OFFactory f, Match match) {
+        return f.buildFlowDelete()
+                .setMatch(match)
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setOutPort(OFPort.ANY)
+                .setCookie(U64.of(2L << 52))
+                .setCookieMask(AppCookie.getAppFieldMask())
+                .build();
+    }
+
+    private void assertWrites(List<OFMessage> expected,
+                              Capture<Iterable<OFMessage>> writes) {
+        assertEquals(1, writes.getValues().size());
+        List<OFMessage> written = new ArrayList<OFMessage>();
+        for (OFMessage m : writes.getValue()) {
+            written.add(m);
+        }
+        assertEquals(expected.size(), written.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(written.get(i).toString(),
+                       OFMessageUtils.equalsIgnoreXid(expected.get(i), written.get(i)));
+        }
+    }
+
+    @Test
+    public void testMoveDeletesDstMacFlows() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE1);
+        IDeviceListener listener = startForwarding("dst-mac", null);
+        assertNotNull(listener);
+
+        Capture<Iterable<OFMessage>> wc1 = new Capture<Iterable<OFMessage>>(CaptureType.ALL);
+        Capture<Iterable<OFMessage>> wc2 = new Capture<Iterable<OFMessage>>(CaptureType.ALL);
+        sw1.write(capture(wc1));
+        sw2.write(capture(wc2));
+        replay(sw1, sw2);
+        listener.deviceMoved(dstDevice1);
+        verify(sw1, sw2);
+
+        // Our flows to the MAC on every switch, on any VLAN
+        List<OFMessage> expected = new ArrayList<OFMessage>();
+        expected.add(flowDelete(factory, factory.buildMatch()
+                .setExact(MatchField.ETH_DST, MacAddress.of("00:11:22:33:44:55"))
+                .build()));
+        assertWrites(expected, wc1);
+        assertWrites(expected, wc2);
+    }
+
+    @Test
+    public void testMoveDeletesSubnetFlows() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE1);
+        IDeviceListener listener = startForwarding("subnet", "24");
+        assertNotNull(listener);
+
+        Capture<Iterable<OFMessage>> wc1 = new Capture<Iterable<OFMessage>>(CaptureType.ALL);
+        Capture<Iterable<OFMessage>> wc2 = new Capture<Iterable<OFMessage>>(CaptureType.ALL);
+        sw1.write(capture(wc1));
+        sw2.write(capture(wc2));
+        replay(sw1, sw2);
+        listener.deviceRemoved(dstDevice1);
+        verify(sw1, sw2);
+
+        // The flows to the whole subnet go, and the non-IPv4 ones to the MAC
+        List<OFMessage> expected = new ArrayList<OFMessage>();
+        expected.add(flowDelete(factory, factory.buildMatch()
+                .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                .setMasked(MatchField.IPV4_DST, IPv4AddressWithMask.of("192.168.1.0/24"))
+                .build()));
+        expected.add(flowDelete(factory, factory.buildMatch()
+                .setExact(MatchField.ETH_DST, MacAddress.of("00:11:22:33:44:55"))
+                .build()));
+        assertWrites(expected, wc1);
+        assertWrites(expected, wc2);
+    }
+
+    @Test
+    public void testMoveDeletesStrictOnOF10() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE1);
+        IDeviceListener listener = startForwarding("dst-mac", null);
+
+        OFFactory factory10 = OFFactories.getFactory(OFVersion.OF_10);
+        IOFSwitch sw10 = EasyMock.createMock(IOFSwitch.class);
+        expect(sw10.getId()).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(sw10.getOFFactory()).andReturn(factory10).anyTimes();
+        Capture<Iterable<OFMessage>> wc = new Capture<Iterable<OFMessage>>(CaptureType.ALL);
+        sw10.write(capture(wc));
+        replay(sw10);
+        Map<DatapathId, IOFSwitch> switches = new HashMap<DatapathId, IOFSwitch>();
+        switches.put(DatapathId.of(1L), sw10);
+        getMockSwitchService().setSwitches(switches);
+
+        listener.deviceMoved(dstDevice1);
+        verify(sw10);
+
+        // No cookie mask: only exactly the flow we install
+        List<OFMessage> expected = new ArrayList<OFMessage>();
+        expected.add(factory10.buildFlowDeleteStrict()
+                .setMatch(factory10.buildMatch()
+                        .setExact(MatchField.ETH_DST, MacAddress.of("00:11:22:33:44:55"))
+                        .build())
+                .setPriority(1)
+                .setBufferId(OFBufferId.NO_BUFFER)
+                .setOutPort(OFPort.ANY)
+                .build());
+        assertWrites(expected, wc);
+    }
+
+    @Test
+    public void testMoveIgnoredWithSourceMatch() throws Exception {
+        learnDevices(DestDeviceToLearn.DEVICE1);
+        // Nothing may be written to the switches
+        replay(sw1, sw2);
+        for (String mode : new String[] { "5-tuple", "host-pair" }) {
+            assertNull(mode, startForwarding(mode, null));
+            forwarding.deleteFlowsToDevice(dstDevice1);
+        }
+        verify(sw1, sw2);
+    }
+
     /*TODO OFMessageDamper broken due to XID variability in OFMessages... need to fix @Test */
     public void testFlowModDampening() throws Exception {
         learnDevices(DestDeviceToLearn.DEVICE2);
@@ -441,13 +730,14 @@ public class ForwardingTest extends FloodlightTestCase {
         expect(topology.isAttachmentPointPort(DatapathId.of(anyLong()), OFPort.of(anyShort())))
         .andReturn(true).anyTimes();
         expect(topology.getL2DomainId(DatapathId.of(1L))).andReturn(DatapathId.of(1L)).anyTimes();
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(topology);
 
 
         Route route = new  Route(DatapathId.of(1L), DatapathId.of(1L));
         route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(1)));
         route.getPath().add(new NodePortTuple(DatapathId.of(1L), OFPort.of(3)));
-        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), U64.ZERO)).andReturn(route).atLeastOnce();
+        expect(routingEngine.getRoute(DatapathId.of(1L), OFPort.of(1), DatapathId.of(1L), OFPort.of(3), Forwarding.getFlowHash((Ethernet) testPacket))).andReturn(route).atLeastOnce();
 
         // Expected Flow-mods
         Match match = packetIn.getMatch();
@@ -481,6 +771,7 @@ public class ForwardingTest extends FloodlightTestCase {
         expect(topology.isAttachmentPointPort(DatapathId.of(1L),  OFPort.of(3))).andReturn(true).anyTimes();
 
         // Reset mocks, trigger the packet in, and validate results
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(sw1, routingEngine, topology);
         forwarding.receive(sw1, this.packetIn, cntx);
         forwarding.receive(sw1, this.packetIn, cntx);
@@ -509,6 +800,7 @@ public class ForwardingTest extends FloodlightTestCase {
         // Reset XID to expected (dependent on prior unit tests)
         sw1.write(capture(wc1));
         expectLastCall().once();
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(sw1, sw2, routingEngine, topology);
         forwarding.receive(sw1, this.packetIn, cntx);
         verify(sw1, sw2, routingEngine);
@@ -26,6 +26,7 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -53,6 +54,8 @@ import net.floodlightcontroller.packet.Data;
 import net.floodlightcontroller.packet.Ethernet;
 import net.floodlightcontroller.packet.IPacket;
 import net.floodlightcontroller.packet.IPv4;
+import net.floodlightcontroller.packet.LLDP;
+import net.floodlightcontroller.packet.LLDPTLV;
 import net.floodlightcontroller.packet.UDP;
 import net.floodlightcontroller.restserver.IRestApiService;
 import net.floodlightcontroller.restserver.RestApiServer;
@@ -76,6 +79,7 @@ import org.projectfloodlight.openflow.protocol.OFMessage;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFPacketInReason;
 import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPacketOut;
 import org.projectfloodlight.openflow.protocol.OFPortFeatures;
 import org.projectfloodlight.openflow.protocol.OFVersion;
 import org.projectfloodlight.openflow.types.DatapathId;
@@ -495,6 +499,127 @@ public class LinkDiscoveryManagerTest extends FloodlightTestCase {
         assertTrue(msgList.size() == ports.size() * 2);
     }
 
+    /**
+     * The LLDPs copied from the per-switch templates must be identical to
+     * the ones built from scratch.
+     */
+    @Test
+    public void testLLDPTemplates() throws Exception {
+        LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
+        linkDiscovery.switchService = getMockSwitchService();
+        OFPortDesc ofpp = OFFactories.getFactory(OFVersion.OF_13).buildPortDesc()
+        .setName("eth4242")
+        .setPortNo(OFPort.of(4242))
+        .setHwAddr(MacAddress.of("5c:16:c7:00:00:01"))
+        .setCurr(new HashSet<OFPortFeatures>()) // random
+        .build();
+        IOFSwitch sw1 = createMockSwitch(1L);
+        Map<DatapathId, IOFSwitch> switches = new HashMap<DatapathId, IOFSwitch>();
+        switches.put(DatapathId.of(1L), sw1);
+        getMockSwitchService().setSwitches(switches);
+        expect(sw1.getPort(OFPort.of(4242))).andReturn(ofpp).anyTimes();
+        expect(sw1.getOFFactory()).andReturn(OFFactories.getFactory(OFVersion.OF_13)).anyTimes();
+        replay(sw1);
+
+        for (boolean isStandard : new boolean[] { true, false }) {
+            for (boolean isReverse : new boolean[] { true, false }) {
+                // The second round is served from the template
+                for (int i = 0; i < 2; i++) {
+                    OFPacketOut po = linkDiscovery.generateLLDPMessage(
+                            DatapathId.of(1L), OFPort.of(4242), isStandard, isReverse);
+                    assertArrayEquals(linkDiscovery.buildLLDPFrame(DatapathId.of(1L),
+                            OFPort.of(4242), ofpp.getHwAddr(), isStandard, isReverse),
+                            po.getData());
+                }
+            }
+        }
+
+        // Templates are dropped with the switch
+        linkDiscovery.switchRemoved(DatapathId.of(1L));
+        assertFalse(linkDiscovery.lldpTemplates.containsKey(DatapathId.of(1L)));
+    }
+
+    /**
+     * A port without a hardware address sends its LLDPs from the lower
+     * 6 bytes of the DPID.
+     */
+    @Test
+    public void testLLDPZeroMacPort() throws Exception {
+        LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
+        linkDiscovery.switchService = getMockSwitchService();
+        OFPortDesc ofpp = OFFactories.getFactory(OFVersion.OF_13).buildPortDesc()
+        .setName("eth4242")
+        .setPortNo(OFPort.of(4242))
+        .setHwAddr(MacAddress.NONE)
+        .setCurr(new HashSet<OFPortFeatures>()) // random
+        .build();
+        DatapathId dpid = DatapathId.of(0x11220a0b0c0d0e0fL);
+        IOFSwitch sw1 = createMockSwitch(dpid.getLong());
+        Map<DatapathId, IOFSwitch> switches = new HashMap<DatapathId, IOFSwitch>();
+        switches.put(dpid, sw1);
+        getMockSwitchService().setSwitches(switches);
+        expect(sw1.getPort(OFPort.of(4242))).andReturn(ofpp).anyTimes();
+        expect(sw1.getOFFactory()).andReturn(OFFactories.getFactory(OFVersion.OF_13)).anyTimes();
+        replay(sw1);
+
+        MacAddress fromDpid = MacAddress.of("0a:0b:0c:0d:0e:0f");
+        for (boolean isStandard : new boolean[] { true, false }) {
+            OFPacketOut po = linkDiscovery.generateLLDPMessage(dpid,
+                    OFPort.of(4242), isStandard, false);
+            assertArrayEquals(linkDiscovery.buildLLDPFrame(dpid, OFPort.of(4242),
+                    fromDpid, isStandard, false), po.getData());
+        }
+    }
+
+    @Test
+    public void testLinkLatency() throws Exception {
+        LinkDiscoveryManager linkDiscovery = getLinkDiscoveryManager();
+        linkDiscovery.switchService = getMockSwitchService();
+        linkDiscovery.latencyMeasurement = true;
+        OFPortDesc ofpp = OFFactories.getFactory(OFVersion.OF_13).buildPortDesc()
+        .setName("eth4242")
+        .setPortNo(OFPort.of(4242))
+        .setHwAddr(MacAddress.of("5c:16:c7:00:00:01"))
+        .setCurr(new HashSet<OFPortFeatures>()) // random
+        .build();
+        IOFSwitch sw1 = createMockSwitch(1L);
+        Map<DatapathId, IOFSwitch> switches = new HashMap<DatapathId, IOFSwitch>();
+        switches.put(DatapathId.of(1L), sw1);
+        getMockSwitchService().setSwitches(switches);
+        expect(sw1.getPort(OFPort.of(4242))).andReturn(ofpp).anyTimes();
+        expect(sw1.getOFFactory()).andReturn(OFFactories.getFactory(OFVersion.OF_13)).anyTimes();
+        replay(sw1);
+
+        // Every LLDP carries the time it was generated at
+        for (boolean isStandard : new boolean[] { true, false }) {
+            long before = System.nanoTime();
+            OFPacketOut po = linkDiscovery.generateLLDPMessage(
+                    DatapathId.of(1L), OFPort.of(4242), isStandard, false);
+            long after = System.nanoTime();
+            Ethernet eth = new Ethernet();
+            eth.deserialize(po.getData(), 0, po.getData().length);
+            LLDP lldp = (LLDP) (isStandard ? eth.getPayload()
+                                           : eth.getPayload().getPayload());
+            Long sent = null;
+            for (LLDPTLV tlv : lldp.getOptionalTLVList()) {
+                if (tlv.getType() == 127 && tlv.getValue()[3] == 0x01)
+                    sent = ByteBuffer.wrap(tlv.getValue()).getLong(4);
+            }
+            assertNotNull(sent);
+            assertTrue(sent >= before && sent <= after);
+        }
+
+        // Latency samples are averaged, missing samples are ignored
+        Link lt = new Link(DatapathId.of(1L), OFPort.of(2), DatapathId.of(2L), OFPort.of(1));
+        long[] samples = new long[] { 800, 1600, -1 };
+        for (long sample : samples) {
+            LinkInfo info = new LinkInfo(new Date(), new Date(), null);
+            info.setLatency(sample);
+            linkDiscovery.addOrUpdateLink(lt, info);
+        }
+        assertEquals(900, linkDiscovery.getLinks().get(lt).getLatency());
+    }
+
     private OFPacketIn createPacketIn(String srcMAC, String dstMAC,
                                       String srcIp, String dstIp, short vlan) {
         IPacket testPacket = new Ethernet()
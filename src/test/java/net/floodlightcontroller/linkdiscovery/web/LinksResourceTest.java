@@ -0,0 +1,105 @@
+package net.floodlightcontroller.linkdiscovery.web;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.floodlightcontroller.linkdiscovery.ILinkDiscovery.LinkType;
+import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.linkdiscovery.LinkInfo;
+import net.floodlightcontroller.routing.Link;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class LinksResourceTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private ILinkDiscoveryService linkDiscovery;
+
+    private static Link link(long src, int srcPort, long dst, int dstPort) {
+        return new Link(DatapathId.of(src), OFPort.of(srcPort),
+                        DatapathId.of(dst), OFPort.of(dstPort));
+    }
+
+    private static String key(long src, int srcPort, long dst, int dstPort) {
+        return DatapathId.of(src) + "/" + srcPort + "-" +
+               DatapathId.of(dst) + "/" + dstPort;
+    }
+
+    @Before
+    public void setUp() {
+        Map<Link, LinkInfo> links = new HashMap<Link, LinkInfo>();
+        for (Link link : Arrays.asList(link(3, 2, 1, 2), link(1, 3, 2, 3),
+                                       link(2, 4, 3, 4), link(1, 1, 3, 5),
+                                       link(1, 1, 2, 1),
+                                       // Only one side of this one is listed
+                                       link(2, 2, 3, 3), link(3, 3, 2, 2))) {
+            links.put(link, new LinkInfo(new Date(), new Date(), null));
+        }
+        linkDiscovery = createMock(ILinkDiscoveryService.class);
+        expect(linkDiscovery.getLinks()).andReturn(links).anyTimes();
+        expect(linkDiscovery.getLinkType(anyObject(Link.class),
+                                         anyObject(LinkInfo.class)))
+                .andReturn(LinkType.DIRECT_LINK).anyTimes();
+        replay(linkDiscovery);
+    }
+
+    private List<String> get(String query) throws Exception {
+        LinksResource r = new LinksResource();
+        Context ctx = new Context();
+        ctx.getAttributes().put(ILinkDiscoveryService.class.getCanonicalName(),
+                                linkDiscovery);
+        Request request = new Request(Method.GET,
+                "http://localhost/wm/topology/links/json" + query);
+        r.init(ctx, request, new Response(request));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        r.retrieve().write(out);
+
+        List<Map<String, Object>> links = mapper.readValue(out.toByteArray(),
+                new TypeReference<List<Map<String, Object>>>() {});
+        List<String> keys = new ArrayList<String>();
+        for (Map<String, Object> link : links) {
+            keys.add(link.get("src-switch") + "/" + link.get("src-port") + "-" +
+                     link.get("dst-switch") + "/" + link.get("dst-port"));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        assertEquals(Arrays.asList(key(1, 1, 2, 1), key(1, 1, 3, 5),
+                                   key(1, 3, 2, 3), key(2, 2, 3, 3),
+                                   key(2, 4, 3, 4), key(3, 2, 1, 2)),
+                     get(""));
+    }
+
+    @Test
+    public void testPaging() throws Exception {
+        List<String> all = get("");
+        List<String> paged = new ArrayList<String>();
+        for (int offset = 0; offset < all.size(); offset += 4) {
+            List<String> page = get("?offset=" + offset + "&limit=4");
+            assertEquals(Math.min(4, all.size() - offset), page.size());
+            paged.addAll(page);
+        }
+        assertEquals(all, paged);
+        assertEquals(all.subList(2, 5), get("?offset=2&limit=3"));
+        assertTrue(get("?offset=" + all.size()).isEmpty());
+    }
+}
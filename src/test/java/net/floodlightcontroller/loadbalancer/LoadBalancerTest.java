@@ -90,6 +90,7 @@ import net.floodlightcontroller.storage.memory.MemoryStorageSource;
 import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
 import net.floodlightcontroller.topology.NodePortTuple;
 import net.floodlightcontroller.util.OFMessageUtils;
 
@@ -167,6 +168,7 @@ public class LoadBalancerTest extends FloodlightTestCase {
 
 		topology.addListener(deviceManager);
 		expectLastCall().times(1);
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		lb.startUp(fmc);
@@ -474,6 +476,7 @@ public class LoadBalancerTest extends FloodlightTestCase {
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(2))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(3))).andReturn(true).anyTimes();
 		expect(topology.isAttachmentPointPort(DatapathId.of(1L), OFPort.of(4))).andReturn(true).anyTimes();
+		expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
 		replay(topology);
 
 		// Build arp packets
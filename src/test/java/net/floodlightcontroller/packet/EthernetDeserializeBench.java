@@ -0,0 +1,156 @@
+package net.floodlightcontroller.packet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.IpProtocol;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.TransportPort;
+
+/**
+ * Deserializes a mix of Ethernet frames like the ones the controller
+ * receives in PACKET_INs, one frame per operation: ARP, IPv4/TCP,
+ * IPv4/UDP/DHCP, LLDP and BDDP.
+ */
+public class EthernetDeserializeBench extends MicroBenchmark {
+    private byte[][] frames;
+    private int next;
+
+    public EthernetDeserializeBench() {
+        super(EthernetDeserializeBench.class.getName() + ".deserialize");
+    }
+
+    private static Ethernet ethernet(String dst, EthType etherType,
+                                     IPacket payload) {
+        Ethernet eth = new Ethernet()
+            .setSourceMACAddress("00:11:22:33:44:55")
+            .setDestinationMACAddress(dst)
+            .setEtherType(etherType);
+        eth.setPayload(payload);
+        return eth;
+    }
+
+    private static byte[] arp() {
+        return ethernet("ff:ff:ff:ff:ff:ff", EthType.ARP, new ARP()
+            .setHardwareType(ARP.HW_TYPE_ETHERNET)
+            .setProtocolType(ARP.PROTO_TYPE_IP)
+            .setHardwareAddressLength((byte) 6)
+            .setProtocolAddressLength((byte) 4)
+            .setOpCode(ARP.OP_REQUEST)
+            .setSenderHardwareAddress(Ethernet.toMACAddress("00:11:22:33:44:55"))
+            .setSenderProtocolAddress(IPv4.toIPv4AddressBytes("10.0.0.1"))
+            .setTargetHardwareAddress(new byte[6])
+            .setTargetProtocolAddress(IPv4.toIPv4AddressBytes("10.0.0.2")))
+            .serialize();
+    }
+
+    private static byte[] tcp() {
+        return ethernet("00:11:22:33:44:66", EthType.IPv4, new IPv4()
+            .setTtl((byte) 64)
+            .setSourceAddress("10.0.0.1")
+            .setDestinationAddress("10.0.0.2")
+            .setProtocol(IpProtocol.TCP)
+            .setPayload(new TCP()
+                .setSourcePort(TransportPort.of(40000))
+                .setDestinationPort(TransportPort.of(80))
+                .setSequence(1)
+                .setFlags((short) 0x18)
+                .setPayload(new Data(new byte[64]))))
+            .serialize();
+    }
+
+    private static byte[] dhcp() {
+        List<DHCPOption> options = new ArrayList<DHCPOption>();
+        options.add(new DHCPOption()
+            .setCode(DHCP.DHCPOptionCode.OptionCode_MessageType.getValue())
+            .setLength((byte) 1)
+            .setData(new byte[] { 1 }));
+        options.add(new DHCPOption()
+            .setCode(DHCP.DHCPOptionCode.OptionCode_END.getValue())
+            .setLength((byte) 0)
+            .setData(new byte[0]));
+        return ethernet("ff:ff:ff:ff:ff:ff", EthType.IPv4, new IPv4()
+            .setTtl((byte) 64)
+            .setSourceAddress(IPv4Address.NONE)
+            .setDestinationAddress(IPv4Address.of(0xffffffff))
+            .setProtocol(IpProtocol.UDP)
+            .setPayload(new UDP()
+                .setSourcePort(UDP.DHCP_CLIENT_PORT)
+                .setDestinationPort(UDP.DHCP_SERVER_PORT)
+                .setPayload(new DHCP()
+                    .setOpCode(DHCP.OPCODE_REQUEST)
+                    .setHardwareType(DHCP.HWTYPE_ETHERNET)
+                    .setHardwareAddressLength((byte) 6)
+                    .setTransactionId(0x1234)
+                    .setClientIPAddress(IPv4Address.NONE)
+                    .setYourIPAddress(IPv4Address.NONE)
+                    .setServerIPAddress(IPv4Address.NONE)
+                    .setGatewayIPAddress(IPv4Address.NONE)
+                    .setClientHardwareAddress(MacAddress.of("00:11:22:33:44:55"))
+                    .setOptions(options))))
+            .serialize();
+    }
+
+    private static LLDP lldp() {
+        LLDP lldp = new LLDP();
+        lldp.setChassisId(new LLDPTLV().setType((byte) 1)
+            .setLength((short) 7)
+            .setValue(new byte[] { 4, 0, 0x11, 0x22, 0x33, 0x44, 0x55 }));
+        lldp.setPortId(new LLDPTLV().setType((byte) 2)
+            .setLength((short) 3)
+            .setValue(new byte[] { 2, 0, 1 }));
+        lldp.setTtl(new LLDPTLV().setType((byte) 3)
+            .setLength((short) 2)
+            .setValue(new byte[] { 0, 0x78 }));
+        lldp.getOptionalTLVList().add(new LLDPTLV().setType((byte) 127)
+            .setLength((short) 12)
+            .setValue(new byte[] { 0, 0x26, (byte) 0xe1, 0,
+                                   0, 0, 0, 0, 0, 0, 0, 1 }));
+        return lldp;
+    }
+
+    private static byte[] bddp() {
+        BSN bsn = new BSN(BSN.BSN_TYPE_BDDP);
+        bsn.setPayload(lldp());
+        return ethernet("ff:ff:ff:ff:ff:ff",
+                        EthType.of(Ethernet.TYPE_BSN & 0xffff), bsn)
+            .serialize();
+    }
+
+    /**
+     * A shuffled mix of frames, weighted roughly like the PACKET_INs of a
+     * fabric with discovery running
+     */
+    private static List<byte[]> getFrames() {
+        List<byte[]> frames = new ArrayList<byte[]>();
+        byte[] lldp = ethernet("01:80:c2:00:00:0e", EthType.LLDP, lldp())
+            .serialize();
+        for (int i = 0; i < 20; i++) frames.add(arp());
+        for (int i = 0; i < 35; i++) frames.add(tcp());
+        for (int i = 0; i < 10; i++) frames.add(dhcp());
+        for (int i = 0; i < 20; i++) frames.add(lldp);
+        for (int i = 0; i < 15; i++) frames.add(bddp());
+        Collections.shuffle(frames, new Random(1));
+        return frames;
+    }
+
+    @Override
+    public void setUp() {
+        List<byte[]> l = getFrames();
+        frames = l.toArray(new byte[l.size()][]);
+        next = 0;
+    }
+
+    @Override
+    public Object run() {
+        byte[] frame = frames[next];
+        if (++next == frames.length) next = 0;
+        return new Ethernet().deserialize(frame, 0, frame.length);
+    }
+}
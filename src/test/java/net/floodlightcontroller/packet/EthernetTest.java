@@ -21,6 +21,7 @@
 package net.floodlightcontroller.packet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
@@ -73,4 +74,40 @@ public class EthernetTest {
                 Ethernet.toLong(new byte[] { (byte) 0x80, (byte) 0x80,
                         (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80 }));
     }
+
+    @Test
+    public void testRegisterEtherType() throws Exception {
+        final int etherType = 0x88b5; // local experimental
+        LLC llc = new LLC();
+        llc.setDsap((byte) 1);
+        Ethernet ethernet = new Ethernet()
+            .setDestinationMACAddress("de:ad:be:ef:de:ad")
+            .setSourceMACAddress("be:ef:de:ad:be:ef")
+            .setEtherType(EthType.of(etherType));
+        ethernet.setPayload(llc);
+        byte[] data = ethernet.serialize();
+
+        Ethernet parsed = new Ethernet();
+        parsed.deserialize(data, 0, data.length);
+        assertTrue(parsed.getPayload() instanceof Data);
+
+        assertNull(Ethernet.etherTypeFactories.register(etherType,
+                new IPacketFactory() {
+                    @Override
+                    public IPacket newPacket() {
+                        return new LLC();
+                    }
+                }));
+        try {
+            parsed = new Ethernet();
+            parsed.deserialize(data, 0, data.length);
+            assertTrue(parsed.getPayload() instanceof LLC);
+            assertEquals(1, ((LLC) parsed.getPayload()).getDsap());
+        } finally {
+            Ethernet.etherTypeFactories.register(etherType, null);
+        }
+        assertNull(Ethernet.etherTypeFactories.get(etherType));
+        assertNull(Ethernet.etherTypeFactories.get(-1));
+        assertNull(Ethernet.etherTypeFactories.get(0x10000));
+    }
 }
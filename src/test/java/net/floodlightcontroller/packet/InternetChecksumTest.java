@@ -0,0 +1,51 @@
+package net.floodlightcontroller.packet;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class InternetChecksumTest {
+
+    /* a UDP over IPv4 header with its checksum zeroed */
+    private static final byte[] header = new byte[] {
+        0x45, 0x00, 0x00, 0x73, 0x00, 0x00, 0x40, 0x00, 0x40, 0x11,
+        0x00, 0x00, (byte) 0xc0, (byte) 0xa8, 0x00, 0x01,
+        (byte) 0xc0, (byte) 0xa8, 0x00, (byte) 0xc7 };
+
+    @Test
+    public void testCompute() {
+        assertEquals((short) 0xb861, InternetChecksum.compute(header, 0, header.length));
+
+        // a buffer with the checksum in place sums to zero
+        byte[] withChecksum = header.clone();
+        withChecksum[10] = (byte) 0xb8;
+        withChecksum[11] = (byte) 0x61;
+        assertEquals(0, InternetChecksum.compute(withChecksum, 0, withChecksum.length));
+
+        // an odd length is padded with a zero byte
+        byte[] odd = new byte[] { 0x12, 0x34, 0x56 };
+        assertEquals((short) ~(0x1234 + 0x5600),
+                     InternetChecksum.compute(odd, 0, odd.length));
+    }
+
+    @Test
+    public void testRunningSum() {
+        int sum = InternetChecksum.add(header, 0, 12, 0);
+        sum = InternetChecksum.addInt(0xc0a80001, sum);
+        sum = InternetChecksum.addShort(0xc0a8, sum);
+        sum = InternetChecksum.addShort(0x00c7, sum);
+        assertEquals(InternetChecksum.compute(header, 0, header.length),
+                     InternetChecksum.finish(sum));
+    }
+
+    @Test
+    public void testUpdate() {
+        short checksum = InternetChecksum.compute(header, 0, header.length);
+        // decrement the TTL, which shares a word with the protocol
+        byte[] changed = header.clone();
+        changed[8] = 0x3f;
+        assertEquals(InternetChecksum.compute(changed, 0, changed.length),
+                     InternetChecksum.update(checksum, (short) 0x4011,
+                                             (short) 0x3f11));
+    }
+}
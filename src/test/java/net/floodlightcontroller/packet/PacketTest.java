@@ -142,5 +142,22 @@ public class PacketTest {
             doTestClone(pkt);
         }
     }
+
+    @Test
+    public void testSerializeToBuffer() throws Exception {
+        for (IPacket pkt: packets) {
+            byte[] expected = pkt.serialize();
+            assertEquals(expected.length, pkt.getSerializedLength());
+
+            // write into the middle of a dirty, reused buffer
+            byte[] buffer = new byte[expected.length + 16];
+            Arrays.fill(buffer, (byte) 0x5a);
+            assertEquals(expected.length, pkt.serialize(buffer, 8));
+            assertArrayEquals(expected,
+                              Arrays.copyOfRange(buffer, 8, 8 + expected.length));
+            assertEquals(0x5a, buffer[7]);
+            assertEquals(0x5a, buffer[8 + expected.length]);
+        }
+    }
     
 }
@@ -0,0 +1,193 @@
+package net.floodlightcontroller.packetstreamer;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import net.floodlightcontroller.packetstreamer.PacketStreamerHandler.DropPolicy;
+import net.floodlightcontroller.packetstreamer.PacketStreamerHandler.SessionFilter;
+import net.floodlightcontroller.packetstreamer.thrift.Message;
+import net.floodlightcontroller.packetstreamer.thrift.OFMessageType;
+import net.floodlightcontroller.packetstreamer.thrift.Packet;
+import net.floodlightcontroller.packetstreamer.thrift.PacketFilter;
+import net.floodlightcontroller.packetstreamer.thrift.PacketStreamer;
+import net.floodlightcontroller.packetstreamer.thrift.SwitchPortTuple;
+
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.junit.Test;
+
+public class PacketStreamerHandlerTest {
+    private static final String SESSION = "session1";
+
+    private static Message makeMessage(OFMessageType type, long dpid, int seq) {
+        Packet packet = new Packet();
+        packet.setMessageType(type);
+        packet.setSwPortTuple(new SwitchPortTuple(dpid, (short) 1));
+        packet.setData(new byte[] { (byte) seq });
+        Message msg = new Message();
+        msg.setSessionIDs(Collections.singletonList(SESSION));
+        msg.setPacket(packet);
+        return msg;
+    }
+
+    private static int seq(ByteBuffer bb) {
+        return bb.get(bb.position());
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(3, DropPolicy.DROP_OLDEST, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, i));
+        }
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        assertEquals(3, packets.size());
+        assertEquals(2, seq(packets.get(0)));
+        assertEquals(4, seq(packets.get(2)));
+        assertEquals(2, handler.getSession(SESSION).getDroppedCount());
+    }
+
+    @Test
+    public void testDropNewest() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(3, DropPolicy.DROP_NEWEST, 10, 10);
+        for (int i = 0; i < 5; i++) {
+            handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, i));
+        }
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        assertEquals(3, packets.size());
+        assertEquals(0, seq(packets.get(0)));
+        assertEquals(2, seq(packets.get(2)));
+        assertEquals(2, handler.getSession(SESSION).getDroppedCount());
+    }
+
+    @Test
+    public void testBatchSizeAndTimeout() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(100, DropPolicy.DROP_OLDEST, 4, 10);
+        for (int i = 0; i < 10; i++) {
+            handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, i));
+        }
+        assertEquals(4, handler.getPackets(SESSION).size());
+        assertEquals(4, handler.getPackets(SESSION).size());
+        assertEquals(2, handler.getPackets(SESSION).size());
+        // The session is empty, so we time out with no packets
+        assertTrue(handler.getPackets(SESSION).isEmpty());
+    }
+
+    @Test
+    public void testSessionFilter() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(100, DropPolicy.DROP_OLDEST, 100, 10);
+        handler.setSessionFilter(SESSION,
+                new SessionFilter(EnumSet.of(OFMessageType.PACKET_IN),
+                                  Collections.singleton(1L), 2));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 0));
+        handler.pushMessageSync(makeMessage(OFMessageType.FLOW_MOD, 1, 1));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 2, 2));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 3));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 4));
+
+        // Only packet-ins from DPID 1 match, and we keep one in two of those
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        assertEquals(2, packets.size());
+        assertEquals(0, seq(packets.get(0)));
+        assertEquals(4, seq(packets.get(1)));
+        assertEquals(3, handler.getSession(SESSION).getFilteredCount());
+    }
+
+    @Test
+    public void testRemoteSessionFilter() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(100, DropPolicy.DROP_OLDEST, 100, 10);
+        PacketFilter filter = new PacketFilter();
+        filter.addToMessageTypes(OFMessageType.PACKET_IN);
+        filter.addToDpids(1L);
+
+        // The filter survives the trip through the thrift arguments
+        PacketStreamer.setSessionFilter_args args =
+                new PacketStreamer.setSessionFilter_args(SESSION, filter);
+        byte[] bytes = new TSerializer(new TCompactProtocol.Factory()).serialize(args);
+        PacketStreamer.setSessionFilter_args received =
+                new PacketStreamer.setSessionFilter_args();
+        new TDeserializer(new TCompactProtocol.Factory()).deserialize(received, bytes);
+        assertEquals(args, received);
+        assertEquals(1, received.getFilter().getSamplingRate());
+
+        handler.setSessionFilter(received.getSessionid(), received.getFilter());
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 0));
+        handler.pushMessageSync(makeMessage(OFMessageType.FLOW_MOD, 1, 1));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 2, 2));
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        assertEquals(1, packets.size());
+        assertEquals(0, seq(packets.get(0)));
+
+        // A null filter streams everything again
+        handler.setSessionFilter(SESSION, (PacketFilter) null);
+        handler.pushMessageSync(makeMessage(OFMessageType.FLOW_MOD, 2, 3));
+        assertEquals(3, seq(handler.getPackets(SESSION).get(0)));
+    }
+
+    @Test
+    public void testBlockingByDefault() throws Exception {
+        final PacketStreamerHandler handler = new PacketStreamerHandler();
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 0));
+        assertEquals(1, handler.getPackets(SESSION).size());
+
+        // Without a batch timeout, getPackets() waits for the next packet
+        Thread pusher = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                    handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 1));
+                } catch (Exception e) {
+                    // the test fails below
+                }
+            }
+        };
+        pusher.start();
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        pusher.join();
+        assertEquals(1, packets.size());
+        assertEquals(1, seq(packets.get(0)));
+    }
+
+    @Test
+    public void testFilterEndsWithSession() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(100, DropPolicy.DROP_OLDEST, 100, 10);
+        handler.setSessionFilter(SESSION,
+                new SessionFilter(null, Collections.singleton(1L), 1));
+        assertNotNull(handler.getSession(SESSION));
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 2, 0));
+        assertEquals(1, handler.getSession(SESSION).getFilteredCount());
+
+        // A session started again after termination streams everything
+        handler.terminateSession(SESSION);
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 2, 1));
+        List<ByteBuffer> packets = handler.getPackets(SESSION);
+        assertEquals(1, packets.size());
+        assertEquals(1, seq(packets.get(0)));
+        assertEquals(0, handler.getSession(SESSION).getFilteredCount());
+    }
+
+    @Test
+    public void testTerminateSession() throws Exception {
+        PacketStreamerHandler handler =
+                new PacketStreamerHandler(1, DropPolicy.DROP_NEWEST, 10, 10);
+        handler.pushMessageSync(makeMessage(OFMessageType.PACKET_IN, 1, 0));
+        PacketStreamerHandler.SessionQueue session = handler.getSession(SESSION);
+        handler.terminateSession(SESSION);
+        assertNull(handler.getSession(SESSION));
+        // The termination marker replaces queued packets if needed
+        ByteBuffer marker = session.getQueue().poll();
+        assertEquals("FilterTimeout", new String(marker.array()));
+    }
+}
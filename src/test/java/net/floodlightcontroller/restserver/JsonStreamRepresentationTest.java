@@ -0,0 +1,102 @@
+package net.floodlightcontroller.restserver;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.restlet.data.Form;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonStreamRepresentationTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private static List<Map<String, Object>> items(int n) {
+        List<Map<String, Object>> items = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < n; i++) {
+            Map<String, Object> item = new LinkedHashMap<String, Object>();
+            item.put("id", i);
+            item.put("mac", "00:00:00:00:00:0" + i);
+            item.put("ipv4", Arrays.asList("10.0.0." + i));
+            items.add(item);
+        }
+        return items;
+    }
+
+    private String write(List<?> items, PageRequest page) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new JsonStreamRepresentation(items.iterator(), page).write(out);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void testAll() throws Exception {
+        List<Map<String, Object>> items = items(5);
+        assertEquals(mapper.writeValueAsString(items),
+                     write(items, PageRequest.ALL));
+        assertEquals("[]", write(items(0), PageRequest.ALL));
+    }
+
+    @Test
+    public void testPage() throws Exception {
+        List<Map<String, Object>> items = items(5);
+        assertEquals(mapper.writeValueAsString(items.subList(1, 3)),
+                     write(items, new PageRequest(1, 2, null)));
+        assertEquals(mapper.writeValueAsString(items.subList(3, 5)),
+                     write(items, new PageRequest(3, 10, null)));
+        assertEquals("[]", write(items, new PageRequest(5, -1, null)));
+        assertEquals("[]", write(items, new PageRequest(0, 0, null)));
+    }
+
+    @Test
+    public void testFields() throws Exception {
+        List<Map<String, Object>> items = items(2);
+        assertEquals("[{\"mac\":\"00:00:00:00:00:01\"}]",
+                     write(items, new PageRequest(1, -1,
+                             new HashSet<String>(Arrays.asList("mac")))));
+        assertEquals("[{},{}]",
+                     write(items, new PageRequest(0, -1,
+                             new HashSet<String>(Arrays.asList("bogus")))));
+        List<Object> mixed = new ArrayList<Object>();
+        mixed.add(null);
+        mixed.add("string");
+        assertEquals("[null,\"string\"]",
+                     write(mixed, new PageRequest(0, -1,
+                             new HashSet<String>(Arrays.asList("mac")))));
+    }
+
+    @Test
+    public void testFromQuery() {
+        PageRequest page = PageRequest.fromQuery(new Form(""));
+        assertEquals(0, page.getOffset());
+        assertEquals(-1, page.getLimit());
+        assertNull(page.getFields());
+
+        page = PageRequest.fromQuery(
+                new Form("offset=200&limit=100&fields=mac,%20ipv4,,"));
+        assertEquals(200, page.getOffset());
+        assertEquals(100, page.getLimit());
+        assertEquals(new HashSet<String>(Arrays.asList("mac", "ipv4")),
+                     page.getFields());
+
+        assertNull(PageRequest.fromQuery(new Form("fields=")).getFields());
+
+        String[] invalid = { "offset=-1", "limit=-5", "limit=ten",
+                             "offset=1.5" };
+        for (String query : invalid) {
+            try {
+                PageRequest.fromQuery(new Form(query));
+                fail("Expected " + query + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
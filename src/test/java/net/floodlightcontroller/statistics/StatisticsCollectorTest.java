@@ -0,0 +1,141 @@
+package net.floodlightcontroller.statistics;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import net.floodlightcontroller.core.IOFSwitch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFPortDesc;
+import org.projectfloodlight.openflow.protocol.OFPortStatsEntry;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+public class StatisticsCollectorTest {
+    private static final DatapathId DPID = DatapathId.of(1L);
+    private static final OFPort PORT = OFPort.of(1);
+    private static final long SECOND_NS = 1000L * 1000 * 1000;
+
+    private final OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+    private StatisticsCollector collector;
+    private IOFSwitch sw;
+
+    @Before
+    public void setUp() {
+        collector = new StatisticsCollector();
+        // A 10 Mbps port
+        OFPortDesc desc = factory.buildPortDesc()
+                .setPortNo(PORT)
+                .setCurrSpeed(10000)
+                .build();
+        sw = createMock(IOFSwitch.class);
+        expect(sw.getId()).andReturn(DPID).anyTimes();
+        expect(sw.getPort(PORT)).andReturn(desc).anyTimes();
+        replay(sw);
+    }
+
+    private void update(long seconds, long rxBytes, long txBytes,
+                        long rxDropped, long txDropped) {
+        OFPortStatsEntry entry = factory.buildPortStatsEntry()
+                .setPortNo(PORT)
+                .setRxBytes(U64.of(rxBytes))
+                .setTxBytes(U64.of(txBytes))
+                .setRxDropped(U64.of(rxDropped))
+                .setTxDropped(U64.of(txDropped))
+                .build();
+        collector.updatePort(sw, entry, seconds * SECOND_NS);
+    }
+
+    private SwitchPortBandwidth bandwidth() {
+        return collector.getBandwidthConsumption(DPID, PORT);
+    }
+
+    @Test
+    public void testRates() {
+        update(0, 0, 0, 0, 0);
+        // One reply gives no rate yet
+        assertNull(bandwidth());
+
+        // The first rate is taken as is: 1 Mbps in, 2 Mbps out
+        update(10, 1250000, 2500000, 0, 0);
+        SwitchPortBandwidth bw = bandwidth();
+        assertEquals(DPID, bw.getSwitchId());
+        assertEquals(PORT, bw.getSwitchPort());
+        assertEquals(10000000L, bw.getSpeed());
+        assertEquals(1000000L, bw.getRxBitsPerSecond());
+        assertEquals(2000000L, bw.getTxBitsPerSecond());
+        assertEquals(0L, bw.getDropsPerSecond());
+        assertEquals(0.1, bw.getRxUtilization(), 1e-9);
+        assertEquals(0.2, bw.getUtilization(), 1e-9);
+
+        // Later ones move the average a quarter of the way: 1 + (4 - 1) / 4
+        update(20, 1250000 + 5000000, 5000000, 0, 0);
+        bw = bandwidth();
+        assertEquals(1750000L, bw.getRxBitsPerSecond());
+        assertEquals(2000000L, bw.getTxBitsPerSecond());
+    }
+
+    @Test
+    public void testCounterReset() {
+        update(0, 0, 0, 0, 0);
+        update(10, 1250000, 1250000, 0, 0);
+        update(20, 6250000, 1250000, 0, 0);
+        assertEquals(1750000L, bandwidth().getRxBitsPerSecond());
+
+        // The counters went back: the rates are kept, the sample is not used
+        update(30, 100, 100, 0, 0);
+        assertEquals(1750000L, bandwidth().getRxBitsPerSecond());
+        assertEquals(750000L, bandwidth().getTxBitsPerSecond());
+
+        // The next reply is measured from the reset counters: 3.75 Mbps
+        update(40, 100 + 4687500, 100, 0, 0);
+        assertEquals(2250000L, bandwidth().getRxBitsPerSecond());
+        assertEquals(562500L, bandwidth().getTxBitsPerSecond());
+    }
+
+    @Test
+    public void testCounterWrap() {
+        // 1000 bytes before the 64-bit counter wraps, 1500 bytes after it
+        update(0, -1000L, 0, 0, 0);
+        update(1, 1500, 0, 0, 0);
+        assertEquals(20000L, bandwidth().getRxBitsPerSecond());
+    }
+
+    @Test
+    public void testDrops() {
+        update(0, 0, 0, 0, 0);
+        // Fewer than one drop per second does not count
+        update(10, 0, 0, 3, 2);
+        assertEquals(0L, bandwidth().getDropsPerSecond());
+
+        // Received and transmitted drops add up, and even a small rate
+        // reaches the average, so the links of the port count as saturated
+        update(11, 0, 0, 4, 3);
+        assertEquals(1L, bandwidth().getDropsPerSecond());
+        update(12, 0, 0, 5, 4);
+        assertEquals(2L, bandwidth().getDropsPerSecond());
+
+        // and it decays back to zero once the drops stop
+        update(13, 0, 0, 5, 4);
+        assertEquals(1L, bandwidth().getDropsPerSecond());
+        update(14, 0, 0, 5, 4);
+        assertEquals(0L, bandwidth().getDropsPerSecond());
+    }
+
+    @Test
+    public void testSmooth() {
+        assertEquals(1750000L, StatisticsCollector.smooth(1000000, 4000000));
+        assertEquals(3250000L, StatisticsCollector.smooth(4000000, 1000000));
+        assertEquals(1L, StatisticsCollector.smooth(0, 1));
+        assertEquals(0L, StatisticsCollector.smooth(1, 0));
+        assertEquals(5L, StatisticsCollector.smooth(5, 5));
+    }
+}
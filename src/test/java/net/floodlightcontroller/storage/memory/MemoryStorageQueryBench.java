@@ -0,0 +1,86 @@
+package net.floodlightcontroller.storage.memory;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.MockDebugCounterService;
+import net.floodlightcontroller.restserver.IRestApiService;
+import net.floodlightcontroller.restserver.RestApiServer;
+import net.floodlightcontroller.storage.IResultSet;
+import net.floodlightcontroller.storage.OperatorPredicate;
+import net.floodlightcontroller.storage.RowOrdering;
+
+/**
+ * Queries a table of the memory storage source for the rows with a given
+ * value in an indexed column, ordered by primary key, and reads them, the
+ * way the modules load their configuration tables.
+ */
+public class MemoryStorageQueryBench extends MicroBenchmark {
+    private static final String TABLE_NAME = "bench_hosts";
+    private static final String COLUMN_ID = "id";
+    private static final String COLUMN_TENANT = "tenant";
+    private static final String COLUMN_MAC = "mac";
+    private static final String[] COLUMNS =
+        { COLUMN_ID, COLUMN_TENANT, COLUMN_MAC };
+    private static final int ROWS = 1000;
+    private static final int TENANTS = 20;
+
+    private MemoryStorageSource storageSource;
+    private int next;
+
+    public MemoryStorageQueryBench() {
+        super(MemoryStorageQueryBench.class.getName() + ".executeQuery");
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        storageSource = new MemoryStorageSource();
+        RestApiServer restApi = new RestApiServer();
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        fmc.addService(IRestApiService.class, restApi);
+        fmc.addService(IDebugCounterService.class, new MockDebugCounterService());
+        restApi.init(fmc);
+        storageSource.init(fmc);
+        restApi.startUp(fmc);
+        storageSource.startUp(fmc);
+
+        Set<String> indexedColumnNames = new HashSet<String>();
+        indexedColumnNames.add(COLUMN_TENANT);
+        storageSource.createTable(TABLE_NAME, indexedColumnNames);
+        storageSource.setTablePrimaryKeyName(TABLE_NAME, COLUMN_ID);
+        for (int i = 0; i < ROWS; i++) {
+            Map<String, Object> row = new HashMap<String, Object>();
+            row.put(COLUMN_ID, String.format("host%04d", i));
+            row.put(COLUMN_TENANT, "tenant" + (i % TENANTS));
+            row.put(COLUMN_MAC, String.format("00:00:00:00:%02x:%02x",
+                                              i >> 8, i & 0xff));
+            storageSource.insertRow(TABLE_NAME, row);
+        }
+        next = 0;
+    }
+
+    @Override
+    public Object run() {
+        String tenant = "tenant" + next;
+        if (++next == TENANTS) next = 0;
+        IResultSet resultSet = storageSource.executeQuery(TABLE_NAME, COLUMNS,
+                new OperatorPredicate(COLUMN_TENANT,
+                                      OperatorPredicate.Operator.EQ, tenant),
+                new RowOrdering(COLUMN_ID));
+        int rows = 0;
+        try {
+            while (resultSet.next()) {
+                if (resultSet.getString(COLUMN_MAC) != null)
+                    rows++;
+            }
+        } finally {
+            resultSet.close();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,74 @@
+package net.floodlightcontroller.topology;
+
+import java.util.Set;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * A snapshot that passes every query on to a (mocked) topology service, so
+ * tests can keep setting their expectations on the service itself.
+ */
+public class MockTopologySnapshot extends TopologySnapshot {
+    private final ITopologyService topology;
+
+    public MockTopologySnapshot(ITopologyService topology) {
+        this.topology = topology;
+    }
+
+    @Override
+    public boolean isAttachmentPointPort(DatapathId sw, OFPort port) {
+        return topology.isAttachmentPointPort(sw, port);
+    }
+
+    @Override
+    public boolean isBroadcastDomainPort(DatapathId sw, OFPort port) {
+        return topology.isBroadcastDomainPort(sw, port);
+    }
+
+    @Override
+    public boolean isAllowed(DatapathId sw, OFPort port) {
+        return topology.isAllowed(sw, port);
+    }
+
+    @Override
+    public boolean isIncomingBroadcastAllowed(DatapathId sw, OFPort port) {
+        return topology.isIncomingBroadcastAllowed(sw, port);
+    }
+
+    @Override
+    public boolean isConsistent(DatapathId oldSw, OFPort oldPort,
+                                DatapathId newSw, OFPort newPort) {
+        return topology.isConsistent(oldSw, oldPort, newSw, newPort);
+    }
+
+    @Override
+    public DatapathId getOpenflowDomainId(DatapathId sw) {
+        return topology.getOpenflowDomainId(sw);
+    }
+
+    @Override
+    public DatapathId getL2DomainId(DatapathId sw) {
+        return topology.getL2DomainId(sw);
+    }
+
+    @Override
+    public boolean inSameOpenflowDomain(DatapathId switch1, DatapathId switch2) {
+        return topology.inSameOpenflowDomain(switch1, switch2);
+    }
+
+    @Override
+    public boolean inSameL2Domain(DatapathId switch1, DatapathId switch2) {
+        return topology.inSameL2Domain(switch1, switch2);
+    }
+
+    @Override
+    public Set<DatapathId> getSwitchesInOpenflowDomain(DatapathId sw) {
+        return topology.getSwitchesInOpenflowDomain(sw);
+    }
+
+    @Override
+    public Set<OFPort> getPortsWithLinks(DatapathId sw) {
+        return topology.getPortsWithLinks(sw);
+    }
+}
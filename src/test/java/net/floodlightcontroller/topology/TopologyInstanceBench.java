@@ -0,0 +1,150 @@
+package net.floodlightcontroller.topology;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.routing.Link;
+
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
+
+/**
+ * Topology computation and route lookups on a grid of switches, each
+ * linked to its neighbours on ports 1 to 4, with hosts on port 5.
+ */
+public abstract class TopologyInstanceBench extends MicroBenchmark {
+    private static final int GRID = 10;
+    private static final OFPort HOST_PORT = OFPort.of(5);
+
+    protected Map<DatapathId, Set<OFPort>> switchPorts;
+    protected Map<NodePortTuple, Set<Link>> switchPortLinks;
+
+    protected TopologyInstanceBench(String operation) {
+        super(TopologyInstanceBench.class.getName() + "." + operation);
+    }
+
+    private static DatapathId dpid(int x, int y) {
+        return DatapathId.of(x * GRID + y + 1);
+    }
+
+    private void addPort(DatapathId sw, OFPort port) {
+        Set<OFPort> ports = switchPorts.get(sw);
+        if (ports == null) {
+            ports = new HashSet<OFPort>();
+            switchPorts.put(sw, ports);
+        }
+        ports.add(port);
+    }
+
+    private void addLink(Link link, NodePortTuple npt) {
+        Set<Link> links = switchPortLinks.get(npt);
+        if (links == null) {
+            links = new HashSet<Link>();
+            switchPortLinks.put(npt, links);
+        }
+        links.add(link);
+    }
+
+    /**
+     * Link two switches in both directions, the way link discovery
+     * reports them
+     */
+    private void connect(DatapathId a, OFPort aPort,
+                         DatapathId b, OFPort bPort) {
+        NodePortTuple aNpt = new NodePortTuple(a, aPort);
+        NodePortTuple bNpt = new NodePortTuple(b, bPort);
+        Link ab = new Link(a, aPort, b, bPort);
+        Link ba = new Link(b, bPort, a, aPort);
+        addPort(a, aPort);
+        addPort(b, bPort);
+        addLink(ab, aNpt);
+        addLink(ab, bNpt);
+        addLink(ba, aNpt);
+        addLink(ba, bNpt);
+    }
+
+    protected TopologyInstance newInstance() {
+        Set<NodePortTuple> none = Collections.emptySet();
+        return new TopologyInstance(switchPorts, none, switchPortLinks,
+                                    none, none);
+    }
+
+    @Override
+    public void setUp() {
+        switchPorts = new HashMap<DatapathId, Set<OFPort>>();
+        switchPortLinks = new HashMap<NodePortTuple, Set<Link>>();
+        for (int x = 0; x < GRID; x++) {
+            for (int y = 0; y < GRID; y++) {
+                addPort(dpid(x, y), HOST_PORT);
+                if (x + 1 < GRID)
+                    connect(dpid(x, y), OFPort.of(1),
+                            dpid(x + 1, y), OFPort.of(2));
+                if (y + 1 < GRID)
+                    connect(dpid(x, y), OFPort.of(3),
+                            dpid(x, y + 1), OFPort.of(4));
+            }
+        }
+    }
+
+    /**
+     * Build and compute a new instance, as on every link change
+     */
+    public static class Compute extends TopologyInstanceBench {
+        public Compute() {
+            super("compute");
+        }
+
+        @Override
+        public Object run() {
+            TopologyInstance ti = newInstance();
+            ti.compute();
+            return ti;
+        }
+    }
+
+    /**
+     * Look up the route between the host ports of random pairs of
+     * switches, as Forwarding does for each new flow
+     */
+    public static class GetRoute extends TopologyInstanceBench {
+        private static final int PAIRS = 1024;
+
+        private TopologyInstance ti;
+        private DatapathId[] src;
+        private DatapathId[] dst;
+        private int next;
+
+        public GetRoute() {
+            super("getRoute");
+        }
+
+        @Override
+        public void setUp() {
+            super.setUp();
+            ti = newInstance();
+            ti.compute();
+            Random random = new Random(1);
+            src = new DatapathId[PAIRS];
+            dst = new DatapathId[PAIRS];
+            for (int i = 0; i < PAIRS; i++) {
+                src[i] = dpid(random.nextInt(GRID), random.nextInt(GRID));
+                dst[i] = dpid(random.nextInt(GRID), random.nextInt(GRID));
+            }
+            next = 0;
+        }
+
+        @Override
+        public Object run() {
+            int i = next;
+            if (++next == PAIRS) next = 0;
+            return ti.getRoute(null, src[i], HOST_PORT, dst[i], HOST_PORT,
+                               U64.ZERO);
+        }
+    }
+}
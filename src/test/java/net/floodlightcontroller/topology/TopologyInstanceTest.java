@@ -33,6 +33,8 @@ import net.floodlightcontroller.debugevent.IDebugEventService;
 import net.floodlightcontroller.debugevent.MockDebugEventService;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscovery;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscoveryService;
+import net.floodlightcontroller.routing.Route;
+import net.floodlightcontroller.routing.RouteId;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.NodePortTuple;
 import net.floodlightcontroller.topology.TopologyInstance;
@@ -43,6 +45,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.OFPort;
+import org.projectfloodlight.openflow.types.U64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -475,4 +478,128 @@ public class TopologyInstanceTest {
                 verifyClusters(expectedClusters);
         }
     }
+
+    @Test
+    public void testMultipathRoutes() throws Exception {
+        // Two leaves, 1 and 2, connected through three spines
+        int [][] linkArray = {
+                              {1, 1, 3, 1, DIRECT_LINK}, {3, 1, 1, 1, DIRECT_LINK},
+                              {1, 2, 4, 1, DIRECT_LINK}, {4, 1, 1, 2, DIRECT_LINK},
+                              {1, 3, 5, 1, DIRECT_LINK}, {5, 1, 1, 3, DIRECT_LINK},
+                              {2, 1, 3, 2, DIRECT_LINK}, {3, 2, 2, 1, DIRECT_LINK},
+                              {2, 2, 4, 2, DIRECT_LINK}, {4, 2, 2, 2, DIRECT_LINK},
+                              {2, 3, 5, 2, DIRECT_LINK}, {5, 2, 2, 3, DIRECT_LINK}
+        };
+        createTopologyFromLinks(linkArray);
+        TopologyInstance ti = topologyManager.getCurrentInstance(true);
+
+        // One route through every spine, the default route first
+        List<Route> routes = ti.getRoutes(DatapathId.of(1), DatapathId.of(2));
+        assertEquals(3, routes.size());
+        assertEquals(ti.getRoute(DatapathId.of(1), DatapathId.of(2), U64.ZERO), routes.get(0));
+        Set<DatapathId> spines = new HashSet<DatapathId>();
+        for (Route r : routes) {
+            assertEquals(4, r.getPath().size());
+            spines.add(r.getPath().get(1).getNodeId());
+        }
+        assertEquals(3, spines.size());
+
+        // Flow hashes spread flows over all of them
+        Set<Route> picked = new HashSet<Route>();
+        for (long cookie = 1; cookie <= 30; cookie++) {
+            picked.add(ti.getRoute(DatapathId.of(1), DatapathId.of(2), U64.of(cookie)));
+        }
+        assertEquals(3, picked.size());
+
+        // They come from the route cache, as copies
+        Route r1 = ti.getRoute(DatapathId.of(1), DatapathId.of(2), U64.of(7));
+        Route r2 = ti.getRoute(DatapathId.of(1), DatapathId.of(2), U64.of(7));
+        assertEquals(r1, r2);
+        assertNotSame(r1, r2);
+        assertNotSame(routes.get(0), ti.getRoutes(DatapathId.of(1), DatapathId.of(2)).get(0));
+        assertEquals(1, ti.getCachedRouteIds().size());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        // Ports (1,1) and (3,2) become broadcast domain ports
+        int [][] linkArray = {
+                              {1, 1, 2, 1, DIRECT_LINK}, {2, 1, 1, 1, DIRECT_LINK},
+                              {1, 2, 3, 1, DIRECT_LINK}, {3, 1, 1, 2, DIRECT_LINK},
+                              {2, 2, 3, 2, DIRECT_LINK}, {3, 2, 2, 2, DIRECT_LINK},
+                              {1, 1, 3, 2, DIRECT_LINK},
+                              {4, 1, 5, 1, DIRECT_LINK}, {5, 1, 4, 1, DIRECT_LINK},
+        };
+        createTopologyFromLinks(linkArray);
+        TopologyInstance ti = topologyManager.getCurrentInstance(true);
+        TopologySnapshot snapshot = topologyManager.getSnapshot();
+        assertSame(ti.getSnapshot(), snapshot);
+
+        // The snapshot answers like the instance it was built from
+        for (long sw = 1; sw <= 6; sw++) {
+            DatapathId dpid = DatapathId.of(sw);
+            assertEquals(ti.getL2DomainId(dpid), snapshot.getL2DomainId(dpid));
+            for (DatapathId other : ti.getSwitchesInOpenflowDomain(dpid)) {
+                assertTrue(snapshot.inSameL2Domain(dpid, other));
+            }
+            for (int p = 1; p <= 3; p++) {
+                OFPort port = OFPort.of(p);
+                NodePortTuple npt = new NodePortTuple(dpid, port);
+                assertEquals(ti.isAttachmentPointPort(dpid, port),
+                             snapshot.isAttachmentPointPort(dpid, port));
+                assertEquals(ti.isBroadcastDomainPort(npt),
+                             snapshot.isBroadcastDomainPort(dpid, port));
+                assertEquals(ti.isConsistent(dpid, OFPort.of(4), dpid, port),
+                             snapshot.isConsistent(dpid, OFPort.of(4), dpid, port));
+                if (ti.getSwitches().contains(dpid)) {
+                    assertEquals(ti.isIncomingBroadcastAllowedOnSwitchPort(dpid, port),
+                                 snapshot.isIncomingBroadcastAllowed(dpid, port));
+                }
+            }
+            if (ti.getSwitches().contains(dpid)) {
+                assertEquals(ti.getBroadcastPorts(dpid, dpid, OFPort.of(1)),
+                             snapshot.getBroadcastPorts(dpid));
+            }
+        }
+        assertTrue(snapshot.isBroadcastDomainPort(DatapathId.of(1), OFPort.of(1)));
+        assertFalse(snapshot.inSameL2Domain(DatapathId.of(1), DatapathId.of(4)));
+        assertEquals(DatapathId.of(6), snapshot.getL2DomainId(DatapathId.of(6)));
+        assertTrue(snapshot.isAttachmentPointPort(DatapathId.of(1), OFPort.LOCAL));
+        assertFalse(snapshot.isAttachmentPointPort(DatapathId.of(1), OFPort.CONTROLLER));
+    }
+
+    @Test
+    public void testRouteCache() throws Exception {
+        int [][] linkArray = {
+                              {1, 1, 2, 1, DIRECT_LINK}, {2, 1, 1, 1, DIRECT_LINK},
+                              {2, 2, 3, 1, DIRECT_LINK}, {3, 1, 2, 2, DIRECT_LINK},
+        };
+        createTopologyFromLinks(linkArray);
+        TopologyInstance ti = topologyManager.getCurrentInstance(true);
+
+        // Cached routes are handed out as copies
+        Route r1 = ti.getRoute(DatapathId.of(1), DatapathId.of(3), U64.ZERO);
+        Route r2 = ti.getRoute(DatapathId.of(1), DatapathId.of(3), U64.ZERO);
+        assertEquals(4, r1.getPath().size());
+        assertEquals(r1, r2);
+        assertNotSame(r1, r2);
+        assertTrue(ti.getCachedRouteIds().contains(
+                new RouteId(DatapathId.of(1), DatapathId.of(3))));
+
+        // Pairs without a route are cached as such
+        assertNull(ti.getRoute(DatapathId.of(1), DatapathId.of(9), U64.ZERO));
+        assertTrue(ti.getCachedRouteIds().contains(
+                new RouteId(DatapathId.of(1), DatapathId.of(9))));
+
+        // A new instance computes the routes of the previous one up front
+        int [][] newLinks = {
+                             {3, 2, 4, 1, DIRECT_LINK}, {4, 1, 3, 2, DIRECT_LINK},
+        };
+        createTopologyFromLinks(newLinks);
+        TopologyInstance nti = topologyManager.getCurrentInstance(true);
+        assertNotSame(ti, nti);
+        assertTrue(nti.getCachedRouteIds().contains(
+                new RouteId(DatapathId.of(1), DatapathId.of(3))));
+        assertEquals(r1, nti.getRoute(DatapathId.of(1), DatapathId.of(3), U64.ZERO));
+    }
 }
@@ -17,6 +17,11 @@
 package net.floodlightcontroller.topology;
 
 import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import net.floodlightcontroller.core.IFloodlightProviderService;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.core.test.MockThreadPoolService;
@@ -25,6 +30,7 @@ import net.floodlightcontroller.debugcounter.MockDebugCounterService;
 import net.floodlightcontroller.debugevent.IDebugEventService;
 import net.floodlightcontroller.debugevent.MockDebugEventService;
 import net.floodlightcontroller.linkdiscovery.ILinkDiscovery;
+import net.floodlightcontroller.routing.Link;
 import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.TopologyManager;
@@ -131,4 +137,27 @@ public class TopologyManagerTest extends FloodlightTestCase {
         assertTrue(tm.getTunnelPorts().size()==0);
     }
 
+    @Test
+    public void testLinkWeightHysteresis() throws Exception {
+        Link l1 = new Link(DatapathId.of(1), OFPort.of(1), DatapathId.of(2), OFPort.of(1));
+        Link l2 = new Link(DatapathId.of(2), OFPort.of(2), DatapathId.of(3), OFPort.of(1));
+        Link l3 = new Link(DatapathId.of(3), OFPort.of(2), DatapathId.of(1), OFPort.of(2));
+        Map<Link, Integer> current = new HashMap<Link, Integer>();
+        current.put(l1, 100);
+        current.put(l2, 100);
+
+        Map<Link, Integer> computed = new HashMap<Link, Integer>();
+        computed.put(l1, 120); // within 25%, keeps its weight
+        computed.put(l2, 200); // changes
+        computed.put(l3, 10);  // new link
+        Map<Link, Integer> weights = TopologyManager.applyHysteresis(current, computed);
+        assertEquals(3, weights.size());
+        assertEquals(100, weights.get(l1).intValue());
+        assertEquals(200, weights.get(l2).intValue());
+        assertEquals(10, weights.get(l3).intValue());
+
+        // Without a previous weight, the computed ones apply as is
+        assertEquals(computed, TopologyManager.applyHysteresis(
+                Collections.<Link, Integer>emptyMap(), computed));
+    }
 }
@@ -0,0 +1,62 @@
+package net.floodlightcontroller.util;
+
+import java.util.EnumSet;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+
+import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFMessage;
+import org.projectfloodlight.openflow.protocol.OFType;
+import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
+import org.projectfloodlight.openflow.types.EthType;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+import org.projectfloodlight.openflow.types.OFPort;
+
+/**
+ * Writes FLOW_MODs through a damper configured like the one of
+ * Forwarding, cycling over a set of distinct FLOW_MODs so that most
+ * writes are dampened and some expire and go through.
+ */
+public class OFMessageDamperBench extends MicroBenchmark {
+    private static final int FLOWS = 1000;
+
+    private OFMessageDamper damper;
+    private OFMessageDamperMockSwitch sw;
+    private OFMessage[] flowMods;
+    private int next;
+
+    public OFMessageDamperBench() {
+        super(OFMessageDamperBench.class.getName() + ".write");
+    }
+
+    @Override
+    public void setUp() {
+        OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+        damper = new OFMessageDamper(10000, EnumSet.of(OFType.FLOW_MOD), 250);
+        sw = new OFMessageDamperMockSwitch();
+        flowMods = new OFMessage[FLOWS];
+        for (int i = 0; i < FLOWS; i++) {
+            flowMods[i] = factory.buildFlowAdd()
+                .setMatch(factory.buildMatch()
+                    .setExact(MatchField.IN_PORT, OFPort.of(1 + i % 48))
+                    .setExact(MatchField.ETH_TYPE, EthType.IPv4)
+                    .setExact(MatchField.ETH_DST, MacAddress.of(i + 1))
+                    .setExact(MatchField.IPV4_DST, IPv4Address.of(0x0a000000 + i))
+                    .build())
+                .setIdleTimeout(5)
+                .setPriority(1)
+                .build();
+        }
+        next = 0;
+    }
+
+    @Override
+    public Object run() throws Exception {
+        OFMessage fm = flowMods[next];
+        if (++next == FLOWS) next = 0;
+        return damper.write(sw, fm);
+    }
+}
@@ -25,10 +25,13 @@ import org.easymock.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 import org.projectfloodlight.openflow.protocol.OFFactories;
+import org.projectfloodlight.openflow.protocol.OFFactory;
+import org.projectfloodlight.openflow.protocol.OFFlowRemoved;
 import org.projectfloodlight.openflow.protocol.OFPacketIn;
 import org.projectfloodlight.openflow.protocol.OFType;
 import org.projectfloodlight.openflow.protocol.OFPacketInReason;
 import org.projectfloodlight.openflow.protocol.OFVersion;
+import org.projectfloodlight.openflow.protocol.match.MatchField;
 import org.projectfloodlight.openflow.types.DatapathId;
 import org.projectfloodlight.openflow.types.EthType;
 import org.projectfloodlight.openflow.types.IPv4Address;
@@ -44,6 +47,7 @@ import net.floodlightcontroller.core.IOFMessageListener;
 import net.floodlightcontroller.core.IListener.Command;
 import net.floodlightcontroller.core.IOFSwitch;
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.core.util.AppCookie;
 import net.floodlightcontroller.core.test.MockThreadPoolService;
 import net.floodlightcontroller.core.test.PacketFactory;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
@@ -64,6 +68,7 @@ import net.floodlightcontroller.restserver.RestApiServer;
 import net.floodlightcontroller.test.FloodlightTestCase;
 import net.floodlightcontroller.threadpool.IThreadPoolService;
 import net.floodlightcontroller.topology.ITopologyService;
+import net.floodlightcontroller.topology.MockTopologySnapshot;
 import net.floodlightcontroller.virtualnetwork.VirtualNetworkFilter;
 
 public class VirtualNetworkFilterTest extends FloodlightTestCase {
@@ -142,6 +147,7 @@ public class VirtualNetworkFilterTest extends FloodlightTestCase {
         expect(topology.isAttachmentPointPort(DatapathId.of(0), OFPort.ZERO)).andReturn(anyBoolean()).anyTimes();
         topology.addListener(deviceService);
         expectLastCall().times(1);
+        expect(topology.getSnapshot()).andReturn(new MockTopologySnapshot(topology)).anyTimes();
         replay(topology);
         
         // Mock switches
@@ -329,6 +335,29 @@ public class VirtualNetworkFilterTest extends FloodlightTestCase {
 
     }
 
+    @Test
+    public void testIndexUpdates() {
+        testAddHost();
+        assertTrue(vns.index.onSameNetwork(mac1, mac2));
+        assertTrue(vns.index.onSameNetwork(mac3, mac4));
+        assertFalse(vns.index.onSameNetwork(mac1, mac4));
+        assertTrue(vns.index.getNetwork(mac1) != VirtualNetworkIndex.NONE);
+
+        // Moving a host to another network is visible in the next snapshot
+        VirtualNetworkIndex old = vns.index;
+        vns.addHost(mac1, guid3, hostPort1);
+        assertTrue(vns.index.onSameNetwork(mac1, mac4));
+        assertFalse(vns.index.onSameNetwork(mac1, mac2));
+        // while the old snapshot is left untouched
+        assertTrue(old.onSameNetwork(mac1, mac2));
+
+        vns.deleteHost(mac1, null);
+        assertEquals(VirtualNetworkIndex.NONE, vns.index.getNetwork(mac1));
+        vns.deleteNetwork(guid3);
+        assertEquals(VirtualNetworkIndex.NONE, vns.index.getNetwork(mac4));
+        assertTrue(vns.index.onSameNetwork(mac2, mac2));
+    }
+
     @Test
     public void testForwarding() {
         testAddHost();
@@ -349,6 +378,42 @@ public class VirtualNetworkFilterTest extends FloodlightTestCase {
         assertTrue(ret == Command.STOP);
     }
 
+    @Test
+    public void testDropFlowTracking() {
+        DatapathId dpid1 = DatapathId.of(1L);
+        DatapathId dpid2 = DatapathId.of(2L);
+        vns.addDropFlow(dpid1, mac1, mac4);
+        vns.addDropFlow(dpid2, mac1, mac4);
+        vns.addDropFlow(dpid1, mac4, mac1);
+        assertTrue(vns.dropFlowPeers.get(mac1).contains(mac4));
+
+        // The pair stays tracked while any switch still has a flow for it
+        OFFactory factory = OFFactories.getFactory(OFVersion.OF_13);
+        OFFlowRemoved removed = factory.buildFlowRemoved()
+                .setCookie(AppCookie.makeCookie(20, 0))
+                .setMatch(factory.buildMatch()
+                        .setExact(MatchField.ETH_SRC, mac1)
+                        .setExact(MatchField.ETH_DST, mac4)
+                        .build())
+                .build();
+        assertEquals(Command.CONTINUE, vns.receive(sw1, removed, null));
+        assertTrue(vns.dropFlowPeers.get(mac4).contains(mac1));
+        vns.removeDropFlow(dpid1, mac4, mac1);
+        assertTrue(vns.dropFlowPeers.get(mac4).contains(mac1));
+
+        // Flows of other applications are ignored
+        vns.addDropFlow(dpid1, mac1, mac4);
+        assertEquals(Command.CONTINUE, vns.receive(sw1,
+                removed.createBuilder().setCookie(AppCookie.makeCookie(10, 0)).build(), null));
+        vns.switchRemoved(dpid2);
+        assertTrue(vns.dropFlowPeers.containsKey(mac1));
+
+        // The last removal forgets the peers
+        vns.receive(sw1, removed, null);
+        assertTrue(vns.dropFlowPeers.isEmpty());
+        assertTrue(vns.dropFlows.isEmpty());
+    }
+
     @Test
     public void testDefaultGateway() {
         testAddHost();
@@ -0,0 +1,131 @@
+package net.floodlightcontroller.virtualnetwork;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.projectfloodlight.openflow.types.IPv4Address;
+import org.projectfloodlight.openflow.types.MacAddress;
+
+public class VirtualNetworkIndexTest {
+    private static final MacAddress host1 = MacAddress.of("00:00:00:00:00:01");
+    private static final MacAddress host2 = MacAddress.of("00:00:00:00:00:02");
+    private static final MacAddress host3 = MacAddress.of("00:00:00:00:00:03");
+    private static final MacAddress gwMac = MacAddress.of("00:00:00:00:00:fe");
+    private static final IPv4Address gwIp = IPv4Address.of("10.0.0.1");
+
+    @Test
+    public void testEdit() {
+        VirtualNetworkIndex idx = VirtualNetworkIndex.EMPTY.edit()
+                .setHost(host1, "net1")
+                .setHost(host2, "net1")
+                .setHost(host3, "net2")
+                .build();
+        assertTrue(idx.onSameNetwork(host1, host2));
+        assertFalse(idx.onSameNetwork(host1, host3));
+        assertEquals(VirtualNetworkIndex.NONE, idx.getNetwork(gwMac));
+        assertEquals(0, VirtualNetworkIndex.EMPTY.size());
+
+        VirtualNetworkIndex next = idx.edit()
+                .setHost(host1, "net2")
+                .setHost(host2, null)
+                .build();
+        assertTrue(next.onSameNetwork(host1, host3));
+        assertEquals(VirtualNetworkIndex.NONE, next.getNetwork(host2));
+        assertEquals(2, next.size());
+        // Network indexes are stable across snapshots
+        assertEquals(idx.getNetwork(host3), next.getNetwork(host1));
+        // and the previous snapshot is unchanged
+        assertTrue(idx.onSameNetwork(host1, host2));
+        assertEquals(3, idx.size());
+    }
+
+    @Test
+    public void testGateways() {
+        VirtualNetworkIndex idx = VirtualNetworkIndex.EMPTY.edit()
+                .setHost(host1, "net1")
+                .setHost(host3, "net2")
+                .setNetworkGateway("net1", gwIp)
+                .setGateway(gwMac, gwIp)
+                .build();
+        assertTrue(idx.isGateway(gwMac));
+        assertTrue(idx.isGatewayOf(gwMac, host1));
+        assertFalse(idx.isGatewayOf(gwMac, host3));
+        assertFalse(idx.isGateway(host1));
+
+        idx = idx.edit().setNetworkGateway("net1", null).build();
+        assertTrue(idx.isGateway(gwMac));
+        assertFalse(idx.isGatewayOf(gwMac, host1));
+
+        // A MAC can be a host and a gateway; clearing one keeps the other
+        idx = idx.edit().setHost(gwMac, "net2").setGateway(gwMac, null).build();
+        assertFalse(idx.isGateway(gwMac));
+        assertTrue(idx.onSameNetwork(gwMac, host3));
+    }
+
+    @Test
+    public void testBuildFromMaps() {
+        Map<MacAddress, String> macToGuid = new HashMap<MacAddress, String>();
+        macToGuid.put(host1, "net1");
+        macToGuid.put(host2, "net1");
+        Map<String, IPv4Address> guidToGateway = new HashMap<String, IPv4Address>();
+        guidToGateway.put("net1", gwIp);
+        Map<MacAddress, IPv4Address> macToGateway = new HashMap<MacAddress, IPv4Address>();
+        macToGateway.put(gwMac, gwIp);
+
+        VirtualNetworkIndex idx = VirtualNetworkIndex.build(macToGuid, guidToGateway, macToGateway);
+        assertTrue(idx.onSameNetwork(host1, host2));
+        assertTrue(idx.isGatewayOf(gwMac, host2));
+        assertEquals(3, idx.size());
+    }
+
+    @Test
+    public void testBuildOnce() {
+        VirtualNetworkIndex.Editor edit = VirtualNetworkIndex.EMPTY.edit();
+        edit.build();
+        try {
+            edit.build();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRandomChanges() {
+        // Check growth and removal against a map with many colliding changes
+        Random random = new Random(42);
+        Map<MacAddress, String> expected = new HashMap<MacAddress, String>();
+        VirtualNetworkIndex idx = VirtualNetworkIndex.EMPTY;
+        for (int round = 0; round < 50; round++) {
+            VirtualNetworkIndex.Editor edit = idx.edit();
+            for (int i = 0; i < 40; i++) {
+                MacAddress mac = MacAddress.of(random.nextInt(200) + 1);
+                if (random.nextInt(3) == 0) {
+                    edit.setHost(mac, null);
+                    expected.remove(mac);
+                } else {
+                    String guid = "net" + random.nextInt(5);
+                    edit.setHost(mac, guid);
+                    expected.put(mac, guid);
+                }
+            }
+            idx = edit.build();
+            assertEquals(expected.size(), idx.size());
+            for (int m = 1; m <= 200; m++) {
+                MacAddress mac = MacAddress.of(m);
+                assertEquals(expected.containsKey(mac),
+                             idx.getNetwork(mac) != VirtualNetworkIndex.NONE);
+            }
+            for (MacAddress a : expected.keySet()) {
+                for (MacAddress b : expected.keySet()) {
+                    assertEquals(expected.get(a).equals(expected.get(b)),
+                                 idx.onSameNetwork(a, b));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.sdnplatform.sync.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.module.FloodlightModuleContext;
+import net.floodlightcontroller.debugcounter.IDebugCounterService;
+import net.floodlightcontroller.debugcounter.MockDebugCounterService;
+import net.floodlightcontroller.debugevent.IDebugEventService;
+import net.floodlightcontroller.debugevent.MockDebugEventService;
+import net.floodlightcontroller.threadpool.IThreadPoolService;
+import net.floodlightcontroller.threadpool.ThreadPool;
+
+import org.sdnplatform.sync.IStoreClient;
+import org.sdnplatform.sync.ISyncService.Scope;
+import org.sdnplatform.sync.internal.remote.RemoteSyncManager;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * Compares the throughput of single-key, batched and asynchronous store
+ * client operations, on a store client of the sync manager and on one of
+ * a remote sync manager connected to it.  Each run handles a batch of
+ * keys, and the throughput is reported per key.
+ */
+public class StoreClientBench extends MicroBenchmark {
+    private static final int BATCHES = 100;
+    private static final int BATCH_SIZE = 100;
+
+    private enum Operation {
+        PUT("put") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                for (String key : keys)
+                    client.put(key, key);
+                return null;
+            }
+        },
+        PUT_ASYNC("putAsync") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                List<ListenableFuture<?>> futures =
+                        new ArrayList<ListenableFuture<?>>(keys.size());
+                for (String key : keys)
+                    futures.add(client.putAsync(key, key));
+                return Futures.allAsList(futures).get();
+            }
+        },
+        PUT_ALL("putAll") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                Map<String, String> values = new HashMap<String, String>();
+                for (String key : keys)
+                    values.put(key, key);
+                client.putAll(values);
+                return null;
+            }
+        },
+        GET("get") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                Object last = null;
+                for (String key : keys)
+                    last = client.get(key);
+                return last;
+            }
+        },
+        GET_ASYNC("getAsync") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                List<ListenableFuture<?>> futures =
+                        new ArrayList<ListenableFuture<?>>(keys.size());
+                for (String key : keys)
+                    futures.add(client.getAsync(key));
+                return Futures.allAsList(futures).get();
+            }
+        },
+        GET_ALL("getAll") {
+            @Override
+            Object run(IStoreClient<String, String> client,
+                       List<String> keys) throws Exception {
+                return client.getAll(keys);
+            }
+        };
+
+        private final String name;
+
+        private Operation(String name) {
+            this.name = name;
+        }
+
+        abstract Object run(IStoreClient<String, String> client,
+                            List<String> keys) throws Exception;
+    }
+
+    private final Operation op;
+    private final boolean remote;
+    private ThreadPool tp;
+    private SyncManager syncManager;
+    private RemoteSyncManager remoteSyncManager;
+    private IStoreClient<String, String> client;
+    private List<List<String>> batches;
+    private int next;
+
+    private StoreClientBench(Operation op, boolean remote) {
+        super(StoreClientBench.class.getName() + "." +
+              (remote ? "remote" : "local") + "." + op.name);
+        this.op = op;
+        this.remote = remote;
+    }
+
+    /**
+     * @return the benchmarks of each operation, on a local and on a
+     * remote store client
+     */
+    public static List<MicroBenchmark> getBenchmarks() {
+        List<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+        for (boolean remote : new boolean[] { false, true }) {
+            for (Operation op : Operation.values()) {
+                benchmarks.add(new StoreClientBench(op, remote));
+            }
+        }
+        return benchmarks;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        batches = new ArrayList<List<String>>(BATCHES);
+        for (int i = 0; i < BATCHES; i++) {
+            List<String> batch = new ArrayList<String>(BATCH_SIZE);
+            for (int j = 0; j < BATCH_SIZE; j++)
+                batch.add("key" + (i * BATCH_SIZE + j));
+            batches.add(batch);
+        }
+        next = 0;
+
+        FloodlightModuleContext fmc = new FloodlightModuleContext();
+        tp = new ThreadPool();
+        syncManager = new SyncManager();
+        remoteSyncManager = new RemoteSyncManager();
+
+        fmc.addService(IThreadPoolService.class, tp);
+        fmc.addService(IDebugCounterService.class,
+                       new MockDebugCounterService());
+        fmc.addService(IDebugEventService.class, new MockDebugEventService());
+        fmc.addConfigParam(syncManager, "persistenceEnabled", "false");
+
+        tp.init(fmc);
+        syncManager.init(fmc);
+        remoteSyncManager.init(fmc);
+        tp.startUp(fmc);
+        syncManager.startUp(fmc);
+        remoteSyncManager.startUp(fmc);
+
+        syncManager.registerStore("local", Scope.LOCAL);
+        if (remote) {
+            client = remoteSyncManager.getStoreClient("local", String.class,
+                                                      String.class);
+        } else {
+            client = syncManager.getStoreClient("local", String.class,
+                                                String.class);
+        }
+        // The reads find every key
+        for (List<String> batch : batches)
+            Operation.PUT_ALL.run(client, batch);
+    }
+
+    @Override
+    public int getOperationsPerRun() {
+        return BATCH_SIZE;
+    }
+
+    @Override
+    public Object run() throws Exception {
+        List<String> batch = batches.get(next);
+        if (++next == BATCHES) next = 0;
+        return op.run(client, batch);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        tp.getScheduledExecutor().shutdownNow();
+        remoteSyncManager.shutdown();
+        syncManager.shutdown();
+    }
+}
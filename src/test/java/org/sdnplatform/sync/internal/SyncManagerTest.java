@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
@@ -35,6 +36,7 @@ import org.sdnplatform.sync.IStoreClient;
 import org.sdnplatform.sync.IStoreListener;
 import org.sdnplatform.sync.IStoreListener.UpdateType;
 import org.sdnplatform.sync.ISyncService;
+import org.sdnplatform.sync.IVersion;
 import org.sdnplatform.sync.Versioned;
 import org.sdnplatform.sync.ISyncService.Scope;
 import org.sdnplatform.sync.error.ObsoleteVersionException;
@@ -168,6 +170,36 @@ public class SyncManagerTest {
         
     }
 
+    @Test
+    public void testBatchOneNode() throws Exception {
+        AbstractSyncManager sync = syncManagers[0];
+        IStoreClient<Key, TBean> testClient =
+                sync.getStoreClient("global", Key.class, TBean.class);
+        Key k1 = new Key("com.bigswitch.bigsync.internal", "test1");
+        Key k2 = new Key("com.bigswitch.bigsync.internal", "test2");
+        Key k3 = new Key("com.bigswitch.bigsync.internal", "test3");
+        TBean tb1 = new TBean("hello", 42);
+        TBean tb2 = new TBean("hello", 84);
+
+        testClient.put(k1, tb1);
+        HashMap<Key, TBean> values = new HashMap<Key, TBean>();
+        values.put(k1, tb2);
+        values.put(k2, tb1);
+        testClient.putAll(values);
+
+        Map<Key, Versioned<TBean>> result =
+                testClient.getAll(Arrays.asList(k1, k2, k3));
+        assertEquals(3, result.size());
+        assertEquals(tb2, result.get(k1).getValue());
+        assertEquals(tb1, result.get(k2).getValue());
+        assertNull(result.get(k3).getValue());
+
+        IVersion version = testClient.putAsync(k3, tb2).get();
+        Versioned<TBean> v3 = testClient.getAsync(k3).get();
+        assertEquals(tb2, v3.getValue());
+        assertEquals(version, v3.getVersion());
+    }
+
     @Test
     public void testIterator() throws Exception {
         AbstractSyncManager sync = syncManagers[0];
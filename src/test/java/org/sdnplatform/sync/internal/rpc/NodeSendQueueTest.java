@@ -0,0 +1,129 @@
+package org.sdnplatform.sync.internal.rpc;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sdnplatform.sync.ISyncService.Scope;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.internal.util.ByteArray;
+import org.sdnplatform.sync.internal.version.VectorClock;
+import org.sdnplatform.sync.thrift.KeyedValues;
+import org.sdnplatform.sync.thrift.MessageType;
+import org.sdnplatform.sync.thrift.Store;
+import org.sdnplatform.sync.thrift.SyncMessage;
+import org.sdnplatform.sync.thrift.SyncValueMessage;
+
+public class NodeSendQueueTest {
+    NodeSendQueue queue;
+    Store global = TProtocolUtil.getTStore("global", Scope.GLOBAL, false);
+    Store local = TProtocolUtil.getTStore("local", Scope.LOCAL, false);
+
+    @Before
+    public void setUp() {
+        queue = new NodeSendQueue((short)2);
+    }
+
+    private static ByteArray key(String key) {
+        return new ByteArray(key.getBytes());
+    }
+
+    private static List<Versioned<byte[]>> values(String value,
+                                                  VectorClock clock) {
+        return Collections.singletonList(new Versioned<byte[]>(value.getBytes(),
+                                                               clock));
+    }
+
+    private List<SyncMessage> take(int maxKeys) throws Exception {
+        List<SyncMessage> messages = new ArrayList<SyncMessage>();
+        queue.take(messages, maxKeys, 0);
+        return messages;
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        VectorClock v1 = new VectorClock().incremented(1, 1);
+        VectorClock v2 = v1.incremented(1, 2);
+        queue.offerValues(global, key("a"), values("1", v1));
+        queue.offerValues(global, key("b"), values("1", v1));
+        queue.offerValues(global, key("a"), values("2", v2));
+        assertEquals(2, queue.getBacklog());
+
+        List<SyncMessage> messages = take(50);
+        assertEquals(1, messages.size());
+        SyncValueMessage svm = messages.get(0).getSyncValue();
+        assertEquals("global", svm.getStore().getStoreName());
+        assertEquals(2, svm.getValuesSize());
+
+        // the newer value replaced the older one, in the order the keys
+        // were first queued
+        KeyedValues kv = svm.getValues().get(0);
+        assertArrayEquals("a".getBytes(), kv.getKey());
+        assertEquals(1, kv.getValuesSize());
+        assertArrayEquals("2".getBytes(), kv.getValues().get(0).getValue());
+        assertArrayEquals("b".getBytes(), svm.getValues().get(1).getKey());
+
+        assertEquals(0, queue.getBacklog());
+        assertEquals(0, queue.getLag());
+        assertEquals(0, take(50).size());
+    }
+
+    @Test
+    public void testConcurrentValuesKept() throws Exception {
+        queue.offerValues(global, key("a"),
+                          values("1", new VectorClock().incremented(1, 1)));
+        queue.offerValues(global, key("a"),
+                          values("2", new VectorClock().incremented(3, 1)));
+
+        List<SyncMessage> messages = take(50);
+        assertEquals(1, messages.size());
+        KeyedValues kv = messages.get(0).getSyncValue().getValues().get(0);
+        assertEquals(2, kv.getValuesSize());
+    }
+
+    @Test
+    public void testMessagesFirst() throws Exception {
+        VectorClock v1 = new VectorClock().incremented(1, 1);
+        queue.offerValues(global, key("a"), values("1", v1));
+        queue.offerValues(local, key("b"), values("1", v1));
+        queue.offerValues(global, key("c"), values("1", v1));
+        SyncMessage response = new SyncMessage(MessageType.SYNC_VALUE);
+        queue.offerMessage(response);
+        assertEquals(4, queue.getBacklog());
+
+        List<SyncMessage> messages = take(2);
+        assertEquals(3, messages.size());
+        assertSame(response, messages.get(0));
+        assertEquals("global",
+                     messages.get(1).getSyncValue().getStore().getStoreName());
+        assertEquals("local",
+                     messages.get(2).getSyncValue().getStore().getStoreName());
+        assertEquals(1, queue.getBacklog());
+
+        messages = take(2);
+        assertEquals(1, messages.size());
+        assertArrayEquals("c".getBytes(),
+                          messages.get(0).getSyncValue().getValues().
+                          get(0).getKey());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        VectorClock v1 = new VectorClock().incremented(1, 1);
+        queue.offerValues(global, key("a"), values("1", v1));
+        queue.offerMessage(new SyncMessage(MessageType.SYNC_VALUE));
+        assertEquals(2, queue.getBacklog());
+
+        queue.clear();
+        assertEquals(0, queue.getBacklog());
+        assertEquals(0, take(50).size());
+
+        // a key sent before is queued again
+        queue.offerValues(global, key("a"), values("1", v1));
+        assertEquals(1, take(50).size());
+    }
+}
@@ -21,7 +21,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 
 import org.junit.Test;
 import org.sdnplatform.sync.IClosableIterator;
@@ -275,6 +277,50 @@ public abstract class AbstractStoreT<K, V> {
         assertEquals("Number of entries", keys.size(), size);
     }
 
+    @Test
+    public void testGetAllAsync() throws Exception {
+        IStore<K, V> store = getStore();
+        List<K> keys = getKeys(3);
+        List<V> values = getValues(2);
+        store.put(keys.get(0), new Versioned<V>(values.get(0)));
+        store.put(keys.get(1), new Versioned<V>(values.get(1)));
+
+        Map<K, List<Versioned<V>>> found = store.getAllAsync(keys).get();
+        assertEquals(2, found.size());
+        assertGetAllValues(values.get(0), found.get(keys.get(0)));
+        assertGetAllValues(values.get(1), found.get(keys.get(1)));
+        assertFalse(found.containsKey(keys.get(2)));
+    }
+
+    @Test
+    public void testPutAllAsync() throws Exception {
+        IStore<K, V> store = getStore();
+        int putCount = 10;
+        List<K> keys = getKeys(putCount + 1);
+        List<V> values = getValues(putCount);
+        Map<K, Versioned<V>> map = new HashMap<K, Versioned<V>>();
+        for (int i = 0; i < putCount; i++)
+            map.put(keys.get(i), new Versioned<V>(values.get(i)));
+        store.putAllAsync(map).get();
+
+        for (int i = 0; i < putCount; i++)
+            assertGetAllValues(values.get(i), store.get(keys.get(i)));
+
+        // an obsolete value fails the put without blocking the others
+        K newKey = keys.get(putCount);
+        map.clear();
+        map.put(keys.get(0), new Versioned<V>(values.get(1)));
+        map.put(newKey, new Versioned<V>(values.get(0)));
+        try {
+            store.putAllAsync(map).get();
+            fail("Put of obsolete version succeeded.");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ObsoleteVersionException);
+        }
+        assertGetAllValues(values.get(0), store.get(keys.get(0)));
+        assertGetAllValues(values.get(0), store.get(newKey));
+    }
+
     protected void assertGetAllValues(V expectedValue, List<Versioned<V>> versioneds) {
         assertEquals(1, versioneds.size());
         valuesEqual(expectedValue, versioneds.get(0).getValue());
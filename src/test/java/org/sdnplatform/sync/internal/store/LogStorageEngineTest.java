@@ -0,0 +1,198 @@
+package org.sdnplatform.sync.internal.store;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.PersistException;
+import org.sdnplatform.sync.internal.TUtils;
+import org.sdnplatform.sync.internal.util.ByteArray;
+import org.sdnplatform.sync.internal.version.VectorClock;
+
+public class LogStorageEngineTest extends AbstractStorageEngineT {
+
+    private File dir;
+    private LogStorageEngine store;
+
+    @Override
+    public IStorageEngine<ByteArray, byte[]> getStorageEngine() {
+        return store;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        dir = TUtils.createTempDir();
+        store = new LogStorageEngine("test", dir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.truncate();
+        store.close();
+        File[] segments = dir.listFiles();
+        if (segments != null) {
+            for (File segment : segments)
+                segment.delete();
+        }
+        dir.delete();
+    }
+
+    @Override
+    public List<ByteArray> getKeys(int numKeys) {
+        List<ByteArray> keys = new ArrayList<ByteArray>(numKeys);
+        for(int i = 0; i < numKeys; i++)
+            keys.add(new ByteArray(TUtils.randomBytes(10)));
+        return keys;
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        List<ByteArray> keys = getKeys(20);
+        for (int i = 0; i < keys.size(); i++) {
+            store.put(keys.get(i),
+                      new Versioned<byte[]>(new byte[] { (byte) i },
+                                            TUtils.getClock(1)));
+        }
+        // delete the first key and overwrite the second one
+        store.put(keys.get(0),
+                  new Versioned<byte[]>(null, TUtils.getClock(1, 1)));
+        store.put(keys.get(1),
+                  new Versioned<byte[]>(new byte[] { 42 },
+                                        TUtils.getClock(1, 1)));
+        store.close();
+
+        store = new LogStorageEngine("test", dir);
+        assertEquals(keys.size(), store.size());
+        List<Versioned<byte[]>> values = store.get(keys.get(0));
+        assertEquals(1, values.size());
+        assertNull(values.get(0).getValue());
+        values = store.get(keys.get(1));
+        assertEquals(1, values.size());
+        assertArrayEquals(new byte[] { 42 }, values.get(0).getValue());
+        for (int i = 2; i < keys.size(); i++) {
+            values = store.get(keys.get(i));
+            assertEquals(1, values.size());
+            assertArrayEquals(new byte[] { (byte) i },
+                              values.get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        store.close();
+        store = new LogStorageEngine("test", dir, 1024);
+
+        List<ByteArray> keys = getKeys(10);
+        VectorClock clock = new VectorClock();
+        for (int round = 0; round < 50; round++) {
+            clock = TUtils.increment(clock, 1);
+            for (ByteArray key : keys) {
+                store.put(key, new Versioned<byte[]>(new byte[] { (byte) round },
+                                                     clock));
+            }
+        }
+        // an old tombstone that cleanup removes for good
+        ByteArray deleted = new ByteArray(TUtils.randomBytes(10));
+        store.put(deleted, new Versioned<byte[]>(null,
+                                                 TUtils.getClockT(1, 1)));
+        store.setTombstoneInterval(1);
+
+        int segments = store.getSegmentCount();
+        assertTrue(segments > 2);
+        store.cleanupTask();
+        assertTrue(store.getSegmentCount() < segments);
+        assertEquals(0, store.get(deleted).size());
+
+        store.close();
+        store = new LogStorageEngine("test", dir, 1024);
+        assertEquals(keys.size(), store.size());
+        assertEquals(0, store.get(deleted).size());
+        for (ByteArray key : keys) {
+            List<Versioned<byte[]>> values = store.get(key);
+            assertEquals(1, values.size());
+            assertArrayEquals(new byte[] { 49 }, values.get(0).getValue());
+        }
+    }
+
+    private static void append(File f, byte[] data) throws Exception {
+        FileOutputStream out = new FileOutputStream(f, true);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Test
+    public void testTornRecords() throws Exception {
+        store.close();
+        store = new LogStorageEngine("test", dir, 1024);
+        List<ByteArray> keys = getKeys(30);
+        for (int i = 0; i < keys.size(); i++) {
+            store.put(keys.get(i),
+                      new Versioned<byte[]>(new byte[64], TUtils.getClock(1)));
+        }
+        store.close();
+        File[] segments = dir.listFiles();
+        Arrays.sort(segments);
+        assertTrue(segments.length > 1);
+
+        // A torn record at the end of the last segment is cut off
+        File tail = segments[segments.length - 1];
+        long length = tail.length();
+        append(tail, new byte[] { 0, 0, 0, 100, 1, 2 });
+        store = new LogStorageEngine("test", dir, 1024);
+        assertEquals(keys.size(), store.size());
+        assertEquals(length, tail.length());
+        store.close();
+
+        // but one in an older segment is not taken for a torn write
+        append(segments[0], new byte[] { 0, 0, 0, 100, 1, 2 });
+        try {
+            store = new LogStorageEngine("test", dir, 1024);
+            fail("Expected PersistException");
+        } catch (PersistException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWriteErrorIsNotSticky() throws Exception {
+        ByteArray key1 = new ByteArray(TUtils.randomBytes(10));
+        ByteArray key2 = new ByteArray(TUtils.randomBytes(10));
+        store.put(key1, new Versioned<byte[]>(new byte[] { 1 },
+                                              TUtils.getClock(1)));
+
+        // Writing to the closed segment fails, and the value that could
+        // not be written is never visible
+        store.close();
+        try {
+            store.put(key2, new Versioned<byte[]>(new byte[] { 2 },
+                                                  TUtils.getClock(1)));
+            fail("Expected PersistException");
+        } catch (PersistException e) {
+            // expected
+        }
+        assertEquals(0, store.get(key2).size());
+
+        // The next write repairs the log
+        store.put(key2, new Versioned<byte[]>(new byte[] { 3 },
+                                              TUtils.getClock(1)));
+        assertArrayEquals(new byte[] { 3 }, store.get(key2).get(0).getValue());
+        store.close();
+
+        store = new LogStorageEngine("test", dir);
+        assertArrayEquals(new byte[] { 1 }, store.get(key1).get(0).getValue());
+        List<Versioned<byte[]>> values = store.get(key2);
+        assertEquals(1, values.size());
+        assertArrayEquals(new byte[] { 3 }, values.get(0).getValue());
+    }
+}
@@ -2,6 +2,7 @@ package org.sdnplatform.sync.internal.store;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 import net.floodlightcontroller.core.module.FloodlightModuleContext;
 import net.floodlightcontroller.debugcounter.IDebugCounterService;
@@ -15,12 +16,16 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
 import org.sdnplatform.sync.ISyncService.Scope;
+import org.sdnplatform.sync.error.RemoteStoreException;
 import org.sdnplatform.sync.internal.SyncManager;
 import org.sdnplatform.sync.internal.remote.RemoteSyncManager;
 import org.sdnplatform.sync.internal.store.IStore;
 import org.sdnplatform.sync.internal.util.ByteArray;
 
+import static org.junit.Assert.*;
+
 
 public class RemoteStoreTest extends AbstractStoreT<ByteArray,byte[]> {
     ThreadPool tp;
@@ -83,4 +88,16 @@ public class RemoteStoreTest extends AbstractStoreT<ByteArray,byte[]> {
         }
         return r;
     }
+
+    @Test
+    public void testAsyncAfterShutdown() throws Exception {
+        IStore<ByteArray, byte[]> store = getStore();
+        remoteSyncManager.shutdown();
+        try {
+            store.getAllAsync(getKeys(2)).get();
+            fail("Expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteStoreException);
+        }
+    }
 }
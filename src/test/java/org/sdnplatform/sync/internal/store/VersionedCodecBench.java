@@ -0,0 +1,209 @@
+package org.sdnplatform.sync.internal.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import net.floodlightcontroller.bench.MicroBenchmark;
+import net.floodlightcontroller.core.SwitchSyncRepresentation;
+import net.floodlightcontroller.devicemanager.internal.DeviceSyncRepresentation;
+import net.floodlightcontroller.devicemanager.internal.DeviceSyncRepresentation.SyncEntity;
+
+import org.projectfloodlight.openflow.protocol.OFActionType;
+import org.projectfloodlight.openflow.protocol.OFCapabilities;
+import org.projectfloodlight.openflow.types.DatapathId;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.internal.version.VectorClock;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+/**
+ * Compares the Smile encoding the persistent storage engines used to
+ * write with {@link VersionedCodec}, for values like those of the device
+ * and switch sync stores: the serialization and deserialization rate of
+ * an entry, and the bytes per entry as a secondary metric.
+ */
+public abstract class VersionedCodecBench extends MicroBenchmark {
+    private static final int ENTRIES = 10000;
+    private static final TypeReference<List<VCVersioned<byte[]>>> VALUES_TYPE =
+            new TypeReference<List<VCVersioned<byte[]>>>() {};
+
+    private enum Format {
+        SMILE {
+            @Override
+            byte[] encode(List<Versioned<byte[]>> values) throws Exception {
+                return JacksonStore.mapper.writeValueAsBytes(values);
+            }
+
+            @Override
+            List<Versioned<byte[]>> decode(byte[] data) throws Exception {
+                return JacksonStore.mapper.readValue(data, VALUES_TYPE);
+            }
+        },
+        BINARY {
+            @Override
+            byte[] encode(List<Versioned<byte[]>> values) {
+                return VersionedCodec.encode(values);
+            }
+
+            @Override
+            List<Versioned<byte[]>> decode(byte[] data) throws Exception {
+                return VersionedCodec.decode(data);
+            }
+        };
+
+        abstract byte[] encode(List<Versioned<byte[]>> values)
+                throws Exception;
+
+        abstract List<Versioned<byte[]>> decode(byte[] data)
+                throws Exception;
+    }
+
+    private final boolean switches;
+    protected final Format format;
+    protected List<List<Versioned<byte[]>>> entries;
+    protected List<byte[]> encoded;
+    protected int next;
+    private double bytesPerEntry;
+
+    protected VersionedCodecBench(String operation, boolean switches,
+                                  Format format) {
+        super(VersionedCodecBench.class.getName() + "." +
+              (switches ? "switch" : "device") + "." +
+              format.name().toLowerCase() + "." + operation);
+        this.switches = switches;
+        this.format = format;
+    }
+
+    /**
+     * @return the encode and decode benchmarks of each format, for the
+     * entries of each store
+     */
+    public static List<MicroBenchmark> getBenchmarks() {
+        List<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+        for (boolean switches : new boolean[] { false, true }) {
+            for (Format format : Format.values()) {
+                benchmarks.add(new Encode(switches, format));
+                benchmarks.add(new Decode(switches, format));
+            }
+        }
+        return benchmarks;
+    }
+
+    /**
+     * A clock as written by a cluster of three nodes
+     */
+    private static VectorClock getClock(Random r) {
+        VectorClock clock = new VectorClock();
+        for (int node = 1; node <= 3; node++) {
+            int writes = r.nextInt(20);
+            for (int i = 0; i < writes; i++)
+                clock = clock.incremented(node, System.currentTimeMillis());
+        }
+        return clock;
+    }
+
+    private static List<List<Versioned<byte[]>>> getDeviceEntries(int count)
+            throws Exception {
+        Random r = new Random(count);
+        List<List<Versioned<byte[]>>> entries =
+                new ArrayList<List<Versioned<byte[]>>>(count);
+        for (int i = 0; i < count; i++) {
+            DeviceSyncRepresentation device = new DeviceSyncRepresentation();
+            List<SyncEntity> entities = new ArrayList<SyncEntity>();
+            int entityCount = 1 + r.nextInt(3);
+            for (int e = 0; e < entityCount; e++) {
+                SyncEntity entity = new SyncEntity();
+                entity.macAddress = r.nextLong() & 0xffffffffffffL;
+                entity.ipv4Address = r.nextInt();
+                entity.vlan = (short) r.nextInt(4096);
+                entity.switchDPID = r.nextInt(1000);
+                entity.switchPort = r.nextInt(48);
+                entity.lastSeenTimestamp = new Date();
+                entity.activeSince = new Date();
+                entities.add(entity);
+            }
+            device.setEntities(entities);
+            device.setKey(Long.toString(entities.get(0).macAddress));
+            byte[] value = JacksonStore.mapper.writeValueAsBytes(device);
+            entries.add(Collections.singletonList(
+                    new Versioned<byte[]>(value, getClock(r))));
+        }
+        return entries;
+    }
+
+    private static List<List<Versioned<byte[]>>> getSwitchEntries(int count)
+            throws Exception {
+        Random r = new Random(count);
+        List<List<Versioned<byte[]>>> entries =
+                new ArrayList<List<Versioned<byte[]>>>(count);
+        for (int i = 0; i < count; i++) {
+            SwitchSyncRepresentation sw = new SwitchSyncRepresentation(
+                    DatapathId.of(r.nextLong()), 256, (byte) 254,
+                    Collections.singleton(OFCapabilities.FLOW_STATS),
+                    Collections.singleton(OFActionType.OUTPUT),
+                    Collections.<SwitchSyncRepresentation.SyncedPort>emptyList(),
+                    "Nicira, Inc.", "Open vSwitch", "2.3.0", "None",
+                    "switch " + i);
+            byte[] value = JacksonStore.mapper.writeValueAsBytes(sw);
+            List<Versioned<byte[]>> versions = new ArrayList<Versioned<byte[]>>();
+            versions.add(new Versioned<byte[]>(value, getClock(r)));
+            // An unresolved concurrent write from a second controller
+            if (r.nextInt(10) == 0)
+                versions.add(new Versioned<byte[]>(value, getClock(r)));
+            entries.add(versions);
+        }
+        return entries;
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        entries = switches ? getSwitchEntries(ENTRIES) :
+                getDeviceEntries(ENTRIES);
+        encoded = new ArrayList<byte[]>(entries.size());
+        long bytes = 0;
+        for (List<Versioned<byte[]>> values : entries) {
+            byte[] data = format.encode(values);
+            encoded.add(data);
+            bytes += data.length;
+        }
+        bytesPerEntry = (double) bytes / entries.size();
+        next = 0;
+    }
+
+    @Override
+    public Map<String, Double> getSecondaryMetrics() {
+        return Collections.singletonMap("bytes/entry", bytesPerEntry);
+    }
+
+    protected int nextEntry() {
+        int i = next;
+        if (++next == ENTRIES) next = 0;
+        return i;
+    }
+
+    public static class Encode extends VersionedCodecBench {
+        private Encode(boolean switches, Format format) {
+            super("encode", switches, format);
+        }
+
+        @Override
+        public Object run() throws Exception {
+            return format.encode(entries.get(nextEntry()));
+        }
+    }
+
+    public static class Decode extends VersionedCodecBench {
+        private Decode(boolean switches, Format format) {
+            super("decode", switches, format);
+        }
+
+        @Override
+        public Object run() throws Exception {
+            return format.decode(encoded.get(nextEntry()));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.sdnplatform.sync.internal.store;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.sdnplatform.sync.Versioned;
+import org.sdnplatform.sync.error.SerializationException;
+import org.sdnplatform.sync.internal.TUtils;
+import org.sdnplatform.sync.internal.version.VectorClock;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+
+public class VersionedCodecTest {
+
+    private static void assertValuesEqual(List<Versioned<byte[]>> expected,
+                                          List<Versioned<byte[]>> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getVersion(),
+                         actual.get(i).getVersion());
+            assertArrayEquals(expected.get(i).getValue(),
+                              actual.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        long now = System.currentTimeMillis();
+        List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>();
+        values.add(new Versioned<byte[]>(TUtils.randomBytes(200),
+                                         TUtils.getClockT(now, 1, 1, 3)));
+        values.add(new Versioned<byte[]>(new byte[0],
+                                         TUtils.getClockT(now - 5000, 2, 32767)));
+        values.add(new Versioned<byte[]>(null,
+                                         TUtils.getClockT(now + 1, 1, 2, 2)));
+        values.add(new Versioned<byte[]>(new byte[] { 1 },
+                                         new VectorClock(0)));
+
+        byte[] data = VersionedCodec.encode(values);
+        assertTrue(VersionedCodec.isEncoded(data));
+        assertValuesEqual(values, VersionedCodec.decode(data));
+
+        // Decoding from the middle of a buffer
+        byte[] padded = new byte[data.length + 7];
+        System.arraycopy(data, 0, padded, 3, data.length);
+        assertValuesEqual(values,
+                          VersionedCodec.decode(padded, 3, data.length));
+
+        List<Versioned<byte[]>> empty = new ArrayList<Versioned<byte[]>>();
+        assertValuesEqual(empty,
+                          VersionedCodec.decode(VersionedCodec.encode(empty)));
+    }
+
+    @Test
+    public void testClock() throws Exception {
+        VectorClock clock = TUtils.getClock(1, 1, 5, 300, 300, 300);
+        byte[] data = VersionedCodec.encodeClock(clock);
+        assertEquals(clock, VersionedCodec.decodeClock(data));
+
+        // A timestamp, the entry count and two bytes per small entry
+        assertEquals(VersionedCodec.varIntSize(clock.getTimestamp() << 1)
+                     + 1 + 2 + 2 + 3, data.length);
+    }
+
+    @Test
+    public void testSmallerThanSmile() throws Exception {
+        List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>();
+        values.add(new Versioned<byte[]>(TUtils.randomBytes(20),
+                                         TUtils.getClock(1, 2, 3)));
+        byte[] smile = JacksonStore.mapper.writeValueAsBytes(values);
+        byte[] data = VersionedCodec.encode(values);
+        assertFalse(VersionedCodec.isEncoded(smile));
+        assertTrue(data.length < smile.length);
+
+        List<Versioned<byte[]>> fromSmile =
+                JacksonStore.mapper.readValue(smile,
+                        new TypeReference<List<VCVersioned<byte[]>>>() {});
+        assertValuesEqual(fromSmile, VersionedCodec.decode(data));
+    }
+
+    @Test
+    public void testInvalid() throws Exception {
+        List<Versioned<byte[]>> values = new ArrayList<Versioned<byte[]>>();
+        values.add(new Versioned<byte[]>(TUtils.randomBytes(20),
+                                         TUtils.getClock(1, 2)));
+        byte[] data = VersionedCodec.encode(values);
+
+        for (int length = 0; length < data.length; length++) {
+            try {
+                VersionedCodec.decode(Arrays.copyOf(data, length));
+                fail("Decoded truncated value of length " + length);
+            } catch (SerializationException e) {
+                // expected
+            }
+        }
+        try {
+            VersionedCodec.decode(Arrays.copyOf(data, data.length + 1));
+            fail("Decoded value with trailing bytes");
+        } catch (SerializationException e) {
+            // expected
+        }
+        byte[] badFormat = data.clone();
+        badFormat[1] = 42;
+        try {
+            VersionedCodec.decode(badFormat);
+            fail("Decoded unknown format");
+        } catch (SerializationException e) {
+            // expected
+        }
+    }
+}